@@ -49,6 +49,7 @@ type CourseRecordModel = {
   created_at: string;
   finished_at?: string;
   finished_count: number;
+  first_learned_at?: string;
   hour_count: number;
   id: number;
   is_finished: number;
@@ -57,36 +58,14 @@ type CourseRecordModel = {
   user_id: number;
 };
 
-type HourCountModel = {
-  [key: number]: string;
-};
-
-type PerCourseRecordsModel = {
-  [key: number]: {
-    course_id: number;
-    created_at: string;
-    finished_at: string;
-    finished_duration: number;
-    hour_id: number;
-    id: number;
-    is_finished: number;
-    real_duration: number;
-    total_duration: number;
-    updated_at: string;
-    user_id: number;
-  };
-};
-
 const CourseUserPage = () => {
   const params = useParams();
   const result = new URLSearchParams(useLocation().search);
   const [list, setList] = useState<DataType[]>([]);
   const [course, setCourse] = useState<CourseModel | null>(null);
   const [records, setRecords] = useState<UserCourseRecordsModel>({});
-  const [hourCount, setHourCount] = useState<HourCountModel>({});
   const [userDepIds, setUserDepIds] = useState<DepIdsModel>({});
   const [departments, setDepartments] = useState<DepartmentsModel>({});
-  const [perRecords, setPerRecords] = useState<PerCourseRecordsModel>({});
   const [refresh, setRefresh] = useState(false);
   const [page, setPage] = useState(1);
   const [size, setSize] = useState(10);
@@ -158,10 +137,10 @@ const CourseUserPage = () => {
       dataIndex: "created_at",
       render: (_, record: any) => (
         <>
-          {perRecords[record.id] ? (
-            <span>{dateFormat(perRecords[record.id].created_at)}</span>
-          ) : hourCount[record.id] ? (
-            <span>{dateFormat(hourCount[record.id])}</span>
+          {records[record.id] && records[record.id].first_learned_at ? (
+            <span>
+              {dateFormat(String(records[record.id].first_learned_at))}
+            </span>
           ) : (
             <span>-</span>
           )}
@@ -186,7 +165,7 @@ const CourseUserPage = () => {
       dataIndex: "progress",
       render: (_, record: any) => (
         <>
-          {records[record.id] ? (
+          {records[record.id] && records[record.id].finished_count > 0 ? (
             <span
               className={
                 Math.floor(
@@ -205,7 +184,7 @@ const CourseUserPage = () => {
               )}
               %
             </span>
-          ) : hourCount[record.id] ? (
+          ) : records[record.id] ? (
             <span className="c-red">1%</span>
           ) : (
             <span className="c-red">0%</span>
@@ -234,9 +213,7 @@ const CourseUserPage = () => {
       .then((res: any) => {
         setTotal(res.data.total);
         setList(res.data.data);
-        setHourCount(res.data.user_course_hour_user_first_at);
         setRecords(res.data.user_course_records);
-        setPerRecords(res.data.per_user_earliest_records);
         setResourceUrl(res.data.resource_url);
         setCourse(res.data.course);
         setDepartments(res.data.departments);
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.api.bus;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.read.builder.ExcelReaderBuilder;
+import com.alibaba.excel.support.ExcelTypeEnum;
+import java.io.InputStream;
+import java.util.*;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import xyz.playedu.api.request.backend.CourseHourMultiRequest;
+import xyz.playedu.common.constant.BackendConstant;
+import xyz.playedu.common.exception.ServiceException;
+import xyz.playedu.common.util.SortKeys;
+import xyz.playedu.course.caches.CourseHourCountCache;
+import xyz.playedu.course.domain.CourseChapter;
+import xyz.playedu.course.domain.CourseHour;
+import xyz.playedu.course.domain.Quiz;
+import xyz.playedu.course.service.CourseChapterService;
+import xyz.playedu.course.service.CourseHourService;
+import xyz.playedu.course.service.CourseService;
+import xyz.playedu.course.service.QuizService;
+import xyz.playedu.course.types.CourseHourExcelRow;
+import xyz.playedu.resource.domain.Resource;
+import xyz.playedu.resource.service.ResourceService;
+
+/**
+ * 课时批量导入
+ *
+ * <p>章节、已有课时、资源、练习各查询一次完成校验，课时按批次多行写入，课程课时数按导入数量递增而不是重新统计。调用方负责开启事务。
+ */
+@Component
+public class CourseHourImportBus {
+
+    public static final int MAX_ROWS = 5000;
+
+    @Autowired private CourseHourService hourService;
+
+    @Autowired private CourseChapterService chapterService;
+
+    @Autowired private CourseService courseService;
+
+    @Autowired private QuizService quizService;
+
+    @Autowired private ResourceService resourceService;
+
+    @Autowired private CourseHourCountCache courseHourCountCache;
+
+    /**
+     * 校验并写入课时
+     *
+     * @return 导入的课时数
+     */
+    public int store(Integer courseId, List<CourseHourMultiRequest.HourItem> items) {
+        if (items == null || items.isEmpty()) {
+            throw new ServiceException("参数为空");
+        }
+        if (items.size() > MAX_ROWS) {
+            throw new ServiceException("单次最多导入" + MAX_ROWS + "个课时");
+        }
+
+        Set<Integer> chapterIds =
+                chapterService.getChaptersByCourseId(courseId).stream()
+                        .map(CourseChapter::getId)
+                        .collect(Collectors.toSet());
+
+        Set<Integer> existsVideoRids = new HashSet<>();
+        Set<Integer> existsQuizIds = new HashSet<>();
+        Map<Integer, Integer> maxSorts = new HashMap<>();
+        for (CourseHour hour : hourService.getHoursByCourseId(courseId)) {
+            maxSorts.merge(hour.getChapterId(), hour.getSort(), Math::max);
+            if (BackendConstant.COURSE_HOUR_TYPE_VIDEO.equals(hour.getType())) {
+                existsVideoRids.add(hour.getRid());
+            } else if (BackendConstant.COURSE_HOUR_TYPE_QUIZ.equals(hour.getType())) {
+                existsQuizIds.add(hour.getQuizId());
+            }
+        }
+
+        List<String> types = Arrays.asList(BackendConstant.COURSE_HOUR_TYPE_WHITELIST);
+        Map<Integer, String> rids = new LinkedHashMap<>();
+        Map<Integer, String> quizIds = new LinkedHashMap<>();
+        for (CourseHourMultiRequest.HourItem item : items) {
+            if (!types.contains(item.getType())) {
+                throw new ServiceException("课时类型不支持");
+            }
+            int chapterId = item.getChapterId() == null ? 0 : item.getChapterId();
+            if (chapterId != 0 && !chapterIds.contains(chapterId)) {
+                throw new ServiceException("课时《" + item.getTitle() + "》章节不存在");
+            }
+
+            if (BackendConstant.COURSE_HOUR_TYPE_VIDEO.equals(item.getType())) {
+                if (item.getRid() == null) {
+                    throw new ServiceException("课时《" + item.getTitle() + "》缺少资源");
+                }
+                if (item.getDuration() == null || item.getDuration() <= 0) {
+                    throw new ServiceException("课时《" + item.getTitle() + "》缺少时长");
+                }
+                if (!existsVideoRids.add(item.getRid())) {
+                    throw new ServiceException("课时《" + item.getTitle() + "》已存在");
+                }
+                rids.put(item.getRid(), item.getTitle());
+            } else {
+                if (item.getQuizId() == null || item.getQuizId() <= 0) {
+                    throw new ServiceException("课时《" + item.getTitle() + "》缺少练习");
+                }
+                if (!existsQuizIds.add(item.getQuizId())) {
+                    throw new ServiceException("课时《" + item.getTitle() + "》已存在");
+                }
+                quizIds.put(item.getQuizId(), item.getTitle());
+            }
+        }
+
+        if (!rids.isEmpty()) {
+            Set<Integer> found =
+                    resourceService.chunks(new ArrayList<>(rids.keySet()), List.of("id")).stream()
+                            .map(Resource::getId)
+                            .collect(Collectors.toSet());
+            rids.forEach(
+                    (rid, title) -> {
+                        if (!found.contains(rid)) {
+                            throw new ServiceException("课时《" + title + "》资源不存在");
+                        }
+                    });
+        }
+        if (!quizIds.isEmpty()) {
+            Set<Integer> found =
+                    quizService.listByIds(quizIds.keySet()).stream()
+                            .map(Quiz::getId)
+                            .collect(Collectors.toSet());
+            quizIds.forEach(
+                    (quizId, title) -> {
+                        if (!found.contains(quizId)) {
+                            throw new ServiceException("课时《" + title + "》练习不存在");
+                        }
+                    });
+        }
+
+        // 按章节追加到已有课时之后，同一章节内按导入的排序值(相同时按行)排列
+        List<CourseHourMultiRequest.HourItem> ordered = new ArrayList<>(items);
+        ordered.sort(
+                Comparator.comparing(
+                        CourseHourMultiRequest.HourItem::getSort,
+                        Comparator.nullsLast(Comparator.naturalOrder())));
+
+        Date now = new Date();
+        List<CourseHour> hours = new ArrayList<>(items.size());
+        for (CourseHourMultiRequest.HourItem item : ordered) {
+            boolean isVideo = BackendConstant.COURSE_HOUR_TYPE_VIDEO.equals(item.getType());
+            CourseHour hour = new CourseHour();
+            hour.setCourseId(courseId);
+            hour.setChapterId(item.getChapterId() == null ? 0 : item.getChapterId());
+            hour.setSort(
+                    maxSorts.merge(
+                            hour.getChapterId(),
+                            SortKeys.GAP,
+                            (prev, gap) -> (int) Math.min((long) prev + gap, Integer.MAX_VALUE)));
+            hour.setTitle(item.getTitle());
+            hour.setType(item.getType());
+            hour.setRid(isVideo ? item.getRid() : 0);
+            hour.setQuizId(isVideo ? 0 : item.getQuizId());
+            hour.setDuration(isVideo ? item.getDuration() : 0);
+            hour.setCreatedAt(now);
+            hours.add(hour);
+        }
+
+        hourService.insertBatch(courseId, hours);
+        courseService.incrementClassHour(courseId, hours.size());
+        courseHourCountCache.evict(courseId);
+
+        return hours.size();
+    }
+
+    /**
+     * 读取课时导入文件(xlsx/csv)
+     *
+     * <p>章节列填写章节名，为空表示不属于任何章节；类型列可填写VIDEO/QUIZ或视频/练习；排序为空时按行的先后顺序。
+     */
+    public List<CourseHourMultiRequest.HourItem> read(
+            Integer courseId, InputStream inputStream, boolean csv) {
+        ExcelReaderBuilder builder = EasyExcel.read(inputStream).head(CourseHourExcelRow.class);
+        if (csv) {
+            builder.excelType(ExcelTypeEnum.CSV);
+        }
+        List<CourseHourExcelRow> rows = builder.sheet().doReadSync();
+        if (rows == null || rows.isEmpty()) {
+            throw new ServiceException("导入文件为空");
+        }
+        if (rows.size() > MAX_ROWS) {
+            throw new ServiceException("单次最多导入" + MAX_ROWS + "个课时");
+        }
+
+        Map<String, Integer> chapters = new HashMap<>();
+        for (CourseChapter chapter : chapterService.getChaptersByCourseId(courseId)) {
+            chapters.putIfAbsent(chapter.getName(), chapter.getId());
+        }
+
+        List<CourseHourMultiRequest.HourItem> items = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            CourseHourExcelRow row = rows.get(i);
+            int rowNumber = i + 2; // header + 1-based index
+            if (row == null || StringUtils.isBlank(row.getTitle())) {
+                throw new ServiceException("第" + rowNumber + "行：缺少课时名");
+            }
+
+            Integer chapterId = 0;
+            String chapterName = StringUtils.trimToEmpty(row.getChapter());
+            if (!chapterName.isEmpty()) {
+                chapterId = chapters.get(chapterName);
+                if (chapterId == null) {
+                    throw new ServiceException("第" + rowNumber + "行：章节" + chapterName + "不存在");
+                }
+            }
+
+            CourseHourMultiRequest.HourItem item = new CourseHourMultiRequest.HourItem();
+            item.setChapterId(chapterId);
+            item.setTitle(row.getTitle().trim());
+            item.setType(type(row.getType()));
+            item.setRid(row.getRid());
+            item.setQuizId(row.getQuizId());
+            item.setDuration(row.getDuration());
+            item.setSort(row.getSort());
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static String type(String value) {
+        String type = StringUtils.trimToEmpty(value);
+        for (int i = 0; i < BackendConstant.COURSE_HOUR_TYPE_WHITELIST_TEXT.length; i++) {
+            if (BackendConstant.COURSE_HOUR_TYPE_WHITELIST_TEXT[i].equals(type)) {
+                return BackendConstant.COURSE_HOUR_TYPE_WHITELIST[i];
+            }
+        }
+        return type.toUpperCase();
+    }
+}
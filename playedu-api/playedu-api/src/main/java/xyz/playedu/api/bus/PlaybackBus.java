@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.api.bus;
+
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import xyz.playedu.api.event.UserCourseHourFinishedEvent;
+import xyz.playedu.api.event.UserLearnCourseUpdateEvent;
+import xyz.playedu.common.util.LockManager;
+import xyz.playedu.course.caches.UserLastLearnTimeCache;
+import xyz.playedu.course.domain.CourseHour;
+import xyz.playedu.course.service.UserCourseHourRecordService;
+
+/** 课时播放的心跳与进度上报，HTTP接口与WebSocket播放通道共用，调用方需先完成课程可见性校验 */
+@Component
+public class PlaybackBus {
+
+    @Autowired private UserCourseHourRecordService userCourseHourRecordService;
+
+    @Autowired private UserLastLearnTimeCache userLastLearnTimeCache;
+
+    @Autowired private LockManager lockManager;
+
+    @Autowired private ApplicationContext ctx;
+
+    /**
+     * 保存课时观看进度
+     *
+     * @return 获取锁超时返回false，由客户端重试
+     */
+    public boolean record(Integer userId, Integer courseId, CourseHour hour, Integer duration) {
+        // 获取锁-同一学员的并发请求排队等待，超时返回错误由前端重试，避免进度被静默丢弃
+        String lockKey = String.format("record:%d", userId);
+        LockManager.Token lockToken = lockManager.tryLock(lockKey, 5, 3, TimeUnit.SECONDS);
+        if (lockToken == null) {
+            return false;
+        }
+
+        try {
+            boolean isFinished =
+                    userCourseHourRecordService.storeOrUpdate(
+                            userId, courseId, hour.getId(), duration, hour.getDuration());
+            if (isFinished) {
+                ctx.publishEvent(
+                        new UserCourseHourFinishedEvent(this, userId, courseId, hour.getId()));
+            }
+        } finally {
+            lockManager.release(lockToken);
+        }
+        return true;
+    }
+
+    /**
+     * 观看心跳，按两次心跳的间隔累计学习时长
+     *
+     * @return 获取锁超时返回false，由客户端重试
+     */
+    public boolean ping(Integer userId, Integer courseId, Integer hourId) {
+        // 获取锁-同一学员的并发请求排队等待，超时返回错误由前端重试，避免进度被静默丢弃
+        String lockKey = String.format("ping:%d", userId);
+        LockManager.Token lockToken = lockManager.tryLock(lockKey, 5, 3, TimeUnit.SECONDS);
+        if (lockToken == null) {
+            return false;
+        }
+
+        try {
+            Long curTime = System.currentTimeMillis();
+
+            // 最近一次学习时间
+            Long lastTime = userLastLearnTimeCache.get(userId);
+            // 最大周期为10s+0.5s的网络延迟
+            if (lastTime == null || curTime - lastTime > 10500) {
+                lastTime = curTime - 10000;
+            }
+
+            userLastLearnTimeCache.put(userId, curTime);
+
+            ctx.publishEvent(
+                    new UserLearnCourseUpdateEvent(
+                            this, userId, courseId, hourId, lastTime, curTime));
+        } finally {
+            lockManager.release(lockToken);
+        }
+        return true;
+    }
+}
@@ -18,20 +18,20 @@ package xyz.playedu.api.cache;
 import java.util.concurrent.TimeUnit;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import xyz.playedu.common.util.MemoryDistributedLock;
+import xyz.playedu.common.util.LockManager;
 
 @Component
 public class LoginLockCache {
 
-    @Autowired private MemoryDistributedLock distributedLock;
+    @Autowired private LockManager lockManager;
 
-    public boolean apply(String username) {
-        String key = cacheKey(username);
-        return distributedLock.tryLock(key, 10L, TimeUnit.SECONDS);
+    /** 获取登录锁，已被占用时返回 null */
+    public LockManager.Token apply(String username) {
+        return lockManager.tryLock(cacheKey(username), 10L, TimeUnit.SECONDS);
     }
 
-    public void release(String username) {
-        distributedLock.releaseLock(cacheKey(username));
+    public void release(LockManager.Token token) {
+        lockManager.release(token);
     }
 
     private String cacheKey(String username) {
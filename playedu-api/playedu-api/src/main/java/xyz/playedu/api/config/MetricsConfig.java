@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+import jakarta.annotation.PostConstruct;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import xyz.playedu.common.bus.EventDispatcher;
+import xyz.playedu.common.metrics.MetricsRegistry;
+import xyz.playedu.common.util.Bulkhead;
+import xyz.playedu.common.util.JsonResponseCache;
+import xyz.playedu.common.util.LatencyHistogram;
+import xyz.playedu.common.util.LockManager;
+import xyz.playedu.common.util.MemoryCacheUtil;
+import xyz.playedu.common.util.SqlProfiler;
+import xyz.playedu.common.util.ldap.LdapConnectionPool;
+import xyz.playedu.course.caches.CourseHourCountCache;
+
+/** 注册连接池、线程池、事件队列、缓存、锁与下游隔离舱的指标，接口耗时由 MetricsWebInterceptor 采集 */
+@Configuration
+public class MetricsConfig {
+
+    private static final HikariMetrics hikariMetrics = new HikariMetrics();
+
+    @Autowired private MetricsRegistry registry;
+
+    @Autowired private EventDispatcher eventDispatcher;
+
+    @Autowired private LockManager lockManager;
+
+    @Autowired private JsonResponseCache jsonResponseCache;
+
+    @Autowired private CourseHourCountCache courseHourCountCache;
+
+    @Autowired private ObjectProvider<ThreadPoolTaskExecutor> taskExecutor;
+
+    /** 连接池启动前挂上耗时采集，记录借出等待与占用时长 */
+    @Bean
+    public static BeanPostProcessor hikariMetricsPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource
+                        && dataSource.getMetricsTrackerFactory() == null
+                        && dataSource.getMetricRegistry() == null) {
+                    dataSource.setMetricsTrackerFactory(hikariMetrics::create);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @PostConstruct
+    public void register() {
+        registerHikari();
+        registerExecutor();
+        registerEvents();
+        registerCaches();
+        registerLocks();
+        registerDownstream();
+        registerProcess();
+        registry.summaries(
+                "playedu_sql_statement_seconds",
+                "SQL执行耗时(按Mapper方法)",
+                "statement",
+                SqlProfiler::statementHistograms);
+    }
+
+    private void registerHikari() {
+        registry.collect(
+                "playedu_hikari_connections",
+                "数据库连接池连接数",
+                false,
+                sink -> {
+                    PoolStats stats = hikariMetrics.poolStats;
+                    if (stats == null) {
+                        return;
+                    }
+                    sink.sample(stats.getActiveConnections(), "state", "active");
+                    sink.sample(stats.getIdleConnections(), "state", "idle");
+                    sink.sample(stats.getTotalConnections(), "state", "total");
+                    sink.sample(stats.getPendingThreads(), "state", "pending");
+                    sink.sample(stats.getMaxConnections(), "state", "max");
+                });
+        registry.summaries(
+                "playedu_hikari_acquire_seconds",
+                "数据库连接借出等待时长",
+                "pool",
+                () -> Map.of("default", hikariMetrics.acquire));
+        registry.summaries(
+                "playedu_hikari_usage_seconds",
+                "数据库连接占用时长",
+                "pool",
+                () -> Map.of("default", hikariMetrics.usage));
+        registry.collect(
+                "playedu_hikari_timeouts_total",
+                "数据库连接借出超时次数",
+                true,
+                sink -> sink.sample(hikariMetrics.timeouts.sum(), "pool", "default"));
+    }
+
+    private void registerExecutor() {
+        ThreadPoolTaskExecutor executor = taskExecutor.getIfUnique();
+        if (executor == null) {
+            // 虚拟线程模式下 @Async 不使用线程池
+            return;
+        }
+        registry.gauge(
+                "playedu_executor_queued",
+                "@Async线程池排队任务数",
+                () -> executor.getThreadPoolExecutor().getQueue().size(),
+                "name",
+                "task");
+        registry.gauge(
+                "playedu_executor_active",
+                "@Async线程池执行中任务数",
+                executor::getActiveCount,
+                "name",
+                "task");
+        registry.gauge(
+                "playedu_executor_pool_size",
+                "@Async线程池线程数",
+                executor::getPoolSize,
+                "name",
+                "task");
+    }
+
+    private void registerEvents() {
+        registry.collect(
+                "playedu_event_partition_queued",
+                "领域事件分区排队数",
+                false,
+                sink -> {
+                    int[] sizes = eventDispatcher.queueSizes();
+                    for (int i = 0; i < sizes.length; i++) {
+                        sink.sample(sizes[i], "partition", String.valueOf(i));
+                    }
+                });
+        registry.gauge(
+                "playedu_event_outbox_inflight", "已持久化尚未执行完成的事件数", eventDispatcher::inflightCount);
+        registry.collect(
+                "playedu_event_listener_total",
+                "领域事件监听执行次数",
+                true,
+                sink ->
+                        eventDispatcher
+                                .listenerSnapshots()
+                                .forEach(
+                                        (listener, stats) -> {
+                                            for (String result :
+                                                    new String[] {
+                                                        "count",
+                                                        "failed",
+                                                        "caller_runs",
+                                                        "discarded"
+                                                    }) {
+                                                sink.sample(
+                                                        (Number) stats.get(result),
+                                                        "listener",
+                                                        listener,
+                                                        "result",
+                                                        result);
+                                            }
+                                        }));
+    }
+
+    private void registerCaches() {
+        registry.collect(
+                "playedu_memory_cache_entries",
+                "内存缓存条目数(按键前缀,含限流计数 api-limiter)",
+                false,
+                sink ->
+                        MemoryCacheUtil.countByPrefix(50)
+                                .forEach((prefix, count) -> sink.sample(count, "prefix", prefix)));
+        registry.gauge(
+                "playedu_cache_entries",
+                "常驻缓存条目数",
+                jsonResponseCache::size,
+                "cache",
+                "json_response");
+        registry.gauge(
+                "playedu_cache_entries",
+                "常驻缓存条目数",
+                courseHourCountCache::size,
+                "cache",
+                "course_hour_count");
+    }
+
+    private void registerLocks() {
+        registry.collect(
+                "playedu_lock",
+                "锁管理器状态,held为当前持有数,其余为累计次数",
+                false,
+                sink -> {
+                    Map<String, Object> stats = lockManager.stats();
+                    for (String key :
+                            new String[] {
+                                "held",
+                                "acquired",
+                                "contended",
+                                "timeouts",
+                                "expired",
+                                "stale_releases"
+                            }) {
+                        sink.sample((Number) stats.get(key), "stat", key);
+                    }
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void registerDownstream() {
+        registry.collect(
+                "playedu_bulkhead",
+                "下游并发隔离舱状态",
+                false,
+                sink ->
+                        Bulkhead.stats()
+                                .forEach(
+                                        (name, value) -> {
+                                            Map<String, Object> stats = (Map<String, Object>) value;
+                                            for (String key :
+                                                    new String[] {
+                                                        "active", "queued", "calls", "rejected"
+                                                    }) {
+                                                sink.sample(
+                                                        (Number) stats.get(key),
+                                                        "name",
+                                                        name,
+                                                        "stat",
+                                                        key);
+                                            }
+                                        }));
+        registry.collect(
+                "playedu_ldap_pool",
+                "LDAP连接池状态",
+                false,
+                sink -> {
+                    Map<String, Object> stats = LdapConnectionPool.stats();
+                    for (String key :
+                            new String[] {"active", "idle", "borrow_count", "timeout_count"}) {
+                        sink.sample((Number) stats.get(key), "stat", key);
+                    }
+                });
+    }
+
+    private void registerProcess() {
+        if (ManagementFactory.getOperatingSystemMXBean()
+                instanceof com.sun.management.OperatingSystemMXBean os) {
+            registry.collect(
+                    "process_cpu_seconds_total",
+                    "进程累计占用的CPU时间",
+                    true,
+                    sink -> sink.sample(os.getProcessCpuTime() / 1e9));
+        }
+    }
+
+    private static class HikariMetrics {
+        private final LatencyHistogram acquire = new LatencyHistogram();
+        private final LatencyHistogram usage = new LatencyHistogram();
+        private final LongAdder timeouts = new LongAdder();
+        private volatile PoolStats poolStats;
+
+        IMetricsTracker create(String poolName, PoolStats stats) {
+            poolStats = stats;
+            return new IMetricsTracker() {
+                @Override
+                public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                    acquire.record(elapsedAcquiredNanos);
+                }
+
+                @Override
+                public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                    usage.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+                }
+
+                @Override
+                public void recordConnectionTimeout() {
+                    timeouts.increment();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.api.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+import xyz.playedu.api.websocket.PlaybackHandshakeInterceptor;
+import xyz.playedu.api.websocket.PlaybackWebSocketHandler;
+
+/** 播放通道 ws://{host}/api/v1/ws/playback?token={token}，握手请求不经过 WebMvcConfig 中的拦截器 */
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired private PlaybackWebSocketHandler playbackWebSocketHandler;
+
+    @Autowired private PlaybackHandshakeInterceptor playbackHandshakeInterceptor;
+
+    @Value("${playedu.playback.idle-timeout-seconds:60}")
+    private long idleTimeoutSeconds;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(playbackWebSocketHandler, "/api/v1/ws/playback")
+                .addInterceptors(playbackHandshakeInterceptor)
+                .setAllowedOriginPatterns("*");
+    }
+
+    /** 上报帧只有几十字节，缩小每个连接的缓冲区；超过空闲时长没有任何帧的连接由容器关闭 */
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(1024);
+        container.setMaxBinaryMessageBufferSize(1024);
+        container.setMaxSessionIdleTimeout(idleTimeoutSeconds * 1000);
+        container.setAsyncSendTimeout(5000L);
+        return container;
+    }
+}
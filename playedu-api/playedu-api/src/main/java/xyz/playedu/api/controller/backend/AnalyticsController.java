@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.api.controller.backend;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.commons.collections4.MapUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import xyz.playedu.common.annotation.BackendPermission;
+import xyz.playedu.common.constant.BPermissionConstant;
+import xyz.playedu.common.domain.Department;
+import xyz.playedu.common.exception.NotFoundException;
+import xyz.playedu.common.exception.ServiceException;
+import xyz.playedu.common.service.DepartmentService;
+import xyz.playedu.common.types.JsonResponse;
+import xyz.playedu.course.domain.Course;
+import xyz.playedu.course.domain.DepartmentCourseDaily;
+import xyz.playedu.course.service.CourseService;
+import xyz.playedu.course.service.DepartmentCourseDailyService;
+
+/** 学习分析：读取 部门×课程×日期 汇总表，部门数据包含下级部门，当天数据按定时任务周期更新 */
+@RestController
+@RequestMapping("/backend/v1/analytics")
+public class AnalyticsController {
+
+    /** 单次查询的最大天数 */
+    private static final int MAX_DAYS = 366;
+
+    @Autowired private DepartmentCourseDailyService departmentCourseDailyService;
+
+    @Autowired private DepartmentService departmentService;
+
+    @Autowired private CourseService courseService;
+
+    /**
+     * 课程学习情况。group=department 时返回 dep_id 本身及其直属子部门在区间内的合计；group=day 时返回 dep_id 的逐日数据。 dep_id=0
+     * 表示全部学员，默认最近90天。
+     */
+    @BackendPermission(slug = BPermissionConstant.DEPARTMENT_USER_LEARN)
+    @GetMapping("/department-course")
+    public JsonResponse departmentCourse(@RequestParam HashMap<String, Object> params)
+            throws NotFoundException {
+        Integer courseId = MapUtils.getInteger(params, "course_id", 0);
+        Integer depId = MapUtils.getInteger(params, "dep_id", 0);
+        String group = MapUtils.getString(params, "group", "department");
+
+        Course course = courseService.findOrFail(courseId);
+
+        LocalDate endDate = parseDate(MapUtils.getString(params, "end_date"), LocalDate.now());
+        LocalDate startDate =
+                parseDate(MapUtils.getString(params, "start_date"), endDate.minusDays(89));
+        if (startDate.isAfter(endDate)) {
+            throw new ServiceException("开始日期不能晚于结束日期");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= MAX_DAYS) {
+            throw new ServiceException("查询区间不能超过" + MAX_DAYS + "天");
+        }
+
+        Map<Integer, Department> departments =
+                departmentService.all().stream()
+                        .collect(Collectors.toMap(Department::getId, e -> e));
+        if (depId != 0 && !departments.containsKey(depId)) {
+            throw new NotFoundException("部门不存在");
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if ("day".equals(group)) {
+            Map<LocalDate, DepartmentCourseDaily> byDay =
+                    departmentCourseDailyService
+                            .daily(depId, courseId, startDate.toString(), endDate.toString())
+                            .stream()
+                            .collect(
+                                    Collectors.toMap(
+                                            e ->
+                                                    e.getCreatedDate()
+                                                            .toInstant()
+                                                            .atZone(ZoneId.systemDefault())
+                                                            .toLocalDate(),
+                                            e -> e));
+            for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+                Map<String, Object> row = metrics(byDay.get(day));
+                row.put("date", day.toString());
+                rows.add(row);
+            }
+        } else {
+            Map<Integer, DepartmentCourseDaily> byDep =
+                    departmentCourseDailyService
+                            .sumByDepartment(courseId, startDate.toString(), endDate.toString())
+                            .stream()
+                            .collect(Collectors.toMap(DepartmentCourseDaily::getDepId, e -> e));
+
+            List<Integer> depIds = new ArrayList<>();
+            depIds.add(depId);
+            departments.values().stream()
+                    .filter(e -> e.getParentId().equals(depId))
+                    .sorted(Comparator.comparing(Department::getSort))
+                    .forEach(e -> depIds.add(e.getId()));
+            for (Integer id : depIds) {
+                Map<String, Object> row = metrics(byDep.get(id));
+                row.put("dep_id", id);
+                row.put("dep_name", id == 0 ? "全部学员" : departments.get(id).getName());
+                rows.add(row);
+            }
+        }
+
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("course_id", course.getId());
+        data.put("course_title", course.getTitle());
+        data.put("dep_id", depId);
+        data.put("start_date", startDate.toString());
+        data.put("end_date", endDate.toString());
+        data.put("data", rows);
+        return JsonResponse.data(data);
+    }
+
+    private LocalDate parseDate(String value, LocalDate defaultValue) {
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new ServiceException("日期格式错误,应为yyyy-MM-dd");
+        }
+    }
+
+    private Map<String, Object> metrics(DepartmentCourseDaily item) {
+        int started = item == null ? 0 : item.getStartedCount();
+        int finished = item == null ? 0 : item.getFinishedCount();
+        Map<String, Object> row = new HashMap<>();
+        row.put("started_count", started);
+        row.put("finished_count", finished);
+        row.put("finished_hour_count", item == null ? 0 : item.getFinishedHourCount());
+        row.put("duration", item == null ? 0L : item.getDuration());
+        // 区间内学完人数/开始人数，学完的学员可能在区间之前开始学习，因此可能大于1
+        row.put(
+                "completion_rate",
+                started == 0 ? 0 : Math.round(finished * 10000.0 / started) / 10000.0);
+        return row;
+    }
+}
@@ -18,14 +18,18 @@ package xyz.playedu.api.controller.backend;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.MapUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import xyz.playedu.common.annotation.BackendPermission;
 import xyz.playedu.common.annotation.Log;
+import xyz.playedu.common.constant.BPermissionConstant;
 import xyz.playedu.common.constant.BusinessTypeConstant;
 import xyz.playedu.common.types.JsonResponse;
 import xyz.playedu.common.util.MemoryCacheUtil;
+import xyz.playedu.course.service.UserLearningSummaryService;
 
 @RestController
 @Slf4j
@@ -34,6 +38,8 @@ public class CacheController {
 
     @Autowired private MemoryCacheUtil memoryCacheUtil;
 
+    @Autowired private UserLearningSummaryService userLearningSummaryService;
+
     @GetMapping("/list")
     @Log(title = "缓存列表", businessType = BusinessTypeConstant.GET)
     public JsonResponse list() {
@@ -60,4 +66,18 @@ public class CacheController {
         }
         return JsonResponse.success();
     }
+
+    @BackendPermission(slug = BPermissionConstant.CACHE_MANAGE)
+    @PostMapping("/learning-summary/rebuild")
+    @Log(title = "学员学习汇总重建", businessType = BusinessTypeConstant.UPDATE)
+    public JsonResponse rebuildLearningSummary() {
+        // 重建耗时较长，后台执行
+        CompletableFuture.runAsync(
+                () -> {
+                    if (!userLearningSummaryService.rebuild()) {
+                        log.info("学员学习汇总正在重建中,忽略本次请求");
+                    }
+                });
+        return JsonResponse.success();
+    }
 }
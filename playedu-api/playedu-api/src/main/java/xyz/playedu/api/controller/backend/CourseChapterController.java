@@ -73,7 +73,7 @@ public class CourseChapterController {
             @RequestBody @Validated CourseChapterRequest req)
             throws NotFoundException {
         CourseChapter chapter = chapterService.findOrFail(id, courseId);
-        chapterService.update(chapter, req.getName(), req.getSort());
+        chapterService.update(chapter, req.getName());
         return JsonResponse.success();
     }
 
@@ -99,8 +99,15 @@ public class CourseChapterController {
     @Log(title = "线上课-章节-更新排序", businessType = BusinessTypeConstant.UPDATE)
     public JsonResponse updateSort(
             @PathVariable(name = "courseId") Integer courseId,
-            @RequestBody @Validated CourseChapterSortRequest req) {
-        chapterService.updateSort(req.getIds(), courseId);
+            @RequestBody @Validated CourseChapterSortRequest req)
+            throws NotFoundException {
+        if (req.getIds() != null && !req.getIds().isEmpty()) {
+            chapterService.updateSort(req.getIds(), courseId);
+        } else if (req.getId() != null) {
+            chapterService.move(courseId, req.getId(), req.getAfterId());
+        } else {
+            return JsonResponse.error("ids参数不存在");
+        }
         return JsonResponse.success();
     }
 }
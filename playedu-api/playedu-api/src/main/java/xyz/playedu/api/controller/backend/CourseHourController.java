@@ -15,13 +15,18 @@
  */
 package xyz.playedu.api.controller.backend;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import xyz.playedu.api.bus.CourseHourImportBus;
 import xyz.playedu.api.event.CourseHourCreatedEvent;
 import xyz.playedu.api.event.CourseHourDestroyEvent;
 import xyz.playedu.api.request.backend.CourseHourMultiRequest;
@@ -60,6 +65,8 @@ public class CourseHourController {
 
     @Autowired private QuizService quizService;
 
+    @Autowired private CourseHourImportBus courseHourImportBus;
+
     @BackendPermission(slug = BPermissionConstant.COURSE)
     @GetMapping("/create")
     @Log(title = "线上课-课时-新建", businessType = BusinessTypeConstant.GET)
@@ -157,94 +164,30 @@ public class CourseHourController {
     @Log(title = "线上课-课时-批量导入", businessType = BusinessTypeConstant.INSERT)
     public JsonResponse storeMulti(
             @PathVariable(name = "courseId") Integer courseId,
-            @RequestBody @Validated CourseHourMultiRequest req)
-            throws NotFoundException {
-        if (req.getHours().isEmpty()) {
-            return JsonResponse.error("参数为空");
-        }
-
-        Set<Integer> existsVideoRids =
-                new HashSet<>(
-                        hourService.getRidsByCourseId(
-                                courseId, BackendConstant.COURSE_HOUR_TYPE_VIDEO));
-        Set<Integer> existsQuizIds =
-                new HashSet<>(
-                        hourService.getRidsByCourseId(
-                                courseId, BackendConstant.COURSE_HOUR_TYPE_QUIZ));
-
-        Set<Integer> validatedQuizIds = new HashSet<>();
-
-        List<CourseHour> hours = new ArrayList<>();
-        Date now = new Date();
-
-        for (CourseHourMultiRequest.HourItem item : req.getHours()) {
-            if (!Arrays.asList(BackendConstant.COURSE_HOUR_TYPE_WHITELIST).contains(item.getType())) {
-                return JsonResponse.error("课时类型不支持");
-            }
-
-            if (BackendConstant.COURSE_HOUR_TYPE_VIDEO.equals(item.getType())) {
-                if (item.getRid() == null) {
-                    return JsonResponse.error("课时《" + item.getTitle() + "》缺少资源");
-                }
-                if (item.getDuration() == null || item.getDuration() <= 0) {
-                    return JsonResponse.error("课时《" + item.getTitle() + "》缺少时长");
-                }
-                if (existsVideoRids.contains(item.getRid())) {
-                    return JsonResponse.error("课时《" + item.getTitle() + "》已存在");
-                }
-                existsVideoRids.add(item.getRid());
-            } else if (BackendConstant.COURSE_HOUR_TYPE_QUIZ.equals(item.getType())) {
-                if (item.getQuizId() == null || item.getQuizId() <= 0) {
-                    return JsonResponse.error("课时《" + item.getTitle() + "》缺少练习");
-                }
-                if (existsQuizIds.contains(item.getQuizId())) {
-                    return JsonResponse.error("课时《" + item.getTitle() + "》已存在");
-                }
-                if (!validatedQuizIds.contains(item.getQuizId())) {
-                    quizService.findOrFail(item.getQuizId());
-                    validatedQuizIds.add(item.getQuizId());
-                }
-                existsQuizIds.add(item.getQuizId());
-            }
+            @RequestBody @Validated CourseHourMultiRequest req) {
+        courseHourImportBus.store(courseId, req.getHours());
+        return JsonResponse.success();
+    }
 
-            hours.add(
-                    new CourseHour() {
-                        {
-                            setCourseId(courseId);
-                            setChapterId(item.getChapterId());
-                            setSort(item.getSort());
-                            setType(item.getType());
-                                setRid(
-                                    BackendConstant.COURSE_HOUR_TYPE_VIDEO.equals(item.getType())
-                                        ? item.getRid()
-                                        : 0);
-                                setQuizId(
-                                    BackendConstant.COURSE_HOUR_TYPE_QUIZ.equals(item.getType())
-                                        ? item.getQuizId()
-                                        : 0);
-                            setTitle(item.getTitle());
-                            setDuration(
-                                    BackendConstant.COURSE_HOUR_TYPE_VIDEO.equals(item.getType())
-                                            ? item.getDuration()
-                                            : 0);
-                            setCreatedAt(now);
-                        }
-                    });
+    @BackendPermission(slug = BPermissionConstant.COURSE)
+    @PostMapping("/create-batch/import")
+    @Transactional
+    @Log(title = "线上课-课时-文件导入", businessType = BusinessTypeConstant.INSERT)
+    public JsonResponse importFile(
+            @PathVariable(name = "courseId") Integer courseId,
+            @RequestParam("file") MultipartFile file)
+            throws IOException {
+        if (file.isEmpty()) {
+            return JsonResponse.error("请上传Excel或CSV文件");
+        }
+        boolean csv = StringUtils.endsWithIgnoreCase(file.getOriginalFilename(), ".csv");
+        try (InputStream inputStream = file.getInputStream()) {
+            List<CourseHourMultiRequest.HourItem> items =
+                    courseHourImportBus.read(courseId, inputStream, csv);
+            HashMap<String, Object> data = new HashMap<>();
+            data.put("count", courseHourImportBus.store(courseId, items));
+            return JsonResponse.data(data);
         }
-
-        hourService.saveBatch(hours);
-
-        // 只需要发布一次event就可以了
-        CourseHour firstHour = hours.get(0);
-        ctx.publishEvent(
-                new CourseHourCreatedEvent(
-                        this,
-                        BCtx.getId(),
-                        firstHour.getCourseId(),
-                        firstHour.getChapterId(),
-                        firstHour.getId()));
-
-        return JsonResponse.success();
     }
 
     @BackendPermission(slug = BPermissionConstant.COURSE)
@@ -316,7 +259,6 @@ public class CourseHourController {
         hourService.update(
                 courseHour,
                 chapterId,
-                req.getSort(),
                 req.getTitle(),
                 type,
                 rid,
@@ -348,8 +290,18 @@ public class CourseHourController {
     @Log(title = "线上课-课时-更新排序", businessType = BusinessTypeConstant.UPDATE)
     public JsonResponse updateSort(
             @PathVariable(name = "courseId") Integer courseId,
-            @RequestBody @Validated CourseHourSortRequest req) {
-        hourService.updateSort(req.getIds(), courseId);
+            @RequestBody @Validated CourseHourSortRequest req)
+            throws NotFoundException {
+        if (req.getIds() != null && !req.getIds().isEmpty()) {
+            hourService.updateSort(req.getIds(), courseId);
+        } else if (req.getId() != null) {
+            if (req.getChapterId() != null && req.getChapterId() > 0) {
+                chapterService.findOrFail(req.getChapterId(), courseId);
+            }
+            hourService.move(courseId, req.getId(), req.getChapterId(), req.getAfterId());
+        } else {
+            return JsonResponse.error("ids参数不存在");
+        }
         return JsonResponse.success();
     }
 }
@@ -18,6 +18,7 @@ package xyz.playedu.api.controller.backend;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -35,13 +36,10 @@ import xyz.playedu.common.constant.BusinessTypeConstant;
 import xyz.playedu.common.domain.User;
 import xyz.playedu.common.service.*;
 import xyz.playedu.common.types.JsonResponse;
-import xyz.playedu.common.types.mapper.UserCourseHourRecordUserFirstCreatedAtMapper;
 import xyz.playedu.common.types.paginate.PaginationResult;
 import xyz.playedu.common.types.paginate.UserPaginateFilter;
-import xyz.playedu.course.domain.UserCourseHourRecord;
 import xyz.playedu.course.domain.UserCourseRecord;
 import xyz.playedu.course.service.CourseService;
-import xyz.playedu.course.service.UserCourseHourRecordService;
 import xyz.playedu.course.service.UserCourseRecordService;
 import xyz.playedu.resource.service.ResourceService;
 
@@ -59,8 +57,6 @@ public class CourseUserController {
 
     @Autowired private UserCourseRecordService userCourseRecordService;
 
-    @Autowired private UserCourseHourRecordService userCourseHourRecordService;
-
     @Autowired private UserService userService;
 
     @Autowired private DepartmentService departmentService;
@@ -114,6 +110,7 @@ public class CourseUserController {
         HashMap<String, Object> data = new HashMap<>();
         data.put("data", result.getData());
         data.put("total", result.getTotal());
+        // 学习进度与首次学习时间(first_learned_at)均只查询当前页学员
         data.put(
                 "user_course_records",
                 userCourseRecordService
@@ -126,29 +123,19 @@ public class CourseUserController {
                                 })
                         .stream()
                         .collect(Collectors.toMap(UserCourseRecord::getUserId, e -> e)));
-        data.put(
-                "user_course_hour_user_first_at",
-                userCourseHourRecordService
-                        .getUserCourseHourUserFirstCreatedAt(courseId, userIds)
-                        .stream()
-                        .collect(
-                                Collectors.toMap(
-                                        UserCourseHourRecordUserFirstCreatedAtMapper::getUserId,
-                                        UserCourseHourRecordUserFirstCreatedAtMapper
-                                                ::getCreatedAt)));
         data.put("course", courseService.findOrFail(courseId));
-        data.put(
-                "user_dep_ids",
-                userService.getDepIdsGroup(result.getData().stream().map(User::getId).toList()));
-        data.put("departments", departmentService.id2name());
 
-        // 获取每个学员的最早学习时间
-        List<UserCourseHourRecord> perUserEarliestRecords =
-                userCourseHourRecordService.getCoursePerUserEarliestRecord(courseId);
-        data.put(
-                "per_user_earliest_records",
-                perUserEarliestRecords.stream()
-                        .collect(Collectors.toMap(UserCourseHourRecord::getUserId, e -> e)));
+        Map<Integer, List<Integer>> userDepIds = userService.getDepIdsGroup(userIds);
+        data.put("user_dep_ids", userDepIds);
+        Map<Integer, String> id2name = departmentService.id2name();
+        Map<Integer, String> departments = new HashMap<>();
+        if (userDepIds != null) {
+            userDepIds.values().stream()
+                    .flatMap(List::stream)
+                    .filter(id2name::containsKey)
+                    .forEach(id -> departments.put(id, id2name.get(id)));
+        }
+        data.put("departments", departments);
 
         // 获取签名url
         data.put(
@@ -81,24 +81,10 @@ public class DepartmentController {
         List<Department> allDepartmentList = departmentService.all();
         if (StringUtil.isNotEmpty(allDepartmentList)) {
             for (Department dep : allDepartmentList) {
-                List<Integer> depIds = new ArrayList<>();
-                depIds.add(dep.getId());
-                String parentChain = "";
-                if (StringUtil.isEmpty(dep.getParentChain())) {
-                    parentChain = dep.getId() + "";
-                } else {
-                    parentChain = dep.getParentChain() + "," + dep.getId();
-                }
-                // 获取所有子部门ID
-                List<Department> childDepartmentList =
-                        departmentService.getChildDepartmentsByParentChain(
-                                dep.getId(), parentChain);
-                if (StringUtil.isNotEmpty(childDepartmentList)) {
-                    depIds.addAll(childDepartmentList.stream().map(Department::getId).toList());
-                }
-                List<Integer> departmentUserIds = userDepartmentService.getUserIdsByDepIds(depIds);
                 depUserCount.put(
-                        dep.getId(), departmentUserIds.stream().distinct().toList().size());
+                        dep.getId(),
+                        userDepartmentService.countUsersByDepIds(
+                                departmentService.withChildIds(List.of(dep.getId()))));
             }
         }
         data.put("dep_user_count", depUserCount);
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.api.controller.backend;
+
+import java.io.File;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import lombok.SneakyThrows;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import xyz.playedu.api.request.backend.ExportJobRequest;
+import xyz.playedu.common.annotation.BackendPermission;
+import xyz.playedu.common.annotation.Log;
+import xyz.playedu.common.bus.BackendBus;
+import xyz.playedu.common.constant.BPermissionConstant;
+import xyz.playedu.common.constant.BackendConstant;
+import xyz.playedu.common.constant.BusinessTypeConstant;
+import xyz.playedu.common.context.BCtx;
+import xyz.playedu.common.exception.NotFoundException;
+import xyz.playedu.common.exception.ServiceException;
+import xyz.playedu.common.types.JsonResponse;
+import xyz.playedu.course.domain.ExportJob;
+import xyz.playedu.course.service.ExportJobService;
+
+/** 学习进度导出：创建任务后由后台流式写文件，前端轮询任务状态后下载 */
+@RestController
+@RequestMapping("/backend/v1/export")
+public class ExportJobController {
+
+    @Autowired private ExportJobService exportJobService;
+
+    @Autowired private BackendBus backendBus;
+
+    @BackendPermission(slug = BPermissionConstant.COURSE_USER)
+    @PostMapping("/course/{courseId}")
+    @Log(title = "导出-线上课学习进度", businessType = BusinessTypeConstant.INSERT)
+    public JsonResponse course(
+            @PathVariable(name = "courseId") Integer courseId, @RequestBody ExportJobRequest req)
+            throws NotFoundException {
+        return JsonResponse.data(
+                exportJobService.create(
+                        BackendConstant.EXPORT_JOB_TYPE_COURSE,
+                        courseId,
+                        req.getFormat(),
+                        BCtx.getId()));
+    }
+
+    @BackendPermission(slug = BPermissionConstant.DEPARTMENT_USER_LEARN)
+    @PostMapping("/department/{depId}")
+    @Log(title = "导出-部门学习进度", businessType = BusinessTypeConstant.INSERT)
+    public JsonResponse department(
+            @PathVariable(name = "depId") Integer depId, @RequestBody ExportJobRequest req)
+            throws NotFoundException {
+        return JsonResponse.data(
+                exportJobService.create(
+                        BackendConstant.EXPORT_JOB_TYPE_DEPARTMENT,
+                        depId,
+                        req.getFormat(),
+                        BCtx.getId()));
+    }
+
+    @BackendPermission(slug = BPermissionConstant.USER_LEARN)
+    @PostMapping("/all")
+    @Log(title = "导出-全部学习进度", businessType = BusinessTypeConstant.INSERT)
+    public JsonResponse all(@RequestBody ExportJobRequest req) throws NotFoundException {
+        return JsonResponse.data(
+                exportJobService.create(
+                        BackendConstant.EXPORT_JOB_TYPE_ALL, 0, req.getFormat(), BCtx.getId()));
+    }
+
+    @GetMapping("/index")
+    public JsonResponse index() {
+        List<ExportJob> jobs =
+                exportJobService.list(
+                        exportJobService
+                                .query()
+                                .getWrapper()
+                                .eq("admin_id", BCtx.getId())
+                                .orderByDesc("id")
+                                .last("LIMIT 20"));
+        return JsonResponse.data(jobs);
+    }
+
+    @GetMapping("/{id}")
+    public JsonResponse detail(@PathVariable(name = "id") Integer id) throws NotFoundException {
+        return JsonResponse.data(findOwned(id));
+    }
+
+    @GetMapping("/{id}/download")
+    @SneakyThrows
+    @Log(title = "导出-下载", businessType = BusinessTypeConstant.GET)
+    public ResponseEntity<Resource> download(@PathVariable(name = "id") Integer id) {
+        ExportJob job = findOwned(id);
+        File file = exportJobService.file(job);
+        if (file == null) {
+            throw new ServiceException("导出文件不存在或尚未生成");
+        }
+        String fileName = URLEncoder.encode(job.getFileName(), StandardCharsets.UTF_8);
+        return ResponseEntity.ok()
+                .header(
+                        HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename*=UTF-8''" + fileName.replace("+", "%20"))
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(file.length())
+                .body(new FileSystemResource(file));
+    }
+
+    // 非超管只能查看自己创建的导出任务
+    private ExportJob findOwned(Integer id) throws NotFoundException {
+        ExportJob job = exportJobService.findOrFail(id);
+        if (!backendBus.isSuperAdmin() && !job.getAdminId().equals(BCtx.getId())) {
+            throw new ServiceException("无权限");
+        }
+        return job;
+    }
+}
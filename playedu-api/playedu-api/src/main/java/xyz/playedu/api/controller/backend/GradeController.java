@@ -31,6 +31,7 @@ import xyz.playedu.common.exception.NotFoundException;
 import xyz.playedu.common.types.JsonResponse;
 import xyz.playedu.course.service.DashboardService;
 import xyz.playedu.course.service.GradeService;
+import xyz.playedu.course.service.QuizItemStatService;
 import xyz.playedu.course.types.GradeAnalysisDTO;
 import xyz.playedu.course.types.OfflineGradeImportResult;
 import xyz.playedu.course.types.UserGradeTrendPoint;
@@ -44,6 +45,8 @@ public class GradeController {
 
     @Autowired private DashboardService dashboardService;
 
+    @Autowired private QuizItemStatService quizItemStatService;
+
     @BackendPermission(slug = BPermissionConstant.COURSE)
     @GetMapping("/analysis/{quizId}")
     @Log(title = "成绩分析-详情", businessType = BusinessTypeConstant.GET)
@@ -79,12 +82,21 @@ public class GradeController {
         }
     }
 
+    @BackendPermission(slug = BPermissionConstant.COURSE)
+    @GetMapping("/items/{quizId}")
+    @Log(title = "成绩分析-题目分析", businessType = BusinessTypeConstant.GET)
+    public JsonResponse items(
+            @PathVariable Integer quizId,
+            @RequestParam(value = "refresh", defaultValue = "false") boolean refresh)
+            throws NotFoundException {
+        return JsonResponse.data(quizItemStatService.analyze(quizId, refresh));
+    }
+
     @BackendPermission(slug = BPermissionConstant.COURSE)
     @PostMapping("/import")
     @Log(title = "成绩分析-线下成绩导入", businessType = BusinessTypeConstant.INSERT)
     public JsonResponse importOffline(
-            @RequestParam("quiz_id") Integer quizId,
-            @RequestParam("file") MultipartFile file)
+            @RequestParam("quiz_id") Integer quizId, @RequestParam("file") MultipartFile file)
             throws NotFoundException, IOException {
         if (file.isEmpty()) {
             return JsonResponse.error("请上传Excel文件");
@@ -114,7 +126,7 @@ public class GradeController {
         try {
             Date startDate = parseDate(start);
             Date endDate = parseDate(end);
-                List<UserGradeTrendPoint> points =
+            List<UserGradeTrendPoint> points =
                     dashboardService.getUserTrend(userId, startDate, endDate);
             List<Map<String, Object>> rows = new ArrayList<>();
             for (UserGradeTrendPoint point : points) {
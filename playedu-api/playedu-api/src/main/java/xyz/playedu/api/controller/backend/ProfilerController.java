@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.api.controller.backend;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import xyz.playedu.common.annotation.BackendPermission;
+import xyz.playedu.common.constant.BPermissionConstant;
+import xyz.playedu.common.types.JsonResponse;
+import xyz.playedu.common.util.SqlProfiler;
+
+@RestController
+@RequestMapping("/backend/v1/profiler")
+public class ProfilerController {
+
+    /** SQL统计：各Mapper方法耗时分位、各接口每次请求的查询数与N+1次数、最近的慢查询 */
+    @BackendPermission(slug = BPermissionConstant.SYSTEM_CONFIG)
+    @GetMapping("/sql")
+    public JsonResponse sql() {
+        return JsonResponse.data(SqlProfiler.stats());
+    }
+}
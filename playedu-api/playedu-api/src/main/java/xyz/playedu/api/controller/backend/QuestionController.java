@@ -56,7 +56,12 @@ public class QuestionController {
             query.eq(Question::getType, normalizeType(type));
         }
         if (StringUtils.hasText(keyword)) {
-            query.like(Question::getContent, keyword.trim());
+            List<Integer> ids = questionService.searchIds(keyword.trim());
+            if (ids != null) {
+                query.in(Question::getId, ids);
+            } else {
+                query.like(Question::getContent, keyword.trim());
+            }
         }
 
         Page<Question> pager = questionService.page(new Page<>(page, size), query.getWrapper());
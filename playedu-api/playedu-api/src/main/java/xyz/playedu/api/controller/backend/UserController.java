@@ -41,7 +41,6 @@ import xyz.playedu.common.exception.NotFoundException;
 import xyz.playedu.common.service.*;
 import xyz.playedu.common.service.UserDepartmentService;
 import xyz.playedu.common.types.JsonResponse;
-import xyz.playedu.common.types.mapper.UserCourseHourRecordCourseCountMapper;
 import xyz.playedu.common.types.paginate.PaginationResult;
 import xyz.playedu.common.types.paginate.UserCourseHourRecordPaginateFilter;
 import xyz.playedu.common.types.paginate.UserCourseRecordPaginateFilter;
@@ -80,6 +79,10 @@ public class UserController {
 
     @Autowired private UserLearnDurationStatsService userLearnDurationStatsService;
 
+    @Autowired private UserLearningSummaryService userLearningSummaryService;
+
+    @Autowired private UserLearnDurationRecordService userLearnDurationRecordService;
+
     @Autowired private ApplicationContext ctx;
 
     @Autowired private ResourceService resourceService;
@@ -106,28 +109,10 @@ public class UserController {
         if (StringUtil.isNotEmpty(depIdsStr)) {
             depIds = new ArrayList<>();
             if (!"0".equals(depIdsStr)) {
-                List<Department> departmentList =
-                        departmentService.chunk(
+                // 包含全部子部门
+                depIds =
+                        departmentService.withChildIds(
                                 Arrays.stream(depIdsStr.split(",")).map(Integer::valueOf).toList());
-                if (StringUtil.isNotEmpty(departmentList)) {
-                    for (Department dep : departmentList) {
-                        depIds.add(dep.getId());
-                        String parentChain = "";
-                        if (StringUtil.isEmpty(dep.getParentChain())) {
-                            parentChain = dep.getId() + "";
-                        } else {
-                            parentChain = dep.getParentChain() + "," + dep.getId();
-                        }
-                        // 获取所有子部门ID
-                        List<Department> childDepartmentList =
-                                departmentService.getChildDepartmentsByParentChain(
-                                        dep.getId(), parentChain);
-                        if (StringUtil.isNotEmpty(childDepartmentList)) {
-                            depIds.addAll(
-                                    childDepartmentList.stream().map(Department::getId).toList());
-                        }
-                    }
-                }
             }
         }
 
@@ -564,12 +549,14 @@ public class UserController {
         }
 
         // 获取学员线上课的课时学习数量(只要学习了就算，不一定需要已完成)
-        Map<Integer, Integer> userCourseHourCount =
-                userCourseHourRecordService.getUserCourseHourCount(id, courseIds, null).stream()
-                        .collect(
-                                Collectors.toMap(
-                                        UserCourseHourRecordCourseCountMapper::getCourseId,
-                                        UserCourseHourRecordCourseCountMapper::getTotal));
+        Map<Integer, UserLearningSummary> summaries = userLearningSummaryService.summaries(id);
+        Map<Integer, Integer> userCourseHourCount = new HashMap<>();
+        for (Integer courseId : courseIds) {
+            UserLearningSummary learnSummary = summaries.get(courseId);
+            if (learnSummary != null) {
+                userCourseHourCount.put(courseId, learnSummary.getLearnedHourCount());
+            }
+        }
 
         // 获取学员每个课程最早的学习课时记录
         List<UserCourseHourRecord> perCourseEarliestRecords =
@@ -663,6 +650,40 @@ public class UserController {
         return JsonResponse.data(data);
     }
 
+    @BackendPermission(slug = BPermissionConstant.USER_LEARN)
+    @GetMapping("/{id}/learn-durations")
+    @Log(title = "学员-每日课程学习时长", businessType = BusinessTypeConstant.GET)
+    public JsonResponse learnDurations(
+            @PathVariable(name = "id") Integer id, @RequestParam HashMap<String, Object> params) {
+        // 默认最近一个月
+        String endDate = MapUtils.getString(params, "end_date", DateTime.now().toDateStr());
+        String startDate =
+                MapUtils.getString(
+                        params,
+                        "start_date",
+                        DateTime.of(DateTime.now().getTime() - 86400000L * 30).toDateStr());
+
+        List<UserLearnDurationDaily> data =
+                userLearnDurationRecordService.dailyByCourse(id, startDate, endDate);
+        Map<Integer, String> courses = new HashMap<>();
+        if (!data.isEmpty()) {
+            courses =
+                    courseService
+                            .chunks(
+                                    data.stream()
+                                            .map(UserLearnDurationDaily::getCourseId)
+                                            .distinct()
+                                            .toList())
+                            .stream()
+                            .collect(Collectors.toMap(Course::getId, Course::getTitle));
+        }
+
+        HashMap<String, Object> result = new HashMap<>();
+        result.put("data", data);
+        result.put("courses", courses);
+        return JsonResponse.data(result);
+    }
+
     @BackendPermission(slug = BPermissionConstant.USER_LEARN_DESTROY)
     @DeleteMapping("/{id}/learn-course/{courseId}")
     @SneakyThrows
@@ -19,12 +19,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import xyz.playedu.common.domain.Category;
 import xyz.playedu.common.service.CategoryService;
 import xyz.playedu.common.types.JsonResponse;
+import xyz.playedu.common.util.JsonResponseCache;
 
 @RestController
 @RequestMapping("/api/v1/category")
@@ -32,8 +36,20 @@ public class CategoryController {
 
     @Autowired private CategoryService categoryService;
 
+    @Autowired private JsonResponseCache jsonResponseCache;
+
     @GetMapping("/all")
-    public JsonResponse all() {
+    public ResponseEntity<byte[]> all(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                    String ifNoneMatch) {
+        return jsonResponseCache.respond(
+                JsonResponseCache.KEY_CATEGORIES,
+                JsonResponseCache.DEFAULT_TTL,
+                ifNoneMatch,
+                this::build);
+    }
+
+    private JsonResponse build() {
         List<Category> categories = categoryService.all();
         HashMap<String, Object> data = new HashMap<>();
         data.put(
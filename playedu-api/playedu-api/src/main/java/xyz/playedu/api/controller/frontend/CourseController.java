@@ -16,7 +16,6 @@
 package xyz.playedu.api.controller.frontend;
 
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.SneakyThrows;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
 import xyz.playedu.common.context.FCtx;
 import xyz.playedu.common.types.JsonResponse;
 import xyz.playedu.common.util.IpUtil;
+import xyz.playedu.course.caches.CourseDetailCache;
 import xyz.playedu.course.domain.*;
 import xyz.playedu.course.service.*;
 import xyz.playedu.resource.domain.Resource;
@@ -38,11 +38,7 @@ import xyz.playedu.resource.service.ResourceService;
 @RequestMapping("/api/v1/course")
 public class CourseController {
 
-    @Autowired private CourseService courseService;
-
-    @Autowired private CourseChapterService chapterService;
-
-    @Autowired private CourseHourService hourService;
+    @Autowired private CourseDetailCache courseDetailCache;
 
     @Autowired private CourseAttachmentService attachmentService;
 
@@ -57,48 +53,22 @@ public class CourseController {
     @GetMapping("/{id}")
     @SneakyThrows
     public JsonResponse detail(@PathVariable(name = "id") Integer id) {
-        Course course = courseService.findOrFail(id);
-
-        List<CourseHour> courseHours = hourService.getHoursByCourseId(course.getId());
-
-        List<Integer> rids = new ArrayList<>();
-        rids.add(course.getThumb());
-
-        List<CourseAttachment> attachments =
-                attachmentService.getAttachmentsByCourseId(course.getId());
-        if (null != attachments && !attachments.isEmpty()) {
-            List<Integer> attachmentIds =
-                    attachments.stream().map(CourseAttachment::getRid).toList();
-            rids.addAll(attachmentIds);
-            Map<Integer, Resource> resourceMap =
-                    resourceService
-                            .chunks(attachments.stream().map(CourseAttachment::getRid).toList())
-                            .stream()
-                            .collect(Collectors.toMap(Resource::getId, Function.identity()));
-            attachments.forEach(
-                    courseAttachment -> {
-                        Resource resource = resourceMap.get(courseAttachment.getRid());
-                        if (null != resource) {
-                            courseAttachment.setExt(resource.getExtension());
-                        }
-                    });
-        }
+        // 课程结构对所有学员相同，读快照；只查学员自己的学习记录
+        CourseDetailCache.Snapshot snapshot = courseDetailCache.get(id);
 
         HashMap<String, Object> data = new HashMap<>();
-        data.put("course", course);
-        data.put("chapters", chapterService.getChaptersByCourseId(course.getId()));
-        data.put(
-                "hours",
-                courseHours.stream().collect(Collectors.groupingBy(CourseHour::getChapterId)));
-        data.put("learn_record", userCourseRecordService.find(FCtx.getId(), course.getId()));
+        data.put("course", snapshot.course());
+        data.put("chapters", snapshot.chapters());
+        data.put("hours", snapshot.hours());
+        data.put("learn_record", userCourseRecordService.find(FCtx.getId(), id));
         data.put(
                 "learn_hour_records",
-                userCourseHourRecordService.getRecords(FCtx.getId(), course.getId()).stream()
+                userCourseHourRecordService.getRecords(FCtx.getId(), id).stream()
                         .collect(Collectors.toMap(UserCourseHourRecord::getHourId, e -> e)));
-        data.put("attachments", attachments);
+        data.put("attachments", snapshot.attachments());
 
-        // 获取签名url
-        data.put("resource_url", resourceService.chunksPreSignUrlByIds(rids));
+        // 签名url
+        data.put("resource_url", snapshot.resourceUrl());
 
         return JsonResponse.data(data);
     }
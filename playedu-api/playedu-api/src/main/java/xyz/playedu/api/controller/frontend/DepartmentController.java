@@ -17,10 +17,13 @@ package xyz.playedu.api.controller.frontend;
 
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import xyz.playedu.common.domain.Department;
 import xyz.playedu.common.service.DepartmentService;
 import xyz.playedu.common.types.JsonResponse;
+import xyz.playedu.common.util.JsonResponseCache;
 
 /**
  * @Author 杭州白书科技有限公司
@@ -33,8 +36,20 @@ public class DepartmentController {
 
     @Autowired private DepartmentService departmentService;
 
+    @Autowired private JsonResponseCache jsonResponseCache;
+
     @GetMapping("/index")
-    public JsonResponse index() {
+    public ResponseEntity<byte[]> index(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                    String ifNoneMatch) {
+        return jsonResponseCache.respond(
+                JsonResponseCache.KEY_DEPARTMENTS,
+                JsonResponseCache.DEFAULT_TTL,
+                ifNoneMatch,
+                this::build);
+    }
+
+    private JsonResponse build() {
         return JsonResponse.data(
                 departmentService.all().stream()
                         .collect(Collectors.groupingBy(Department::getParentId)));
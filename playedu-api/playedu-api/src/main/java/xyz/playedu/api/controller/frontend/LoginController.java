@@ -110,7 +110,8 @@ public class LoginController {
         loginLimitCache.check(username);
 
         // 锁控制-防止并发登录重复写入数据
-        if (!loginLockCache.apply(username)) {
+        LockManager.Token lockToken = loginLockCache.apply(username);
+        if (lockToken == null) {
             return JsonResponse.error("请稍候再试");
         }
 
@@ -133,7 +134,7 @@ public class LoginController {
             log.error("LDAP登录失败", e);
             return JsonResponse.error("系统错误");
         } finally {
-            loginLockCache.release(username);
+            loginLockCache.release(lockToken);
         }
     }
 
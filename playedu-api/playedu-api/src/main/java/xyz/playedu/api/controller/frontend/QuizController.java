@@ -30,6 +30,7 @@ import xyz.playedu.course.domain.CourseHour;
 import xyz.playedu.course.domain.Question;
 import xyz.playedu.course.domain.Quiz;
 import xyz.playedu.course.domain.UserQuizRecord;
+import xyz.playedu.course.quiz.AnswerLayout;
 import xyz.playedu.course.service.CourseHourService;
 import xyz.playedu.course.service.QuizService;
 import xyz.playedu.course.service.UserCourseHourRecordService;
@@ -54,8 +55,7 @@ public class QuizController {
     @Autowired private ApplicationContext ctx;
 
     @GetMapping
-    public JsonResponse detail(
-            @PathVariable Integer courseId, @PathVariable Integer hourId)
+    public JsonResponse detail(@PathVariable Integer courseId, @PathVariable Integer hourId)
             throws NotFoundException {
         userCanSeeCourseCache.check(FCtx.getId(), courseId, true);
         CourseHour hour = hourService.findOrFail(hourId, courseId);
@@ -125,10 +125,10 @@ public class QuizController {
                         hourId,
                         score,
                         passed,
-                        writeUserAnswers(answers));
+                        AnswerLayout.of(questions, objectMapper),
+                        answers);
 
-        if (passed) {
-            userCourseHourRecordService.markFinished(FCtx.getId(), courseId, hourId);
+        if (passed && userCourseHourRecordService.markFinished(FCtx.getId(), courseId, hourId)) {
             ctx.publishEvent(new UserCourseHourFinishedEvent(this, FCtx.getId(), courseId, hourId));
         }
 
@@ -212,12 +212,4 @@ public class QuizController {
             throw new RuntimeException("题目选项解析失败", e);
         }
     }
-
-    private String writeUserAnswers(Map<Integer, List<String>> answers) {
-        try {
-            return objectMapper.writeValueAsString(answers);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("作答内容写入失败", e);
-        }
-    }
 }
@@ -18,12 +18,16 @@ package xyz.playedu.api.controller.frontend;
 import java.util.HashMap;
 import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import xyz.playedu.common.constant.ConfigConstant;
 import xyz.playedu.common.service.AppConfigService;
 import xyz.playedu.common.types.JsonResponse;
+import xyz.playedu.common.util.JsonResponseCache;
 import xyz.playedu.resource.service.ResourceService;
 
 @RestController
@@ -34,8 +38,20 @@ public class SystemController {
 
     @Autowired private ResourceService resourceService;
 
+    @Autowired private JsonResponseCache jsonResponseCache;
+
+    // 图片签名url有效期为3小时，缓存时长需小于该值
+    private static final long CONFIG_CACHE_TTL = 1800_000L;
+
     @GetMapping("/config")
-    public JsonResponse config() {
+    public ResponseEntity<byte[]> config(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                    String ifNoneMatch) {
+        return jsonResponseCache.respond(
+                JsonResponseCache.KEY_SYSTEM_CONFIG, CONFIG_CACHE_TTL, ifNoneMatch, this::build);
+    }
+
+    private JsonResponse build() {
         Map<String, String> configs = appConfigService.keyValues();
 
         HashMap<String, Object> data = new HashMap<>();
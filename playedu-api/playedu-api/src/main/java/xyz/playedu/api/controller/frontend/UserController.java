@@ -28,7 +28,6 @@ import xyz.playedu.api.request.frontend.ChangePasswordRequest;
 import xyz.playedu.common.constant.CommonConstant;
 import xyz.playedu.common.constant.FrontendConstant;
 import xyz.playedu.common.context.FCtx;
-import xyz.playedu.common.domain.Category;
 import xyz.playedu.common.domain.Department;
 import xyz.playedu.common.domain.User;
 import xyz.playedu.common.domain.UserUploadImageLog;
@@ -37,8 +36,8 @@ import xyz.playedu.common.service.*;
 import xyz.playedu.common.types.JsonResponse;
 import xyz.playedu.common.types.UploadFileInfo;
 import xyz.playedu.common.types.config.S3Config;
-import xyz.playedu.common.types.mapper.UserCourseHourRecordCourseCountMapper;
 import xyz.playedu.common.util.StringUtil;
+import xyz.playedu.course.caches.CourseCatalogCache;
 import xyz.playedu.course.domain.*;
 import xyz.playedu.course.service.*;
 import xyz.playedu.resource.domain.Resource;
@@ -62,8 +61,6 @@ public class UserController {
 
     @Autowired private UserCourseHourRecordService userCourseHourRecordService;
 
-    @Autowired private UserLearnDurationStatsService userLearnDurationStatsService;
-
     @Autowired private UploadService uploadService;
 
     @Autowired private CategoryService categoryService;
@@ -74,6 +71,10 @@ public class UserController {
 
     @Autowired private UserUploadImageLogService userUploadImageLogService;
 
+    @Autowired private CourseCatalogCache courseCatalogCache;
+
+    @Autowired private UserLearningSummaryService userLearningSummaryService;
+
     @GetMapping("/detail")
     public JsonResponse detail() {
         User user = FCtx.getUser();
@@ -173,56 +174,8 @@ public class UserController {
         HashMap<String, Object> data = new HashMap<>();
         data.put("learn_course_records", new HashMap<>());
 
-        // 查询所有的父级部门ID
-        List<Integer> allDepIds = new ArrayList<>();
-        allDepIds.add(depId);
-        Department department = departmentService.findOrFail(depId);
-        String parentChain = department.getParentChain();
-        if (StringUtil.isNotEmpty(parentChain)) {
-            List<Integer> parentChainList =
-                    Arrays.stream(parentChain.split(",")).map(Integer::parseInt).toList();
-            if (StringUtil.isNotEmpty(parentChainList)) {
-                allDepIds.addAll(parentChainList);
-            }
-        }
-
-        // 获取所有子分类ID
-        List<Integer> allCategoryIds = new ArrayList<>();
-        if (categoryId != null && categoryId > 0) {
-            allCategoryIds.add(categoryId);
-            // 查询所有的子分类
-            List<Category> categoryList = categoryService.getChildCategorysByParentId(categoryId);
-            if (StringUtil.isNotEmpty(categoryList)) {
-                for (Category category : categoryList) {
-                    allCategoryIds.add(category.getId());
-                }
-            }
-        }
-
-        // -------- 读取当前学员可以参加的课程 ----------
-        List<Course> courses = new ArrayList<>();
-        // 读取部门课
-        List<Course> depCourses = courseService.getDepCoursesAndShow(allDepIds, allCategoryIds);
-        // 全部部门课
-        List<Course> openCourses = courseService.getOpenCoursesAndShow(500, allCategoryIds);
-        // 汇总到一个list中
-        if (depCourses != null && !depCourses.isEmpty()) {
-            courses.addAll(depCourses);
-        }
-        if (openCourses != null && !openCourses.isEmpty()) {
-            courses.addAll(openCourses);
-        }
-        // 对结果进行排序->按照课程id倒序
-        if (!courses.isEmpty()) {
-            courses =
-                    courses.stream()
-                            .sorted(
-                                    Comparator.comparing(
-                                                    Course::getSortAt,
-                                                    Comparator.nullsFirst(Date::compareTo))
-                                            .reversed())
-                            .toList();
-        }
+        // -------- 读取当前学员可以参加的课程(部门课+公开课,按排序时间倒序) ----------
+        List<Course> courses = courseCatalogCache.courses(depId, categoryId);
 
         data.put("courses", courses);
 
@@ -237,6 +190,11 @@ public class UserController {
         }
         data.put("learn_course_records", learnCourseRecords);
 
+        // 学员学习汇总(学员维度+课程维度)
+        Map<Integer, UserLearningSummary> summaries =
+                userLearningSummaryService.summaries(FCtx.getId());
+        UserLearningSummary userSummary = summaries.get(0);
+
         int requiredCourseCount = 0;
         int nunRequiredCourseCount = 0;
         int requiredFinishedCourseCount = 0; // 已完成必修课
@@ -245,9 +203,8 @@ public class UserController {
         int nunRequiredHourCount = 0; // 选修课时
         int requiredFinishedHourCount = 0; // 已完成必修课时
         int nunRequiredFinishedHourCount = 0; // 已完成选修课时
-        Long todayLearnDuration =
-                userLearnDurationStatsService.todayUserDuration(FCtx.getId()); // 今日学习时长
-        Long learnDuration = userLearnDurationStatsService.userDuration(FCtx.getId()); // 学习总时长
+        Long todayLearnDuration = userLearningSummaryService.todayDuration(userSummary); // 今日学习时长
+        Long learnDuration = userSummary == null ? 0L : userSummary.getLearnDuration(); // 学习总时长
 
         // -------- 学习数据统计 ----------
         if (!courses.isEmpty()) {
@@ -259,18 +216,18 @@ public class UserController {
                     nunRequiredHourCount += courseItem.getClassHour();
                     nunRequiredCourseCount += 1;
                 }
-                UserCourseRecord learnRecord = learnCourseRecords.get(courseItem.getId());
-                if (learnRecord == null) {
+                UserLearningSummary learnSummary = summaries.get(courseItem.getId());
+                if (learnSummary == null) {
                     continue;
                 }
                 if (courseItem.getIsRequired() == 1) {
-                    requiredFinishedHourCount += learnRecord.getFinishedCount();
-                    if (learnRecord.getIsFinished() == 1) {
+                    requiredFinishedHourCount += learnSummary.getFinishedHourCount();
+                    if (learnSummary.getIsFinished() == 1) {
                         requiredFinishedCourseCount++;
                     }
                 } else {
-                    nunRequiredFinishedHourCount += learnRecord.getFinishedCount();
-                    if (learnRecord.getIsFinished() == 1) {
+                    nunRequiredFinishedHourCount += learnSummary.getFinishedHourCount();
+                    if (learnSummary.getIsFinished() == 1) {
                         nunRequiredFinishedCourseCount++;
                     }
                 }
@@ -291,15 +248,14 @@ public class UserController {
         data.put("stats", stats);
 
         // 当前学员每个线上课的学习课时数量(只要学习了就算，不一定需要完成)
-        data.put(
-                "user_course_hour_count",
-                userCourseHourRecordService
-                        .getUserCourseHourCount(FCtx.getId(), courseIds, null)
-                        .stream()
-                        .collect(
-                                Collectors.toMap(
-                                        UserCourseHourRecordCourseCountMapper::getCourseId,
-                                        UserCourseHourRecordCourseCountMapper::getTotal)));
+        Map<Integer, Integer> userCourseHourCount = new HashMap<>();
+        for (Integer courseId : courseIds) {
+            UserLearningSummary learnSummary = summaries.get(courseId);
+            if (learnSummary != null) {
+                userCourseHourCount.put(courseId, learnSummary.getLearnedHourCount());
+            }
+        }
+        data.put("user_course_hour_count", userCourseHourCount);
 
         // 获取签名url
         data.put(
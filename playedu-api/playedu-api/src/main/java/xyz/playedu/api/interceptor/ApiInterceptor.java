@@ -24,6 +24,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 import xyz.playedu.common.config.PlayEduConfig;
 import xyz.playedu.common.constant.BackendConstant;
+import xyz.playedu.common.metrics.MetricsRegistry;
 import xyz.playedu.common.service.RateLimiterService;
 import xyz.playedu.common.types.JsonResponse;
 import xyz.playedu.common.util.HelperUtil;
@@ -38,6 +39,8 @@ public class ApiInterceptor implements HandlerInterceptor {
 
     @Autowired private PlayEduConfig playEduConfig;
 
+    @Autowired private MetricsRegistry metricsRegistry;
+
     @Override
     public boolean preHandle(
             HttpServletRequest request, HttpServletResponse response, Object handler)
@@ -61,6 +64,7 @@ public class ApiInterceptor implements HandlerInterceptor {
         response.setHeader("X-RateLimit-Limit", String.valueOf(limitCount));
         response.setHeader("X-RateLimit-Remaining", String.valueOf(limitRemaining));
         if (limitRemaining <= 0) {
+            metricsRegistry.counter("playedu_rate_limited_total", "触发限流的请求数").increment();
             response.setStatus(429);
             response.setContentType("application/json;charset=utf-8");
             response.getWriter().print(HelperUtil.toJsonStr(JsonResponse.error("太多请求")));
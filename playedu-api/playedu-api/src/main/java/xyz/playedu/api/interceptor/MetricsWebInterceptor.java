@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.api.interceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import xyz.playedu.common.metrics.MetricsRegistry;
+
+/** 按处理方法记录接口耗时(包含后续拦截器的耗时)，需排在所有拦截器之前 */
+@Component
+public class MetricsWebInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = MetricsWebInterceptor.class.getName() + ".start";
+
+    @Autowired private MetricsRegistry metricsRegistry;
+
+    @Override
+    public boolean preHandle(
+            HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            Object handler,
+            Exception ex) {
+        if (!(request.getAttribute(START_ATTRIBUTE) instanceof Long start)
+                || !(handler instanceof HandlerMethod method)) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        metricsRegistry
+                .timer(
+                        "playedu_http_server_requests_seconds",
+                        "接口耗时",
+                        "method",
+                        request.getMethod(),
+                        "uri",
+                        pattern == null ? "UNKNOWN" : pattern.toString(),
+                        "handler",
+                        method.getBeanType().getSimpleName() + "#" + method.getMethod().getName(),
+                        "status",
+                        ex != null ? "error" : String.valueOf(response.getStatus()))
+                .record(System.nanoTime() - start);
+    }
+}
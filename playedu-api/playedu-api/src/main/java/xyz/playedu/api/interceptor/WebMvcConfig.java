@@ -32,8 +32,14 @@ public class WebMvcConfig implements WebMvcConfigurer {
 
     @Autowired private ApiInterceptor apiInterceptor;
 
+    @Autowired private SqlProfilerWebInterceptor sqlProfilerWebInterceptor;
+
+    @Autowired private MetricsWebInterceptor metricsWebInterceptor;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(metricsWebInterceptor).addPathPatterns("/**");
+        registry.addInterceptor(sqlProfilerWebInterceptor).addPathPatterns("/**");
         registry.addInterceptor(apiInterceptor).addPathPatterns("/**");
         registry.addInterceptor(adminInterceptor).addPathPatterns("/backend/**");
         registry.addInterceptor(frontInterceptor).addPathPatterns("/api/v1/**");
@@ -20,6 +20,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import xyz.playedu.api.event.AdminUserLoginEvent;
+import xyz.playedu.common.annotation.PartitionedListener;
 import xyz.playedu.common.domain.AdminUser;
 import xyz.playedu.common.service.AdminUserService;
 
@@ -30,6 +31,7 @@ public class AdminUserLoginListener {
     @Autowired private AdminUserService adminUserService;
 
     @EventListener
+    @PartitionedListener(key = "adminId")
     public void updateLoginInfo(AdminUserLoginEvent event) {
         AdminUser adminUser = new AdminUser();
 
@@ -19,6 +19,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import xyz.playedu.api.event.CourseCategoryDestroyEvent;
+import xyz.playedu.common.annotation.PartitionedListener;
 import xyz.playedu.course.service.CourseService;
 
 /**
@@ -32,6 +33,7 @@ public class CourseCategoryDestroyListener {
     @Autowired private CourseService courseService;
 
     @EventListener
+    @PartitionedListener(key = "categoryId")
     public void resetRelateCourseCategoryId(CourseCategoryDestroyEvent event) {
         courseService.removeCategoryIdRelate(event.getCategoryId());
     }
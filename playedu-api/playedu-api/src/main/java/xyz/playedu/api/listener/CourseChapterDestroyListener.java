@@ -19,6 +19,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import xyz.playedu.api.event.CourseChapterDestroyEvent;
+import xyz.playedu.common.annotation.PartitionedListener;
 import xyz.playedu.course.service.CourseHourService;
 
 /**
@@ -32,6 +33,7 @@ public class CourseChapterDestroyListener {
     @Autowired private CourseHourService hourService;
 
     @EventListener
+    @PartitionedListener(key = "courseId")
     public void resetCourseHourChapterId(CourseChapterDestroyEvent event) {
         hourService.remove(event.getCourseId(), event.getChapterId());
     }
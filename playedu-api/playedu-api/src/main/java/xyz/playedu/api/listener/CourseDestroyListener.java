@@ -19,11 +19,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import xyz.playedu.api.event.CourseDestroyEvent;
+import xyz.playedu.common.annotation.PartitionedListener;
+import xyz.playedu.common.constant.BackendConstant;
+import xyz.playedu.common.service.PurgeJobService;
 import xyz.playedu.course.service.CourseAttachmentService;
 import xyz.playedu.course.service.CourseCategoryService;
 import xyz.playedu.course.service.CourseDepartmentUserService;
-import xyz.playedu.course.service.UserCourseHourRecordService;
-import xyz.playedu.course.service.UserCourseRecordService;
 
 /**
  * @Author 杭州白书科技有限公司
@@ -37,30 +38,32 @@ public class CourseDestroyListener {
 
     @Autowired private CourseCategoryService courseCategoryService;
 
-    @Autowired private UserCourseRecordService userCourseRecordService;
-
-    @Autowired private UserCourseHourRecordService userCourseHourRecordService;
+    @Autowired private PurgeJobService purgeJobService;
 
     @Autowired private CourseAttachmentService courseAttachmentService;
 
     @EventListener
+    @PartitionedListener(key = "courseId", outbox = true)
     public void departmentRelateRemove(CourseDestroyEvent event) {
         courseDepartmentUserService.removeByCourseId(event.getCourseId());
     }
 
     @EventListener
+    @PartitionedListener(key = "courseId", outbox = true)
     public void categoryRelateRemove(CourseDestroyEvent event) {
         courseCategoryService.removeByCourseId(event.getCourseId());
     }
 
     @EventListener
+    @PartitionedListener(key = "courseId", outbox = true)
     public void attachmentRelateRemove(CourseDestroyEvent event) {
         courseAttachmentService.remove(event.getCourseId());
     }
 
     @EventListener
+    @PartitionedListener(key = "courseId", outbox = true)
     public void removeUserRecords(CourseDestroyEvent event) {
-        userCourseRecordService.removeByCourseId(event.getCourseId());
-        userCourseHourRecordService.removeByCourseId(event.getCourseId());
+        // 课程的学员学习记录由后台任务分批清理
+        purgeJobService.create(BackendConstant.PURGE_JOB_TYPE_COURSE, event.getCourseId());
     }
 }
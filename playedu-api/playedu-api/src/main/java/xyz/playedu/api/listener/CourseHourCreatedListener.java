@@ -19,7 +19,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import xyz.playedu.api.event.CourseHourCreatedEvent;
-import xyz.playedu.course.service.CourseHourService;
+import xyz.playedu.common.annotation.PartitionedListener;
+import xyz.playedu.course.caches.CourseHourCountCache;
 import xyz.playedu.course.service.CourseService;
 
 /**
@@ -30,13 +31,14 @@ import xyz.playedu.course.service.CourseService;
 @Component
 public class CourseHourCreatedListener {
 
-    @Autowired private CourseHourService hourService;
+    @Autowired private CourseHourCountCache courseHourCountCache;
 
     @Autowired private CourseService courseService;
 
     @EventListener
+    @PartitionedListener(key = "courseId")
     public void courseClassHourUpdate(CourseHourCreatedEvent event) {
-        Integer classHour = hourService.getCountByCourseId(event.getCourseId());
+        Integer classHour = courseHourCountCache.refresh(event.getCourseId());
         courseService.updateClassHour(event.getCourseId(), classHour);
     }
 }
@@ -19,6 +19,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import xyz.playedu.api.event.DepartmentDestroyEvent;
+import xyz.playedu.common.annotation.PartitionedListener;
 import xyz.playedu.common.service.DepartmentService;
 
 /**
@@ -31,6 +32,7 @@ public class DepartmentDestroyListener {
     @Autowired private DepartmentService departmentService;
 
     @EventListener
+    @PartitionedListener(key = "depId")
     public void updateLoginInfo(DepartmentDestroyEvent event) {
         departmentService.remoteRelateUsersByDepId(event.getDepId());
     }
@@ -19,8 +19,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import xyz.playedu.api.event.UserCourseHourFinishedEvent;
-import xyz.playedu.course.service.CourseHourService;
-import xyz.playedu.course.service.UserCourseHourRecordService;
+import xyz.playedu.common.annotation.PartitionedListener;
+import xyz.playedu.course.caches.CourseHourCountCache;
 import xyz.playedu.course.service.UserCourseRecordService;
 
 /**
@@ -33,17 +33,13 @@ public class UserCourseHourFinishedListener {
 
     @Autowired private UserCourseRecordService userCourseRecordService;
 
-    @Autowired private UserCourseHourRecordService userCourseHourRecordService;
-
-    @Autowired private CourseHourService hourService;
+    @Autowired private CourseHourCountCache courseHourCountCache;
 
     @EventListener
+    @PartitionedListener(key = "userId", outbox = true)
     public void userCourseProgressUpdate(UserCourseHourFinishedEvent evt) {
-        Integer hourCount = hourService.getCountByCourseId(evt.getCourseId());
-        Integer finishedCount =
-                userCourseHourRecordService.getFinishedHourCount(
-                        evt.getUserId(), evt.getCourseId());
-        userCourseRecordService.storeOrUpdate(
-                evt.getUserId(), evt.getCourseId(), hourCount, finishedCount);
+        // 发件箱可能重复投递，已完成课时数按课时学习记录重新统计而不是累加；学习汇总在写入课时记录时已同步累加
+        userCourseRecordService.finishHour(
+                evt.getUserId(), evt.getCourseId(), courseHourCountCache.get(evt.getCourseId()));
     }
 }
@@ -20,7 +20,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import xyz.playedu.api.event.UserCourseHourRecordDestroyEvent;
+import xyz.playedu.common.annotation.PartitionedListener;
 import xyz.playedu.course.service.UserCourseRecordService;
+import xyz.playedu.course.service.UserLearningSummaryService;
 
 /**
  * @Author 杭州白书科技有限公司
@@ -33,8 +35,12 @@ public class UserCourseHourRecordDestroyListener {
 
     @Autowired private UserCourseRecordService userCourseRecordService;
 
+    @Autowired private UserLearningSummaryService userLearningSummaryService;
+
     @EventListener
+    @PartitionedListener(key = "userId", outbox = true)
     public void updateUserCourseRecord(UserCourseHourRecordDestroyEvent e) {
-        userCourseRecordService.updateUserCourseLearnProgress(e.getUserId(), e.getCourseId(), 1);
+        userCourseRecordService.recountProgress(e.getUserId(), e.getCourseId());
+        userLearningSummaryService.refreshCourse(e.getUserId(), e.getCourseId());
     }
 }
@@ -19,7 +19,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import xyz.playedu.api.event.UserCourseRecordDestroyEvent;
+import xyz.playedu.common.annotation.PartitionedListener;
 import xyz.playedu.course.service.UserCourseHourRecordService;
+import xyz.playedu.course.service.UserLearningSummaryService;
 
 /**
  * @Author 杭州白书科技有限公司
@@ -31,8 +33,12 @@ public class UserCourseRecordDestroyListener {
 
     @Autowired private UserCourseHourRecordService userCourseHourRecordService;
 
+    @Autowired private UserLearningSummaryService userLearningSummaryService;
+
     @EventListener
+    @PartitionedListener(key = "userId", outbox = true)
     public void emptyUserCourseHourRecords(UserCourseRecordDestroyEvent event) {
         userCourseHourRecordService.remove(event.getUserId(), event.getCourseId());
+        userLearningSummaryService.removeCourse(event.getUserId(), event.getCourseId());
     }
 }
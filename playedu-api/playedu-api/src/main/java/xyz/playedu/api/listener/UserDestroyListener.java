@@ -20,12 +20,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import xyz.playedu.api.event.UserDestroyEvent;
-import xyz.playedu.common.service.UserLoginRecordService;
+import xyz.playedu.common.annotation.PartitionedListener;
+import xyz.playedu.common.constant.BackendConstant;
+import xyz.playedu.common.service.PurgeJobService;
 import xyz.playedu.common.service.UserService;
-import xyz.playedu.course.service.UserCourseHourRecordService;
-import xyz.playedu.course.service.UserCourseRecordService;
-import xyz.playedu.course.service.UserLearnDurationRecordService;
-import xyz.playedu.course.service.UserLearnDurationStatsService;
 
 /**
  * @Author 杭州白书科技有限公司
@@ -38,23 +36,13 @@ public class UserDestroyListener {
 
     @Autowired private UserService userService;
 
-    @Autowired private UserCourseHourRecordService userCourseHourRecordService;
-
-    @Autowired private UserCourseRecordService userCourseRecordService;
-
-    @Autowired private UserLearnDurationRecordService userLearnDurationRecordService;
-
-    @Autowired private UserLearnDurationStatsService userLearnDurationStatsService;
-
-    @Autowired private UserLoginRecordService userLoginRecordService;
+    @Autowired private PurgeJobService purgeJobService;
 
     @EventListener
+    @PartitionedListener(key = "userId", outbox = true)
     public void remoteRelation(UserDestroyEvent event) {
         userService.removeRelateDepartmentsByUserId(event.getUserId());
-        userCourseHourRecordService.remove(event.getUserId());
-        userCourseRecordService.destroy(event.getUserId());
-        userLearnDurationRecordService.remove(event.getUserId());
-        userLearnDurationStatsService.remove(event.getUserId());
-        userLoginRecordService.remove(event.getUserId());
+        // 学习记录、登录记录等大表由后台任务分批清理
+        purgeJobService.create(BackendConstant.PURGE_JOB_TYPE_USER, event.getUserId());
     }
 }
@@ -20,8 +20,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import xyz.playedu.api.event.UserLearnCourseUpdateEvent;
+import xyz.playedu.common.annotation.PartitionedListener;
 import xyz.playedu.course.service.UserLearnDurationRecordService;
 import xyz.playedu.course.service.UserLearnDurationStatsService;
+import xyz.playedu.course.service.UserLearningSummaryService;
 
 /**
  * @Author 杭州白书科技有限公司
@@ -36,11 +38,22 @@ public class UserLearnCourseUpdateListener {
 
     @Autowired private UserLearnDurationStatsService userLearnDurationStatsService;
 
+    @Autowired private UserLearningSummaryService userLearningSummaryService;
+
+    // 播放心跳频率高且累加时长不幂等，不开启发件箱：丢失一次心跳的代价小于重新投递造成的重复累加
     @EventListener
+    @PartitionedListener(key = "userId")
     public void storeLearnDuration(UserLearnCourseUpdateEvent event) {
-        // 观看时长统计
-        userLearnDurationStatsService.storeOrUpdate(
-                event.getUserId(), event.getStartAt(), event.getEndAt());
+        // 观看时长统计，与学习汇总在同一把汇总锁内更新
+        userLearningSummaryService.locked(
+                event.getUserId(),
+                () -> {
+                    userLearnDurationStatsService.storeOrUpdate(
+                            event.getUserId(), event.getStartAt(), event.getEndAt());
+                    userLearningSummaryService.addLearnDuration(
+                            event.getUserId(), event.getEndAt() - event.getStartAt());
+                    return null;
+                });
         // 观看记录
         userLearnDurationRecordService.store(
                 event.getUserId(),
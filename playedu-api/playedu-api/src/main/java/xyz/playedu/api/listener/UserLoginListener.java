@@ -19,9 +19,9 @@ import java.util.HashMap;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 import xyz.playedu.api.event.UserLoginEvent;
+import xyz.playedu.common.annotation.PartitionedListener;
 import xyz.playedu.common.service.FrontendAuthService;
 import xyz.playedu.common.service.UserLoginRecordService;
 import xyz.playedu.common.util.IpUtil;
@@ -34,8 +34,8 @@ public class UserLoginListener {
 
     @Autowired private FrontendAuthService authService;
 
-    @Async
     @EventListener
+    @PartitionedListener(key = "userId")
     public void updateLoginInfo(UserLoginEvent event) {
         String ipArea = IpUtil.getRealAddressByIP(event.getIp());
 
@@ -18,9 +18,9 @@ package xyz.playedu.api.listener;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 import xyz.playedu.api.event.UserLogoutEvent;
+import xyz.playedu.common.annotation.PartitionedListener;
 import xyz.playedu.common.service.UserLoginRecordService;
 
 /**
@@ -34,8 +34,8 @@ public class UserLogoutListener {
 
     @Autowired private UserLoginRecordService userLoginRecordService;
 
-    @Async
     @EventListener
+    @PartitionedListener(key = "userId")
     public void updateLoginRecord(UserLogoutEvent event) {
         userLoginRecordService.logout(event.getUserId(), event.getJti());
     }
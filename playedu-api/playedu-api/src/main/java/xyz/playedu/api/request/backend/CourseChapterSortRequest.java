@@ -15,7 +15,7 @@
  */
 package xyz.playedu.api.request.backend;
 
-import jakarta.validation.constraints.NotNull;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 import lombok.Data;
 
@@ -26,6 +26,12 @@ import lombok.Data;
  */
 @Data
 public class CourseChapterSortRequest {
-    @NotNull(message = "ids参数不存在")
+    // 完整顺序
     private List<Integer> ids;
+
+    // 移动单个章节：id 移动到 after_id 之后，after_id 为空时移动到最前面
+    private Integer id;
+
+    @JsonProperty("after_id")
+    private Integer afterId;
 }
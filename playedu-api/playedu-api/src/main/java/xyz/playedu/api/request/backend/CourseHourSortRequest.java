@@ -15,6 +15,7 @@
  */
 package xyz.playedu.api.request.backend;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 import lombok.Data;
 
@@ -25,5 +26,15 @@ import lombok.Data;
  */
 @Data
 public class CourseHourSortRequest {
+    // 完整顺序
     private List<Integer> ids;
+
+    // 移动单个课时：id 移动到 after_id 之后，after_id 为空时移动到 chapter_id 章节最前面
+    private Integer id;
+
+    @JsonProperty("after_id")
+    private Integer afterId;
+
+    @JsonProperty("chapter_id")
+    private Integer chapterId;
 }
@@ -13,22 +13,12 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package xyz.playedu.common.types.mapper;
+package xyz.playedu.api.request.backend;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
-import java.util.Date;
 import lombok.Data;
 
-/**
- * @Author 杭州白书科技有限公司
- *
- * @create 2023/5/8 14:42
- */
 @Data
-public class UserCourseHourRecordUserFirstCreatedAtMapper {
-    @JsonProperty("user_id")
-    private Integer userId;
-
-    @JsonProperty("created_at")
-    private Date createdAt;
+public class ExportJobRequest {
+    // csv 或 xlsx，默认 csv
+    private String format;
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.api.schedule;
+
+import java.time.LocalDate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import xyz.playedu.course.service.DepartmentCourseDailyService;
+
+@Component
+@Slf4j
+public class DepartmentCourseDailySchedule {
+
+    @Autowired private DepartmentCourseDailyService departmentCourseDailyService;
+
+    // 当天的数据定时重算，查询看到的最多落后一个周期
+    @Scheduled(cron = "${playedu.analytics.rollup-cron:0 */15 * * * ?}")
+    public void today() {
+        try {
+            departmentCourseDailyService.rollup(LocalDate.now());
+        } catch (Exception e) {
+            log.error("部门课程学习汇总失败", e);
+        }
+    }
+
+    // 凌晨对前一天做最终计算，补上最后一个周期之后的记录
+    @Scheduled(cron = "${playedu.analytics.finalize-cron:0 5 0 * * ?}")
+    public void yesterday() {
+        try {
+            departmentCourseDailyService.rollup(LocalDate.now().minusDays(1));
+        } catch (Exception e) {
+            log.error("部门课程学习汇总失败", e);
+        }
+    }
+}
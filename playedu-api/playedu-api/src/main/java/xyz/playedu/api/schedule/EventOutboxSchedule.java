@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.api.schedule;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import xyz.playedu.common.bus.EventDispatcher;
+
+@Component
+@Slf4j
+public class EventOutboxSchedule {
+
+    @Autowired private EventDispatcher eventDispatcher;
+
+    @Scheduled(fixedDelay = 30000, initialDelay = 30000)
+    public void redeliver() {
+        try {
+            int count = eventDispatcher.redeliver();
+            if (count > 0) {
+                log.info("重新投递发件箱事件{}条", count);
+            }
+        } catch (Exception e) {
+            log.error("发件箱事件重新投递失败", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.api.schedule;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import xyz.playedu.course.service.ExportJobService;
+
+@Component
+@Slf4j
+public class ExportJobSchedule {
+
+    @Autowired private ExportJobService exportJobService;
+
+    // 新任务在创建时即开始执行，这里兜底处理重启前排队的任务
+    @Scheduled(fixedDelay = 30000, initialDelay = 30000)
+    public void run() {
+        try {
+            exportJobService.runPending();
+        } catch (Exception e) {
+            log.error("导出任务调度失败", e);
+        }
+    }
+
+    @Scheduled(fixedDelay = 3600000, initialDelay = 60000)
+    public void clean() {
+        try {
+            exportJobService.cleanExpired();
+        } catch (Exception e) {
+            log.error("导出文件清理失败", e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.api.schedule;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import xyz.playedu.course.service.UserLearnDurationRecordService;
+
+@Component
+@Slf4j
+public class UserLearnDurationCompactSchedule {
+
+    @Autowired private UserLearnDurationRecordService userLearnDurationRecordService;
+
+    @Value("${playedu.learn-duration.retain-days:30}")
+    private int retainDays;
+
+    @Scheduled(cron = "${playedu.learn-duration.compact-cron:0 30 3 * * ?}")
+    public void compact() {
+        try {
+            userLearnDurationRecordService.compact(retainDays);
+        } catch (Exception e) {
+            log.error("学习时长记录归档失败", e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.api.websocket;
+
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+import xyz.playedu.common.domain.User;
+import xyz.playedu.common.service.FrontendAuthService;
+import xyz.playedu.common.service.UserService;
+
+/**
+ * 播放通道握手鉴权
+ *
+ * <p>浏览器无法为WebSocket设置请求头，token通过查询参数 ?token= 传递；其它客户端也可以使用 Authorization 请求头。
+ */
+@Component
+@Slf4j
+public class PlaybackHandshakeInterceptor implements HandshakeInterceptor {
+
+    public static final String ATTR_USER_ID = "playback.userId";
+
+    public static final String ATTR_TOKEN = "playback.token";
+
+    @Autowired private FrontendAuthService authService;
+
+    @Autowired private UserService userService;
+
+    @Override
+    public boolean beforeHandshake(
+            ServerHttpRequest request,
+            ServerHttpResponse response,
+            WebSocketHandler wsHandler,
+            Map<String, Object> attributes) {
+        String token =
+                UriComponentsBuilder.fromUri(request.getURI())
+                        .build()
+                        .getQueryParams()
+                        .getFirst("token");
+        if (token == null) {
+            token = request.getHeaders().getFirst("Authorization");
+        }
+
+        Integer userId = authService.userIdByToken(token);
+        if (userId == null) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        User user = userService.find(userId);
+        if (user == null) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+        if (user.getIsLock() == 1) {
+            response.setStatusCode(HttpStatus.FORBIDDEN);
+            return false;
+        }
+
+        attributes.put(ATTR_USER_ID, userId);
+        attributes.put(ATTR_TOKEN, token);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(
+            ServerHttpRequest request,
+            ServerHttpResponse response,
+            WebSocketHandler wsHandler,
+            Exception exception) {}
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.api.websocket;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import xyz.playedu.api.bus.PlaybackBus;
+import xyz.playedu.common.domain.User;
+import xyz.playedu.common.exception.NotFoundException;
+import xyz.playedu.common.exception.ServiceException;
+import xyz.playedu.common.metrics.MetricsRegistry;
+import xyz.playedu.common.service.FrontendAuthService;
+import xyz.playedu.common.service.UserService;
+import xyz.playedu.course.caches.UserCanSeeCourseCache;
+import xyz.playedu.course.domain.CourseHour;
+import xyz.playedu.course.service.CourseHourService;
+
+/**
+ * 课时播放通道
+ *
+ * <p>握手时完成一次鉴权，之后客户端以空格分隔的短文本帧上报，与 POST .../ping、POST .../record 写入相同的数据：
+ *
+ * <pre>
+ * h {courseId} {hourId}              观看心跳，每10秒一次
+ * r {courseId} {hourId} {duration}   观看进度(秒)
+ * </pre>
+ *
+ * 进度帧成功后回复 "r {hourId}"，心跳帧不回复；出错时回复 "e {帧类型} {错误信息}"，连接保持。 同一连接1秒内的重复心跳、与上次相同的进度以及已看完课时的进度不再访问数据库。
+ *
+ * <p>每个连接按令牌桶限流，两种帧共用：最多连续处理 {@link #FRAME_BURST} 帧，之后每秒补充 {@link #FRAME_RATE} 帧，超出的帧直接回复错误。
+ */
+@Component
+@Slf4j
+public class PlaybackWebSocketHandler extends TextWebSocketHandler {
+
+    // 同一连接两次心跳的最小间隔，更密的心跳视为重发
+    private static final long MIN_PING_GAP_MS = 1000;
+
+    // 长连接定期重新校验token与锁定状态
+    private static final long REAUTH_MS = 300_000;
+
+    // 单个连接的令牌桶容量与每秒补充数
+    private static final double FRAME_BURST = 10;
+
+    private static final double FRAME_RATE = 2;
+
+    @Autowired private PlaybackBus playbackBus;
+
+    @Autowired private CourseHourService hourService;
+
+    @Autowired private UserCanSeeCourseCache userCanSeeCourseCache;
+
+    @Autowired private FrontendAuthService authService;
+
+    @Autowired private UserService userService;
+
+    @Autowired private MetricsRegistry metricsRegistry;
+
+    private final Map<String, PlaybackSession> sessions = new ConcurrentHashMap<>();
+
+    private LongAdder pingAccepted;
+    private LongAdder pingSkipped;
+    private LongAdder recordAccepted;
+    private LongAdder recordSkipped;
+    private LongAdder frameErrors;
+    private LongAdder frameLimited;
+
+    @PostConstruct
+    public void registerMetrics() {
+        metricsRegistry.gauge("playedu_playback_sessions", "WebSocket播放通道连接数", sessions::size);
+        String name = "playedu_playback_frames_total";
+        String help = "WebSocket播放通道收到的帧数,skipped为去重后未落库的帧,limited为超出限流的帧";
+        pingAccepted = metricsRegistry.counter(name, help, "type", "h", "result", "accepted");
+        pingSkipped = metricsRegistry.counter(name, help, "type", "h", "result", "skipped");
+        recordAccepted = metricsRegistry.counter(name, help, "type", "r", "result", "accepted");
+        recordSkipped = metricsRegistry.counter(name, help, "type", "r", "result", "skipped");
+        frameErrors = metricsRegistry.counter(name, help, "type", "all", "result", "error");
+        frameLimited = metricsRegistry.counter(name, help, "type", "all", "result", "limited");
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        Map<String, Object> attributes = session.getAttributes();
+        sessions.put(
+                session.getId(),
+                new PlaybackSession(
+                        (Integer) attributes.get(PlaybackHandshakeInterceptor.ATTR_USER_ID),
+                        (String) attributes.get(PlaybackHandshakeInterceptor.ATTR_TOKEN)));
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        sessions.remove(session.getId());
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message)
+            throws IOException {
+        PlaybackSession state = sessions.get(session.getId());
+        if (state == null) {
+            return;
+        }
+        String[] parts = message.getPayload().trim().split(" +");
+        String type = parts[0];
+        if (!state.acquire(System.currentTimeMillis())) {
+            frameLimited.increment();
+            reply(session, "e " + type + " 请求过于频繁");
+            return;
+        }
+        try {
+            if (!revalidate(state)) {
+                session.close(CloseStatus.POLICY_VIOLATION.withReason("unauthorized"));
+                return;
+            }
+            switch (type) {
+                case "h" -> heartbeat(session, state, parts);
+                case "r" -> record(session, state, parts);
+                default -> error(session, type, "未知的消息类型");
+            }
+        } catch (ServiceException | NotFoundException e) {
+            error(session, type, e.getMessage());
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            error(session, type, "参数错误");
+        }
+    }
+
+    private void heartbeat(WebSocketSession session, PlaybackSession state, String[] parts)
+            throws ServiceException, IOException {
+        Integer courseId = Integer.valueOf(parts[1]);
+        Integer hourId = Integer.valueOf(parts[2]);
+
+        long now = System.currentTimeMillis();
+        if (now - state.lastPingAt < MIN_PING_GAP_MS) {
+            pingSkipped.increment();
+            return;
+        }
+
+        userCanSeeCourseCache.check(state.userId, courseId, true);
+        if (!playbackBus.ping(state.userId, courseId, hourId)) {
+            error(session, "h", "请稍后再试");
+            return;
+        }
+        state.lastPingAt = now;
+        pingAccepted.increment();
+    }
+
+    private void record(WebSocketSession session, PlaybackSession state, String[] parts)
+            throws ServiceException, NotFoundException, IOException {
+        Integer courseId = Integer.valueOf(parts[1]);
+        Integer hourId = Integer.valueOf(parts[2]);
+        Integer duration = Integer.valueOf(parts[3]);
+        if (duration <= 0) {
+            error(session, "r", "duration参数错误");
+            return;
+        }
+
+        CourseHour hour = state.hour;
+        boolean sameHour =
+                hour != null && hour.getId().equals(hourId) && hour.getCourseId().equals(courseId);
+        if (sameHour && (state.finished || duration.equals(state.duration))) {
+            recordSkipped.increment();
+            reply(session, "r " + hourId);
+            return;
+        }
+        if (!sameHour) {
+            hour = hourService.findOrFail(hourId, courseId);
+        }
+
+        userCanSeeCourseCache.check(state.userId, courseId, true);
+        if (!playbackBus.record(state.userId, courseId, hour, duration)) {
+            error(session, "r", "请稍后再试");
+            return;
+        }
+        state.hour = hour;
+        state.duration = duration;
+        state.finished = duration >= hour.getDuration();
+        recordAccepted.increment();
+        reply(session, "r " + hourId);
+    }
+
+    private boolean revalidate(PlaybackSession state) {
+        long now = System.currentTimeMillis();
+        if (now - state.authAt < REAUTH_MS) {
+            return true;
+        }
+        if (!state.userId.equals(authService.userIdByToken(state.token))) {
+            return false;
+        }
+        User user = userService.find(state.userId);
+        if (user == null || user.getIsLock() == 1) {
+            return false;
+        }
+        state.authAt = now;
+        return true;
+    }
+
+    private void error(WebSocketSession session, String type, String msg) throws IOException {
+        frameErrors.increment();
+        reply(session, "e " + type + " " + msg);
+    }
+
+    private void reply(WebSocketSession session, String text) throws IOException {
+        if (session.isOpen()) {
+            session.sendMessage(new TextMessage(text));
+        }
+    }
+
+    /** 单个连接的状态，同一连接的消息由容器顺序投递 */
+    private static class PlaybackSession {
+
+        private final Integer userId;
+
+        private final String token;
+
+        private long authAt = System.currentTimeMillis();
+
+        private long lastPingAt;
+
+        // 最近一次上报进度的课时
+        private CourseHour hour;
+
+        private Integer duration;
+
+        private boolean finished;
+
+        private double tokens = FRAME_BURST;
+
+        private long refillAt = System.currentTimeMillis();
+
+        PlaybackSession(Integer userId, String token) {
+            this.userId = userId;
+            this.token = token;
+        }
+
+        // 按距上次取令牌的时间补充，桶空时返回false
+        private boolean acquire(long now) {
+            tokens = Math.min(FRAME_BURST, tokens + (now - refillAt) * FRAME_RATE / 1000);
+            refillAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+    }
+}
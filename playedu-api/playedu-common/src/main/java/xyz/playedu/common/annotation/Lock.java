@@ -33,5 +33,8 @@ public @interface Lock {
 
     long expire() default 10;
 
+    /** 锁被占用时最长等待时长，0 表示不等待直接失败 */
+    long waitTime() default 0;
+
     TimeUnit timeUnit() default TimeUnit.SECONDS;
 }
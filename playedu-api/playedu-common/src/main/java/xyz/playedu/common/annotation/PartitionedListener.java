@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 异步分区执行的事件监听
+ *
+ * <p>与 @EventListener 一起标注在监听方法上。事件在发布事务提交后投递到按 key 分区的单线程队列中执行，同一 key(如学员ID) 的事件严格按发布顺序处理，不同 key
+ * 之间并行。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PartitionedListener {
+
+    /** 分区键，以事件对象为根的 SpEL 表达式，如 userId、courseId；为空时随机分区 */
+    String key() default "";
+
+    /**
+     * 是否先写入事件发件箱，进程崩溃或执行失败后由定时任务重新投递
+     *
+     * <p>每个事件多一次插入和删除，且重新投递可能重复执行，只用于幂等的监听(如按ID删除关联数据)。
+     */
+    boolean outbox() default false;
+
+    /** 分区队列已满时的处理策略 */
+    Backpressure backpressure() default Backpressure.BLOCK;
+
+    enum Backpressure {
+        /** 等待队列空位，超时后在发布线程中执行 */
+        BLOCK,
+        /** 直接在发布线程中执行 */
+        CALLER_RUNS,
+        /** 丢弃；开启发件箱时由定时任务稍后重新投递 */
+        DISCARD
+    }
+}
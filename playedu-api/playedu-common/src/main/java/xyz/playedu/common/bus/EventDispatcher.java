@@ -0,0 +1,476 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.bus;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.objenesis.SpringObjenesis;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import xyz.playedu.common.annotation.PartitionedListener;
+import xyz.playedu.common.annotation.PartitionedListener.Backpressure;
+import xyz.playedu.common.domain.EventOutbox;
+import xyz.playedu.common.service.EventOutboxService;
+import xyz.playedu.common.util.TransactionUtil;
+
+/**
+ * 分区事件分发器
+ *
+ * <p>每个分区一个工作线程和一个有界队列，事件按分区键哈希到固定分区，因此同一学员/课程的事件按发布顺序执行，不同分区之间并行。
+ *
+ * <p>开启发件箱的监听先在发布事务中写入 event_outbox，监听执行成功后在同一事务内删除该记录；进程崩溃、执行失败或被丢弃的记录由 {@link #redeliver()}
+ * 定时重新投递，重新投递不保证与后续事件的先后顺序。
+ */
+@Component
+@Slf4j
+public class EventDispatcher {
+
+    /** 发件箱记录超过该时长仍未完成才会被重新投递(毫秒) */
+    private static final long REDELIVER_DELAY_MS = 60_000;
+
+    /** 单条记录最大失败次数，超过后保留在表中等待人工处理 */
+    private static final int MAX_ATTEMPTS = 10;
+
+    private static final int REDELIVER_BATCH = 200;
+
+    private static final ThreadLocal<Boolean> DIRECT = new ThreadLocal<>();
+
+    private static final SpringObjenesis OBJENESIS = new SpringObjenesis();
+
+    @Value("${playedu.event.partitions:0}")
+    private int partitionCount;
+
+    @Value("${playedu.event.queue-capacity:2000}")
+    private int queueCapacity;
+
+    @Value("${playedu.event.block-timeout-ms:2000}")
+    private long blockTimeoutMs;
+
+    @Autowired private EventOutboxService eventOutboxService;
+
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Autowired private ApplicationContext ctx;
+
+    private final ObjectMapper objectMapper =
+            new ObjectMapper()
+                    .addMixIn(EventObject.class, EventMixin.class)
+                    .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
+                    .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Map<String, ListenerStats> listenerStats = new ConcurrentHashMap<>();
+
+    private final Set<Long> inflight = ConcurrentHashMap.newKeySet();
+
+    private TransactionTemplate transactionTemplate;
+
+    private Partition[] partitions;
+
+    private volatile boolean running = false;
+
+    @PostConstruct
+    public void start() {
+        // 队列满时监听可能在发布事务的 afterCommit 回调中执行，必须开启新事务
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        int count =
+                partitionCount > 0
+                        ? partitionCount
+                        : Math.max(4, Runtime.getRuntime().availableProcessors());
+        partitions = new Partition[count];
+        for (int i = 0; i < count; i++) {
+            partitions[i] = new Partition(i, queueCapacity);
+            partitions[i].thread.start();
+        }
+        running = true;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        // 停止接收新事件，尽量执行完队列中已有的事件
+        long deadline = System.currentTimeMillis() + 10_000;
+        for (Partition partition : partitions) {
+            // 队列已满时等待空位，否则结束标记丢失，工作线程要等到停机时限才会被中断
+            partition.queue.offer(
+                    Task.POISON,
+                    Math.max(1, deadline - System.currentTimeMillis()),
+                    TimeUnit.MILLISECONDS);
+        }
+        for (Partition partition : partitions) {
+            partition.thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            if (partition.thread.isAlive()) {
+                partition.thread.interrupt();
+                log.warn("事件分区{}未在停机时限内执行完,剩余{}条", partition.index, partition.queue.size());
+            }
+        }
+    }
+
+    /** 重新投递时在当前线程直接执行监听方法，不再经过分区 */
+    public static boolean isDirect() {
+        return Boolean.TRUE.equals(DIRECT.get());
+    }
+
+    public void dispatch(
+            String listener,
+            String partitionKey,
+            PartitionedListener options,
+            Object event,
+            Invoker invoker) {
+        Long outboxId = null;
+        if (options.outbox()) {
+            outboxId =
+                    eventOutboxService.store(
+                            listener, event.getClass().getName(), partitionKey, serialize(event));
+        }
+        Task task =
+                new Task(
+                        listener,
+                        partitionOf(partitionKey),
+                        options.backpressure(),
+                        invoker,
+                        outboxId);
+        TransactionUtil.afterCommit(() -> submit(task));
+    }
+
+    /** 重新投递发件箱中超时未完成或执行失败的事件 */
+    public int redeliver() {
+        Date before = new Date(System.currentTimeMillis() - REDELIVER_DELAY_MS);
+        int count = 0;
+        for (EventOutbox outbox :
+                eventOutboxService.pending(before, MAX_ATTEMPTS, REDELIVER_BATCH)) {
+            if (inflight.contains(outbox.getId())) {
+                continue;
+            }
+            Task task;
+            try {
+                task = restore(outbox);
+            } catch (Exception e) {
+                log.error("事件发件箱记录无法还原,id={},错误信息:{}", outbox.getId(), e.getMessage());
+                eventOutboxService.markFailed(outbox.getId(), e.getMessage());
+                continue;
+            }
+            submit(task);
+            count++;
+        }
+        return count;
+    }
+
+    public Map<String, Object> stats() {
+        int queued = 0;
+        int maxQueued = 0;
+        for (int size : queueSizes()) {
+            queued += size;
+            maxQueued = Math.max(maxQueued, size);
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("partitions", partitions.length);
+        data.put("queue_capacity", queueCapacity);
+        data.put("queued", queued);
+        data.put("max_partition_queued", maxQueued);
+        data.put("outbox_inflight", inflightCount());
+        data.put("outbox_dead", eventOutboxService.deadCount(MAX_ATTEMPTS));
+        data.put("listeners", listenerSnapshots());
+        return data;
+    }
+
+    /** 各分区当前排队数 */
+    public int[] queueSizes() {
+        int[] sizes = new int[partitions.length];
+        for (int i = 0; i < partitions.length; i++) {
+            sizes[i] = partitions[i].queue.size();
+        }
+        return sizes;
+    }
+
+    /** 已写入 outbox 但尚未执行完成的事件数 */
+    public int inflightCount() {
+        return inflight.size();
+    }
+
+    public Map<String, Map<String, Object>> listenerSnapshots() {
+        Map<String, Map<String, Object>> data = new TreeMap<>();
+        listenerStats.forEach((name, s) -> data.put(name, s.snapshot()));
+        return data;
+    }
+
+    private void submit(Task task) {
+        if (task.outboxId != null) {
+            inflight.add(task.outboxId);
+        }
+        if (!running) {
+            execute(task);
+            return;
+        }
+        BlockingQueue<Task> queue = partitions[task.partition].queue;
+        task.enqueuedAt = System.nanoTime();
+        boolean accepted;
+        try {
+            accepted =
+                    task.backpressure == Backpressure.BLOCK
+                            ? queue.offer(task, blockTimeoutMs, TimeUnit.MILLISECONDS)
+                            : queue.offer(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (accepted) {
+            return;
+        }
+
+        ListenerStats s = stats(task.listener);
+        if (task.backpressure == Backpressure.DISCARD) {
+            s.discarded.increment();
+            if (task.outboxId != null) {
+                inflight.remove(task.outboxId);
+            } else {
+                log.warn("事件分区{}队列已满,丢弃事件,listener={}", task.partition, task.listener);
+            }
+            return;
+        }
+        s.callerRuns.increment();
+        execute(task);
+    }
+
+    private void execute(Task task) {
+        ListenerStats s = stats(task.listener);
+        long start = System.nanoTime();
+        if (task.enqueuedAt > 0) {
+            s.waitNanos.add(start - task.enqueuedAt);
+        }
+        try {
+            // 监听执行与发件箱记录删除在同一事务中完成
+            transactionTemplate.executeWithoutResult(
+                    status -> {
+                        invoke(task.invoker);
+                        if (task.outboxId != null) {
+                            eventOutboxService.removeById(task.outboxId);
+                        }
+                    });
+        } catch (Throwable e) {
+            Throwable cause = e instanceof ListenerFailure ? e.getCause() : e;
+            s.failed.increment();
+            log.error("事件监听执行失败,listener={}", task.listener, cause);
+            if (task.outboxId != null) {
+                try {
+                    String error = String.valueOf(cause.getMessage());
+                    transactionTemplate.executeWithoutResult(
+                            status -> eventOutboxService.markFailed(task.outboxId, error));
+                } catch (Exception ex) {
+                    log.error("事件发件箱记录更新失败,id={}", task.outboxId, ex);
+                }
+            }
+        } finally {
+            s.record(System.nanoTime() - start);
+            if (task.outboxId != null) {
+                inflight.remove(task.outboxId);
+            }
+        }
+    }
+
+    private static void invoke(Invoker invoker) {
+        try {
+            invoker.invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ListenerFailure(e);
+        }
+    }
+
+    private Task restore(EventOutbox outbox) throws Exception {
+        String[] parts = outbox.getListener().split("#", 2);
+        Class<?> listenerClass = Class.forName(parts[0]);
+        Class<?> eventClass = Class.forName(outbox.getEventType());
+        Method method = listenerClass.getMethod(parts[1], eventClass);
+        PartitionedListener options = method.getAnnotation(PartitionedListener.class);
+        Object bean = ctx.getBean(listenerClass);
+
+        Object event = OBJENESIS.newInstance(eventClass);
+        objectMapper.readerForUpdating(event).readValue(outbox.getPayload());
+
+        Invoker invoker =
+                () -> {
+                    DIRECT.set(true);
+                    try {
+                        method.invoke(bean, event);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        DIRECT.remove();
+                    }
+                };
+        Backpressure backpressure = options == null ? Backpressure.BLOCK : options.backpressure();
+        return new Task(
+                outbox.getListener(),
+                partitionOf(outbox.getPartitionKey()),
+                backpressure,
+                invoker,
+                outbox.getId());
+    }
+
+    private String serialize(Object event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (Exception e) {
+            throw new IllegalStateException("事件无法序列化:" + event.getClass().getName(), e);
+        }
+    }
+
+    private int partitionOf(String key) {
+        if (key == null || key.isEmpty()) {
+            return ThreadLocalRandom.current().nextInt(partitions.length);
+        }
+        return Math.floorMod(key.hashCode(), partitions.length);
+    }
+
+    private ListenerStats stats(String listener) {
+        return listenerStats.computeIfAbsent(listener, k -> new ListenerStats());
+    }
+
+    @FunctionalInterface
+    public interface Invoker {
+        void invoke() throws Throwable;
+    }
+
+    @JsonIgnoreProperties({"source", "timestamp"})
+    private abstract static class EventMixin {}
+
+    private static class ListenerFailure extends RuntimeException {
+        ListenerFailure(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    private static class Task {
+
+        static final Task POISON = new Task(null, 0, Backpressure.BLOCK, null, null);
+
+        final String listener;
+
+        final int partition;
+
+        final Backpressure backpressure;
+
+        final Invoker invoker;
+
+        final Long outboxId;
+
+        long enqueuedAt;
+
+        Task(
+                String listener,
+                int partition,
+                Backpressure backpressure,
+                Invoker invoker,
+                Long outboxId) {
+            this.listener = listener;
+            this.partition = partition;
+            this.backpressure = backpressure;
+            this.invoker = invoker;
+            this.outboxId = outboxId;
+        }
+    }
+
+    private class Partition {
+
+        final int index;
+
+        final BlockingQueue<Task> queue;
+
+        final Thread thread;
+
+        Partition(int index, int capacity) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this::loop, "playedu-event-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private void loop() {
+            while (true) {
+                Task task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (task == Task.POISON) {
+                    return;
+                }
+                execute(task);
+            }
+        }
+    }
+
+    private static class ListenerStats {
+
+        final LongAdder count = new LongAdder();
+
+        final LongAdder failed = new LongAdder();
+
+        final LongAdder callerRuns = new LongAdder();
+
+        final LongAdder discarded = new LongAdder();
+
+        final LongAdder totalNanos = new LongAdder();
+
+        final LongAdder waitNanos = new LongAdder();
+
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        Map<String, Object> snapshot() {
+            long n = Math.max(1, count.sum());
+            Map<String, Object> data = new HashMap<>();
+            data.put("count", count.sum());
+            data.put("failed", failed.sum());
+            data.put("caller_runs", callerRuns.sum());
+            data.put("discarded", discarded.sum());
+            data.put("avg_ms", totalNanos.sum() / n / 1_000_000.0);
+            data.put("max_ms", maxNanos.get() / 1_000_000.0);
+            data.put("wait_avg_ms", waitNanos.sum() / n / 1_000_000.0);
+            return data;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.config;
+
+import jakarta.annotation.PostConstruct;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import xyz.playedu.common.exception.ServiceException;
+import xyz.playedu.common.util.Bulkhead;
+import xyz.playedu.common.util.ldap.LdapConnectionPool;
+
+/**
+ * 线程模型与下游并发隔离配置
+ *
+ * <p>虚拟线程由 spring.threads.virtual.enabled 开启(需 JDK21+ 运行)，覆盖 Tomcat 请求线程、@Async 与 @Scheduled。
+ * 开启后请求并发不再受线程池约束，这里按 playedu.bulkhead.* 限制数据库、LDAP、S3 与 IP 归属地查询的并发。
+ */
+@Slf4j
+@Configuration
+public class ConcurrencyConfig {
+
+    public static final String DB = "db";
+    public static final String S3 = "s3";
+    public static final String IP = "ip";
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualEnabled;
+
+    @Value("${playedu.bulkhead.ldap.permits:8}")
+    private int ldapPermits;
+
+    @Value("${playedu.bulkhead.s3.permits:32}")
+    private int s3Permits;
+
+    @Value("${playedu.bulkhead.ip.permits:4}")
+    private int ipPermits;
+
+    @Value("${playedu.bulkhead.timeout-ms:5000}")
+    private long timeoutMs;
+
+    @PostConstruct
+    public void init() {
+        // LDAP连接池本身按最大连接数限制借出并发
+        LdapConnectionPool.configure(ldapPermits);
+        Bulkhead.configure(S3, s3Permits, timeoutMs);
+        Bulkhead.configure(IP, ipPermits, timeoutMs);
+
+        int feature = Runtime.version().feature();
+        if (virtualEnabled && feature < 21) {
+            log.warn("当前JDK{}不支持虚拟线程,spring.threads.virtual.enabled未生效,仍使用平台线程池", feature);
+        } else {
+            log.info("请求线程模型={}", virtualEnabled ? "虚拟线程" : "平台线程池");
+        }
+    }
+
+    /** 数据源外层的并发隔离，连接借出时占用许可，连接关闭时归还 */
+    @Bean
+    public static BeanPostProcessor bulkheadDataSourcePostProcessor() {
+        return new DataSourceBulkheadPostProcessor();
+    }
+
+    private static class DataSourceBulkheadPostProcessor
+            implements BeanPostProcessor, EnvironmentAware {
+        private Environment environment;
+
+        @Override
+        public void setEnvironment(Environment environment) {
+            this.environment = environment;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource dataSource) || bean instanceof BulkheadDataSource) {
+                return bean;
+            }
+            int permits = environment.getProperty("playedu.bulkhead.db.permits", Integer.class, 0);
+            if (permits <= 0) {
+                return bean;
+            }
+            long timeout =
+                    environment.getProperty("playedu.bulkhead.timeout-ms", Long.class, 5000L);
+            Bulkhead.configure(DB, permits, timeout);
+            log.info("数据源[{}]并发隔离已开启|permits={}", beanName, permits);
+            return new BulkheadDataSource(dataSource);
+        }
+    }
+
+    private static class BulkheadDataSource extends DelegatingDataSource {
+
+        BulkheadDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Bulkhead.Permit permit = acquire();
+            try {
+                return wrap(super.getConnection(), permit);
+            } catch (SQLException | RuntimeException e) {
+                permit.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            Bulkhead.Permit permit = acquire();
+            try {
+                return wrap(super.getConnection(username, password), permit);
+            } catch (SQLException | RuntimeException e) {
+                permit.close();
+                throw e;
+            }
+        }
+
+        private Bulkhead.Permit acquire() throws SQLException {
+            try {
+                return Bulkhead.of(DB).acquire();
+            } catch (ServiceException e) {
+                throw new SQLTransientConnectionException("数据库连接排队超时", e);
+            }
+        }
+
+        private Connection wrap(Connection target, Bulkhead.Permit permit) {
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection)
+                    Proxy.newProxyInstance(
+                            Connection.class.getClassLoader(),
+                            new Class<?>[] {Connection.class},
+                            (proxy, method, args) -> {
+                                if ("close".equals(method.getName())
+                                        && method.getParameterCount() == 0
+                                        && closed.compareAndSet(false, true)) {
+                                    try {
+                                        return method.invoke(target, args);
+                                    } catch (InvocationTargetException e) {
+                                        throw e.getTargetException();
+                                    } finally {
+                                        permit.close();
+                                    }
+                                }
+                                try {
+                                    return method.invoke(target, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getTargetException();
+                                }
+                            });
+        }
+    }
+}
@@ -18,8 +18,10 @@ package xyz.playedu.common.config;
 import com.baomidou.mybatisplus.annotation.DbType;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import xyz.playedu.common.util.SqlProfiler;
 
 @Configuration
 public class MybatisPlusConfig {
@@ -30,4 +32,13 @@ public class MybatisPlusConfig {
         interceptor.addInnerInterceptor(new PaginationInnerInterceptor(DbType.MYSQL));
         return interceptor;
     }
+
+    @Bean
+    public SqlProfilerInterceptor sqlProfilerInterceptor(
+            @Value("${playedu.sql-profiler.enabled:true}") boolean enabled,
+            @Value("${playedu.sql-profiler.slow-ms:500}") long slowMs,
+            @Value("${playedu.sql-profiler.n-plus-one-threshold:10}") int nPlusOneThreshold) {
+        SqlProfiler.configure(enabled, slowMs, nPlusOneThreshold);
+        return new SqlProfilerInterceptor();
+    }
 }
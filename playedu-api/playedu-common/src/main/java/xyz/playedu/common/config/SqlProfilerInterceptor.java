@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.config;
+
+import java.sql.Statement;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import xyz.playedu.common.util.SqlProfiler;
+
+/**
+ * 语句执行耗时采集
+ *
+ * <p>拦截 StatementHandler 的实际执行，只统计真正发到数据库的语句(一级缓存命中不计)，结果交给 {@link SqlProfiler} 汇总。
+ */
+@Intercepts({
+    @Signature(
+            type = StatementHandler.class,
+            method = "query",
+            args = {Statement.class, ResultHandler.class}),
+    @Signature(
+            type = StatementHandler.class,
+            method = "update",
+            args = {Statement.class}),
+    @Signature(
+            type = StatementHandler.class,
+            method = "queryCursor",
+            args = {Statement.class})
+})
+public class SqlProfilerInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (!SqlProfiler.isEnabled()) {
+            return invocation.proceed();
+        }
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            long nanos = System.nanoTime() - start;
+            StatementHandler handler = (StatementHandler) invocation.getTarget();
+            SqlProfiler.record(statementId(handler), handler.getBoundSql().getSql(), nanos);
+        }
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        if (target instanceof StatementHandler) {
+            return Plugin.wrap(target, this);
+        }
+        return target;
+    }
+
+    private String statementId(StatementHandler handler) {
+        MetaObject meta = SystemMetaObject.forObject(handler);
+        // 被其它插件代理时取出真实对象
+        while (meta.hasGetter("h")) {
+            meta = SystemMetaObject.forObject(meta.getValue("h.target"));
+        }
+        if (meta.hasGetter("delegate.mappedStatement")) {
+            MappedStatement ms = (MappedStatement) meta.getValue("delegate.mappedStatement");
+            return ms.getId();
+        }
+        if (meta.hasGetter("mappedStatement")) {
+            return ((MappedStatement) meta.getValue("mappedStatement")).getId();
+        }
+        return handler.getClass().getSimpleName();
+    }
+}
@@ -176,4 +176,19 @@ public class BackendConstant {
     public static final String APP_CONFIG_FIELD_TYPE_TEXT = "text";
     public static final String APP_CONFIG_FIELD_TYPE_SELECT = "select";
     public static final String APP_CONFIG_FIELD_TYPE_SWITCH = "switch";
+
+    public static final String PURGE_JOB_TYPE_USER = "user";
+    public static final String PURGE_JOB_TYPE_COURSE = "course";
+
+    public static final String EXPORT_JOB_TYPE_COURSE = "course";
+    public static final String EXPORT_JOB_TYPE_DEPARTMENT = "department";
+    public static final String EXPORT_JOB_TYPE_ALL = "all";
+
+    public static final String EXPORT_FORMAT_CSV = "csv";
+    public static final String EXPORT_FORMAT_XLSX = "xlsx";
+
+    public static final int EXPORT_JOB_STATUS_PENDING = 0;
+    public static final int EXPORT_JOB_STATUS_RUNNING = 1;
+    public static final int EXPORT_JOB_STATUS_FINISHED = 2;
+    public static final int EXPORT_JOB_STATUS_FAILED = 3;
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.domain;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.Serializable;
+import java.util.Date;
+import lombok.Data;
+
+@Data
+@TableName(value = "event_outbox")
+public class EventOutbox implements Serializable {
+    /** */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /** 监听方法：类名#方法名 */
+    private String listener;
+
+    /** 事件类名 */
+    @JsonProperty("event_type")
+    private String eventType;
+
+    /** 分区键 */
+    @JsonProperty("partition_key")
+    private String partitionKey;
+
+    /** 事件内容(JSON) */
+    private String payload;
+
+    /** 已失败次数 */
+    private Integer attempts;
+
+    /** 最近一次失败的错误信息 */
+    @JsonProperty("last_error")
+    private String lastError;
+
+    /** */
+    @JsonProperty("created_at")
+    private Date createdAt;
+
+    /** */
+    @JsonProperty("updated_at")
+    private Date updatedAt;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
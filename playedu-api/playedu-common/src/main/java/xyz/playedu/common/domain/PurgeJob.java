@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.domain;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.Serializable;
+import java.util.Date;
+import lombok.Data;
+
+@Data
+@TableName(value = "purge_jobs")
+public class PurgeJob implements Serializable {
+    /** */
+    @TableId(type = IdType.AUTO)
+    private Integer id;
+
+    /** 清理类型：user-学员，course-课程 */
+    private String type;
+
+    /** 被删除的学员ID或课程ID */
+    @JsonProperty("target_id")
+    private Integer targetId;
+
+    /** 当前清理到第几张表 */
+    private Integer step;
+
+    /** 已删除的行数 */
+    @JsonProperty("deleted_count")
+    private Long deletedCount;
+
+    /** 状态：0-进行中，1-完成，2-失败 */
+    private Integer status;
+
+    /** 连续失败次数 */
+    private Integer attempts;
+
+    /** 最近一次失败的错误信息 */
+    @JsonProperty("error_message")
+    private String errorMessage;
+
+    /** */
+    @JsonProperty("created_at")
+    private Date createdAt;
+
+    /** */
+    @JsonProperty("updated_at")
+    private Date updatedAt;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
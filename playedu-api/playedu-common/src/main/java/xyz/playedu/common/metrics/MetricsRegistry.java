@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.metrics;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import xyz.playedu.common.util.LatencyHistogram;
+
+/**
+ * 指标注册表
+ *
+ * <p>计时器基于 {@link LatencyHistogram}，以 Prometheus summary 输出 p50/p90/p99、总和、次数与最大值；计数器与取值函数形式的 gauge
+ * 直接输出。标签数量不定的指标(如各监听器、各隔离舱)通过 {@link #collect} 在抓取时生成。
+ */
+@Slf4j
+@Component
+public class MetricsRegistry {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /** 计时器，name 以 _seconds 结尾 */
+    public LatencyHistogram timer(String name, String help, String... labels) {
+        return (LatencyHistogram)
+                family(name, help, Type.SUMMARY)
+                        .metrics
+                        .computeIfAbsent(labelString(labels), k -> new LatencyHistogram());
+    }
+
+    /** 计数器，name 以 _total 结尾 */
+    public LongAdder counter(String name, String help, String... labels) {
+        return (LongAdder)
+                family(name, help, Type.COUNTER)
+                        .metrics
+                        .computeIfAbsent(labelString(labels), k -> new LongAdder());
+    }
+
+    public void gauge(String name, String help, Supplier<Number> supplier, String... labels) {
+        family(name, help, Type.GAUGE).metrics.put(labelString(labels), supplier);
+    }
+
+    /** 输出在别处维护的一组计时器，map 的 key 作为 label 标签的值 */
+    public void summaries(
+            String name,
+            String help,
+            String label,
+            Supplier<Map<String, LatencyHistogram>> histograms) {
+        family(name, help, Type.SUMMARY).summaries.add(() -> labelled(label, histograms.get()));
+    }
+
+    /** 抓取时由 collector 逐条写入样本，用于标签集合动态变化的指标 */
+    public void collect(String name, String help, boolean counter, Consumer<Sink> collector) {
+        family(name, help, counter ? Type.COUNTER : Type.GAUGE).collectors.add(collector);
+    }
+
+    /** Prometheus 文本格式 */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        for (Family family : families.values()) {
+            try {
+                family.write(out);
+            } catch (Exception e) {
+                log.error("指标[{}]采集失败", family.name, e);
+            }
+        }
+        return out.toString();
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, k -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("指标类型冲突:" + name);
+        }
+        return family;
+    }
+
+    private static Map<String, Object> labelled(
+            String label, Map<String, LatencyHistogram> histograms) {
+        Map<String, Object> result = new HashMap<>();
+        histograms.forEach((value, histogram) -> result.put(labelString(label, value), histogram));
+        return result;
+    }
+
+    private static String labelString(String... labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            sb.append(sb.length() == 0 ? "" : ",")
+                    .append(labels[i])
+                    .append("=\"")
+                    .append(escape(labels[i + 1]))
+                    .append('"');
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static String join(String labels, String extra) {
+        return labels.isEmpty() ? extra : labels + "," + extra;
+    }
+
+    /** collector 写入样本的入口 */
+    public interface Sink {
+        void sample(Number value, String... labels);
+    }
+
+    private enum Type {
+        SUMMARY,
+        COUNTER,
+        GAUGE
+    }
+
+    private static class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final Map<String, Object> metrics = new ConcurrentHashMap<>();
+        private final List<Consumer<Sink>> collectors = new CopyOnWriteArrayList<>();
+        private final List<Supplier<Map<String, Object>>> summaries = new CopyOnWriteArrayList<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        void write(StringBuilder out) {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ")
+                    .append(name)
+                    .append(' ')
+                    .append(type.name().toLowerCase())
+                    .append('\n');
+            Map<String, Object> all = new HashMap<>(metrics);
+            for (Supplier<Map<String, Object>> supplier : summaries) {
+                all.putAll(supplier.get());
+            }
+            for (Map.Entry<String, Object> entry : all.entrySet()) {
+                String labels = entry.getKey();
+                Object metric = entry.getValue();
+                if (metric instanceof LatencyHistogram histogram) {
+                    for (double q : QUANTILES) {
+                        sample(
+                                out,
+                                name,
+                                join(labels, "quantile=\"" + q + "\""),
+                                histogram.percentile(q) / 1000.0);
+                    }
+                    sample(out, name + "_sum", labels, histogram.sumMillis() / 1000.0);
+                    sample(out, name + "_count", labels, histogram.count());
+                } else if (metric instanceof LongAdder adder) {
+                    sample(out, name, labels, adder.sum());
+                } else if (metric instanceof Supplier<?> supplier) {
+                    Object value = supplier.get();
+                    if (value instanceof Number number) {
+                        sample(out, name, labels, number.doubleValue());
+                    }
+                }
+            }
+            for (Consumer<Sink> collector : collectors) {
+                collector.accept(
+                        (value, labels) ->
+                                sample(out, name, labelString(labels), value.doubleValue()));
+            }
+            if (type == Type.SUMMARY) {
+                // 最大值单独作为 gauge 输出
+                out.append("# TYPE ").append(name).append("_max gauge\n");
+                for (Map.Entry<String, Object> entry : all.entrySet()) {
+                    sample(
+                            out,
+                            name + "_max",
+                            entry.getKey(),
+                            ((LatencyHistogram) entry.getValue()).maxMillis() / 1000.0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 管理端口
+ *
+ * <p>在独立端口上以 Prometheus 文本格式输出 {@link MetricsRegistry} 中的指标(GET /metrics)，不经过业务接口的鉴权与限流，
+ * 该端口不应对公网开放。默认只监听 127.0.0.1，需要从其他主机抓取时通过 playedu.metrics.address 指定监听地址。playedu.metrics.port 小于等于
+ * 0 时不启动。
+ */
+@Slf4j
+@Component
+public class MetricsServer {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Value("${playedu.metrics.port:9899}")
+    private int port;
+
+    @Value("${playedu.metrics.address:127.0.0.1}")
+    private String address;
+
+    @Autowired private MetricsRegistry metricsRegistry;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (port <= 0) {
+            return;
+        }
+        executor =
+                Executors.newSingleThreadExecutor(
+                        r -> {
+                            Thread thread = new Thread(r, "playedu-metrics");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.createContext("/metrics", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        log.info("指标端口已启动 http://{}:{}/metrics", address, port);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metricsRegistry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (Exception e) {
+            log.error("指标输出失败", e);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.search;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * 内存中的n-gram倒排索引
+ *
+ * <p>对文本建立单字与二元组(bigram)的倒排表，倒排表使用RoaringBitmap压缩存储记录ID。 中文标题无需分词即可支持任意子串(含前缀)查询；多个以空格分隔的关键词取交集。
+ * 候选集合会再用原文做一次子串校验，所以查询结果与 LIKE '%kw%' 一致。
+ */
+public class NgramIndex {
+
+    /** 命中的ID数量超过该值时不再用ID过滤，交由数据库扫描 */
+    public static final int MAX_ID_FILTER = 5000;
+
+    private final Map<String, RoaringBitmap> postings = new HashMap<>();
+
+    private final Map<Integer, String> docs = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** 重建期间发生的变更，重建完成后回放；值为null表示删除 */
+    private Map<Integer, String> pending = null;
+
+    // 进行中的重建数量，全部结束后才清空变更记录
+    private int rebuilding = 0;
+
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询全量数据并重建索引
+     *
+     * <p>先开始记录变更再查询，查询期间提交的新增、修改、删除会在重建完成后回放，不会丢失。
+     */
+    public void rebuild(Supplier<Map<Integer, String>> loader) {
+        beginRebuild();
+        Map<Integer, String> data;
+        try {
+            data = loader.get();
+        } catch (RuntimeException e) {
+            abortRebuild();
+            throw e;
+        }
+        rebuild(data);
+    }
+
+    /**
+     * 开始重建，此后的变更会被记录下来
+     *
+     * <p>多个索引共用一次查询时，先对每个索引调用本方法再查询，然后调用 {@link #rebuild(Map)}；查询失败时调用 {@link #abortRebuild()}。
+     */
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            if (pending == null) {
+                pending = new HashMap<>();
+            }
+            rebuilding++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void abortRebuild() {
+        lock.writeLock().lock();
+        try {
+            finishRebuild();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 使用 {@link #beginRebuild()} 之后查询的全量数据重建索引 */
+    public void rebuild(Map<Integer, String> data) {
+        Map<String, RoaringBitmap> newPostings = new HashMap<>();
+        Map<Integer, String> newDocs = new HashMap<>();
+        data.forEach(
+                (id, text) -> {
+                    String normalized = normalize(text);
+                    if (normalized.isEmpty()) {
+                        return;
+                    }
+                    newDocs.put(id, normalized);
+                    for (String gram : grams(normalized)) {
+                        newPostings.computeIfAbsent(gram, k -> new RoaringBitmap()).add(id);
+                    }
+                });
+        newPostings.values().forEach(RoaringBitmap::runOptimize);
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            postings.putAll(newPostings);
+            docs.clear();
+            docs.putAll(newDocs);
+            // 记录的是每条记录的最终状态，回放早于查询的变更也不会出错
+            if (pending != null) {
+                pending.forEach(
+                        (id, text) -> {
+                            if (text == null) {
+                                removeInternal(id);
+                            } else {
+                                putInternal(id, text);
+                            }
+                        });
+            }
+            finishRebuild();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Integer id, String text) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.put(id, text == null ? "" : text);
+            }
+            putInternal(id, text);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer id) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.put(id, null);
+            }
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询包含全部关键词的记录ID
+     *
+     * @return 索引未就绪或关键词为空时返回null
+     */
+    public RoaringBitmap search(String keywords) {
+        if (!ready || keywords == null) {
+            return null;
+        }
+        String[] terms = normalize(keywords).split("\\s+");
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = null;
+            for (String term : terms) {
+                if (term.isEmpty()) {
+                    continue;
+                }
+                RoaringBitmap matched = searchTerm(term);
+                result = result == null ? matched : RoaringBitmap.and(result, matched);
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 将查询结果转换为分页查询可用的ID过滤条件
+     *
+     * @return 返回null表示不使用ID过滤(无查询条件或命中数过多)；无命中时返回[0]，ID从1开始所以不会匹配任何记录
+     */
+    public static List<Integer> toIdFilter(RoaringBitmap ids) {
+        if (ids == null || ids.getCardinality() > MAX_ID_FILTER) {
+            return null;
+        }
+        if (ids.isEmpty()) {
+            return List.of(0);
+        }
+        List<Integer> result = new ArrayList<>(ids.getCardinality());
+        ids.forEach((int id) -> result.add(id));
+        return result;
+    }
+
+    /** 多个字段的查询结果取交集，null表示该字段无查询条件 */
+    public static RoaringBitmap and(RoaringBitmap... bitmaps) {
+        RoaringBitmap result = null;
+        for (RoaringBitmap bitmap : bitmaps) {
+            if (bitmap == null) {
+                continue;
+            }
+            result = result == null ? bitmap : RoaringBitmap.and(result, bitmap);
+        }
+        return result;
+    }
+
+    private RoaringBitmap searchTerm(String term) {
+        RoaringBitmap candidates = null;
+        if (term.length() == 1) {
+            candidates = postings.get(term);
+            return candidates == null ? new RoaringBitmap() : candidates.clone();
+        }
+        for (int i = 0; i + 2 <= term.length(); i++) {
+            RoaringBitmap posting = postings.get(term.substring(i, i + 2));
+            if (posting == null) {
+                return new RoaringBitmap();
+            }
+            candidates =
+                    candidates == null ? posting.clone() : RoaringBitmap.and(candidates, posting);
+            if (candidates.isEmpty()) {
+                return candidates;
+            }
+        }
+        // 二元组只能保证候选，超过两个字符的关键词需要用原文校验
+        if (term.length() > 2) {
+            RoaringBitmap verified = new RoaringBitmap();
+            candidates.forEach(
+                    (int id) -> {
+                        String doc = docs.get(id);
+                        if (doc != null && doc.contains(term)) {
+                            verified.add(id);
+                        }
+                    });
+            return verified;
+        }
+        return candidates;
+    }
+
+    private void finishRebuild() {
+        if (rebuilding > 0 && --rebuilding == 0) {
+            pending = null;
+        }
+    }
+
+    private void putInternal(Integer id, String text) {
+        removeInternal(id);
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        docs.put(id, normalized);
+        for (String gram : grams(normalized)) {
+            postings.computeIfAbsent(gram, k -> new RoaringBitmap()).add(id);
+        }
+    }
+
+    private void removeInternal(Integer id) {
+        String old = docs.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (String gram : grams(old)) {
+            RoaringBitmap posting = postings.get(gram);
+            if (posting == null) {
+                continue;
+            }
+            posting.remove(id);
+            if (posting.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i < text.length(); i++) {
+            grams.add(text.substring(i, i + 1));
+            if (i + 2 <= text.length()) {
+                grams.add(text.substring(i, i + 2));
+            }
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.search;
+
+import java.util.concurrent.CompletableFuture;
+import xyz.playedu.common.util.TransactionUtil;
+
+/**
+ * 持有内存搜索索引的服务，启动时由SearchIndexCheck统一构建
+ *
+ * <p>save/saveBatch/updateById/removeById 按记录增量更新索引；条件更新/删除(update/remove)无法确定影响了哪些记录，提交后在后台重建。 链式
+ * lambdaUpdate()/update() 直接调用Mapper，不经过服务，不能用于索引字段。
+ *
+ * <p>管理员日志(admin_logs)与附件下载日志(course_attachment_download_log)不建立索引：两表只追加不删除，全部常驻内存会随时间无限增长，且主键为
+ * bigint，超出 RoaringBitmap 的 int 范围；这两个列表的关键词筛选仍使用 LIKE。
+ */
+public interface SearchIndexProvider {
+
+    void rebuildSearchIndex();
+
+    default void rebuildSearchIndexAfterCommit() {
+        TransactionUtil.afterCommit(() -> CompletableFuture.runAsync(this::rebuildSearchIndex));
+    }
+}
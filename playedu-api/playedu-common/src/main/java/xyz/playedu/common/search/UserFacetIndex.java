@@ -0,0 +1,488 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.search;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+import xyz.playedu.common.domain.User;
+import xyz.playedu.common.domain.UserDepartment;
+
+/**
+ * 学员筛选的位图索引
+ *
+ * <p>按部门、激活/锁定/实名/设置密码状态、注册月份分别维护一份学员ID的RoaringBitmap，后台学员列表的筛选条件转换为位图的交集，
+ * 部门人数即位图的基数，耗时与学员总数无关。索引在启动时由UserService构建，之后随学员及部门关联的写操作在事务提交后更新。
+ */
+@Component
+public class UserFacetIndex {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private static final DateTimeFormatter DATETIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // 注册时间以秒存储，起点为2020-01-01，int可表示1952~2088年
+    private static final long CREATED_EPOCH = 1577836800L;
+
+    private static final int NO_CREATED_AT = Integer.MIN_VALUE;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private State state = new State();
+
+    /** 重建期间发生的变更，重建完成后按顺序回放 */
+    private List<Consumer<State>> pending = null;
+
+    // 进行中的重建数量，全部结束后才清空变更记录
+    private int rebuilding = 0;
+
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 开始重建，此后的变更会被记录下来
+     *
+     * <p>须在查询学员与部门关联之前调用，查询期间提交的变更在 {@link #rebuild(List, List)} 时回放；查询失败时调用 {@link
+     * #abortRebuild()}。
+     */
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            if (pending == null) {
+                pending = new ArrayList<>();
+            }
+            rebuilding++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void abortRebuild() {
+        lock.writeLock().lock();
+        try {
+            finishRebuild();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 使用 {@link #beginRebuild()} 之后查询的全量数据重建索引 */
+    public void rebuild(List<User> users, List<UserDepartment> relations) {
+        State newState = new State();
+        for (User user : users) {
+            newState.putUser(user);
+        }
+        for (UserDepartment relation : relations) {
+            newState.addDepartment(relation.getUserId(), relation.getDepId());
+        }
+        newState.optimize();
+
+        lock.writeLock().lock();
+        try {
+            // 变更都是覆盖式的，回放查询已包含的变更结果不变
+            if (pending != null) {
+                pending.forEach(change -> change.accept(newState));
+            }
+            finishRebuild();
+            state = newState;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 写入学员，部分更新时只刷新有值的字段 */
+    public void putUser(User user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        apply(s -> s.putUser(user));
+    }
+
+    public void removeUser(Integer id) {
+        if (id == null) {
+            return;
+        }
+        apply(s -> s.removeUser(id));
+    }
+
+    public void addDepartments(Integer userId, Integer[] depIds) {
+        if (userId == null || depIds == null) {
+            return;
+        }
+        apply(
+                s -> {
+                    for (Integer depId : depIds) {
+                        s.addDepartment(userId, depId);
+                    }
+                });
+    }
+
+    public void resetDepartments(Integer userId, Integer[] depIds) {
+        if (userId == null) {
+            return;
+        }
+        apply(
+                s -> {
+                    s.clearDepartments(userId);
+                    if (depIds != null) {
+                        for (Integer depId : depIds) {
+                            s.addDepartment(userId, depId);
+                        }
+                    }
+                });
+    }
+
+    public void addRelations(Collection<UserDepartment> relations) {
+        if (relations == null || relations.isEmpty()) {
+            return;
+        }
+        List<UserDepartment> copy = new ArrayList<>(relations);
+        apply(
+                s -> {
+                    for (UserDepartment relation : copy) {
+                        s.addDepartment(relation.getUserId(), relation.getDepId());
+                    }
+                });
+    }
+
+    public void removeDepartment(Integer depId) {
+        if (depId == null) {
+            return;
+        }
+        apply(s -> s.departments.remove(depId));
+    }
+
+    /**
+     * 按条件筛选学员ID，条件为null表示不过滤
+     *
+     * @param depIds 部门ID(需已包含子部门)，空列表表示未加入任何部门的学员
+     * @param createdAt 注册时间范围[开始,结束]，格式为 yyyy-MM-dd HH:mm:ss 或 yyyy-MM-dd
+     * @return 索引未就绪或注册时间无法解析时返回null，调用方需回退到数据库查询
+     */
+    public RoaringBitmap match(
+            List<Integer> depIds,
+            Integer isActive,
+            Integer isLock,
+            Integer isVerify,
+            Integer isSetPassword,
+            String[] createdAt) {
+        if (!ready) {
+            return null;
+        }
+        long[] createdRange = null;
+        if (createdAt != null && createdAt.length == 2) {
+            Long from = parseSeconds(createdAt[0]);
+            Long to = parseSeconds(createdAt[1]);
+            if (from == null || to == null) {
+                return null;
+            }
+            createdRange = new long[] {from, to};
+        }
+
+        lock.readLock().lock();
+        try {
+            State s = state;
+            RoaringBitmap result = s.all.clone();
+            if (depIds != null) {
+                if (depIds.isEmpty()) {
+                    result.andNot(s.union(s.departments.keySet()));
+                } else {
+                    result.and(s.union(depIds));
+                }
+            }
+            filterFlag(result, s.active, isActive);
+            filterFlag(result, s.locked, isLock);
+            filterFlag(result, s.verified, isVerify);
+            filterFlag(result, s.setPassword, isSetPassword);
+            if (createdRange != null) {
+                result.and(s.createdBetween(createdRange[0], createdRange[1]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 学员总数，索引未就绪时返回null */
+    public Long total() {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            return state.all.getLongCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 部门ID=>直属学员数量，索引未就绪时返回null */
+    public Map<Integer, Integer> departmentCounts() {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> counts = new HashMap<>();
+            state.departments.forEach(
+                    (depId, users) -> {
+                        if (!users.isEmpty()) {
+                            counts.put(depId, users.getCardinality());
+                        }
+                    });
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 属于任一部门的学员数量(去重)，索引未就绪时返回null */
+    public Integer countByDepIds(Collection<Integer> depIds) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            return state.union(depIds).getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** 按ID顺序取出一页ID */
+    public static List<Integer> page(RoaringBitmap ids, int offset, int size, boolean asc) {
+        int total = ids.getCardinality();
+        List<Integer> result = new ArrayList<>(Math.max(0, Math.min(size, total - offset)));
+        for (int i = offset; i < total && i < offset + size; i++) {
+            result.add(ids.select(asc ? i : total - 1 - i));
+        }
+        return result;
+    }
+
+    private void finishRebuild() {
+        if (rebuilding > 0 && --rebuilding == 0) {
+            pending = null;
+        }
+    }
+
+    private void apply(Consumer<State> change) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(change);
+            }
+            change.accept(state);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void filterFlag(RoaringBitmap result, RoaringBitmap ones, Integer value) {
+        if (value == null) {
+            return;
+        }
+        if (value == 1) {
+            result.and(ones);
+        } else if (value == 0) {
+            result.andNot(ones);
+        } else {
+            result.clear();
+        }
+    }
+
+    /** 与MySQL一致，只有日期时按当天零点处理 */
+    private static Long parseSeconds(String value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.trim();
+        try {
+            return LocalDateTime.parse(text, DATETIME).atZone(ZONE).toEpochSecond();
+        } catch (DateTimeParseException ignored) {
+        }
+        try {
+            return LocalDate.parse(text).atStartOfDay(ZONE).toEpochSecond();
+        } catch (DateTimeParseException ignored) {
+        }
+        return null;
+    }
+
+    private static int toStored(long epochSecond) {
+        long value = epochSecond - CREATED_EPOCH;
+        return (int) Math.max(Integer.MIN_VALUE + 1L, Math.min(Integer.MAX_VALUE, value));
+    }
+
+    private static int month(int stored) {
+        ZonedDateTime time = Instant.ofEpochSecond(stored + CREATED_EPOCH).atZone(ZONE);
+        return time.getYear() * 100 + time.getMonthValue();
+    }
+
+    private static class State {
+
+        final RoaringBitmap all = new RoaringBitmap();
+
+        final Map<Integer, RoaringBitmap> departments = new HashMap<>();
+
+        // 以下状态位图只存放值为1的学员
+        final RoaringBitmap active = new RoaringBitmap();
+
+        final RoaringBitmap locked = new RoaringBitmap();
+
+        final RoaringBitmap verified = new RoaringBitmap();
+
+        final RoaringBitmap setPassword = new RoaringBitmap();
+
+        // 注册月份(yyyyMM)=>学员ID
+        final TreeMap<Integer, RoaringBitmap> months = new TreeMap<>();
+
+        // 学员ID=>注册时间，用于月份边界的精确比较
+        int[] createdAt = new int[0];
+
+        void putUser(User user) {
+            int id = user.getId();
+            all.add(id);
+            setFlag(active, id, user.getIsActive());
+            setFlag(locked, id, user.getIsLock());
+            setFlag(verified, id, user.getIsVerify());
+            setFlag(setPassword, id, user.getIsSetPassword());
+            if (user.getCreatedAt() != null) {
+                removeCreatedAt(id);
+                int value = toStored(user.getCreatedAt().getTime() / 1000);
+                ensureCapacity(id);
+                createdAt[id] = value;
+                months.computeIfAbsent(month(value), k -> new RoaringBitmap()).add(id);
+            }
+        }
+
+        void removeUser(int id) {
+            all.remove(id);
+            active.remove(id);
+            locked.remove(id);
+            verified.remove(id);
+            setPassword.remove(id);
+            clearDepartments(id);
+            removeCreatedAt(id);
+        }
+
+        void addDepartment(int userId, int depId) {
+            departments.computeIfAbsent(depId, k -> new RoaringBitmap()).add(userId);
+        }
+
+        void clearDepartments(int userId) {
+            departments.values().forEach(users -> users.remove(userId));
+        }
+
+        RoaringBitmap union(Collection<Integer> depIds) {
+            List<RoaringBitmap> bitmaps = new ArrayList<>();
+            for (Integer depId : depIds) {
+                RoaringBitmap users = departments.get(depId);
+                if (users != null) {
+                    bitmaps.add(users);
+                }
+            }
+            return bitmaps.isEmpty() ? new RoaringBitmap() : FastAggregation.or(bitmaps.iterator());
+        }
+
+        RoaringBitmap createdBetween(long fromSecond, long toSecond) {
+            if (fromSecond > toSecond) {
+                return new RoaringBitmap();
+            }
+            int from = toStored(fromSecond);
+            int to = toStored(toSecond);
+            int fromMonth = month(from);
+            int toMonth = month(to);
+            List<RoaringBitmap> whole = new ArrayList<>();
+            RoaringBitmap edges = new RoaringBitmap();
+            months.subMap(fromMonth, true, toMonth, true)
+                    .forEach(
+                            (month, users) -> {
+                                if (month != fromMonth && month != toMonth) {
+                                    whole.add(users);
+                                    return;
+                                }
+                                // 首尾月份逐个比较注册时间
+                                users.forEach(
+                                        (int id) -> {
+                                            int value = createdAt[id];
+                                            if (value >= from && value <= to) {
+                                                edges.add(id);
+                                            }
+                                        });
+                            });
+            whole.add(edges);
+            return FastAggregation.or(whole.iterator());
+        }
+
+        void optimize() {
+            all.runOptimize();
+            active.runOptimize();
+            locked.runOptimize();
+            verified.runOptimize();
+            setPassword.runOptimize();
+            departments.values().forEach(RoaringBitmap::runOptimize);
+            months.values().forEach(RoaringBitmap::runOptimize);
+        }
+
+        private void removeCreatedAt(int id) {
+            if (id >= createdAt.length || createdAt[id] == NO_CREATED_AT) {
+                return;
+            }
+            RoaringBitmap users = months.get(month(createdAt[id]));
+            if (users != null) {
+                users.remove(id);
+                if (users.isEmpty()) {
+                    months.remove(month(createdAt[id]));
+                }
+            }
+            createdAt[id] = NO_CREATED_AT;
+        }
+
+        private void ensureCapacity(int id) {
+            if (id < createdAt.length) {
+                return;
+            }
+            int oldLength = createdAt.length;
+            createdAt = Arrays.copyOf(createdAt, Math.max(id + 1, oldLength + (oldLength >> 1)));
+            Arrays.fill(createdAt, oldLength, createdAt.length, NO_CREATED_AT);
+        }
+
+        private static void setFlag(RoaringBitmap ones, int id, Integer value) {
+            if (value == null) {
+                return;
+            }
+            if (value == 1) {
+                ones.add(id);
+            } else {
+                ones.remove(id);
+            }
+        }
+    }
+}
@@ -31,4 +31,7 @@ public interface AuthService {
     Long expired();
 
     HashMap<String, String> parse(String token);
+
+    /** 校验指定token，无效或不属于该类用户时返回null */
+    Integer userIdByToken(String token, String prv);
 }
@@ -70,4 +70,7 @@ public interface DepartmentService extends IService<Department> {
     List<Department> getChildDepartmentsByParentId(Integer parentId);
 
     List<Department> getChildDepartmentsByParentChain(Integer parentId, String parentChain);
+
+    /** 部门ID及其全部子部门ID，不存在的部门忽略 */
+    List<Integer> withChildIds(List<Integer> ids);
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import java.util.Date;
+import java.util.List;
+import xyz.playedu.common.domain.EventOutbox;
+
+public interface EventOutboxService extends IService<EventOutbox> {
+    // 写入发件箱(参与当前事务)，返回记录ID
+    Long store(String listener, String eventType, String partitionKey, String payload);
+
+    // 最近更新时间早于 before 且失败次数未达上限的待投递记录
+    List<EventOutbox> pending(Date before, int maxAttempts, int limit);
+
+    // 记录一次执行失败
+    void markFailed(Long id, String error);
+
+    // 已达失败上限、不再自动重试的记录数
+    long deadCount(int maxAttempts);
+}
@@ -29,4 +29,6 @@ public interface FrontendAuthService {
     String jti();
 
     HashMap<String, String> parse(String token);
+
+    Integer userIdByToken(String token);
 }
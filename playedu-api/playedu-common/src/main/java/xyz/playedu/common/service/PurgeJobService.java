@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import java.util.Map;
+import xyz.playedu.common.domain.PurgeJob;
+
+public interface PurgeJobService extends IService<PurgeJob> {
+    // 创建清理任务，由后台按批次删除关联数据；同一目标已有进行中的任务时返回该任务
+    PurgeJob create(String type, Integer targetId);
+
+    // 执行所有未完成的清理任务(重启后从记录的进度继续)
+    void runPending();
+
+    // 运行指标
+    Map<String, Object> stats();
+}
@@ -27,6 +27,9 @@ import xyz.playedu.common.domain.UserDepartment;
 public interface UserDepartmentService extends IService<UserDepartment> {
     List<Integer> getUserIdsByDepIds(List<Integer> depIds);
 
+    /** 属于任一部门的学员数量(去重) */
+    Integer countUsersByDepIds(List<Integer> depIds);
+
     void storeDepIds(Integer userId, Integer[] depIds);
 
     void resetStoreDepIds(Integer userId, Integer[] depIds);
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import xyz.playedu.common.constant.BackendConstant;
@@ -33,6 +34,7 @@ import xyz.playedu.common.mapper.AppConfigMapper;
 import xyz.playedu.common.service.AppConfigService;
 import xyz.playedu.common.types.LdapConfig;
 import xyz.playedu.common.types.config.S3Config;
+import xyz.playedu.common.util.JsonResponseCache;
 import xyz.playedu.common.util.StringUtil;
 
 @Service
@@ -42,6 +44,8 @@ public class AppConfigServiceImpl extends ServiceImpl<AppConfigMapper, AppConfig
 
     private Environment environment;
 
+    @Autowired private JsonResponseCache jsonResponseCache;
+
     @Override
     public Map<String, Long> allKeys() {
         return list().stream().collect(Collectors.toMap(AppConfig::getKeyName, AppConfig::getId));
@@ -85,6 +89,7 @@ public class AppConfigServiceImpl extends ServiceImpl<AppConfigMapper, AppConfig
 
         if (!list.isEmpty()) {
             updateBatchById(list);
+            jsonResponseCache.evict(JsonResponseCache.KEY_SYSTEM_CONFIG);
         }
     }
 
@@ -15,6 +15,7 @@
  */
 package xyz.playedu.common.service.impl;
 
+import cn.dev33.satoken.exception.SaTokenException;
 import cn.dev33.satoken.stp.SaLoginConfig;
 import cn.dev33.satoken.stp.StpUtil;
 import java.util.HashMap;
@@ -80,4 +81,24 @@ public class AuthServiceImpl implements AuthService {
         data.put("exp", (String) StpUtil.getExtra(token, "exp"));
         return data;
     }
+
+    @Override
+    public Integer userIdByToken(String token, String prv) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        // 兼容带前缀的写法
+        if (token.startsWith("Bearer ")) {
+            token = token.substring(7);
+        }
+        try {
+            Object loginId = StpUtil.getLoginIdByToken(token);
+            if (loginId == null || !prv.equals(StpUtil.getExtra(token, "prv"))) {
+                return null;
+            }
+            return Integer.valueOf(loginId.toString());
+        } catch (SaTokenException | NumberFormatException e) {
+            return null;
+        }
+    }
 }
@@ -21,12 +21,15 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import xyz.playedu.common.domain.Category;
 import xyz.playedu.common.exception.NotFoundException;
 import xyz.playedu.common.mapper.CategoryMapper;
 import xyz.playedu.common.service.CategoryService;
+import xyz.playedu.common.util.DataVersion;
+import xyz.playedu.common.util.JsonResponseCache;
 
 /**
  * @author tengteng
@@ -37,6 +40,8 @@ import xyz.playedu.common.service.CategoryService;
 public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category>
         implements CategoryService {
 
+    @Autowired private JsonResponseCache jsonResponseCache;
+
     @Override
     public List<Category> listByParentId(Integer id) {
         return list(query().getWrapper().eq("parent_id", id).orderByAsc("sort"));
@@ -64,6 +69,8 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category>
         updateParentChain(category.getParentChain(), childrenParentChain(category));
         // 删除记录
         removeById(category.getId());
+        jsonResponseCache.evict(JsonResponseCache.KEY_CATEGORIES);
+        DataVersion.bump(DataVersion.CATEGORIES);
     }
 
     @Override
@@ -94,6 +101,8 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category>
 
         category = getById(category.getId());
         updateParentChain(childrenParentChain(category), childrenChainPrefix);
+        jsonResponseCache.evict(JsonResponseCache.KEY_CATEGORIES);
+        DataVersion.bump(DataVersion.CATEGORIES);
     }
 
     private void updateParentChain(String newChildrenPC, String oldChildrenPC) {
@@ -151,6 +160,8 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category>
         category.setUpdatedAt(new Date());
 
         save(category);
+        jsonResponseCache.evict(JsonResponseCache.KEY_CATEGORIES);
+        DataVersion.bump(DataVersion.CATEGORIES);
     }
 
     @Override
@@ -194,6 +205,8 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category>
                     });
         }
         updateBatchById(categories);
+        jsonResponseCache.evict(JsonResponseCache.KEY_CATEGORIES);
+        DataVersion.bump(DataVersion.CATEGORIES);
     }
 
     @Override
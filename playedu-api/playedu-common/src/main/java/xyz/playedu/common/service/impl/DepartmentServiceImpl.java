@@ -28,10 +28,14 @@ import xyz.playedu.common.domain.Department;
 import xyz.playedu.common.domain.UserDepartment;
 import xyz.playedu.common.exception.NotFoundException;
 import xyz.playedu.common.mapper.DepartmentMapper;
+import xyz.playedu.common.search.UserFacetIndex;
 import xyz.playedu.common.service.DepartmentService;
 import xyz.playedu.common.service.UserDepartmentService;
 import xyz.playedu.common.types.mapper.DepartmentsUserCountMapRes;
+import xyz.playedu.common.util.DataVersion;
+import xyz.playedu.common.util.JsonResponseCache;
 import xyz.playedu.common.util.StringUtil;
+import xyz.playedu.common.util.TransactionUtil;
 
 /**
  * @author tengteng
@@ -45,6 +49,16 @@ public class DepartmentServiceImpl extends ServiceImpl<DepartmentMapper, Departm
 
     @Autowired private UserDepartmentService userDepartmentService;
 
+    @Autowired private JsonResponseCache jsonResponseCache;
+
+    @Autowired private UserFacetIndex facetIndex;
+
+    // 部门ID=>名称，部门数据版本号变化后下次读取时重建
+    private volatile Id2Name id2name;
+
+    // 部门ID=>自身及全部子部门ID，同样按部门数据版本号重建
+    private volatile Subtrees subtrees;
+
     @Override
     public List<Department> listByParentId(Integer id) {
         return list(query().getWrapper().eq("parent_id", id).orderByAsc("sort"));
@@ -70,6 +84,8 @@ public class DepartmentServiceImpl extends ServiceImpl<DepartmentMapper, Departm
         Department department = findOrFail(id);
         updateParentChain(department.getParentChain(), childrenParentChain(department));
         removeById(department.getId());
+        jsonResponseCache.evict(JsonResponseCache.KEY_DEPARTMENTS);
+        DataVersion.bump(DataVersion.DEPARTMENTS);
     }
 
     @Override
@@ -101,6 +117,8 @@ public class DepartmentServiceImpl extends ServiceImpl<DepartmentMapper, Departm
 
         department = getById(department.getId());
         updateParentChain(childrenParentChain(department), childrenChainPrefix);
+        jsonResponseCache.evict(JsonResponseCache.KEY_DEPARTMENTS);
+        DataVersion.bump(DataVersion.DEPARTMENTS);
     }
 
     private void updateParentChain(String newChildrenPC, String oldChildrenPC) {
@@ -181,6 +199,8 @@ public class DepartmentServiceImpl extends ServiceImpl<DepartmentMapper, Departm
         department.setUpdatedAt(new Date());
 
         save(department);
+        jsonResponseCache.evict(JsonResponseCache.KEY_DEPARTMENTS);
+        DataVersion.bump(DataVersion.DEPARTMENTS);
 
         return department.getId();
     }
@@ -190,6 +210,7 @@ public class DepartmentServiceImpl extends ServiceImpl<DepartmentMapper, Departm
         QueryWrapper<UserDepartment> wrapper =
                 userDepartmentService.query().getWrapper().eq("dep_id", depId);
         userDepartmentService.remove(wrapper);
+        TransactionUtil.afterCommit(() -> facetIndex.removeDepartment(depId));
     }
 
     @Override
@@ -229,6 +250,8 @@ public class DepartmentServiceImpl extends ServiceImpl<DepartmentMapper, Departm
                     });
         }
         updateBatchById(departments);
+        jsonResponseCache.evict(JsonResponseCache.KEY_DEPARTMENTS);
+        DataVersion.bump(DataVersion.DEPARTMENTS);
     }
 
     @Override
@@ -239,9 +262,22 @@ public class DepartmentServiceImpl extends ServiceImpl<DepartmentMapper, Departm
 
     @Override
     public Map<Integer, String> id2name() {
-        return all().stream().collect(Collectors.toMap(Department::getId, Department::getName));
+        long version = DataVersion.get(DataVersion.DEPARTMENTS);
+        Id2Name cached = id2name;
+        if (cached != null && cached.version() == version) {
+            return cached.names();
+        }
+        Map<Integer, String> names =
+                Collections.unmodifiableMap(
+                        all().stream()
+                                .collect(Collectors.toMap(Department::getId, Department::getName)));
+        // 以读取前的版本号缓存，构建期间发生变更会在下次读取时重建
+        id2name = new Id2Name(version, names);
+        return names;
     }
 
+    private record Id2Name(long version, Map<Integer, String> names) {}
+
     @Override
     public Long total() {
         return count();
@@ -249,6 +285,10 @@ public class DepartmentServiceImpl extends ServiceImpl<DepartmentMapper, Departm
 
     @Override
     public Map<Integer, Integer> getDepartmentsUserCount() {
+        Map<Integer, Integer> counts = facetIndex.departmentCounts();
+        if (counts != null) {
+            return counts;
+        }
         return getBaseMapper().getDepartmentsUserCount().stream()
                 .collect(
                         Collectors.toMap(
@@ -311,4 +351,36 @@ public class DepartmentServiceImpl extends ServiceImpl<DepartmentMapper, Departm
                         .or()
                         .likeRight("parent_chain", parentChain + ","));
     }
+
+    @Override
+    public List<Integer> withChildIds(List<Integer> ids) {
+        long version = DataVersion.get(DataVersion.DEPARTMENTS);
+        Subtrees cached = subtrees;
+        if (cached == null || cached.version() != version) {
+            Map<Integer, List<Integer>> children = new HashMap<>();
+            for (Department department : all()) {
+                children.computeIfAbsent(department.getId(), k -> new ArrayList<>())
+                        .add(department.getId());
+                if (StringUtil.isEmpty(department.getParentChain())) {
+                    continue;
+                }
+                for (String parentId : department.getParentChain().split(",")) {
+                    children.computeIfAbsent(Integer.valueOf(parentId), k -> new ArrayList<>())
+                            .add(department.getId());
+                }
+            }
+            cached = new Subtrees(version, children);
+            subtrees = cached;
+        }
+        Set<Integer> result = new LinkedHashSet<>();
+        for (Integer id : ids) {
+            List<Integer> children = cached.children().get(id);
+            if (children != null) {
+                result.addAll(children);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    private record Subtrees(long version, Map<Integer, List<Integer>> children) {}
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import java.util.Date;
+import java.util.List;
+import org.springframework.stereotype.Service;
+import xyz.playedu.common.domain.EventOutbox;
+import xyz.playedu.common.mapper.EventOutboxMapper;
+import xyz.playedu.common.service.EventOutboxService;
+
+@Service
+public class EventOutboxServiceImpl extends ServiceImpl<EventOutboxMapper, EventOutbox>
+        implements EventOutboxService {
+
+    @Override
+    public Long store(String listener, String eventType, String partitionKey, String payload) {
+        EventOutbox outbox = new EventOutbox();
+        outbox.setListener(listener);
+        outbox.setEventType(eventType);
+        outbox.setPartitionKey(partitionKey == null ? "" : partitionKey);
+        outbox.setPayload(payload);
+        outbox.setAttempts(0);
+        outbox.setLastError("");
+        outbox.setCreatedAt(new Date());
+        outbox.setUpdatedAt(new Date());
+        save(outbox);
+        return outbox.getId();
+    }
+
+    @Override
+    public List<EventOutbox> pending(Date before, int maxAttempts, int limit) {
+        return list(
+                query().getWrapper()
+                        .lt("attempts", maxAttempts)
+                        .lt("updated_at", before)
+                        .orderByAsc("id")
+                        .last("LIMIT " + limit));
+    }
+
+    @Override
+    public void markFailed(Long id, String error) {
+        String message = error == null ? "" : error;
+        if (message.length() > 500) {
+            message = message.substring(0, 500);
+        }
+        update(
+                new UpdateWrapper<EventOutbox>()
+                        .eq("id", id)
+                        .setSql("attempts = attempts + 1")
+                        .set("last_error", message)
+                        .set("updated_at", new Date()));
+    }
+
+    @Override
+    public long deadCount(int maxAttempts) {
+        return count(query().getWrapper().ge("attempts", maxAttempts));
+    }
+}
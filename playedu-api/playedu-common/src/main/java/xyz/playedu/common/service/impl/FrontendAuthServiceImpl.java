@@ -56,4 +56,9 @@ public class FrontendAuthServiceImpl implements FrontendAuthService {
     public HashMap<String, String> parse(String token) {
         return authService.parse(token);
     }
+
+    @Override
+    public Integer userIdByToken(String token) {
+        return authService.userIdByToken(token, SystemConstant.JWT_PRV_USER);
+    }
 }
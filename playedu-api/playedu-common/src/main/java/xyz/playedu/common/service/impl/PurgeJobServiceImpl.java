@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import xyz.playedu.common.constant.BackendConstant;
+import xyz.playedu.common.domain.PurgeJob;
+import xyz.playedu.common.mapper.PurgeJobMapper;
+import xyz.playedu.common.service.PurgeJobService;
+
+/**
+ * 关联数据的后台分批清理
+ *
+ * <p>删除学员/课程时主表记录立即删除，大表中的学习记录由本服务沿关联字段的索引小批量删除，每批之间短暂停顿，避免长事务持有行锁阻塞学习进度写入。
+ *
+ * <p>执行失败的任务按 5秒、10秒、20秒…(最长1小时) 退避重试，连续失败 {@link #MAX_ATTEMPTS} 次后标记为失败，不再自动重试。
+ */
+@Service
+@Slf4j
+public class PurgeJobServiceImpl extends ServiceImpl<PurgeJobMapper, PurgeJob>
+        implements PurgeJobService {
+
+    /** 每批删除的行数 */
+    private static final int BATCH_SIZE = 500;
+
+    /** 每批之间的停顿(毫秒) */
+    private static final long BATCH_PAUSE_MS = 50;
+
+    private static final int MAX_ATTEMPTS = 10;
+
+    private static final long RETRY_BASE_MS = 5_000;
+
+    private static final long RETRY_MAX_MS = 3600_000;
+
+    private static final int STATUS_RUNNING = 0;
+
+    private static final int STATUS_FINISHED = 1;
+
+    private static final int STATUS_FAILED = 2;
+
+    /** 各清理类型需要处理的表及关联字段，按顺序执行 */
+    private static final Map<String, String[][]> PLANS =
+            Map.of(
+                    BackendConstant.PURGE_JOB_TYPE_USER,
+                    new String[][] {
+                        {"user_course_hour_records", "user_id"},
+                        {"user_course_records", "user_id"},
+                        {"user_learn_duration_records", "user_id"},
+                        {"user_learn_duration_daily", "user_id"},
+                        {"user_learn_duration_stats", "user_id"},
+                        {"user_login_records", "user_id"},
+                        {"user_learning_summary", "user_id"},
+                    },
+                    BackendConstant.PURGE_JOB_TYPE_COURSE,
+                    new String[][] {
+                        {"user_course_records", "course_id"},
+                        {"user_course_hour_records", "course_id"},
+                        {"user_learn_duration_daily", "course_id"},
+                        {"user_learning_summary", "course_id"},
+                    });
+
+    private final AtomicLong finishedJobs = new AtomicLong(0);
+
+    private final AtomicLong failedRuns = new AtomicLong(0);
+
+    private final AtomicLong deletedRows = new AtomicLong(0);
+
+    private final AtomicLong batches = new AtomicLong(0);
+
+    private final AtomicLong lastBatchMs = new AtomicLong(0);
+
+    @Override
+    public PurgeJob create(String type, Integer targetId) {
+        if (!PLANS.containsKey(type)) {
+            throw new IllegalArgumentException("未知的清理类型:" + type);
+        }
+        // 删除事件经发件箱可能重复投递，同一目标已有进行中的任务时不再创建
+        PurgeJob running =
+                getOne(
+                        query().getWrapper()
+                                .eq("type", type)
+                                .eq("target_id", targetId)
+                                .eq("status", STATUS_RUNNING)
+                                .last("LIMIT 1"));
+        if (running != null) {
+            return running;
+        }
+        PurgeJob job = new PurgeJob();
+        job.setType(type);
+        job.setTargetId(targetId);
+        job.setStep(0);
+        job.setDeletedCount(0L);
+        job.setStatus(STATUS_RUNNING);
+        job.setAttempts(0);
+        job.setCreatedAt(new Date());
+        job.setUpdatedAt(new Date());
+        save(job);
+        return job;
+    }
+
+    @Override
+    public void runPending() {
+        List<PurgeJob> jobs =
+                list(query().getWrapper().eq("status", STATUS_RUNNING).orderByAsc("id"));
+        long now = System.currentTimeMillis();
+        for (PurgeJob job : jobs) {
+            if (now < retryAt(job)) {
+                continue;
+            }
+            try {
+                run(job);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failedRuns.incrementAndGet();
+                int attempts = (job.getAttempts() == null ? 0 : job.getAttempts()) + 1;
+                log.error("清理任务执行失败,id={},第{}次,错误信息:{}", job.getId(), attempts, e.getMessage());
+                PurgeJob failed = new PurgeJob();
+                failed.setId(job.getId());
+                failed.setAttempts(attempts);
+                if (attempts >= MAX_ATTEMPTS) {
+                    failed.setStatus(STATUS_FAILED);
+                }
+                failed.setErrorMessage(e.getMessage());
+                failed.setUpdatedAt(new Date());
+                updateById(failed);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("pending_jobs", count(query().getWrapper().eq("status", STATUS_RUNNING)));
+        data.put("failed_jobs", count(query().getWrapper().eq("status", STATUS_FAILED)));
+        data.put("finished_jobs", finishedJobs.get());
+        data.put("failed_runs", failedRuns.get());
+        data.put("deleted_rows", deletedRows.get());
+        data.put("batches", batches.get());
+        data.put("last_batch_ms", lastBatchMs.get());
+        return data;
+    }
+
+    private void run(PurgeJob job) throws InterruptedException {
+        String[][] plan = PLANS.get(job.getType());
+        int step = job.getStep();
+        long deleted = job.getDeletedCount();
+
+        while (step < plan.length) {
+            String table = plan[step][0];
+            String column = plan[step][1];
+
+            long start = System.currentTimeMillis();
+            List<Long> ids = getBaseMapper().chunkIds(table, column, job.getTargetId(), BATCH_SIZE);
+            if (ids.isEmpty()) {
+                // 当前表清理完毕，进入下一张表
+                step++;
+            } else {
+                int count = getBaseMapper().deleteByIds(table, ids);
+                deleted += count;
+                deletedRows.addAndGet(count);
+                batches.incrementAndGet();
+                lastBatchMs.set(System.currentTimeMillis() - start);
+            }
+
+            // 记录进度，重启后从此处继续
+            PurgeJob progress = new PurgeJob();
+            progress.setId(job.getId());
+            progress.setStep(step);
+            progress.setDeletedCount(deleted);
+            progress.setStatus(step < plan.length ? STATUS_RUNNING : STATUS_FINISHED);
+            progress.setAttempts(0);
+            progress.setUpdatedAt(new Date());
+            updateById(progress);
+
+            Thread.sleep(BATCH_PAUSE_MS);
+        }
+
+        finishedJobs.incrementAndGet();
+        log.info(
+                "清理任务完成,id={},type={},targetId={},删除行数={}",
+                job.getId(),
+                job.getType(),
+                job.getTargetId(),
+                deleted);
+    }
+
+    // 上次失败后的重试时间，未失败过的任务立即执行
+    private static long retryAt(PurgeJob job) {
+        int attempts = job.getAttempts() == null ? 0 : job.getAttempts();
+        if (attempts == 0 || job.getUpdatedAt() == null) {
+            return 0;
+        }
+        long delay = RETRY_BASE_MS << Math.min(attempts - 1, 20);
+        return job.getUpdatedAt().getTime() + Math.min(delay, RETRY_MAX_MS);
+    }
+}
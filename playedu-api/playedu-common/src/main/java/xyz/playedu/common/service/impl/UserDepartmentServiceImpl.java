@@ -17,11 +17,15 @@ package xyz.playedu.common.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import xyz.playedu.common.domain.UserDepartment;
 import xyz.playedu.common.mapper.UserDepartmentMapper;
+import xyz.playedu.common.search.UserFacetIndex;
 import xyz.playedu.common.service.UserDepartmentService;
+import xyz.playedu.common.util.TransactionUtil;
 
 /**
  * @author tengteng
@@ -32,6 +36,8 @@ import xyz.playedu.common.service.UserDepartmentService;
 public class UserDepartmentServiceImpl extends ServiceImpl<UserDepartmentMapper, UserDepartment>
         implements UserDepartmentService {
 
+    @Autowired private UserFacetIndex facetIndex;
+
     @Override
     public List<Integer> getUserIdsByDepIds(List<Integer> depIds) {
         return list(query().getWrapper().in("dep_id", depIds)).stream()
@@ -39,6 +45,18 @@ public class UserDepartmentServiceImpl extends ServiceImpl<UserDepartmentMapper,
                 .toList();
     }
 
+    @Override
+    public Integer countUsersByDepIds(List<Integer> depIds) {
+        if (depIds == null || depIds.isEmpty()) {
+            return 0;
+        }
+        Integer count = facetIndex.countByDepIds(depIds);
+        if (count != null) {
+            return count;
+        }
+        return (int) getUserIdsByDepIds(depIds).stream().distinct().count();
+    }
+
     @Override
     public void storeDepIds(Integer userId, Integer[] depIds) {
         if (depIds == null) {
@@ -61,6 +79,14 @@ public class UserDepartmentServiceImpl extends ServiceImpl<UserDepartmentMapper,
     @Override
     public void resetStoreDepIds(Integer userId, Integer[] depIds) {
         remove(query().getWrapper().eq("user_id", userId));
+        TransactionUtil.afterCommit(() -> facetIndex.resetDepartments(userId, null));
         storeDepIds(userId, depIds);
     }
+
+    @Override
+    public boolean saveBatch(Collection<UserDepartment> entityList, int batchSize) {
+        boolean result = super.saveBatch(entityList, batchSize);
+        TransactionUtil.afterCommit(() -> facetIndex.addRelations(entityList));
+        return result;
+    }
 }
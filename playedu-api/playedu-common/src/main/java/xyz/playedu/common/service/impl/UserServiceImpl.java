@@ -15,11 +15,14 @@
  */
 package xyz.playedu.common.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import java.io.Serializable;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.stream.Collectors;
 import lombok.SneakyThrows;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -29,11 +32,16 @@ import xyz.playedu.common.domain.UserDepartment;
 import xyz.playedu.common.exception.NotFoundException;
 import xyz.playedu.common.exception.ServiceException;
 import xyz.playedu.common.mapper.UserMapper;
+import xyz.playedu.common.search.NgramIndex;
+import xyz.playedu.common.search.SearchIndexProvider;
+import xyz.playedu.common.search.UserFacetIndex;
 import xyz.playedu.common.service.UserDepartmentService;
 import xyz.playedu.common.service.UserService;
 import xyz.playedu.common.types.paginate.PaginationResult;
 import xyz.playedu.common.types.paginate.UserPaginateFilter;
 import xyz.playedu.common.util.HelperUtil;
+import xyz.playedu.common.util.StringUtil;
+import xyz.playedu.common.util.TransactionUtil;
 
 /**
  * @author tengteng
@@ -41,10 +49,18 @@ import xyz.playedu.common.util.HelperUtil;
  * @createDate 2023-02-23 13:50:58
  */
 @Service
-public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements UserService {
+public class UserServiceImpl extends ServiceImpl<UserMapper, User>
+        implements UserService, SearchIndexProvider {
 
     @Autowired private UserDepartmentService userDepartmentService;
 
+    @Autowired private UserFacetIndex facetIndex;
+
+    // 学员姓名、邮箱搜索索引
+    private final NgramIndex nameIndex = new NgramIndex();
+
+    private final NgramIndex emailIndex = new NgramIndex();
+
     @Override
     public boolean emailIsExists(String email) {
         User user = getOne(query().getWrapper().eq("email", email));
@@ -56,6 +72,24 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         filter.setPageStart((page - 1) * size);
         filter.setPageSize(size);
 
+        PaginationResult<User> indexResult = indexPaginate(filter);
+        if (indexResult != null) {
+            return indexResult;
+        }
+
+        if (nameIndex.isReady() && emailIndex.isReady()) {
+            List<Integer> ids =
+                    NgramIndex.toIdFilter(
+                            NgramIndex.and(
+                                    nameIndex.search(filter.getName()),
+                                    emailIndex.search(filter.getEmail())));
+            if (ids != null) {
+                filter.setIds(ids);
+                filter.setName(null);
+                filter.setEmail(null);
+            }
+        }
+
         PaginationResult<User> pageResult = new PaginationResult<>();
         pageResult.setData(getBaseMapper().paginate(filter));
         pageResult.setTotal(getBaseMapper().paginateCount(filter));
@@ -63,6 +97,67 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         return pageResult;
     }
 
+    /**
+     * 使用位图索引筛选，按ID排序时直接按ID取出当页学员
+     *
+     * @return 索引未就绪或条件无法由索引表达时返回null
+     */
+    private PaginationResult<User> indexPaginate(UserPaginateFilter filter) {
+        if (!nameIndex.isReady()
+                || !emailIndex.isReady()
+                || StringUtil.isNotEmpty(filter.getIdCard())) {
+            return null;
+        }
+        RoaringBitmap ids =
+                facetIndex.match(
+                        filter.getDepIds(),
+                        filter.getIsActive(),
+                        filter.getIsLock(),
+                        filter.getIsVerify(),
+                        filter.getIsSetPassword(),
+                        filter.getCreatedAt());
+        if (ids == null) {
+            return null;
+        }
+        ids =
+                NgramIndex.and(
+                        ids,
+                        nameIndex.search(filter.getName()),
+                        emailIndex.search(filter.getEmail()));
+
+        PaginationResult<User> pageResult = new PaginationResult<>();
+        pageResult.setTotal(ids.getLongCardinality());
+
+        String sortField = filter.getSortField();
+        if ("created_at".equals(sortField) || "credit1".equals(sortField)) {
+            List<Integer> idFilter = NgramIndex.toIdFilter(ids);
+            if (idFilter == null) {
+                // 命中过多时仍由数据库排序分页
+                pageResult.setData(getBaseMapper().paginate(filter));
+                return pageResult;
+            }
+            UserPaginateFilter idsFilter = new UserPaginateFilter();
+            idsFilter.setIds(idFilter);
+            idsFilter.setSortField(sortField);
+            idsFilter.setSortAlgo(filter.getSortAlgo());
+            idsFilter.setPageStart(filter.getPageStart());
+            idsFilter.setPageSize(filter.getPageSize());
+            pageResult.setData(getBaseMapper().paginate(idsFilter));
+            return pageResult;
+        }
+
+        List<Integer> pageIds =
+                UserFacetIndex.page(
+                        ids,
+                        Math.max(0, filter.getPageStart()),
+                        filter.getPageSize(),
+                        "asc".equals(filter.getSortAlgo()));
+        Map<Integer, User> users =
+                chunks(pageIds).stream().collect(Collectors.toMap(User::getId, u -> u));
+        pageResult.setData(pageIds.stream().map(users::get).filter(Objects::nonNull).toList());
+        return pageResult;
+    }
+
     @Override
     public List<String> existsEmailsByEmails(List<String> emails) {
         return list(query().getWrapper().in("email", emails).select("id", "email")).stream()
@@ -74,6 +169,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     public void removeRelateDepartmentsByUserId(Integer userId) {
         userDepartmentService.remove(
                 userDepartmentService.query().getWrapper().eq("user_id", userId));
+        TransactionUtil.afterCommit(() -> facetIndex.resetDepartments(userId, null));
     }
 
     @Override
@@ -216,7 +312,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
 
     @Override
     public Long total() {
-        return count();
+        Long total = facetIndex.total();
+        return total != null ? total : count();
     }
 
     @Override
@@ -290,4 +387,101 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         user.setEmail(email);
         updateById(user);
     }
+
+    @Override
+    public void rebuildSearchIndex() {
+        // 先开始记录变更再查询，查询期间提交的变更在重建后回放
+        nameIndex.beginRebuild();
+        emailIndex.beginRebuild();
+        facetIndex.beginRebuild();
+        List<User> users;
+        List<UserDepartment> relations;
+        try {
+            users =
+                    query().select(
+                                    "id",
+                                    "name",
+                                    "email",
+                                    "is_active",
+                                    "is_lock",
+                                    "is_verify",
+                                    "is_set_password",
+                                    "created_at")
+                            .list();
+            relations = userDepartmentService.list();
+        } catch (RuntimeException e) {
+            nameIndex.abortRebuild();
+            emailIndex.abortRebuild();
+            facetIndex.abortRebuild();
+            throw e;
+        }
+        Map<Integer, String> names = new HashMap<>();
+        Map<Integer, String> emails = new HashMap<>();
+        users.forEach(
+                user -> {
+                    names.put(user.getId(), user.getName());
+                    emails.put(user.getId(), user.getEmail());
+                });
+        nameIndex.rebuild(names);
+        emailIndex.rebuild(emails);
+        facetIndex.rebuild(users, relations);
+    }
+
+    @Override
+    public boolean save(User entity) {
+        boolean result = super.save(entity);
+        TransactionUtil.afterCommit(() -> putSearchIndex(entity));
+        return result;
+    }
+
+    @Override
+    public boolean saveBatch(Collection<User> entityList, int batchSize) {
+        boolean result = super.saveBatch(entityList, batchSize);
+        TransactionUtil.afterCommit(() -> entityList.forEach(this::putSearchIndex));
+        return result;
+    }
+
+    @Override
+    public boolean updateById(User entity) {
+        boolean result = super.updateById(entity);
+        TransactionUtil.afterCommit(() -> putSearchIndex(entity));
+        return result;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        TransactionUtil.afterCommit(
+                () -> {
+                    nameIndex.remove((Integer) id);
+                    emailIndex.remove((Integer) id);
+                    facetIndex.removeUser((Integer) id);
+                });
+        return result;
+    }
+
+    private void putSearchIndex(User user) {
+        // 部分更新时只刷新有值的字段
+        if (user.getName() != null) {
+            nameIndex.put(user.getId(), user.getName());
+        }
+        if (user.getEmail() != null) {
+            emailIndex.put(user.getId(), user.getEmail());
+        }
+        facetIndex.putUser(user);
+    }
+
+    @Override
+    public boolean update(User entity, Wrapper<User> updateWrapper) {
+        boolean result = super.update(entity, updateWrapper);
+        rebuildSearchIndexAfterCommit();
+        return result;
+    }
+
+    @Override
+    public boolean remove(Wrapper<User> queryWrapper) {
+        boolean result = super.remove(queryWrapper);
+        rebuildSearchIndexAfterCommit();
+        return result;
+    }
 }
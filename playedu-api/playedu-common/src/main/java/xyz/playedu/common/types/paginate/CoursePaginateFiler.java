@@ -28,6 +28,9 @@ public class CoursePaginateFiler {
 
     private String title;
 
+    // 搜索索引命中的ID
+    private List<Integer> ids;
+
     private List<Integer> depIds;
 
     private List<Integer> categoryIds;
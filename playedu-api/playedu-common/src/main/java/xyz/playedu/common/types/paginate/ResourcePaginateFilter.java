@@ -28,6 +28,9 @@ public class ResourcePaginateFilter {
 
     private String name;
 
+    // 搜索索引命中的ID
+    private List<Integer> ids;
+
     private String extension;
 
     private String disk;
@@ -28,6 +28,8 @@ public class UserPaginateFilter {
 
     private String name;
     private String email;
+    // 搜索索引命中的ID
+    private List<Integer> ids;
     private String idCard;
     private Integer isActive;
     private Integer isLock;
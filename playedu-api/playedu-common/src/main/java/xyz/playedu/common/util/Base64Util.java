@@ -15,6 +15,8 @@
  */
 package xyz.playedu.common.util;
 
+import java.io.InputStream;
+
 /** Base64工具类 */
 public final class Base64Util {
     private static final int BASE_LENGTH = 128;
@@ -224,6 +226,35 @@ public final class Base64Util {
         return decodedData;
     }
 
+    /**
+     * 计算解码后的字节数，不分配解码缓冲区
+     *
+     * @param data 转码后的数据串
+     * @param start 数据在串中的起始位置
+     * @return 解码后的字节数
+     */
+    public static long decodedLength(CharSequence data, int start) {
+        long dataChars = 0;
+        for (int i = start; i < data.length(); i++) {
+            if (isData(data.charAt(i))) {
+                dataChars++;
+            }
+        }
+        // 每个字符6位，末尾不足一个字节的位舍弃；MIME解码器接受省略填充的数据，不能按4字符一组计算
+        return dataChars * 3 / FOUR_BYTE;
+    }
+
+    /**
+     * 流式解码，边读边解码，不生成完整的二进制数组
+     *
+     * @param data 转码后的数据串
+     * @param start 数据在串中的起始位置
+     * @return 解码后的数据流
+     */
+    public static InputStream decodeStream(CharSequence data, int start) {
+        return java.util.Base64.getMimeDecoder().wrap(new CharSequenceInputStream(data, start));
+    }
+
     /**
      * 是否空白
      *
@@ -274,4 +305,32 @@ public final class Base64Util {
         }
         return newSize;
     }
+
+    /** 将字符序列按ASCII逐字节读出，避免复制整个字符串 */
+    private static class CharSequenceInputStream extends InputStream {
+        private final CharSequence data;
+        private int pos;
+
+        CharSequenceInputStream(CharSequence data, int start) {
+            this.data = data;
+            this.pos = start;
+        }
+
+        @Override
+        public int read() {
+            return pos < data.length() ? data.charAt(pos++) & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (pos >= data.length()) {
+                return -1;
+            }
+            int n = Math.min(len, data.length() - pos);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = (byte) data.charAt(pos++);
+            }
+            return n;
+        }
+    }
 }
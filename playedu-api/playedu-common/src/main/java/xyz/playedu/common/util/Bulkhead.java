@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import xyz.playedu.common.exception.ServiceException;
+
+/**
+ * 按名称区分的并发隔离舱
+ *
+ * <p>用信号量限制访问某个下游(数据库、LDAP、S3、IP归属地查询)的并发数，超出的调用排队等待，等待超时抛出 {@link
+ * ServiceException}。虚拟线程模式下请求线程不再受容器线程池约束，下游必须自己限流。未配置的名称不限流。
+ */
+public class Bulkhead {
+
+    private static final Map<String, Bulkhead> registry = new ConcurrentHashMap<>();
+
+    private static final Bulkhead UNLIMITED = new Bulkhead("unlimited", 0, 0);
+
+    private final String name;
+    private final Semaphore permits;
+    private final int maxPermits;
+    private final long timeoutMs;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private Bulkhead(String name, int maxPermits, long timeoutMs) {
+        this.name = name;
+        this.maxPermits = maxPermits;
+        this.timeoutMs = timeoutMs;
+        this.permits = maxPermits > 0 ? new Semaphore(maxPermits, true) : null;
+    }
+
+    /**
+     * 注册隔离舱，重复注册时覆盖(已借出的许可归还到旧信号量)
+     *
+     * @param maxPermits 最大并发数，小于等于0表示不限流
+     * @param timeoutMs 排队等待的最长时间(毫秒)
+     */
+    public static void configure(String name, int maxPermits, long timeoutMs) {
+        registry.put(name, new Bulkhead(name, maxPermits, timeoutMs));
+    }
+
+    public static Bulkhead of(String name) {
+        return registry.getOrDefault(name, UNLIMITED);
+    }
+
+    public static <T> T call(String name, Supplier<T> supplier) {
+        try (Permit ignored = of(name).acquire()) {
+            return supplier.get();
+        }
+    }
+
+    public static void run(String name, Runnable runnable) {
+        try (Permit ignored = of(name).acquire()) {
+            runnable.run();
+        }
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> data = new HashMap<>();
+        registry.forEach((name, bulkhead) -> data.put(name, bulkhead.stat()));
+        return data;
+    }
+
+    /** 获取许可，使用完毕后必须close归还 */
+    public Permit acquire() {
+        if (permits == null) {
+            return Permit.NOOP;
+        }
+        calls.increment();
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException(name + "调用被中断");
+        }
+        long waited = System.nanoTime() - start;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        if (!acquired) {
+            rejected.increment();
+            throw new ServiceException("系统繁忙,请稍后再试");
+        }
+        return new Permit(permits);
+    }
+
+    private Map<String, Object> stat() {
+        Map<String, Object> data = new HashMap<>();
+        long count = calls.sum();
+        data.put("max_permits", maxPermits);
+        data.put("active", permits == null ? 0 : maxPermits - permits.availablePermits());
+        data.put("queued", permits == null ? 0 : permits.getQueueLength());
+        data.put("calls", count);
+        data.put("rejected", rejected.sum());
+        data.put("wait_avg_ms", count == 0 ? 0 : waitNanos.sum() / count / 1_000_000.0);
+        data.put("wait_max_ms", maxWaitNanos.get() / 1_000_000.0);
+        return data;
+    }
+
+    public static class Permit implements AutoCloseable {
+        private static final Permit NOOP = new Permit(null);
+
+        private final Semaphore semaphore;
+        private boolean closed;
+
+        private Permit(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        @Override
+        public void close() {
+            if (closed || semaphore == null) {
+                return;
+            }
+            closed = true;
+            semaphore.release();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import xyz.playedu.common.exception.ServiceException;
+
+/**
+ * 上传分片使用的堆外缓冲区池
+ *
+ * <p>缓冲区数量有上限，全部借出时后续上传会排队等待，从而保证并发上传时内存占用恒定。
+ */
+public class ByteBufferPool {
+
+    /** 分片大小(S3要求除最后一片外每片不小于5MB) */
+    public static final int PART_SIZE = 8 * 1024 * 1024;
+
+    /** 最多同时存在的缓冲区数量 */
+    private static final int MAX_BUFFERS = 4;
+
+    /** 借用缓冲区的最长等待时间(秒) */
+    private static final long ACQUIRE_TIMEOUT = 60;
+
+    private static final BlockingQueue<ByteBuffer> idle = new ArrayBlockingQueue<>(MAX_BUFFERS);
+
+    private static final AtomicInteger allocated = new AtomicInteger(0);
+
+    public static ByteBuffer acquire() {
+        ByteBuffer buffer = idle.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        // 未达到上限时直接分配新的缓冲区
+        if (allocated.incrementAndGet() <= MAX_BUFFERS) {
+            return ByteBuffer.allocateDirect(PART_SIZE);
+        }
+        allocated.decrementAndGet();
+        try {
+            buffer = idle.poll(ACQUIRE_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("上传已中断");
+        }
+        if (buffer == null) {
+            throw new ServiceException("上传繁忙，请稍后再试");
+        }
+        return buffer;
+    }
+
+    public static void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        buffer.clear();
+        idle.offer(buffer);
+    }
+
+    /**
+     * 从输入流中读取数据填满缓冲区(流结束时可能不满)
+     *
+     * @return 读取的字节数
+     */
+    public static int fill(ByteBuffer buffer, InputStream in, byte[] chunk) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            int n = in.read(chunk, 0, Math.min(chunk.length, buffer.remaining()));
+            if (n == -1) {
+                break;
+            }
+            buffer.put(chunk, 0, n);
+        }
+        buffer.flip();
+        return buffer.limit();
+    }
+
+    /** 将缓冲区中的内容包装为可重复读取(支持mark/reset)的输入流 */
+    public static InputStream asInputStream(ByteBuffer buffer) {
+        return new ByteBufferInputStream(buffer);
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.buffer.mark();
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            buffer.mark();
+        }
+
+        @Override
+        public synchronized void reset() {
+            buffer.reset();
+        }
+    }
+}
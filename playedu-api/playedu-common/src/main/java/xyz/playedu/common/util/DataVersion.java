@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据版本号
+ *
+ * <p>写操作在事务提交后递增对应数据的版本号，内存中的派生数据在读取时比较版本号判断是否需要重建。
+ */
+public class DataVersion {
+
+    public static final String DEPARTMENTS = "departments";
+    public static final String CATEGORIES = "categories";
+    public static final String COURSES = "courses";
+    public static final String COURSE_DEPARTMENTS = "course-departments";
+    public static final String COURSE_CATEGORIES = "course-categories";
+    // 按课程区分：章节、课时、附件
+    public static final String COURSE_STRUCTURE = "course-structure";
+
+    private static final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public static long get(String name) {
+        return counter(name).get();
+    }
+
+    public static void bump(String name) {
+        TransactionUtil.afterCommit(() -> counter(name).incrementAndGet());
+    }
+
+    public static long get(String name, Integer id) {
+        return counter(name + ":" + id).get();
+    }
+
+    public static void bump(String name, Integer id) {
+        TransactionUtil.afterCommit(() -> counter(name + ":" + id).incrementAndGet());
+    }
+
+    private static AtomicLong counter(String name) {
+        return versions.computeIfAbsent(name, k -> new AtomicLong());
+    }
+}
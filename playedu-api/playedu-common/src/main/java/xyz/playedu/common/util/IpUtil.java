@@ -23,6 +23,7 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.HashMap;
 import lombok.extern.slf4j.Slf4j;
+import xyz.playedu.common.config.ConcurrencyConfig;
 
 @Slf4j
 public class IpUtil {
@@ -74,7 +75,8 @@ public class IpUtil {
             return "内网";
         }
 
-        try {
+        // 外部接口限制并发并设置超时，避免慢响应拖住请求线程
+        try (Bulkhead.Permit ignored = Bulkhead.of(ConcurrencyConfig.IP).acquire()) {
             String rspStr =
                     HttpUtil.get(
                             IP_URL,
@@ -83,7 +85,8 @@ public class IpUtil {
                                     put("ip", ip);
                                     put("json", true);
                                 }
-                            });
+                            },
+                            3000);
             if (StringUtil.isEmpty(rspStr)) {
                 log.error("获取地理位置异常1 {}", ip);
                 return UNKNOWN;
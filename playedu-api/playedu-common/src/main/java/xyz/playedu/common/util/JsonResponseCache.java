@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import xyz.playedu.common.types.JsonResponse;
+
+/**
+ * 读多写少接口的响应缓存
+ *
+ * <p>缓存序列化后的JSON字节与强ETag，请求携带匹配的If-None-Match时直接返回304，无需查库与序列化。 写操作通过 {@link #evict(String)}
+ * 失效，失效在事务提交后执行。
+ */
+@Component
+public class JsonResponseCache {
+
+    public static final String KEY_SYSTEM_CONFIG = "system-config";
+    public static final String KEY_CATEGORIES = "categories";
+    public static final String KEY_DEPARTMENTS = "departments";
+
+    // 默认缓存时长(毫秒)
+    public static final long DEFAULT_TTL = 3600_000L;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // 每个key的版本号，构建期间发生失效则丢弃构建结果
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    @Autowired private ObjectMapper objectMapper;
+
+    /**
+     * 返回缓存的响应，未命中时调用loader构建并缓存
+     *
+     * @param key 缓存key
+     * @param ttl 缓存时长(毫秒)
+     * @param ifNoneMatch 请求头If-None-Match
+     * @param loader 响应构建
+     */
+    public ResponseEntity<byte[]> respond(
+            String key, long ttl, String ifNoneMatch, Supplier<JsonResponse> loader) {
+        Entry entry = get(key, ttl, loader);
+        if (matches(ifNoneMatch, entry.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .header(HttpHeaders.ETAG, entry.getEtag())
+                    .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .header(HttpHeaders.ETAG, entry.getEtag())
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(entry.getBody());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void evict(String key) {
+        TransactionUtil.afterCommit(() -> doEvict(key));
+    }
+
+    private void doEvict(String key) {
+        version(key).incrementAndGet();
+        entries.remove(key);
+    }
+
+    private Entry get(String key, long ttl, Supplier<JsonResponse> loader) {
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.isExpired()) {
+            return entry;
+        }
+
+        long version = version(key).get();
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(loader.get());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        entry = new Entry(body, etag(body), System.currentTimeMillis() + ttl);
+
+        // 构建期间未发生失效才写入缓存
+        if (version(key).get() == version) {
+            entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    private AtomicLong version(String key) {
+        return versions.computeIfAbsent(key, k -> new AtomicLong());
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String item : ifNoneMatch.split(",")) {
+            String value = item.trim();
+            if ("*".equals(value) || etag.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Getter
+    private static class Entry {
+        private final byte[] body;
+        private final String etag;
+        private final long expireAt;
+
+        Entry(byte[] body, String etag, long expireAt) {
+            this.body = body;
+            this.etag = etag;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expireAt;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 耗时直方图
+ *
+ * <p>以微秒为单位按对数-线性分桶：16 微秒以内每微秒一格，之后每个 2 的幂区间再均分 16 格，分位数相对误差约 6%。 桶数量固定，记录无锁，可常驻开启。
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+
+    private static final int SUB = 1 << SUB_BITS;
+
+    /** 最大可记录 2^40 微秒，超出的记入最后一格 */
+    private static final int MAX_BITS = 40;
+
+    private static final int BUCKETS = SUB + (MAX_BITS - SUB_BITS + 1) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sumMicros = new LongAdder();
+
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(index(micros));
+        count.increment();
+        sumMicros.add(micros);
+        if (micros > maxMicros.get()) {
+            maxMicros.accumulateAndGet(micros, Math::max);
+        }
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double sumMillis() {
+        return sumMicros.sum() / 1000.0;
+    }
+
+    public double maxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    /** 分位数(毫秒)，取所在桶的上界 */
+    public double percentile(double q) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxMicros.get()) / 1000.0;
+            }
+        }
+        return maxMillis();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> data = new HashMap<>();
+        long n = count();
+        data.put("count", n);
+        data.put("avg_ms", n == 0 ? 0 : sumMillis() / n);
+        data.put("p50_ms", percentile(0.5));
+        data.put("p90_ms", percentile(0.9));
+        data.put("p99_ms", percentile(0.99));
+        data.put("max_ms", maxMillis());
+        return data;
+    }
+
+    private static int index(long micros) {
+        if (micros < SUB) {
+            return (int) micros;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(micros);
+        if (msb > MAX_BITS) {
+            return BUCKETS - 1;
+        }
+        int shift = msb - SUB_BITS;
+        return SUB + shift * SUB + (int) ((micros >>> shift) - SUB);
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB) {
+            return index;
+        }
+        int shift = (index - SUB) / SUB;
+        long sub = (index - SUB) % SUB + SUB;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.util;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 进程内的 key 锁。
+ *
+ * <p>key 按 hash 落到固定数量的分段上，同一分段内的获取/释放在分段锁下完成，保证"检查+占有"是原子的； 锁的持有者用获取时生成的 {@link Token}
+ * 标识而不是线程，异步线程也可以释放。租约到期由时间轮回收， 获取时也会顺带检查，时间轮只负责及时唤醒等待者。已释放的 key 会从分段中移除，占用内存只与当前持有的锁数量有关。
+ */
+@Slf4j
+@Component
+public class LockManager {
+
+    private static final int STRIPES = 256;
+
+    private static final long TICK_MS = 100;
+
+    private static final int WHEEL_SIZE = 512;
+
+    /** 热点 key 统计最多记录的 key 数量，写满后清空重新统计 */
+    private static final int HOT_KEY_LIMIT = 1024;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final TimerWheel wheel = new TimerWheel();
+
+    private final String node = UUID.randomUUID().toString().substring(0, 8);
+
+    private final AtomicLong seq = new AtomicLong();
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder staleReleases = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private final Map<String, LongAdder> hotKeys = new ConcurrentHashMap<>();
+
+    public LockManager() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        wheel.start();
+    }
+
+    /** 尝试获取锁，不等待。获取失败返回 null。 */
+    public Token tryLock(String key, long lease, TimeUnit unit) {
+        return tryLock(key, lease, 0, unit);
+    }
+
+    /**
+     * 尝试获取锁，最多等待 wait 时长。获取失败返回 null。
+     *
+     * @param lease 租约时长，持有者未释放时到期自动失效
+     * @param wait 最长等待时长，0 表示不等待
+     */
+    public Token tryLock(String key, long lease, long wait, TimeUnit unit) {
+        long leaseMs = Math.max(1, unit.toMillis(lease));
+        long waitNs = unit.toNanos(wait);
+        long start = System.nanoTime();
+        Stripe stripe = stripeOf(key);
+
+        boolean waited = false;
+        stripe.lock.lock();
+        try {
+            long remaining = waitNs;
+            while (true) {
+                Token holder = stripe.holders.get(key);
+                long now = System.currentTimeMillis();
+                if (holder != null && holder.expireAt <= now) {
+                    stripe.holders.remove(key);
+                    expired.increment();
+                    log.warn("锁租约到期被回收 key={} owner={}", key, holder.owner);
+                    holder = null;
+                }
+                if (holder == null) {
+                    Token token = new Token(this, key, nextOwner(), now + leaseMs);
+                    stripe.holders.put(key, token);
+                    wheel.schedule(token);
+                    acquired.increment();
+                    if (waited) {
+                        recordWait(System.nanoTime() - start);
+                    }
+                    return token;
+                }
+                if (!waited) {
+                    waited = true;
+                    contended.increment();
+                    recordHotKey(key);
+                }
+                if (remaining <= 0) {
+                    timeouts.increment();
+                    return null;
+                }
+                // 最多睡到持有者租约到期，防止时间轮回收不及时
+                long untilExpire = TimeUnit.MILLISECONDS.toNanos(holder.expireAt - now);
+                stripe.released.awaitNanos(Math.max(1, Math.min(remaining, untilExpire)));
+                remaining = waitNs - (System.nanoTime() - start);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            timeouts.increment();
+            return null;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /** 释放锁，只有当前持有者的 token 才能释放。租约已到期或已被他人占有时返回 false。 */
+    public boolean release(Token token) {
+        if (token == null) {
+            return false;
+        }
+        Stripe stripe = stripeOf(token.key);
+        stripe.lock.lock();
+        try {
+            if (!stripe.holders.remove(token.key, token)) {
+                staleReleases.increment();
+                return false;
+            }
+            token.released = true;
+            stripe.released.signalAll();
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /** 锁竞争情况：获取/竞争/超时/租约到期次数、等待耗时以及竞争最多的 key */
+    public Map<String, Object> stats() {
+        int held = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                held += stripe.holders.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        List<Map.Entry<String, LongAdder>> entries = new ArrayList<>(hotKeys.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()));
+        List<Map<String, Object>> hot = new ArrayList<>();
+        for (Map.Entry<String, LongAdder> entry :
+                entries.subList(0, Math.min(10, entries.size()))) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("key", entry.getKey());
+            item.put("contended", entry.getValue().sum());
+            hot.add(item);
+        }
+
+        long contendedCount = contended.sum();
+        long waitedCount = Math.max(1, contendedCount - timeouts.sum());
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("held", held);
+        stats.put("acquired", acquired.sum());
+        stats.put("contended", contendedCount);
+        stats.put("timeouts", timeouts.sum());
+        stats.put("expired", expired.sum());
+        stats.put("stale_releases", staleReleases.sum());
+        stats.put("wait_avg_ms", TimeUnit.NANOSECONDS.toMillis(waitNanos.sum() / waitedCount));
+        stats.put("wait_max_ms", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        stats.put("hot_keys", hot);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.interrupt();
+    }
+
+    private Stripe stripeOf(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (STRIPES - 1)];
+    }
+
+    private String nextOwner() {
+        return node + "-" + seq.incrementAndGet();
+    }
+
+    private void recordWait(long nanos) {
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void recordHotKey(String key) {
+        LongAdder counter = hotKeys.get(key);
+        if (counter == null) {
+            if (hotKeys.size() >= HOT_KEY_LIMIT) {
+                hotKeys.clear();
+            }
+            counter = hotKeys.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /** 租约到期回收：只有到期时仍是同一个持有者才移除，并唤醒该分段上的等待者 */
+    private void expire(Token token) {
+        Stripe stripe = stripeOf(token.key);
+        stripe.lock.lock();
+        try {
+            if (stripe.holders.remove(token.key, token)) {
+                expired.increment();
+                log.warn("锁租约到期被回收 key={} owner={}", token.key, token.owner);
+                stripe.released.signalAll();
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private static class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition released = lock.newCondition();
+        private final Map<String, Token> holders = new HashMap<>();
+    }
+
+    /** 锁凭证，可配合 try-with-resources 使用 */
+    public static class Token implements AutoCloseable {
+        private final LockManager manager;
+        private final String key;
+        private final String owner;
+        private final long expireAt;
+
+        private volatile boolean released;
+
+        /** 时间轮剩余圈数，只由时间轮线程读写 */
+        private long rounds;
+
+        private Token(LockManager manager, String key, String owner, long expireAt) {
+            this.manager = manager;
+            this.key = key;
+            this.owner = owner;
+            this.expireAt = expireAt;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        @Override
+        public void close() {
+            manager.release(this);
+        }
+    }
+
+    /** 单线程哈希时间轮，每格 TICK_MS，超出一圈的租约记录剩余圈数 */
+    private class TimerWheel extends Thread {
+        private final List<ConcurrentLinkedQueue<Token>> slots = new ArrayList<>(WHEEL_SIZE);
+        private final ConcurrentLinkedQueue<Token> pending = new ConcurrentLinkedQueue<>();
+        private long tick;
+
+        TimerWheel() {
+            super("lock-lease-wheel");
+            setDaemon(true);
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                slots.add(new ConcurrentLinkedQueue<>());
+            }
+        }
+
+        void schedule(Token token) {
+            pending.add(token);
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.currentTimeMillis();
+            while (!isInterrupted()) {
+                try {
+                    long deadline = startedAt + (tick + 1) * TICK_MS;
+                    long sleep = deadline - System.currentTimeMillis();
+                    if (sleep > 0) {
+                        Thread.sleep(sleep);
+                    }
+                    tick++;
+                    transferPending(startedAt);
+                    expireSlot(slots.get((int) (tick % WHEEL_SIZE)));
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    log.error("锁租约时间轮执行异常", e);
+                }
+            }
+        }
+
+        private void transferPending(long startedAt) {
+            Token token;
+            while ((token = pending.poll()) != null) {
+                if (token.released) {
+                    continue;
+                }
+                long expireTick =
+                        Math.max(tick + 1, (token.expireAt - startedAt + TICK_MS - 1) / TICK_MS);
+                token.rounds = (expireTick - tick - 1) / WHEEL_SIZE;
+                slots.get((int) (expireTick % WHEEL_SIZE)).add(token);
+            }
+        }
+
+        private void expireSlot(ConcurrentLinkedQueue<Token> slot) {
+            int size = slot.size();
+            for (int i = 0; i < size; i++) {
+                Token token = slot.poll();
+                if (token == null) {
+                    break;
+                }
+                if (token.released) {
+                    continue;
+                }
+                if (token.rounds > 0) {
+                    token.rounds--;
+                    slot.add(token);
+                    continue;
+                }
+                expire(token);
+            }
+        }
+    }
+}
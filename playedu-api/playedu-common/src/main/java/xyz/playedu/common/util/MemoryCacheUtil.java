@@ -99,6 +99,25 @@ public class MemoryCacheUtil {
         return new ArrayList<>(cache.keySet());
     }
 
+    /**
+     * 按键前缀(第一个冒号之前的部分)统计缓存数量，前缀种类超过上限的归入 other
+     *
+     * @return 前缀 => 数量
+     */
+    public static Map<String, Integer> countByPrefix(int maxPrefixes) {
+        Map<String, Integer> result = new HashMap<>();
+        for (String key : cache.keySet()) {
+            String name = key.substring(cacheNamePrefix.length());
+            int idx = name.indexOf(':');
+            String prefix = idx > 0 ? name.substring(0, idx) : "other";
+            if (!result.containsKey(prefix) && result.size() >= maxPrefixes) {
+                prefix = "other";
+            }
+            result.merge(prefix, 1, Integer::sum);
+        }
+        return result;
+    }
+
     // 键操作
     public static Boolean exists(String key) {
         key = cacheNamePrefix + key;
@@ -15,11 +15,13 @@
  */
 package xyz.playedu.common.util;
 
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.HttpMethod;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.*;
@@ -28,6 +30,7 @@ import com.amazonaws.services.s3.model.Grant;
 import com.amazonaws.services.s3.model.GroupGrantee;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
@@ -35,12 +38,16 @@ import java.util.List;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.multipart.MultipartFile;
+import xyz.playedu.common.config.ConcurrencyConfig;
 import xyz.playedu.common.exception.ServiceException;
 import xyz.playedu.common.types.config.S3Config;
 
 @Slf4j
 public class S3Util {
 
+    /** 最近一次使用的客户端，配置不变时复用，bucket只在创建时检查一次 */
+    private static volatile CachedClient cachedClient;
+
     private S3Config defaultConfig;
 
     public S3Config getS3Config() {
@@ -61,6 +68,13 @@ public class S3Util {
         if (defaultConfig == null) {
             throw new ServiceException("存储服务未配置");
         }
+        String key = String.join("|", defaultConfig.getEndpoint(), defaultConfig.getRegion(),
+                defaultConfig.getAccessKey(), defaultConfig.getSecretKey(), defaultConfig.getBucket());
+        CachedClient cached = cachedClient;
+        if (cached != null && cached.key.equals(key)) {
+            return cached.client;
+        }
+
         AWSCredentials credentials = new BasicAWSCredentials(defaultConfig.getAccessKey(),
                 defaultConfig.getSecretKey());
 
@@ -85,22 +99,26 @@ public class S3Util {
                 .build();
 
         // 检查bucket是否存在
-        if (!client.doesBucketExistV2(defaultConfig.getBucket())) {
-            throw new ServiceException("Bucket " + defaultConfig.getBucket() + " 不存在");
+        try (Bulkhead.Permit ignored = Bulkhead.of(ConcurrencyConfig.S3).acquire()) {
+            if (!client.doesBucketExistV2(defaultConfig.getBucket())) {
+                throw new ServiceException("Bucket " + defaultConfig.getBucket() + " 不存在");
+            }
         }
 
+        cachedClient = new CachedClient(key, client);
         return client;
     }
 
+    private Bulkhead.Permit permit() {
+        return Bulkhead.of(ConcurrencyConfig.S3).acquire();
+    }
+
     @SneakyThrows
     public String saveFile(MultipartFile file, String savePath, String contentType) {
-        ObjectMetadata objectMetadata = new ObjectMetadata();
-        objectMetadata.setContentType(contentType);
-        objectMetadata.setContentLength(file.getInputStream().available());
-        getClient()
-                .putObject(
-                        defaultConfig.getBucket(), savePath, file.getInputStream(), objectMetadata);
-        return generateEndpointPreSignUrl(savePath);
+        // 使用请求中的真实文件大小，且只打开一次文件流
+        try (InputStream inputStream = file.getInputStream()) {
+            return saveStream(inputStream, file.getSize(), savePath, contentType);
+        }
     }
 
     @SneakyThrows
@@ -109,14 +127,88 @@ public class S3Util {
         ObjectMetadata objectMetadata = new ObjectMetadata();
         objectMetadata.setContentType(contentType);
         objectMetadata.setContentLength(inputStream.available());
-        getClient().putObject(defaultConfig.getBucket(), savePath, inputStream, objectMetadata);
+        AmazonS3 client = getClient();
+        try (Bulkhead.Permit ignored = permit()) {
+            client.putObject(defaultConfig.getBucket(), savePath, inputStream, objectMetadata);
+        }
+        return generateEndpointPreSignUrl(savePath);
+    }
+
+    /**
+     * 流式保存文件，不在堆内存中缓存整个文件
+     *
+     * <p>小于分片阈值的文件直接按已知长度上传；超过阈值的文件按固定大小分片，借用堆外缓冲区走S3分片上传。
+     *
+     * @param inputStream 文件流(调用方负责关闭)
+     * @param size 文件的真实大小
+     */
+    @SneakyThrows
+    public String saveStream(
+            InputStream inputStream, long size, String savePath, String contentType) {
+        AmazonS3 client = getClient();
+        try (Bulkhead.Permit ignored = permit()) {
+            return saveStream(client, inputStream, size, savePath, contentType);
+        }
+    }
+
+    @SneakyThrows
+    private String saveStream(
+            AmazonS3 client, InputStream inputStream, long size, String savePath, String contentType) {
+        if (size <= ByteBufferPool.PART_SIZE) {
+            ObjectMetadata objectMetadata = new ObjectMetadata();
+            objectMetadata.setContentType(contentType);
+            objectMetadata.setContentLength(size);
+            client.putObject(defaultConfig.getBucket(), savePath, inputStream, objectMetadata);
+            return generateEndpointPreSignUrl(savePath);
+        }
+
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentType(contentType);
+        String uploadId =
+                client.initiateMultipartUpload(
+                                new InitiateMultipartUploadRequest(
+                                        defaultConfig.getBucket(), savePath, objectMetadata))
+                        .getUploadId();
+
+        List<PartETag> eTags = new ArrayList<>();
+        ByteBuffer buffer = null;
+        try {
+            buffer = ByteBufferPool.acquire();
+            byte[] chunk = new byte[64 * 1024];
+            int partNumber = 1;
+            int length;
+            while ((length = ByteBufferPool.fill(buffer, inputStream, chunk)) > 0) {
+                UploadPartRequest uploadPartRequest =
+                        new UploadPartRequest()
+                                .withBucketName(defaultConfig.getBucket())
+                                .withKey(savePath)
+                                .withUploadId(uploadId)
+                                .withPartNumber(partNumber)
+                                .withInputStream(ByteBufferPool.asInputStream(buffer))
+                                .withPartSize(length);
+                eTags.add(client.uploadPart(uploadPartRequest).getPartETag());
+                partNumber++;
+            }
+            client.completeMultipartUpload(
+                    new CompleteMultipartUploadRequest(
+                            defaultConfig.getBucket(), savePath, uploadId, eTags));
+        } catch (Exception e) {
+            client.abortMultipartUpload(
+                    new AbortMultipartUploadRequest(defaultConfig.getBucket(), savePath, uploadId));
+            throw e;
+        } finally {
+            ByteBufferPool.release(buffer);
+        }
         return generateEndpointPreSignUrl(savePath);
     }
 
     public String uploadId(String path) {
         InitiateMultipartUploadRequest request = new InitiateMultipartUploadRequest(defaultConfig.getBucket(), path);
-        InitiateMultipartUploadResult result = getClient().initiateMultipartUpload(request);
-        return result.getUploadId();
+        AmazonS3 client = getClient();
+        try (Bulkhead.Permit ignored = permit()) {
+            InitiateMultipartUploadResult result = client.initiateMultipartUpload(request);
+            return result.getUploadId();
+        }
     }
 
     @SneakyThrows
@@ -132,20 +224,27 @@ public class S3Util {
                 .withPartSize(file.length);
 
         // 上传分段文件
-        UploadPartResult uploadPartResult = getClient().uploadPart(uploadPartRequest);
-        return uploadPartResult;
+        AmazonS3 client = getClient();
+        try (Bulkhead.Permit ignored = permit()) {
+            return client.uploadPart(uploadPartRequest);
+        }
     }
 
     public List<PartSummary> listParts(String uploadId, String filename) {
         ListPartsRequest request = new ListPartsRequest(defaultConfig.getBucket(), filename, uploadId);
-        PartListing partListing = getClient().listParts(request);
-        return partListing.getParts();
+        AmazonS3 client = getClient();
+        try (Bulkhead.Permit ignored = permit()) {
+            return client.listParts(request).getParts();
+        }
     }
 
     public void purgeSegments(String uploadId, String filename) {
         AbortMultipartUploadRequest request = new AbortMultipartUploadRequest(defaultConfig.getBucket(), filename,
                 uploadId);
-        getClient().abortMultipartUpload(request);
+        AmazonS3 client = getClient();
+        try (Bulkhead.Permit ignored = permit()) {
+            client.abortMultipartUpload(request);
+        }
     }
 
     public String generatePartUploadPreSignUrl(
@@ -161,7 +260,13 @@ public class S3Util {
     @SneakyThrows
     public String merge(String filename, String uploadId) {
         AmazonS3 client = getClient();
+        try (Bulkhead.Permit ignored = permit()) {
+            complete(client, filename, uploadId);
+        }
+        return generateEndpointPreSignUrl(filename);
+    }
 
+    private void complete(AmazonS3 client, String filename, String uploadId) {
         ListPartsRequest listPartsRequest = new ListPartsRequest(defaultConfig.getBucket(), filename, uploadId);
         PartListing parts = client.listParts(listPartsRequest);
         if (parts.getParts().isEmpty()) {
@@ -181,24 +286,48 @@ public class S3Util {
         request.setUploadId(uploadId);
         request.setPartETags(eTags);
 
-        client.completeMultipartUpload(request);
+        try {
+            client.completeMultipartUpload(request);
+        } catch (AmazonServiceException e) {
+            // 分片本身有误(如缺失、过小)时重试也无法合并，清理已上传的分片；
+            // 网络错误、限流或服务端错误保留分片，由调用方重试合并，未合并的分段上传交由存储桶生命周期规则清理
+            if (!isRetryable(e)) {
+                client.abortMultipartUpload(
+                        new AbortMultipartUploadRequest(defaultConfig.getBucket(), filename, uploadId));
+            }
+            throw e;
+        }
+    }
 
-        return generateEndpointPreSignUrl(filename);
+    private static boolean isRetryable(AmazonServiceException e) {
+        return e.getErrorType() != AmazonServiceException.ErrorType.Client
+                || RetryUtils.isRetryableServiceException(e)
+                || RetryUtils.isThrottlingException(e)
+                || RetryUtils.isClockSkewError(e);
     }
 
     public void removeByPath(String path) {
         DeleteObjectRequest request = new DeleteObjectRequest(defaultConfig.getBucket(), path);
-        getClient().deleteObject(request);
+        AmazonS3 client = getClient();
+        try (Bulkhead.Permit ignored = permit()) {
+            client.deleteObject(request);
+        }
     }
 
     public boolean exists(String path) {
-        return getClient().doesObjectExist(defaultConfig.getBucket(), path);
+        AmazonS3 client = getClient();
+        try (Bulkhead.Permit ignored = permit()) {
+            return client.doesObjectExist(defaultConfig.getBucket(), path);
+        }
     }
 
     @SneakyThrows
     public String getContent(String path) {
-        S3Object s3Object = getClient().getObject(defaultConfig.getBucket(), path);
-        return new String(s3Object.getObjectContent().readAllBytes(), StandardCharsets.UTF_8);
+        AmazonS3 client = getClient();
+        try (Bulkhead.Permit ignored = permit();
+                S3Object s3Object = client.getObject(defaultConfig.getBucket(), path)) {
+            return new String(s3Object.getObjectContent().readAllBytes(), StandardCharsets.UTF_8);
+        }
     }
 
     public String generateEndpointPreSignUrl(String path) {
@@ -219,4 +348,14 @@ public class S3Util {
 
         return getClient().generatePresignedUrl(request).toString();
     }
+
+    private static class CachedClient {
+        private final String key;
+        private final AmazonS3 client;
+
+        CachedClient(String key, AmazonS3 client) {
+            this.key = key;
+            this.client = client;
+        }
+    }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 稀疏排序值
+ *
+ * <p>排序值之间保留间隔。调整顺序时，已经符合目标顺序的最长一组记录(最长递增子序列)保持原值，其余记录取前后记录的中间值；间隔用完时从该位置向后按间隔重排，
+ * 直到与后面的记录不再冲突。拖动一条记录通常只更新这一条。
+ */
+public class SortKeys {
+
+    public static final int GAP = 1024;
+
+    /**
+     * 按目标顺序计算需要更新的排序值
+     *
+     * @param ids 目标顺序
+     * @param current 记录ID => 当前排序值，没有的记录会分配新值
+     * @return 需要更新的 记录ID => 新排序值
+     */
+    public static Map<Integer, Integer> plan(List<Integer> ids, Map<Integer, Integer> current) {
+        int n = ids.size();
+        long[] values = new long[n];
+        boolean[] known = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            Integer value = current.get(ids.get(i));
+            known[i] = value != null;
+            values[i] = value == null ? 0 : value;
+        }
+        boolean[] keep = increasing(values, known);
+
+        Map<Integer, Integer> changes = new LinkedHashMap<>();
+        boolean hasPrev = false;
+        long prev = 0;
+        int i = 0;
+        while (i < n) {
+            if (keep[i] && (!hasPrev || values[i] > prev)) {
+                prev = values[i];
+                hasPrev = true;
+                i++;
+                continue;
+            }
+
+            // [i, j) 需要分配新值，j 为下一条可以保持原值的记录
+            int j = i;
+            while (j < n && !(keep[j] && (!hasPrev || values[j] > prev))) {
+                j++;
+            }
+            int count = j - i;
+            long base;
+            long step = GAP;
+            if (hasPrev && j < n) {
+                base = prev;
+                // 间隔不够时按GAP向后重排，后面被超过的记录在下一轮继续重排
+                step = (values[j] - prev) / (count + 1);
+                if (step == 0) {
+                    step = GAP;
+                }
+            } else if (hasPrev) {
+                base = prev;
+            } else if (j < n) {
+                base = values[j] - (long) GAP * (count + 1);
+            } else {
+                base = 0;
+            }
+
+            for (int k = 0; k < count; k++) {
+                long value = base + step * (k + 1);
+                if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+                    return renumber(ids, current);
+                }
+                if (!known[i + k] || values[i + k] != value) {
+                    changes.put(ids.get(i + k), (int) value);
+                }
+                prev = value;
+            }
+            hasPrev = true;
+            i = j;
+        }
+        return changes;
+    }
+
+    /**
+     * 新记录按位置插入时的排序值
+     *
+     * @param ids 当前顺序
+     * @param current 记录ID => 当前排序值
+     * @param position 插入位置，超出范围时追加到末尾
+     * @param placeholder 新记录的占位ID，不能与已有记录重复
+     * @return 需要更新的 记录ID => 新排序值，其中包含占位ID
+     */
+    public static Map<Integer, Integer> insertAt(
+            List<Integer> ids, Map<Integer, Integer> current, int position, Integer placeholder) {
+        List<Integer> order = new ArrayList<>(ids);
+        order.add(Math.max(0, Math.min(position, order.size())), placeholder);
+        return plan(order, current);
+    }
+
+    /**
+     * 将记录移动到另一条记录之后
+     *
+     * @param afterId 为空或不在列表中时移动到最前面
+     */
+    public static List<Integer> moveAfter(List<Integer> ids, Integer id, Integer afterId) {
+        List<Integer> order = new ArrayList<>(ids.size() + 1);
+        for (Integer item : ids) {
+            if (!Objects.equals(item, id)) {
+                order.add(item);
+            }
+        }
+        int index = afterId == null ? -1 : order.indexOf(afterId);
+        order.add(index + 1, id);
+        return order;
+    }
+
+    private static Map<Integer, Integer> renumber(
+            List<Integer> ids, Map<Integer, Integer> current) {
+        Map<Integer, Integer> changes = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            int value = GAP * (i + 1);
+            if (!Objects.equals(current.get(ids.get(i)), value)) {
+                changes.put(ids.get(i), value);
+            }
+        }
+        return changes;
+    }
+
+    // 最长严格递增子序列，这些记录保持原值
+    private static boolean[] increasing(long[] values, boolean[] known) {
+        int n = values.length;
+        int[] tails = new int[n];
+        int[] parents = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            if (!known[i]) {
+                continue;
+            }
+            int lo = 0;
+            int hi = length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            parents[i] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = i;
+            if (lo == length) {
+                length++;
+            }
+        }
+
+        boolean[] keep = new boolean[n];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = parents[i]) {
+            keep[i] = true;
+        }
+        return keep;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * SQL执行统计
+ *
+ * <p>每条语句按 Mapper 方法记录耗时直方图；请求内的语句归属到当前接口，统计每次请求的查询数， 同一请求内相同 SQL 形状(预编译后的 SQL 文本)重复执行达到阈值时视为 N+1
+ * 并记录日志。超过慢查询阈值的语句打印日志并保留最近若干条。
+ */
+@Slf4j
+public class SqlProfiler {
+
+    /** 非请求线程(定时任务、事件分发等)的语句归属 */
+    public static final String NO_ENDPOINT = "-";
+
+    private static final int SLOW_LOG_SIZE = 100;
+
+    /** 单个请求内跟踪的不同SQL形状数量上限 */
+    private static final int MAX_SHAPES = 256;
+
+    private static final int MAX_SQL_LENGTH = 500;
+
+    private static volatile boolean enabled = true;
+
+    private static volatile long slowNanos = 500_000_000L;
+
+    private static volatile int nPlusOneThreshold = 10;
+
+    private static final ThreadLocal<RequestProfile> current = new ThreadLocal<>();
+
+    private static final Map<String, LatencyHistogram> statements = new ConcurrentHashMap<>();
+
+    private static final Map<String, EndpointStat> endpoints = new ConcurrentHashMap<>();
+
+    private static final Deque<Map<String, Object>> slowLog = new ArrayDeque<>();
+
+    private static final ReentrantLock slowLogLock = new ReentrantLock();
+
+    public static void configure(boolean enabled, long slowMs, int nPlusOneThreshold) {
+        SqlProfiler.enabled = enabled;
+        SqlProfiler.slowNanos = slowMs * 1_000_000L;
+        SqlProfiler.nPlusOneThreshold = Math.max(2, nPlusOneThreshold);
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** 请求开始，之后本线程执行的语句都归属到该接口 */
+    public static void begin(String endpoint) {
+        if (enabled) {
+            current.set(new RequestProfile(endpoint));
+        }
+    }
+
+    /** 请求结束，汇总本次请求的查询数并检查 N+1 */
+    public static void end() {
+        RequestProfile profile = current.get();
+        if (profile == null) {
+            return;
+        }
+        current.remove();
+
+        EndpointStat stat = endpoints.computeIfAbsent(profile.endpoint, k -> new EndpointStat());
+        stat.requests.increment();
+        stat.queries.add(profile.count);
+        stat.sqlNanos.add(profile.nanos);
+        stat.maxQueries.accumulateAndGet(profile.count, Math::max);
+
+        for (Map.Entry<String, Shape> entry : profile.shapes.entrySet()) {
+            Shape shape = entry.getValue();
+            if (shape.count < nPlusOneThreshold) {
+                continue;
+            }
+            stat.nPlusOne.increment();
+            stat.lastNPlusOne = shape.statementId;
+            log.warn(
+                    "疑似N+1查询|endpoint={}|statement={}|次数={}|耗时={}ms|sql={}",
+                    profile.endpoint,
+                    shape.statementId,
+                    shape.count,
+                    shape.nanos / 1_000_000,
+                    abbreviate(entry.getKey()));
+        }
+    }
+
+    /** 记录一条语句的执行耗时 */
+    public static void record(String statementId, String sql, long nanos) {
+        statements.computeIfAbsent(statementId, k -> new LatencyHistogram()).record(nanos);
+
+        RequestProfile profile = current.get();
+        if (profile != null) {
+            profile.count++;
+            profile.nanos += nanos;
+            Shape shape = profile.shapes.get(sql);
+            if (shape == null && profile.shapes.size() < MAX_SHAPES) {
+                shape = new Shape(statementId);
+                profile.shapes.put(sql, shape);
+            }
+            if (shape != null) {
+                shape.count++;
+                shape.nanos += nanos;
+            }
+        }
+
+        if (nanos >= slowNanos) {
+            slow(profile == null ? NO_ENDPOINT : profile.endpoint, statementId, sql, nanos);
+        }
+    }
+
+    /** 各Mapper方法的耗时直方图 */
+    public static Map<String, LatencyHistogram> statementHistograms() {
+        return Collections.unmodifiableMap(statements);
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> data = new HashMap<>();
+
+        List<Map<String, Object>> statementStats = new ArrayList<>();
+        statements.forEach(
+                (id, histogram) -> {
+                    Map<String, Object> item = histogram.snapshot();
+                    item.put("statement", id);
+                    item.put("total_ms", histogram.sumMillis());
+                    statementStats.add(item);
+                });
+        statementStats.sort(Comparator.comparingDouble(item -> -((Double) item.get("total_ms"))));
+        data.put("statements", statementStats);
+
+        List<Map<String, Object>> endpointStats = new ArrayList<>();
+        endpoints.forEach(
+                (endpoint, stat) -> {
+                    long requests = stat.requests.sum();
+                    Map<String, Object> item = new HashMap<>();
+                    item.put("endpoint", endpoint);
+                    item.put("requests", requests);
+                    item.put(
+                            "queries_avg",
+                            requests == 0 ? 0 : (double) stat.queries.sum() / requests);
+                    item.put("queries_max", stat.maxQueries.get());
+                    item.put(
+                            "sql_ms_avg",
+                            requests == 0 ? 0 : stat.sqlNanos.sum() / requests / 1_000_000.0);
+                    item.put("n_plus_one", stat.nPlusOne.sum());
+                    item.put("last_n_plus_one", stat.lastNPlusOne);
+                    endpointStats.add(item);
+                });
+        endpointStats.sort(Comparator.comparingDouble(item -> -((Double) item.get("queries_avg"))));
+        data.put("endpoints", endpointStats);
+
+        slowLogLock.lock();
+        try {
+            data.put("slow", new ArrayList<>(slowLog));
+        } finally {
+            slowLogLock.unlock();
+        }
+        return data;
+    }
+
+    private static void slow(String endpoint, String statementId, String sql, long nanos) {
+        String abbr = abbreviate(sql);
+        log.warn(
+                "慢SQL|endpoint={}|statement={}|耗时={}ms|sql={}",
+                endpoint,
+                statementId,
+                nanos / 1_000_000,
+                abbr);
+
+        Map<String, Object> item = new HashMap<>();
+        item.put("endpoint", endpoint);
+        item.put("statement", statementId);
+        item.put("duration_ms", nanos / 1_000_000.0);
+        item.put("sql", abbr);
+        item.put("at", System.currentTimeMillis());
+        slowLogLock.lock();
+        try {
+            if (slowLog.size() >= SLOW_LOG_SIZE) {
+                slowLog.pollLast();
+            }
+            slowLog.offerFirst(item);
+        } finally {
+            slowLogLock.unlock();
+        }
+    }
+
+    private static String abbreviate(String sql) {
+        String flat = sql.replaceAll("\\s+", " ").trim();
+        return flat.length() <= MAX_SQL_LENGTH ? flat : flat.substring(0, MAX_SQL_LENGTH) + "...";
+    }
+
+    private static class RequestProfile {
+        private final String endpoint;
+        private final Map<String, Shape> shapes = new HashMap<>();
+        private int count;
+        private long nanos;
+
+        RequestProfile(String endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    private static class Shape {
+        private final String statementId;
+        private int count;
+        private long nanos;
+
+        Shape(String statementId) {
+            this.statementId = statementId;
+        }
+    }
+
+    private static class EndpointStat {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder queries = new LongAdder();
+        private final LongAdder sqlNanos = new LongAdder();
+        private final AtomicLong maxQueries = new AtomicLong();
+        private final LongAdder nPlusOne = new LongAdder();
+        private volatile String lastNPlusOne;
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.util.ldap;
+
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.naming.AuthenticationException;
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.ldap.InitialLdapContext;
+import javax.naming.ldap.LdapContext;
+import lombok.extern.slf4j.Slf4j;
+import xyz.playedu.common.types.LdapConfig;
+import xyz.playedu.common.util.StringUtil;
+
+/**
+ * LDAP管理员连接池
+ *
+ * <p>连接以管理员身份绑定后复用，借出数量有上限，超出时排队等待。空闲过久的连接由后台线程关闭，借出前对空闲较久的连接做探活。
+ * 用户密码校验在借出的连接上重新绑定用户身份完成，校验后再绑定回管理员身份，无需新建连接。
+ *
+ * <p>LDAP配置变更后旧连接池被废弃，其空闲连接立即关闭，借出中的连接归还时关闭。
+ */
+@Slf4j
+public class LdapConnectionPool {
+
+    /** 最大连接数，新建连接池时生效 */
+    private static volatile int maxSize = 8;
+
+    /** 空闲连接最长保留时间(毫秒) */
+    private static final long IDLE_TIMEOUT = 300_000L;
+
+    /** 空闲超过该时长的连接借出前需要探活(毫秒) */
+    private static final long VALIDATE_AFTER = 30_000L;
+
+    /** 等待可用连接的最长时间(毫秒) */
+    private static final long BORROW_TIMEOUT = 5_000L;
+
+    /** 建立连接与读取响应的超时时间(毫秒) */
+    private static final String CONNECT_TIMEOUT = "5000";
+
+    private static final String READ_TIMEOUT = "15000";
+
+    private static final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(
+                    r -> {
+                        Thread thread = new Thread(r, "ldap-pool-evictor");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    // 不用synchronized，避免持锁关闭连接时钉住虚拟线程的载体线程
+    private static final ReentrantLock lock = new ReentrantLock();
+
+    private static Pool current;
+
+    private static final AtomicLong borrowCount = new AtomicLong();
+    private static final AtomicLong waitNanos = new AtomicLong();
+    private static final AtomicLong maxWaitNanos = new AtomicLong();
+    private static final AtomicLong timeoutCount = new AtomicLong();
+    private static final AtomicLong createdCount = new AtomicLong();
+    private static final AtomicLong closedCount = new AtomicLong();
+
+    static {
+        scheduler.scheduleWithFixedDelay(LdapConnectionPool::evictIdle, 1, 1, TimeUnit.MINUTES);
+    }
+
+    public static Lease borrow(LdapConfig ldapConfig) throws NamingException {
+        Pool pool = poolFor(ldapConfig);
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = pool.permits.tryAcquire(BORROW_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NamingException("LDAP连接获取被中断");
+        }
+        recordWait(System.nanoTime() - start);
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new NamingException("LDAP连接池繁忙,请稍后再试");
+        }
+
+        try {
+            Conn conn;
+            while ((conn = pool.idle.pollFirst()) != null) {
+                if (usable(conn)) {
+                    return new Lease(pool, conn);
+                }
+                close(conn);
+            }
+            conn = new Conn(new InitialLdapContext(new Hashtable<>(pool.env), null));
+            createdCount.incrementAndGet();
+            return new Lease(pool, conn);
+        } catch (NamingException | RuntimeException e) {
+            pool.permits.release();
+            throw e;
+        }
+    }
+
+    /** 设置最大连接数，当前连接池随下次配置变更重建时生效 */
+    public static void configure(int size) {
+        if (size > 0) {
+            maxSize = size;
+        }
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> data = new HashMap<>();
+        long borrows = borrowCount.get();
+        data.put("borrow_count", borrows);
+        data.put("wait_avg_ms", borrows == 0 ? 0 : waitNanos.get() / borrows / 1_000_000.0);
+        data.put("wait_max_ms", maxWaitNanos.get() / 1_000_000.0);
+        data.put("timeout_count", timeoutCount.get());
+        data.put("created_count", createdCount.get());
+        data.put("closed_count", closedCount.get());
+        Pool pool = currentPool();
+        data.put("idle", pool == null ? 0 : pool.idle.size());
+        data.put("active", pool == null ? 0 : pool.size - pool.permits.availablePermits());
+        return data;
+    }
+
+    private static Pool poolFor(LdapConfig ldapConfig) {
+        lock.lock();
+        try {
+            if (current == null || !current.sameAs(ldapConfig)) {
+                if (current != null) {
+                    current.retire();
+                }
+                current = new Pool(ldapConfig);
+            }
+            return current;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Pool currentPool() {
+        lock.lock();
+        try {
+            return current;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean usable(Conn conn) {
+        long idle = System.currentTimeMillis() - conn.lastUsedAt;
+        if (idle > IDLE_TIMEOUT) {
+            return false;
+        }
+        if (idle > VALIDATE_AFTER) {
+            try {
+                // 读取RootDSE，连接失效时抛出异常
+                conn.ctx.getAttributes("", new String[] {"objectClass"});
+            } catch (NamingException e) {
+                log.info("LDAP-连接探活失败|errMsg={}", e.getMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void evictIdle() {
+        Pool pool = currentPool();
+        if (pool == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        pool.idle.removeIf(
+                conn -> {
+                    if (now - conn.lastUsedAt <= IDLE_TIMEOUT) {
+                        return false;
+                    }
+                    close(conn);
+                    return true;
+                });
+    }
+
+    private static void recordWait(long nanos) {
+        borrowCount.incrementAndGet();
+        waitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static void close(Conn conn) {
+        closedCount.incrementAndGet();
+        try {
+            conn.ctx.close();
+        } catch (NamingException e) {
+            log.error("LDAP-资源释放失败", e);
+        }
+    }
+
+    /** 借出的连接，使用完毕后必须close归还 */
+    public static class Lease implements AutoCloseable {
+        private final Pool pool;
+        private final Conn conn;
+        private boolean broken;
+        private boolean closed;
+
+        private Lease(Pool pool, Conn conn) {
+            this.pool = pool;
+            this.conn = conn;
+        }
+
+        public LdapContext context() {
+            return conn.ctx;
+        }
+
+        /** 标记连接不可复用，归还时直接关闭 */
+        public void invalidate() {
+            broken = true;
+        }
+
+        /**
+         * 在当前连接上以用户身份重新绑定校验密码，校验后绑定回管理员身份
+         *
+         * @return 密码是否正确
+         */
+        public boolean verify(String userDn, String password) throws NamingException {
+            // 空密码会被LDAP视为匿名绑定而成功，必须拦截
+            if (StringUtil.isEmpty(password)) {
+                return false;
+            }
+            LdapContext ctx = conn.ctx;
+            try {
+                ctx.addToEnvironment(Context.SECURITY_PRINCIPAL, userDn);
+                ctx.addToEnvironment(Context.SECURITY_CREDENTIALS, password);
+                ctx.reconnect(null);
+                return true;
+            } catch (AuthenticationException e) {
+                return false;
+            } catch (NamingException e) {
+                broken = true;
+                throw e;
+            } finally {
+                rebindAdmin();
+            }
+        }
+
+        private void rebindAdmin() {
+            if (broken) {
+                return;
+            }
+            try {
+                LdapContext ctx = conn.ctx;
+                ctx.addToEnvironment(
+                        Context.SECURITY_PRINCIPAL, pool.env.get(Context.SECURITY_PRINCIPAL));
+                ctx.addToEnvironment(
+                        Context.SECURITY_CREDENTIALS, pool.env.get(Context.SECURITY_CREDENTIALS));
+                ctx.reconnect(null);
+            } catch (NamingException e) {
+                log.error("LDAP-管理员重新绑定失败", e);
+                broken = true;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (!broken && !pool.retired) {
+                    try {
+                        conn.ctx.setRequestControls(null);
+                        conn.lastUsedAt = System.currentTimeMillis();
+                        pool.idle.offerFirst(conn);
+                        return;
+                    } catch (NamingException e) {
+                        log.error("LDAP-连接重置失败", e);
+                    }
+                }
+                LdapConnectionPool.close(conn);
+            } finally {
+                pool.permits.release();
+            }
+        }
+    }
+
+    private static class Pool {
+        private final Hashtable<String, String> env = new Hashtable<>();
+        private final int size = maxSize;
+        private final Semaphore permits = new Semaphore(size, true);
+        // 后进先出，使最近使用的连接优先复用，冷连接自然老化
+        private final LinkedBlockingDeque<Conn> idle = new LinkedBlockingDeque<>();
+        private volatile boolean retired;
+
+        Pool(LdapConfig ldapConfig) {
+            env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
+            env.put(Context.SECURITY_AUTHENTICATION, "simple");
+            env.put(Context.PROVIDER_URL, ldapConfig.getUrl());
+            env.put(Context.SECURITY_PRINCIPAL, ldapConfig.getAdminUser());
+            env.put(Context.SECURITY_CREDENTIALS, ldapConfig.getAdminPass());
+            // 同连接重新绑定依赖LDAPv3
+            env.put("java.naming.ldap.version", "3");
+            env.put("com.sun.jndi.ldap.connect.timeout", CONNECT_TIMEOUT);
+            env.put("com.sun.jndi.ldap.read.timeout", READ_TIMEOUT);
+        }
+
+        boolean sameAs(LdapConfig ldapConfig) {
+            return Objects.equals(env.get(Context.PROVIDER_URL), ldapConfig.getUrl())
+                    && Objects.equals(
+                            env.get(Context.SECURITY_PRINCIPAL), ldapConfig.getAdminUser())
+                    && Objects.equals(
+                            env.get(Context.SECURITY_CREDENTIALS), ldapConfig.getAdminPass());
+        }
+
+        void retire() {
+            retired = true;
+            Conn conn;
+            while ((conn = idle.pollFirst()) != null) {
+                close(conn);
+            }
+        }
+    }
+
+    private static class Conn {
+        private final LdapContext ctx;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+
+        Conn(LdapContext ctx) {
+            this.ctx = ctx;
+        }
+    }
+}
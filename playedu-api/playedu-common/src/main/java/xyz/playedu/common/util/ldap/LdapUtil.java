@@ -17,7 +17,6 @@ package xyz.playedu.common.util.ldap;
 
 import java.io.IOException;
 import java.util.*;
-import javax.naming.Context;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
@@ -68,25 +67,8 @@ public class LdapUtil {
     private static final String[] DISABLE_USER_ACCOUNT_CONTROL =
             new String[] {"514", "546", "66050", "66080", "66082"};
 
-    public static LdapContext initContext(String url, String adminUser, String adminPass)
-            throws NamingException {
-        Hashtable<String, String> context = new Hashtable<>();
-        context.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
-        context.put(Context.SECURITY_AUTHENTICATION, "simple");
-        // 服务地址
-        context.put(Context.PROVIDER_URL, url);
-        // 管理员账户和密码
-        context.put(Context.SECURITY_PRINCIPAL, adminUser);
-        context.put(Context.SECURITY_CREDENTIALS, adminPass);
-        return new InitialLdapContext(context, null);
-    }
-
     public static List<LdapTransformUser> users(LdapConfig ldapConfig, String filterScope)
             throws NamingException, IOException {
-        LdapContext ldapContext =
-                initContext(
-                        ldapConfig.getUrl(), ldapConfig.getAdminUser(), ldapConfig.getAdminPass());
-
         int pageSize = 1000;
         List<LdapTransformUser> users = new ArrayList<>();
 
@@ -97,42 +79,45 @@ public class LdapUtil {
 
         byte[] cookie = null;
 
-        while (true) {
-            try {
-                if (cookie != null) {
-                    ldapContext.setRequestControls(
-                            new Control[] {
-                                new PagedResultsControl(pageSize, cookie, false),
-                            });
-                } else {
-                    ldapContext.setRequestControls(
-                            new Control[] {new PagedResultsControl(pageSize, false)});
-                }
+        try (LdapConnectionPool.Lease lease = LdapConnectionPool.borrow(ldapConfig)) {
+            LdapContext ldapContext = lease.context();
+            while (true) {
+                try {
+                    if (cookie != null) {
+                        ldapContext.setRequestControls(
+                                new Control[] {
+                                    new PagedResultsControl(pageSize, cookie, false),
+                                });
+                    } else {
+                        ldapContext.setRequestControls(
+                                new Control[] {new PagedResultsControl(pageSize, false)});
+                    }
 
-                NamingEnumeration<SearchResult> result =
-                        ldapContext.search(filterScope, USER_OBJECT_CLASS, controls);
-                while (result.hasMoreElements()) {
-                    SearchResult item = result.nextElement();
-                    if (item != null) {
-                        LdapTransformUser ldapTransformUser = parseTransformUser(item, filterScope);
-                        if (ldapTransformUser != null) {
-                            users.add(ldapTransformUser);
+                    NamingEnumeration<SearchResult> result =
+                            ldapContext.search(filterScope, USER_OBJECT_CLASS, controls);
+                    while (result.hasMoreElements()) {
+                        SearchResult item = result.nextElement();
+                        if (item != null) {
+                            LdapTransformUser ldapTransformUser =
+                                    parseTransformUser(item, filterScope);
+                            if (ldapTransformUser != null) {
+                                users.add(ldapTransformUser);
+                            }
                         }
                     }
-                }
 
-                cookie = parseCookie(ldapContext.getResponseControls());
-                if (cookie == null || cookie.length == 0) {
+                    cookie = parseCookie(ldapContext.getResponseControls());
+                    if (cookie == null || cookie.length == 0) {
+                        break;
+                    }
+                } catch (NamingException e) {
+                    log.error("LDAP用户查询失败", e);
+                    lease.invalidate();
                     break;
                 }
-            } catch (NamingException e) {
-                log.error("LDAP用户查询失败", e);
-                break;
             }
         }
 
-        closeContext(ldapContext);
-
         if (users.isEmpty()) {
             log.info("LDAP服务中没有用户");
             return null;
@@ -154,27 +139,29 @@ public class LdapUtil {
 
     public static List<LdapTransformDepartment> departments(LdapConfig ldapConfig, String baseDN)
             throws NamingException {
-        LdapContext ldapContext =
-                initContext(
-                        ldapConfig.getUrl(), ldapConfig.getAdminUser(), ldapConfig.getAdminPass());
-
         SearchControls controls = new SearchControls();
         controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
         controls.setReturningAttributes(OU_RETURN_ATTRS);
         controls.setReturningObjFlag(true);
 
         String filter = "(objectClass=organizationalUnit)";
-        NamingEnumeration<SearchResult> result = null;
-        try {
-            log.info("LDAP-部门查询|条件[baseDN={},filter={}]", baseDN, filter);
-            result = ldapContext.search(baseDN, filter, controls);
-        } catch (NamingException e) {
-            log.error("LDAP-部门查询-失败|errMsg={}", e.getMessage());
-        } finally {
-            closeContext(ldapContext);
+        // 连接归还前读完全部结果
+        List<SearchResult> items = new ArrayList<>();
+        try (LdapConnectionPool.Lease lease = LdapConnectionPool.borrow(ldapConfig)) {
+            try {
+                log.info("LDAP-部门查询|条件[baseDN={},filter={}]", baseDN, filter);
+                NamingEnumeration<SearchResult> result =
+                        lease.context().search(baseDN, filter, controls);
+                while (result.hasMoreElements()) {
+                    items.add(result.nextElement());
+                }
+            } catch (NamingException e) {
+                log.error("LDAP-部门查询-失败|errMsg={}", e.getMessage());
+                lease.invalidate();
+            }
         }
 
-        if (result == null || !result.hasMoreElements()) {
+        if (items.isEmpty()) {
             log.info("LDAP-部门查询-结果为空|条件[baseDN={},filter={}]", baseDN, filter);
             return null;
         }
@@ -183,8 +170,7 @@ public class LdapUtil {
         String ouScopesStr = baseDNOuScope(baseDN);
 
         List<LdapTransformDepartment> units = new ArrayList<>();
-        while (result.hasMoreElements()) {
-            SearchResult item = result.nextElement();
+        for (SearchResult item : items) {
             if (item == null) {
                 continue;
             }
@@ -246,47 +232,45 @@ public class LdapUtil {
 
         String filter = String.format("(&%s%s)", userFilter, USER_OBJECT_CLASS);
 
-        LdapContext ldapContext =
-                initContext(
-                        ldapConfig.getUrl(), ldapConfig.getAdminUser(), ldapConfig.getAdminPass());
-        NamingEnumeration<SearchResult> result = null;
-        try {
-            result = ldapContext.search(ldapConfig.getBaseDN(), filter, controls);
-        } catch (NamingException e) {
-            log.error("LDAP-通过mail或uid登录失败", e);
-        } finally {
-            closeContext(ldapContext);
-        }
+        try (LdapConnectionPool.Lease lease = LdapConnectionPool.borrow(ldapConfig)) {
+            SearchResult item = null;
+            try {
+                NamingEnumeration<SearchResult> result =
+                        lease.context().search(ldapConfig.getBaseDN(), filter, controls);
+                if (result.hasMoreElements()) {
+                    item = result.nextElement();
+                }
+                result.close();
+            } catch (NamingException e) {
+                log.error("LDAP-通过mail或uid登录失败", e);
+                lease.invalidate();
+            }
 
-        if (result == null || !result.hasMoreElements()) {
-            log.info("LDAP-用户不存在");
-            return null;
-        }
+            if (item == null) {
+                log.info("LDAP-用户不存在");
+                return null;
+            }
 
-        // 根据mail或uid查询出来的用户
-        LdapTransformUser ldapUser =
-                parseTransformUser(result.nextElement(), ldapConfig.getBaseDN());
-        if (ldapUser == null) {
-            log.info("LDAP-用户不存在");
-            return null;
-        }
+            // 根据mail或uid查询出来的用户
+            LdapTransformUser ldapUser = parseTransformUser(item, ldapConfig.getBaseDN());
+            if (ldapUser == null) {
+                log.info("LDAP-用户不存在");
+                return null;
+            }
 
-        // 使用用户dn+提交的密码去登录ldap系统
-        // 登录成功则意味着密码正确
-        // 登录失败则意味着密码错误
-        try {
-            ldapContext =
-                    initContext(
-                            ldapConfig.getUrl(),
-                            ldapUser.getDn() + "," + ldapConfig.getBaseDN(),
-                            password);
-            return ldapUser;
-        } catch (Exception e) {
-            // 无法登录->密码错误
-            log.error("LDAP-登录失败", e);
-            return null;
-        } finally {
-            ldapContext.close();
+            // 在同一连接上使用用户dn+提交的密码重新绑定
+            // 绑定成功则意味着密码正确
+            // 绑定失败则意味着密码错误
+            try {
+                if (!lease.verify(ldapUser.getDn() + "," + ldapConfig.getBaseDN(), password)) {
+                    log.info("LDAP-登录失败|密码错误|dn={}", ldapUser.getDn());
+                    return null;
+                }
+                return ldapUser;
+            } catch (NamingException e) {
+                log.error("LDAP-登录失败", e);
+                return null;
+            }
         }
     }
 
@@ -372,15 +356,4 @@ public class LdapUtil {
         }
         return String.join(",", ouScopes);
     }
-
-    private static void closeContext(LdapContext ldapCtx) {
-        if (ldapCtx == null) {
-            return;
-        }
-        try {
-            ldapCtx.close();
-        } catch (NamingException e) {
-            log.error("LDAP-资源释放失败", e);
-        }
-    }
 }
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.bus;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import xyz.playedu.common.annotation.PartitionedListener;
+import xyz.playedu.common.annotation.PartitionedListener.Backpressure;
+import xyz.playedu.common.service.EventOutboxService;
+
+public class EventDispatcherTest {
+
+    private final EventOutboxService outboxService = mock(EventOutboxService.class);
+
+    private EventDispatcher dispatcher;
+
+    public static class SampleEvent {
+        private final Integer userId;
+
+        public SampleEvent(Integer userId) {
+            this.userId = userId;
+        }
+
+        public Integer getUserId() {
+            return userId;
+        }
+    }
+
+    @PartitionedListener(key = "userId")
+    void plain(SampleEvent event) {}
+
+    @PartitionedListener(key = "userId", outbox = true)
+    void withOutbox(SampleEvent event) {}
+
+    @PartitionedListener(key = "userId", backpressure = Backpressure.DISCARD)
+    void discard(SampleEvent event) {}
+
+    private static PartitionedListener options(String method) throws Exception {
+        return EventDispatcherTest.class
+                .getDeclaredMethod(method, SampleEvent.class)
+                .getAnnotation(PartitionedListener.class);
+    }
+
+    private void start(int partitions, int capacity) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        dispatcher = new EventDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "partitionCount", partitions);
+        ReflectionTestUtils.setField(dispatcher, "queueCapacity", capacity);
+        ReflectionTestUtils.setField(dispatcher, "blockTimeoutMs", 100L);
+        ReflectionTestUtils.setField(dispatcher, "eventOutboxService", outboxService);
+        ReflectionTestUtils.setField(dispatcher, "transactionManager", transactionManager);
+        dispatcher.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+    }
+
+    private Map<String, Object> listenerStats(String listener) {
+        return dispatcher.listenerSnapshots().get(listener);
+    }
+
+    @Test
+    public void sameKeyRunsInPublishOrder() throws Exception {
+        start(4, 1000);
+        PartitionedListener options = options("plain");
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(500);
+        for (int i = 0; i < 500; i++) {
+            int seq = i;
+            dispatcher.dispatch(
+                    "plain",
+                    "42",
+                    options,
+                    new SampleEvent(42),
+                    () -> {
+                        seen.add(seq);
+                        done.countDown();
+                    });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, seen.get(i));
+        }
+    }
+
+    @Test
+    public void outboxRecordRemovedOnSuccessAndMarkedOnFailure() throws Exception {
+        start(2, 100);
+        PartitionedListener options = options("withOutbox");
+        when(outboxService.store(anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(1L, 2L);
+
+        CountDownLatch done = new CountDownLatch(2);
+        dispatcher.dispatch("ok", "1", options, new SampleEvent(1), done::countDown);
+        dispatcher.dispatch(
+                "fail",
+                "1",
+                options,
+                new SampleEvent(1),
+                () -> {
+                    done.countDown();
+                    throw new IllegalStateException("boom");
+                });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        dispatcher.stop();
+        dispatcher = null;
+
+        verify(outboxService)
+                .store(
+                        eq("ok"),
+                        eq(SampleEvent.class.getName()),
+                        eq("1"),
+                        contains("\"userId\":1"));
+        verify(outboxService).removeById(1L);
+        verify(outboxService, never()).removeById(2L);
+        verify(outboxService).markFailed(2L, "boom");
+    }
+
+    @Test
+    public void plainListenerDoesNotTouchOutbox() throws Exception {
+        start(2, 100);
+        CountDownLatch done = new CountDownLatch(1);
+        dispatcher.dispatch("plain", "1", options("plain"), new SampleEvent(1), done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    public void fullQueueDiscardsWhenConfigured() throws Exception {
+        start(1, 1);
+        PartitionedListener options = options("discard");
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher.dispatch(
+                "discard",
+                "1",
+                options,
+                new SampleEvent(1),
+                () -> {
+                    blocked.countDown();
+                    release.await();
+                });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+        // 第一条在执行中，队列容量为1：第二条入队，第三条被丢弃
+        dispatcher.dispatch("discard", "1", options, new SampleEvent(1), () -> {});
+        dispatcher.dispatch("discard", "1", options, new SampleEvent(1), () -> {});
+        release.countDown();
+
+        assertEquals(1L, listenerStats("discard").get("discarded"));
+    }
+
+    @Test
+    public void fullQueueRunsInCallerAfterBlockTimeout() throws Exception {
+        start(1, 1);
+        PartitionedListener options = options("plain");
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        dispatcher.dispatch(
+                "plain",
+                "1",
+                options,
+                new SampleEvent(1),
+                () -> {
+                    blocked.countDown();
+                    release.await();
+                });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        dispatcher.dispatch("plain", "1", options, new SampleEvent(1), () -> {});
+
+        Thread caller = Thread.currentThread();
+        List<Thread> ranOn = new ArrayList<>();
+        dispatcher.dispatch(
+                "plain", "1", options, new SampleEvent(1), () -> ranOn.add(Thread.currentThread()));
+        release.countDown();
+
+        assertEquals(List.of(caller), ranOn);
+        assertEquals(1L, listenerStats("plain").get("caller_runs"));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+public class NgramIndexTest {
+
+    private static List<Integer> ids(RoaringBitmap bitmap) {
+        return NgramIndex.toIdFilter(bitmap);
+    }
+
+    private static NgramIndex build(Map<Integer, String> data) {
+        NgramIndex index = new NgramIndex();
+        index.rebuild(() -> data);
+        return index;
+    }
+
+    @Test
+    public void notReadyBeforeRebuild() {
+        NgramIndex index = new NgramIndex();
+        index.put(1, "Java入门");
+        assertFalse(index.isReady());
+        assertNull(index.search("java"));
+    }
+
+    @Test
+    public void substringPrefixAndMultiTerm() {
+        NgramIndex index = build(Map.of(1, "Java 并发编程实战", 2, "深入理解Java虚拟机", 3, "Python编程", 4, "编"));
+
+        assertEquals(List.of(1, 2), ids(index.search("JAVA")));
+        assertEquals(List.of(1, 3, 4), ids(index.search("编")));
+        assertEquals(List.of(1, 3), ids(index.search("编程")));
+        assertEquals(List.of(1), ids(index.search("并发编程")));
+        assertEquals(List.of(1), ids(index.search("java 编程")));
+        assertEquals(List.of(0), ids(index.search("golang")));
+        assertNull(index.search(null));
+    }
+
+    @Test
+    public void longTermVerifiedAgainstText() {
+        // "编程实" 的二元组"编程"、"程实"都命中记录2，但记录2不包含连续的"编程实"
+        NgramIndex index = build(Map.of(1, "编程实战", 2, "程实编程"));
+        assertEquals(List.of(1), ids(index.search("编程实")));
+    }
+
+    @Test
+    public void putReplacesAndRemoveDeletes() {
+        NgramIndex index = build(Map.of(1, "旧标题"));
+        index.put(1, "新标题");
+        assertEquals(List.of(0), ids(index.search("旧")));
+        assertEquals(List.of(1), ids(index.search("新标")));
+
+        index.remove(1);
+        assertEquals(List.of(0), ids(index.search("标题")));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void changesDuringLoadAreReplayed() {
+        NgramIndex index = build(Map.of(1, "课程一", 2, "课程二"));
+
+        Map<Integer, String> snapshot = new HashMap<>(Map.of(1, "课程一", 2, "课程二"));
+        index.rebuild(
+                () -> {
+                    // 查询已经读到旧数据之后提交的变更
+                    index.put(3, "课程三");
+                    index.put(1, "改名");
+                    index.remove(2);
+                    return snapshot;
+                });
+
+        assertEquals(List.of(3), ids(index.search("课程")));
+        assertEquals(List.of(1), ids(index.search("改名")));
+    }
+
+    @Test
+    public void overlappingRebuildsKeepChanges() {
+        NgramIndex index = build(Map.of(1, "甲"));
+
+        index.beginRebuild();
+        index.beginRebuild();
+        index.put(2, "乙");
+        index.rebuild(Map.of(1, "甲"));
+        index.put(3, "丙");
+        // 第二次重建的数据查询于新增3之前，仍需回放
+        index.rebuild(Map.of(1, "甲", 2, "乙"));
+
+        assertEquals(List.of(3), ids(index.search("丙")));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void failedLoadLeavesIndexUsable() {
+        NgramIndex index = build(Map.of(1, "甲"));
+        assertThrows(
+                IllegalStateException.class,
+                () ->
+                        index.rebuild(
+                                () -> {
+                                    throw new IllegalStateException("db down");
+                                }));
+        index.put(2, "乙");
+        assertEquals(List.of(2), ids(index.search("乙")));
+        assertEquals(List.of(1), ids(index.search("甲")));
+    }
+
+    @Test
+    public void idFilterFallsBackWhenTooMany() {
+        RoaringBitmap many = new RoaringBitmap();
+        many.add(1L, NgramIndex.MAX_ID_FILTER + 2L);
+        assertNull(NgramIndex.toIdFilter(many));
+        assertNull(NgramIndex.and(null, null));
+        assertEquals(
+                List.of(2),
+                ids(
+                        NgramIndex.and(
+                                RoaringBitmap.bitmapOf(1, 2), null, RoaringBitmap.bitmapOf(2, 3))));
+    }
+}
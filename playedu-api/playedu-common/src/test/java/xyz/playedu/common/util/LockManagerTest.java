@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class LockManagerTest {
+
+    private final LockManager lockManager = new LockManager();
+
+    @AfterEach
+    public void tearDown() {
+        lockManager.shutdown();
+    }
+
+    private long stat(String name) {
+        return ((Number) lockManager.stats().get(name)).longValue();
+    }
+
+    @Test
+    public void exclusiveUntilReleased() {
+        LockManager.Token token = lockManager.tryLock("k", 10, TimeUnit.SECONDS);
+        assertNotNull(token);
+        assertNull(lockManager.tryLock("k", 10, TimeUnit.SECONDS));
+        assertNotNull(lockManager.tryLock("other", 10, TimeUnit.SECONDS));
+
+        assertTrue(lockManager.release(token));
+        assertFalse(lockManager.release(token));
+        assertNotNull(lockManager.tryLock("k", 10, TimeUnit.SECONDS));
+        assertEquals(1, stat("timeouts"));
+        assertEquals(1, stat("stale_releases"));
+    }
+
+    @Test
+    public void tokenCanBeReleasedFromAnotherThread() throws Exception {
+        LockManager.Token token = lockManager.tryLock("k", 10, TimeUnit.SECONDS);
+        assertTrue(CompletableFuture.supplyAsync(() -> lockManager.release(token)).get());
+        assertNotNull(lockManager.tryLock("k", 10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void releaseWakesWaiter() throws Exception {
+        LockManager.Token token = lockManager.tryLock("k", 10, TimeUnit.SECONDS);
+        CompletableFuture<LockManager.Token> waiter =
+                CompletableFuture.supplyAsync(
+                        () -> lockManager.tryLock("k", 10, 5000, TimeUnit.MILLISECONDS));
+        Thread.sleep(100);
+        assertFalse(waiter.isDone());
+
+        long start = System.nanoTime();
+        lockManager.release(token);
+        assertNotNull(waiter.get(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+    }
+
+    @Test
+    public void timerWheelReclaimsExpiredLease() throws Exception {
+        LockManager.Token token = lockManager.tryLock("k", 300, TimeUnit.MILLISECONDS);
+        assertNotNull(token);
+        assertEquals(1, stat("held"));
+
+        // 没有其他获取触发检查，只能由时间轮回收
+        long deadline = System.currentTimeMillis() + 2000;
+        while (stat("held") > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, stat("held"));
+        assertEquals(1, stat("expired"));
+
+        // 过期的持有者不能再释放后来者的锁
+        LockManager.Token next = lockManager.tryLock("k", 10, TimeUnit.SECONDS);
+        assertNotNull(next);
+        assertFalse(lockManager.release(token));
+        assertTrue(lockManager.release(next));
+    }
+
+    @Test
+    public void leaseIsNotReclaimedEarly() throws Exception {
+        LockManager.Token token = lockManager.tryLock("k", 2, TimeUnit.SECONDS);
+        Thread.sleep(600);
+        assertEquals(1, stat("held"));
+        assertNull(lockManager.tryLock("k", 1, TimeUnit.SECONDS));
+        assertTrue(lockManager.release(token));
+        assertEquals(0, stat("expired"));
+    }
+
+    @Test
+    public void waiterGetsLockWhenLeaseExpires() throws Exception {
+        lockManager.tryLock("k", 300, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        LockManager.Token token = lockManager.tryLock("k", 10_000, 3000, TimeUnit.MILLISECONDS);
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertNotNull(token);
+        assertTrue(waited >= 150 && waited < 1500, "waited " + waited + "ms");
+        assertEquals(1, stat("expired"));
+    }
+
+    @Test
+    public void tryWithResourcesReleases() {
+        try (LockManager.Token token = lockManager.tryLock("k", 10, TimeUnit.SECONDS)) {
+            assertNotNull(token);
+            assertEquals("k", token.getKey());
+        }
+        assertEquals(0, stat("held"));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+public class SortKeysTest {
+
+    private static Map<Integer, Integer> spaced(List<Integer> ids) {
+        Map<Integer, Integer> current = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            current.put(ids.get(i), SortKeys.GAP * (i + 1));
+        }
+        return current;
+    }
+
+    /** 应用变更后按排序值排列的结果必须与目标顺序一致 */
+    private static Map<Integer, Integer> applyAndCheck(
+            List<Integer> order, Map<Integer, Integer> current) {
+        Map<Integer, Integer> changes = SortKeys.plan(order, current);
+        Map<Integer, Integer> result = new HashMap<>(current);
+        result.putAll(changes);
+        for (int i = 1; i < order.size(); i++) {
+            assertTrue(
+                    result.get(order.get(i - 1)) < result.get(order.get(i)),
+                    "order broken at " + i + ": " + result);
+        }
+        return changes;
+    }
+
+    @Test
+    public void unchangedOrderWritesNothing() {
+        List<Integer> ids = List.of(1, 2, 3, 4);
+        assertTrue(SortKeys.plan(ids, spaced(ids)).isEmpty());
+    }
+
+    @Test
+    public void movingOneRowKeepsTheLongestIncreasingRun() {
+        List<Integer> ids = List.of(1, 2, 3, 4, 5, 6);
+        Map<Integer, Integer> current = spaced(ids);
+
+        // 6 拖到最前：1..5 已有序，只更新 6
+        Map<Integer, Integer> changes = applyAndCheck(SortKeys.moveAfter(ids, 6, null), current);
+        assertEquals(Set.of(6), changes.keySet());
+        assertTrue(changes.get(6) < current.get(1));
+
+        // 2 拖到 4 之后：取 4 与 5 的中间值
+        changes = applyAndCheck(SortKeys.moveAfter(ids, 2, 4), current);
+        assertEquals(Map.of(2, (current.get(4) + current.get(5)) / 2), changes);
+
+        // 1 拖到最后
+        changes = applyAndCheck(SortKeys.moveAfter(ids, 1, 6), current);
+        assertEquals(Map.of(1, current.get(6) + SortKeys.GAP), changes);
+    }
+
+    @Test
+    public void reversedOrderKeepsOneRow() {
+        List<Integer> ids = List.of(1, 2, 3, 4, 5);
+        List<Integer> reversed = new ArrayList<>(ids);
+        Collections.reverse(reversed);
+        Map<Integer, Integer> changes = applyAndCheck(reversed, spaced(ids));
+        assertEquals(4, changes.size());
+    }
+
+    @Test
+    public void gapExhaustionCascadesUntilNoConflict() {
+        // 1 与 2 相邻，中间没有空位；4 之后间隔充足
+        Map<Integer, Integer> current = new HashMap<>();
+        current.put(1, 100);
+        current.put(2, 101);
+        current.put(3, 102);
+        current.put(4, 5000);
+        current.put(5, 6000);
+
+        List<Integer> order = List.of(1, 9, 2, 3, 4, 5);
+        Map<Integer, Integer> changes = applyAndCheck(order, current);
+
+        // 9 放不进 100 与 101 之间，从 9 起按 GAP 向后重排，越过 2、3 后与 4 不再冲突即停止
+        assertEquals(Set.of(9, 2, 3), changes.keySet());
+        assertEquals(100 + SortKeys.GAP, changes.get(9));
+        assertFalse(changes.containsKey(1));
+        assertFalse(changes.containsKey(4));
+    }
+
+    @Test
+    public void cascadeReachesNextKeptRowWhenItIsTooClose() {
+        Map<Integer, Integer> current = new HashMap<>(Map.of(1, 10, 2, 11, 3, 12));
+        Map<Integer, Integer> changes = applyAndCheck(List.of(1, 9, 2, 3), current);
+        assertEquals(Set.of(9, 2, 3), changes.keySet());
+    }
+
+    @Test
+    public void overflowRenumbersEverything() {
+        Map<Integer, Integer> current =
+                new HashMap<>(Map.of(1, Integer.MAX_VALUE - 10, 2, Integer.MAX_VALUE - 9));
+        Map<Integer, Integer> changes = applyAndCheck(List.of(1, 2, 3), current);
+        assertEquals(Map.of(1, SortKeys.GAP, 2, SortKeys.GAP * 2, 3, SortKeys.GAP * 3), changes);
+    }
+
+    @Test
+    public void insertAtPosition() {
+        List<Integer> ids = List.of(1, 2, 3);
+        Map<Integer, Integer> current = spaced(ids);
+
+        assertEquals(
+                Map.of(0, current.get(1) - SortKeys.GAP), SortKeys.insertAt(ids, current, 0, 0));
+        assertEquals(
+                Map.of(0, (SortKeys.GAP * 2 + SortKeys.GAP * 3) / 2),
+                SortKeys.insertAt(ids, current, 2, 0));
+        assertEquals(Map.of(0, SortKeys.GAP * 4), SortKeys.insertAt(ids, current, 99, 0));
+        assertEquals(Map.of(0, SortKeys.GAP), SortKeys.insertAt(List.of(), Map.of(), 0, 0));
+    }
+
+    @Test
+    public void moveAfterUnknownTargetMovesToFront() {
+        assertEquals(List.of(3, 1, 2), SortKeys.moveAfter(List.of(1, 2, 3), 3, 42));
+        assertEquals(List.of(2, 1, 3), SortKeys.moveAfter(List.of(1, 2, 3), 1, 2));
+    }
+
+    @Test
+    public void randomMovesStayOrderedAndMostlyWriteOneRow() {
+        Random random = new Random(7);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            ids.add(i);
+        }
+        Map<Integer, Integer> current = spaced(ids);
+        int writes = 0;
+        for (int round = 0; round < 2000; round++) {
+            Integer id = ids.get(random.nextInt(ids.size()));
+            Integer after = random.nextInt(5) == 0 ? null : ids.get(random.nextInt(ids.size()));
+            if (id.equals(after)) {
+                continue;
+            }
+            ids = SortKeys.moveAfter(ids, id, after);
+            Map<Integer, Integer> changes = applyAndCheck(ids, current);
+            writes += changes.size();
+            current.putAll(changes);
+        }
+        assertTrue(writes < 2000 * 2, "writes " + writes);
+    }
+}
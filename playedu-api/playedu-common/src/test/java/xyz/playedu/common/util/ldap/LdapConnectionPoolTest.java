@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.common.util.ldap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.naming.AuthenticationException;
+import javax.naming.NamingException;
+import javax.naming.directory.Attributes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import xyz.playedu.common.types.LdapConfig;
+
+public class LdapConnectionPoolTest {
+
+    private static final String BASE_DN = "dc=playedu,dc=xyz";
+    private static final String ADMIN_DN = "cn=admin," + BASE_DN;
+    private static final String ADMIN_PASS = "admin-pass";
+    private static final String USER_DN = "uid=zhangsan,ou=people," + BASE_DN;
+    private static final String USER_PASS = "user-pass";
+
+    private InMemoryDirectoryServer server;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig(BASE_DN);
+        config.addAdditionalBindCredentials(ADMIN_DN, ADMIN_PASS);
+        config.setListenerConfigs(InMemoryListenerConfig.createLDAPConfig("default", 0));
+        server = new InMemoryDirectoryServer(config);
+        server.add("dn: " + BASE_DN, "objectClass: top", "objectClass: domain", "dc: playedu");
+        server.add(
+                "dn: ou=people," + BASE_DN,
+                "objectClass: top",
+                "objectClass: organizationalUnit",
+                "ou: people");
+        server.add(
+                "dn: " + USER_DN,
+                "objectClass: top",
+                "objectClass: person",
+                "objectClass: inetOrgPerson",
+                "uid: zhangsan",
+                "cn: 张三",
+                "sn: 张",
+                "userPassword: " + USER_PASS);
+        server.startListening();
+
+        // 每个用例使用新端口，配置变化后连接池按新的大小重建
+        LdapConnectionPool.configure(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.shutDown(true);
+    }
+
+    private LdapConfig config(String adminPass) {
+        LdapConfig config = new LdapConfig();
+        config.setEnabled(true);
+        config.setUrl("ldap://127.0.0.1:" + server.getListenPort());
+        config.setAdminUser(ADMIN_DN);
+        config.setAdminPass(adminPass);
+        config.setBaseDN(BASE_DN);
+        return config;
+    }
+
+    private static long stat(String name) {
+        return ((Number) LdapConnectionPool.stats().get(name)).longValue();
+    }
+
+    @Test
+    public void bindsAsAdminAndVerifiesUserPassword() throws Exception {
+        try (LdapConnectionPool.Lease lease = LdapConnectionPool.borrow(config(ADMIN_PASS))) {
+            assertTrue(lease.verify(USER_DN, USER_PASS));
+            assertFalse(lease.verify(USER_DN, "wrong"));
+            // 空密码会被当作匿名绑定，不能视为校验通过
+            assertFalse(lease.verify(USER_DN, ""));
+
+            // 校验后连接已绑定回管理员，仍可读取目录
+            Attributes attributes = lease.context().getAttributes(USER_DN, new String[] {"uid"});
+            assertEquals("zhangsan", attributes.get("uid").get());
+        }
+    }
+
+    @Test
+    public void wrongAdminPasswordReleasesPermit() throws Exception {
+        LdapConfig config = config("wrong");
+        for (int i = 0; i < 3; i++) {
+            assertThrows(AuthenticationException.class, () -> LdapConnectionPool.borrow(config));
+        }
+        // 失败的借出不能占用名额，否则连接池大小为2时第三次就会超时
+        assertEquals(0, stat("active"));
+    }
+
+    @Test
+    public void returnedConnectionIsReused() throws Exception {
+        LdapConfig config = config(ADMIN_PASS);
+        long created = stat("created_count");
+
+        Object first;
+        try (LdapConnectionPool.Lease lease = LdapConnectionPool.borrow(config)) {
+            first = lease.context();
+            assertTrue(lease.verify(USER_DN, USER_PASS));
+        }
+        try (LdapConnectionPool.Lease lease = LdapConnectionPool.borrow(config)) {
+            assertSame(first, lease.context());
+        }
+        assertEquals(created + 1, stat("created_count"));
+        assertEquals(1, stat("idle"));
+    }
+
+    @Test
+    public void invalidatedConnectionIsClosedAndReplaced() throws Exception {
+        LdapConfig config = config(ADMIN_PASS);
+
+        long closed;
+        Object first;
+        try (LdapConnectionPool.Lease lease = LdapConnectionPool.borrow(config)) {
+            // 首次借出时重建连接池会关闭上一用例遗留的空闲连接，计数从借出后开始
+            closed = stat("closed_count");
+            first = lease.context();
+            lease.invalidate();
+        }
+        assertEquals(closed + 1, stat("closed_count"));
+        assertEquals(0, stat("idle"));
+
+        try (LdapConnectionPool.Lease lease = LdapConnectionPool.borrow(config)) {
+            assertNotSame(first, lease.context());
+            assertTrue(lease.verify(USER_DN, USER_PASS));
+        }
+    }
+
+    @Test
+    public void connectionBrokenDuringVerifyIsNotReturned() throws Exception {
+        LdapConfig config = config(ADMIN_PASS);
+
+        long closed;
+        try (LdapConnectionPool.Lease lease = LdapConnectionPool.borrow(config)) {
+            closed = stat("closed_count");
+            server.shutDown(true);
+            assertThrows(NamingException.class, () -> lease.verify(USER_DN, USER_PASS));
+        }
+        assertEquals(closed + 1, stat("closed_count"));
+        assertEquals(0, stat("idle"));
+        assertEquals(0, stat("active"));
+    }
+
+    @Test
+    public void exhaustedPoolTimesOutAndWakesWaiterOnReturn() throws Exception {
+        LdapConfig config = config(ADMIN_PASS);
+        long timeouts = stat("timeout_count");
+
+        LdapConnectionPool.Lease first = LdapConnectionPool.borrow(config);
+        LdapConnectionPool.Lease second = LdapConnectionPool.borrow(config);
+        assertEquals(2, stat("active"));
+
+        NamingException e =
+                assertThrows(NamingException.class, () -> LdapConnectionPool.borrow(config));
+        assertFalse(e instanceof AuthenticationException);
+        assertEquals(timeouts + 1, stat("timeout_count"));
+
+        CompletableFuture<LdapConnectionPool.Lease> waiter =
+                CompletableFuture.supplyAsync(
+                        () -> {
+                            try {
+                                return LdapConnectionPool.borrow(config);
+                            } catch (NamingException ex) {
+                                throw new IllegalStateException(ex);
+                            }
+                        });
+        Thread.sleep(200);
+        assertFalse(waiter.isDone());
+        first.close();
+
+        try (LdapConnectionPool.Lease third = waiter.get(2, TimeUnit.SECONDS)) {
+            assertSame(first.context(), third.context());
+        }
+        second.close();
+        assertEquals(0, stat("active"));
+        assertEquals(timeouts + 1, stat("timeout_count"));
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.caches;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import xyz.playedu.common.domain.Category;
+import xyz.playedu.common.domain.Department;
+import xyz.playedu.common.exception.NotFoundException;
+import xyz.playedu.common.service.CategoryService;
+import xyz.playedu.common.service.DepartmentService;
+import xyz.playedu.common.util.DataVersion;
+import xyz.playedu.common.util.StringUtil;
+import xyz.playedu.course.domain.Course;
+import xyz.playedu.course.domain.CourseCategory;
+import xyz.playedu.course.domain.CourseDepartmentUser;
+import xyz.playedu.course.service.CourseCategoryService;
+import xyz.playedu.course.service.CourseDepartmentUserService;
+import xyz.playedu.course.service.CourseService;
+
+/**
+ * 学员课程目录
+ *
+ * <p>在内存中维护已上架课程(按排序时间倒序)以及部门、分类与课程的关联位图，学员首页按"部门(含上级部门)+分类(含子分类)" 读取课程时直接做位运算，结果以int数组缓存。
+ *
+ * <p>课程、部门、分类及其关联发生变更后对应的数据版本号递增，读取时按版本号只重建变化的部分。
+ */
+@Component
+@Slf4j
+public class CourseCatalogCache {
+
+    // 未关联部门的公开课最多返回数量
+    private static final int OPEN_COURSE_LIMIT = 500;
+
+    private static final String[] VERSION_NAMES =
+            new String[] {
+                DataVersion.DEPARTMENTS,
+                DataVersion.CATEGORIES,
+                DataVersion.COURSES,
+                DataVersion.COURSE_DEPARTMENTS,
+                DataVersion.COURSE_CATEGORIES,
+            };
+
+    @Autowired private CourseService courseService;
+
+    @Autowired private CourseDepartmentUserService courseDepartmentUserService;
+
+    @Autowired private CourseCategoryService courseCategoryService;
+
+    @Autowired private DepartmentService departmentService;
+
+    @Autowired private CategoryService categoryService;
+
+    private volatile Catalog catalog = new Catalog();
+
+    // 重建期间会查库，用ReentrantLock而不是synchronized，虚拟线程等待时不占用载体线程
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * 学员在指定部门、分类下可以看到的课程
+     *
+     * @param depId 部门ID
+     * @param categoryId 分类ID,为空或0表示全部分类
+     */
+    public List<Course> courses(Integer depId, Integer categoryId) throws NotFoundException {
+        Catalog current = current();
+        if (!current.depChains.containsKey(depId)) {
+            throw new NotFoundException("部门不存在");
+        }
+        int catId = categoryId == null || categoryId < 0 ? 0 : categoryId;
+        long key = ((long) depId << 32) | (catId & 0xffffffffL);
+        int[] ranks = current.lists.computeIfAbsent(key, k -> current.compute(depId, catId));
+
+        List<Course> courses = new ArrayList<>(ranks.length);
+        for (int rank : ranks) {
+            courses.add(current.courses[rank]);
+        }
+        return courses;
+    }
+
+    private Catalog current() {
+        long[] versions = versions();
+        Catalog current = catalog;
+        if (Arrays.equals(current.versions, versions)) {
+            return current;
+        }
+        rebuildLock.lock();
+        try {
+            current = catalog;
+            if (!Arrays.equals(current.versions, versions)) {
+                long start = System.currentTimeMillis();
+                current = rebuild(current, versions);
+                catalog = current;
+                log.info("课程目录重建完成|耗时={}ms", System.currentTimeMillis() - start);
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+        return current;
+    }
+
+    private long[] versions() {
+        long[] versions = new long[VERSION_NAMES.length];
+        for (int i = 0; i < VERSION_NAMES.length; i++) {
+            versions[i] = DataVersion.get(VERSION_NAMES[i]);
+        }
+        return versions;
+    }
+
+    private Catalog rebuild(Catalog prev, long[] versions) {
+        boolean depChanged = prev.versions[0] != versions[0];
+        boolean categoryChanged = prev.versions[1] != versions[1];
+        boolean courseChanged = prev.versions[2] != versions[2];
+        boolean courseDepChanged = courseChanged || prev.versions[3] != versions[3];
+        boolean courseCategoryChanged = courseChanged || prev.versions[4] != versions[4];
+
+        Catalog next = new Catalog();
+        next.versions = versions;
+        next.depChains = depChanged ? buildDepChains() : prev.depChains;
+        next.categoryTrees = categoryChanged ? buildCategoryTrees() : prev.categoryTrees;
+
+        if (courseChanged) {
+            List<Course> list =
+                    new ArrayList<>(
+                            courseService.list(
+                                    courseService.query().getWrapper().eq("is_show", 1)));
+            // 按照排序时间倒序
+            list.sort(
+                    Comparator.comparing(Course::getSortAt, Comparator.nullsFirst(Date::compareTo))
+                            .reversed());
+            next.courses = list.toArray(new Course[0]);
+            next.ranks = new HashMap<>();
+            for (int i = 0; i < next.courses.length; i++) {
+                next.ranks.put(next.courses[i].getId(), i);
+            }
+        } else {
+            next.courses = prev.courses;
+            next.ranks = prev.ranks;
+        }
+
+        if (courseDepChanged) {
+            next.depCourses = new HashMap<>();
+            BitSet relatedCourses = new BitSet();
+            for (CourseDepartmentUser item : courseDepartmentUserService.list()) {
+                Integer rank = next.ranks.get(item.getCourseId());
+                if (rank == null) {
+                    continue;
+                }
+                next.depCourses.computeIfAbsent(item.getRangeId(), k -> new BitSet()).set(rank);
+                relatedCourses.set(rank);
+            }
+            next.openCourses = new BitSet();
+            next.openCourses.set(0, next.courses.length);
+            next.openCourses.andNot(relatedCourses);
+        } else {
+            next.depCourses = prev.depCourses;
+            next.openCourses = prev.openCourses;
+        }
+
+        if (courseCategoryChanged) {
+            next.categoryCourses = new HashMap<>();
+            for (CourseCategory item : courseCategoryService.list()) {
+                Integer rank = next.ranks.get(item.getCourseId());
+                if (rank == null) {
+                    continue;
+                }
+                next.categoryCourses
+                        .computeIfAbsent(item.getCategoryId(), k -> new BitSet())
+                        .set(rank);
+            }
+        } else {
+            next.categoryCourses = prev.categoryCourses;
+        }
+
+        return next;
+    }
+
+    // 部门ID => 部门自身及所有上级部门ID
+    private Map<Integer, int[]> buildDepChains() {
+        Map<Integer, int[]> chains = new HashMap<>();
+        for (Department department : departmentService.all()) {
+            chains.put(
+                    department.getId(),
+                    withParentChain(department.getId(), department.getParentChain()));
+        }
+        return chains;
+    }
+
+    // 分类ID => 分类自身及所有子孙分类ID
+    private Map<Integer, int[]> buildCategoryTrees() {
+        Map<Integer, List<Integer>> trees = new HashMap<>();
+        for (Category category : categoryService.all()) {
+            for (int id : withParentChain(category.getId(), category.getParentChain())) {
+                trees.computeIfAbsent(id, k -> new ArrayList<>()).add(category.getId());
+            }
+        }
+        Map<Integer, int[]> result = new HashMap<>();
+        trees.forEach(
+                (id, ids) -> result.put(id, ids.stream().mapToInt(Integer::intValue).toArray()));
+        return result;
+    }
+
+    private static int[] withParentChain(Integer id, String parentChain) {
+        if (StringUtil.isEmpty(parentChain)) {
+            return new int[] {id};
+        }
+        String[] parentIds = parentChain.split(",");
+        int[] ids = new int[parentIds.length + 1];
+        ids[0] = id;
+        for (int i = 0; i < parentIds.length; i++) {
+            ids[i + 1] = Integer.parseInt(parentIds[i]);
+        }
+        return ids;
+    }
+
+    private static class Catalog {
+        private long[] versions = new long[] {-1, -1, -1, -1, -1};
+        private Map<Integer, int[]> depChains = new HashMap<>();
+        private Map<Integer, int[]> categoryTrees = new HashMap<>();
+
+        // 按照排序时间倒序排列的已上架课程，数组下标即课程排名
+        private Course[] courses = new Course[0];
+        private Map<Integer, Integer> ranks = new HashMap<>();
+
+        // 部门ID => 关联课程排名
+        private Map<Integer, BitSet> depCourses = new HashMap<>();
+        // 未关联任何部门的课程排名
+        private BitSet openCourses = new BitSet();
+        // 分类ID => 关联课程排名
+        private Map<Integer, BitSet> categoryCourses = new HashMap<>();
+
+        // (部门ID,分类ID) => 课程排名列表
+        private final Map<Long, int[]> lists = new ConcurrentHashMap<>();
+
+        int[] compute(int depId, int categoryId) {
+            BitSet depResult = new BitSet();
+            for (int id : depChains.get(depId)) {
+                BitSet bits = depCourses.get(id);
+                if (bits != null) {
+                    depResult.or(bits);
+                }
+            }
+            BitSet openResult = (BitSet) openCourses.clone();
+
+            if (categoryId > 0) {
+                BitSet categoryResult = new BitSet();
+                int[] tree = categoryTrees.getOrDefault(categoryId, new int[] {categoryId});
+                for (int id : tree) {
+                    BitSet bits = categoryCourses.get(id);
+                    if (bits != null) {
+                        categoryResult.or(bits);
+                    }
+                }
+                depResult.and(categoryResult);
+                openResult.and(categoryResult);
+            }
+
+            if (openResult.cardinality() > OPEN_COURSE_LIMIT) {
+                int limitAt = -1;
+                for (int i = 0; i < OPEN_COURSE_LIMIT; i++) {
+                    limitAt = openResult.nextSetBit(limitAt + 1);
+                }
+                openResult.clear(limitAt + 1, openResult.length());
+            }
+
+            depResult.or(openResult);
+            return depResult.stream().toArray();
+        }
+    }
+}
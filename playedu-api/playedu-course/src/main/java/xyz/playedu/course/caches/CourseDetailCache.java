@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.caches;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import xyz.playedu.common.exception.NotFoundException;
+import xyz.playedu.common.util.DataVersion;
+import xyz.playedu.course.domain.Course;
+import xyz.playedu.course.domain.CourseAttachment;
+import xyz.playedu.course.domain.CourseChapter;
+import xyz.playedu.course.domain.CourseHour;
+import xyz.playedu.course.service.CourseAttachmentService;
+import xyz.playedu.course.service.CourseChapterService;
+import xyz.playedu.course.service.CourseHourService;
+import xyz.playedu.course.service.CourseService;
+import xyz.playedu.resource.domain.Resource;
+import xyz.playedu.resource.service.ResourceService;
+
+/**
+ * 学员端课程详情快照
+ *
+ * <p>课程、章节、按章节分组的课时、附件(含扩展名)及封面与附件的签名地址对所有学员相同，编译为不可变快照后按课程缓存。
+ *
+ * <p>课程数据版本号或该课程的章节/课时/附件版本号变化后快照失效；签名地址有效期为3小时，快照最多保留1小时。
+ */
+@Component
+public class CourseDetailCache {
+
+    private static final long MAX_AGE = 3600 * 1000L;
+
+    private static final int MAX_ENTRIES = 5000;
+
+    private static final int LOCK_STRIPES = 64;
+
+    @Autowired private CourseService courseService;
+
+    @Autowired private CourseChapterService chapterService;
+
+    @Autowired private CourseHourService hourService;
+
+    @Autowired private CourseAttachmentService attachmentService;
+
+    @Autowired private ResourceService resourceService;
+
+    private final Map<Integer, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    // 同一课程并发打开时只重建一次；重建期间会查库，用ReentrantLock而不是synchronized
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public CourseDetailCache() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public record Snapshot(
+            long coursesVersion,
+            long structureVersion,
+            long builtAt,
+            Course course,
+            List<CourseChapter> chapters,
+            Map<Integer, List<CourseHour>> hours,
+            List<CourseAttachment> attachments,
+            Map<Integer, String> resourceUrl) {
+
+        private boolean isValid(long coursesVersion, long structureVersion, long now) {
+            return this.coursesVersion == coursesVersion
+                    && this.structureVersion == structureVersion
+                    && now - builtAt < MAX_AGE;
+        }
+    }
+
+    public Snapshot get(Integer courseId) throws NotFoundException {
+        long coursesVersion = DataVersion.get(DataVersion.COURSES);
+        long structureVersion = DataVersion.get(DataVersion.COURSE_STRUCTURE, courseId);
+        Snapshot snapshot = snapshots.get(courseId);
+        if (snapshot != null
+                && snapshot.isValid(coursesVersion, structureVersion, System.currentTimeMillis())) {
+            return snapshot;
+        }
+
+        ReentrantLock lock = locks[Math.floorMod(courseId, LOCK_STRIPES)];
+        lock.lock();
+        try {
+            snapshot = snapshots.get(courseId);
+            if (snapshot != null
+                    && snapshot.isValid(
+                            coursesVersion, structureVersion, System.currentTimeMillis())) {
+                return snapshot;
+            }
+            // 版本号先于查库读取，重建期间发生的变更会让下一次读取再次重建
+            snapshot = build(courseId, coursesVersion, structureVersion);
+            if (snapshots.size() >= MAX_ENTRIES) {
+                snapshots.clear();
+            }
+            snapshots.put(courseId, snapshot);
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Snapshot build(Integer courseId, long coursesVersion, long structureVersion)
+            throws NotFoundException {
+        long builtAt = System.currentTimeMillis();
+        Course course = courseService.findOrFail(courseId);
+
+        List<Integer> rids = new ArrayList<>();
+        rids.add(course.getThumb());
+
+        List<CourseAttachment> attachments = attachmentService.getAttachmentsByCourseId(courseId);
+        if (null != attachments && !attachments.isEmpty()) {
+            List<Integer> attachmentIds =
+                    attachments.stream().map(CourseAttachment::getRid).toList();
+            rids.addAll(attachmentIds);
+            Map<Integer, Resource> resourceMap =
+                    resourceService.chunks(attachmentIds).stream()
+                            .collect(Collectors.toMap(Resource::getId, Function.identity()));
+            attachments.forEach(
+                    courseAttachment -> {
+                        Resource resource = resourceMap.get(courseAttachment.getRid());
+                        if (null != resource) {
+                            courseAttachment.setExt(resource.getExtension());
+                        }
+                    });
+        }
+
+        Map<Integer, List<CourseHour>> hours = new HashMap<>();
+        hourService
+                .getHoursByCourseId(courseId)
+                .forEach(
+                        hour ->
+                                hours.computeIfAbsent(hour.getChapterId(), k -> new ArrayList<>())
+                                        .add(hour));
+        hours.replaceAll((chapterId, list) -> Collections.unmodifiableList(list));
+
+        return new Snapshot(
+                coursesVersion,
+                structureVersion,
+                builtAt,
+                course,
+                Collections.unmodifiableList(chapterService.getChaptersByCourseId(courseId)),
+                Collections.unmodifiableMap(hours),
+                attachments == null ? List.of() : Collections.unmodifiableList(attachments),
+                Collections.unmodifiableMap(resourceService.chunksPreSignUrlByIds(rids)));
+    }
+}
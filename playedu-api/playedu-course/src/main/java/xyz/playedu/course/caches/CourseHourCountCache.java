@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.caches;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import xyz.playedu.common.util.DataVersion;
+import xyz.playedu.common.util.TransactionUtil;
+import xyz.playedu.course.domain.CourseHour;
+import xyz.playedu.course.mapper.CourseHourMapper;
+
+/**
+ * 课程课时数
+ *
+ * <p>学员看完课时后计算课程进度需要课时总数，常驻内存避免每次 COUNT；课时新增/删除事件中刷新。
+ *
+ * <p>缓存项记录统计前读取的课程结构版本号，版本号变化后重新统计；并发统计时只保留版本号较新的结果，避免变更前的统计覆盖变更后的结果。
+ */
+@Component
+public class CourseHourCountCache {
+
+    @Autowired private CourseHourMapper courseHourMapper;
+
+    private final Map<Integer, Entry> counts = new ConcurrentHashMap<>();
+
+    private record Entry(int count, long version) {}
+
+    public int get(Integer courseId) {
+        long version = DataVersion.get(DataVersion.COURSE_STRUCTURE, courseId);
+        Entry entry = counts.get(courseId);
+        if (entry != null && entry.version() == version) {
+            return entry.count();
+        }
+        return store(courseId, new Entry(load(courseId), version));
+    }
+
+    /** 重新统计并返回最新课时数 */
+    public int refresh(Integer courseId) {
+        long version = DataVersion.get(DataVersion.COURSE_STRUCTURE, courseId);
+        return store(courseId, new Entry(load(courseId), version));
+    }
+
+    public int size() {
+        return counts.size();
+    }
+
+    public void evict(Integer courseId) {
+        TransactionUtil.afterCommit(() -> counts.remove(courseId));
+    }
+
+    // 版本号先于查库读取，已缓存的结果版本号更新时保留已缓存的结果
+    private int store(Integer courseId, Entry loaded) {
+        return counts.compute(
+                        courseId,
+                        (k, old) -> old != null && old.version() > loaded.version() ? old : loaded)
+                .count();
+    }
+
+    private int load(Integer courseId) {
+        return Math.toIntExact(
+                courseHourMapper.selectCount(
+                        new QueryWrapper<CourseHour>().eq("course_id", courseId)));
+    }
+}
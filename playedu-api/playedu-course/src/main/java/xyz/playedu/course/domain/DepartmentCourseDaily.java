@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.domain;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.Serializable;
+import java.util.Date;
+import lombok.Data;
+
+/** 部门×课程×日期学习汇总，部门的数据包含其全部下级部门的学员 */
+@Data
+@TableName(value = "department_course_daily")
+public class DepartmentCourseDaily implements Serializable {
+    /** 部门ID，0表示全部学员 */
+    @JsonProperty("dep_id")
+    private Integer depId;
+
+    /** */
+    @JsonProperty("course_id")
+    private Integer courseId;
+
+    /** */
+    @JsonProperty("created_date")
+    private Date createdDate;
+
+    /** 当天开始学习的学员数 */
+    @JsonProperty("started_count")
+    private Integer startedCount;
+
+    /** 当天学完课程的学员数 */
+    @JsonProperty("finished_count")
+    private Integer finishedCount;
+
+    /** 当天学完的课时数 */
+    @JsonProperty("finished_hour_count")
+    private Integer finishedHourCount;
+
+    /** 学习时长[毫秒] */
+    private Long duration;
+
+    @JsonProperty("updated_at")
+    private Date updatedAt;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.domain;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.Serializable;
+import java.util.Date;
+import lombok.Data;
+
+@Data
+@TableName(value = "export_jobs")
+public class ExportJob implements Serializable {
+    /** */
+    @TableId(type = IdType.AUTO)
+    private Integer id;
+
+    /** 导出类型：course-课程，department-部门，all-全部 */
+    private String type;
+
+    /** 课程ID或部门ID */
+    @JsonProperty("target_id")
+    private Integer targetId;
+
+    /** 文件格式：csv,xlsx */
+    private String format;
+
+    /** 状态：0-排队中，1-导出中，2-完成，3-失败 */
+    private Integer status;
+
+    /** 预计行数 */
+    @JsonProperty("total_rows")
+    private Long totalRows;
+
+    /** 已导出行数 */
+    @JsonProperty("processed_rows")
+    private Long processedRows;
+
+    /** 导出文件名 */
+    @JsonProperty("file_name")
+    private String fileName;
+
+    /** 文件大小[字节] */
+    @JsonProperty("file_size")
+    private Long fileSize;
+
+    /** 失败原因 */
+    @JsonProperty("error_message")
+    private String errorMessage;
+
+    /** 创建任务的管理员ID */
+    @JsonProperty("admin_id")
+    private Integer adminId;
+
+    /** */
+    @JsonProperty("created_at")
+    private Date createdAt;
+
+    /** */
+    @JsonProperty("updated_at")
+    private Date updatedAt;
+
+    /** */
+    @JsonProperty("finished_at")
+    private Date finishedAt;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.domain;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.Serializable;
+import lombok.Data;
+
+/**
+ * 练习题目分析的可累加量，每个学员只计最近一次作答。
+ *
+ * <p>question_index=-1 为整卷行：人数、总分和、总分平方和。
+ *
+ * <p>题目行中 option_index=-1 为答对人数与答对者总分和，-2 为未作答人数，其余为该选项被选次数。
+ */
+@TableName("quiz_item_stats")
+@Data
+public class QuizItemStat implements Serializable {
+    @JsonProperty("quiz_id")
+    private Integer quizId;
+
+    private Integer layout;
+
+    @JsonProperty("question_index")
+    private Integer questionIndex;
+
+    @JsonProperty("option_index")
+    private Integer optionIndex;
+
+    private Long cnt;
+
+    @JsonProperty("score_sum")
+    private Long scoreSum;
+
+    @JsonProperty("score_sq_sum")
+    private Long scoreSqSum;
+
+    private static final long serialVersionUID = 1L;
+}
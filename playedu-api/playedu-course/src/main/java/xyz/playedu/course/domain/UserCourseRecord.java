@@ -61,6 +61,10 @@ public class UserCourseRecord implements Serializable {
     @JsonProperty("finished_at")
     private Date finishedAt;
 
+    /** 首次学习时间 */
+    @JsonProperty("first_learned_at")
+    private Date firstLearnedAt;
+
     /** */
     @JsonProperty("created_at")
     private Date createdAt;
@@ -106,6 +110,9 @@ public class UserCourseRecord implements Serializable {
                 && (this.getFinishedAt() == null
                         ? other.getFinishedAt() == null
                         : this.getFinishedAt().equals(other.getFinishedAt()))
+                && (this.getFirstLearnedAt() == null
+                        ? other.getFirstLearnedAt() == null
+                        : this.getFirstLearnedAt().equals(other.getFirstLearnedAt()))
                 && (this.getCreatedAt() == null
                         ? other.getCreatedAt() == null
                         : this.getCreatedAt().equals(other.getCreatedAt()))
@@ -127,6 +134,9 @@ public class UserCourseRecord implements Serializable {
         result = prime * result + ((getProgress() == null) ? 0 : getProgress().hashCode());
         result = prime * result + ((getIsFinished() == null) ? 0 : getIsFinished().hashCode());
         result = prime * result + ((getFinishedAt() == null) ? 0 : getFinishedAt().hashCode());
+        result =
+                prime * result
+                        + ((getFirstLearnedAt() == null) ? 0 : getFirstLearnedAt().hashCode());
         result = prime * result + ((getCreatedAt() == null) ? 0 : getCreatedAt().hashCode());
         result = prime * result + ((getUpdatedAt() == null) ? 0 : getUpdatedAt().hashCode());
         return result;
@@ -146,6 +156,7 @@ public class UserCourseRecord implements Serializable {
         sb.append(", progress=").append(progress);
         sb.append(", isFinished=").append(isFinished);
         sb.append(", finishedAt=").append(finishedAt);
+        sb.append(", firstLearnedAt=").append(firstLearnedAt);
         sb.append(", createdAt=").append(createdAt);
         sb.append(", updatedAt=").append(updatedAt);
         sb.append(", serialVersionUID=").append(serialVersionUID);
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.domain;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.Serializable;
+import java.util.Date;
+import lombok.Data;
+
+/** 学员每日课程学习时长，由超过保留期的学习时长记录归档而来 */
+@Data
+@TableName(value = "user_learn_duration_daily")
+public class UserLearnDurationDaily implements Serializable {
+    /** */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /** */
+    @JsonProperty("user_id")
+    private Integer userId;
+
+    /** */
+    @JsonProperty("course_id")
+    private Integer courseId;
+
+    /** */
+    @JsonProperty("created_date")
+    private Date createdDate;
+
+    /** 学习时长[毫秒] */
+    private Long duration;
+
+    /** 学习区间数 */
+    private Integer sessions;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.domain;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.io.Serializable;
+import java.util.Date;
+import lombok.Data;
+
+/** 学员学习汇总，course_id为0的记录为学员维度的汇总，其余为学员×课程维度的汇总 */
+@Data
+@TableName(value = "user_learning_summary")
+public class UserLearningSummary implements Serializable {
+    /** */
+    @TableId(type = IdType.AUTO)
+    private Integer id;
+
+    /** */
+    @JsonProperty("user_id")
+    private Integer userId;
+
+    /** 课程ID,0表示学员维度汇总 */
+    @JsonProperty("course_id")
+    private Integer courseId;
+
+    /** 已学习课时数(只要学习了就算) */
+    @JsonProperty("learned_hour_count")
+    private Integer learnedHourCount;
+
+    /** 已完成课时数 */
+    @JsonProperty("finished_hour_count")
+    private Integer finishedHourCount;
+
+    /** 课程是否学完[1:是,0:否] */
+    @JsonProperty("is_finished")
+    private Integer isFinished;
+
+    /** 学习总时长[毫秒] */
+    @JsonProperty("learn_duration")
+    private Long learnDuration;
+
+    /** today_date当天的学习时长[毫秒] */
+    @JsonProperty("today_duration")
+    private Long todayDuration;
+
+    /** */
+    @JsonProperty("today_date")
+    private Date todayDate;
+
+    /** */
+    @JsonProperty("updated_at")
+    private Date updatedAt;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -31,6 +31,9 @@ public class UserQuizRecord implements Serializable {
 
     @JsonIgnore private String userAnswers;
 
+    /** 作答编码，见 AnswerLayout；为空表示旧版JSON作答或线下成绩 */
+    @JsonIgnore private byte[] answerBits;
+
     private String comment;
 
     @JsonProperty("created_at")
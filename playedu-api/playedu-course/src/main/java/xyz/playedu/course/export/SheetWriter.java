@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.export;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import xyz.playedu.common.constant.BackendConstant;
+
+/** 逐行写入表格文件，写入过的行不在内存中保留 */
+public interface SheetWriter extends Closeable {
+
+    void write(List<String> row) throws IOException;
+
+    static SheetWriter open(String format, File file, List<String> head) throws IOException {
+        if (BackendConstant.EXPORT_FORMAT_XLSX.equals(format)) {
+            return new XlsxSheetWriter(file, head);
+        }
+        return new CsvSheetWriter(file, head);
+    }
+
+    /** 以 = + - @ 开头的文本会被表格软件当作公式执行，加单引号前缀按文本显示 */
+    static String text(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        char first = value.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@') {
+            return "'" + value;
+        }
+        return value;
+    }
+}
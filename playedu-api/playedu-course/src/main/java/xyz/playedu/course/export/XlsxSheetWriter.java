@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.export;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.write.metadata.WriteSheet;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于EasyExcel(POI SXSSF)的xlsx写入
+ *
+ * <p>行先攒到小批次再交给EasyExcel，已写出的行会刷到临时文件，内存只保留当前批次与窗口。单个sheet接近xlsx行数上限时自动新建sheet。
+ */
+public class XlsxSheetWriter implements SheetWriter {
+
+    // xlsx单sheet上限1048576行，留出表头与余量
+    private static final int MAX_SHEET_ROWS = 1_000_000;
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final ExcelWriter excelWriter;
+
+    private final List<List<String>> head;
+
+    private final List<List<String>> batch = new ArrayList<>(BATCH_SIZE);
+
+    private WriteSheet sheet;
+
+    private int sheetNo = 0;
+
+    private int sheetRows = 0;
+
+    public XlsxSheetWriter(File file, List<String> head) {
+        this.head = head.stream().map(List::of).toList();
+        this.excelWriter = EasyExcel.write(file).head(this.head).build();
+        this.sheet = newSheet();
+    }
+
+    @Override
+    public void write(List<String> row) {
+        if (sheetRows >= MAX_SHEET_ROWS) {
+            flush();
+            sheet = newSheet();
+            sheetRows = 0;
+        }
+        batch.add(row);
+        sheetRows++;
+        if (batch.size() >= BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    private WriteSheet newSheet() {
+        sheetNo++;
+        return EasyExcel.writerSheet(sheetNo - 1, "Sheet" + sheetNo).head(head).build();
+    }
+
+    private void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        excelWriter.write(batch, sheet);
+        batch.clear();
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+            // 没有数据行时也要输出表头
+            if (sheetRows == 0) {
+                excelWriter.write(new ArrayList<List<String>>(), sheet);
+            }
+        } finally {
+            excelWriter.finish();
+        }
+    }
+}
@@ -16,7 +16,9 @@
 package xyz.playedu.course.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import java.util.List;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import xyz.playedu.course.domain.CourseHour;
 
 /**
@@ -25,4 +27,8 @@ import xyz.playedu.course.domain.CourseHour;
  * @createDate 2023-03-15 10:16:45
  */
 @Mapper
-public interface CourseHourMapper extends BaseMapper<CourseHour> {}
+public interface CourseHourMapper extends BaseMapper<CourseHour> {
+
+    /** 多行INSERT，回填自增ID */
+    int insertBatch(@Param("hours") List<CourseHour> hours);
+}
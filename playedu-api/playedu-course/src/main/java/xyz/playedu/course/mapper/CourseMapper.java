@@ -18,6 +18,7 @@ package xyz.playedu.course.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import java.util.List;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import xyz.playedu.common.types.paginate.CoursePaginateFiler;
 import xyz.playedu.course.domain.Course;
 
@@ -34,4 +35,6 @@ public interface CourseMapper extends BaseMapper<Course> {
     Long paginateCount(CoursePaginateFiler filer);
 
     List<Course> openCoursesAndShow(Integer limit, List<Integer> categoryIds);
+
+    int incrementClassHour(@Param("courseId") Integer courseId, @Param("delta") Integer delta);
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import xyz.playedu.course.domain.DepartmentCourseDaily;
+
+@Mapper
+public interface DepartmentCourseDailyMapper extends BaseMapper<DepartmentCourseDaily> {
+
+    int insertBatch(@Param("rows") List<DepartmentCourseDaily> rows);
+
+    /** 课程在日期区间内按部门汇总，走 c_d 索引 */
+    List<DepartmentCourseDaily> sumByDepartment(
+            @Param("courseId") Integer courseId,
+            @Param("startDate") String startDate,
+            @Param("endDate") String endDate);
+}
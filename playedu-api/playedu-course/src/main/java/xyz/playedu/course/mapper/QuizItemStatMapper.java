@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import java.util.List;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import xyz.playedu.course.domain.QuizItemStat;
+
+@Mapper
+public interface QuizItemStatMapper extends BaseMapper<QuizItemStat> {
+
+    @Insert({
+        "<script>",
+        "INSERT INTO quiz_item_stats (quiz_id, layout, question_index, option_index, cnt,"
+                + " score_sum, score_sq_sum) VALUES ",
+        "<foreach collection='rows' item='row' separator=','>",
+        "(#{row.quizId}, #{row.layout}, #{row.questionIndex}, #{row.optionIndex}, #{row.cnt},"
+                + " #{row.scoreSum}, #{row.scoreSqSum})",
+        "</foreach>",
+        " ON DUPLICATE KEY UPDATE cnt = cnt + VALUES(cnt), score_sum = score_sum +"
+                + " VALUES(score_sum), score_sq_sum = score_sq_sum + VALUES(score_sq_sum)",
+        "</script>"
+    })
+    int accumulate(@Param("rows") List<QuizItemStat> rows);
+
+    // 布局构建标记行 (question_index=-1, option_index=-3)，cnt=1 表示已从作答记录构建
+    @Insert(
+            "INSERT IGNORE INTO quiz_item_stats (quiz_id, layout, question_index, option_index)"
+                    + " VALUES (#{quizId}, #{layout}, -1, -3)")
+    int ensureMarker(@Param("quizId") Integer quizId, @Param("layout") Integer layout);
+
+    @Select(
+            "SELECT cnt FROM quiz_item_stats WHERE quiz_id = #{quizId} AND layout = #{layout} AND"
+                    + " question_index = -1 AND option_index = -3")
+    Long marker(@Param("quizId") Integer quizId, @Param("layout") Integer layout);
+
+    // 提交作答时加共享锁读取标记，与重建互斥
+    @Select(
+            "SELECT cnt FROM quiz_item_stats WHERE quiz_id = #{quizId} AND layout = #{layout} AND"
+                    + " question_index = -1 AND option_index = -3 LOCK IN SHARE MODE")
+    Long shareMarker(@Param("quizId") Integer quizId, @Param("layout") Integer layout);
+
+    // 重建时加排他锁，等待进行中的提交完成，重建期间的提交等待重建完成
+    @Select(
+            "SELECT cnt FROM quiz_item_stats WHERE quiz_id = #{quizId} AND layout = #{layout} AND"
+                    + " question_index = -1 AND option_index = -3 FOR UPDATE")
+    Long lockMarker(@Param("quizId") Integer quizId, @Param("layout") Integer layout);
+
+    @Update(
+            "UPDATE quiz_item_stats SET cnt = 1 WHERE quiz_id = #{quizId} AND layout = #{layout}"
+                    + " AND question_index = -1 AND option_index = -3")
+    int markBuilt(@Param("quizId") Integer quizId, @Param("layout") Integer layout);
+}
@@ -16,11 +16,12 @@
 package xyz.playedu.course.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import java.util.Date;
 import java.util.List;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import xyz.playedu.common.types.mapper.UserCourseHourRecordCourseCountMapper;
 import xyz.playedu.common.types.mapper.UserCourseHourRecordUserCountMapper;
-import xyz.playedu.common.types.mapper.UserCourseHourRecordUserFirstCreatedAtMapper;
 import xyz.playedu.common.types.paginate.UserCourseHourRecordPaginateFilter;
 import xyz.playedu.course.domain.UserCourseHourRecord;
 
@@ -39,14 +40,16 @@ public interface UserCourseHourRecordMapper extends BaseMapper<UserCourseHourRec
     List<UserCourseHourRecordUserCountMapper> getUserCourseHourUserCount(
             Integer courseId, List<Integer> userIds, Integer isFinished);
 
-    List<UserCourseHourRecordUserFirstCreatedAtMapper> getUserCourseHourUserFirstCreatedAt(
-            Integer courseId, List<Integer> userIds);
-
     List<UserCourseHourRecord> paginate(UserCourseHourRecordPaginateFilter filter);
 
     Long paginateCount(UserCourseHourRecordPaginateFilter filter);
 
     List<UserCourseHourRecord> getUserPerCourseEarliestRecord(Integer userId);
 
-    List<UserCourseHourRecord> getCoursePerUserEarliestRecord(Integer courseId);
+    /** 按 (finished_at, id) 游标取 end 之前学完的课时记录 */
+    List<UserCourseHourRecord> finishedChunk(
+            @Param("lastAt") Date lastAt,
+            @Param("lastId") Integer lastId,
+            @Param("end") Date end,
+            @Param("size") Integer size);
 }
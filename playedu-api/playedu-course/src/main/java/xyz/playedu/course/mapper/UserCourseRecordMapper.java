@@ -16,10 +16,14 @@
 package xyz.playedu.course.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import java.util.Date;
 import java.util.List;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 import xyz.playedu.common.types.paginate.UserCourseRecordPaginateFilter;
 import xyz.playedu.course.domain.UserCourseRecord;
+import xyz.playedu.course.types.LearnProgressExportRow;
 
 /**
  * @author tengteng
@@ -31,4 +35,51 @@ public interface UserCourseRecordMapper extends BaseMapper<UserCourseRecord> {
     List<UserCourseRecord> paginate(UserCourseRecordPaginateFilter filter);
 
     long paginateTotal(UserCourseRecordPaginateFilter filter);
+
+    int markStarted(
+            @Param("userId") Integer userId,
+            @Param("courseId") Integer courseId,
+            @Param("now") Date now);
+
+    int finishHour(
+            @Param("userId") Integer userId,
+            @Param("courseId") Integer courseId,
+            @Param("hourCount") Integer hourCount,
+            @Param("now") Date now);
+
+    long countProgressExport(
+            @Param("courseId") Integer courseId,
+            @Param("depIds") List<Integer> depIds,
+            @Param("withNotStarted") boolean withNotStarted);
+
+    // 流式读取导出数据，每行回调一次
+    void streamProgressExport(
+            @Param("courseId") Integer courseId,
+            @Param("depIds") List<Integer> depIds,
+            @Param("withNotStarted") boolean withNotStarted,
+            ResultHandler<LearnProgressExportRow> handler);
+
+    int recountProgress(
+            @Param("userId") Integer userId,
+            @Param("courseId") Integer courseId,
+            @Param("now") Date now);
+
+    /** 按课时学习记录回填主键区间内缺少首次学习时间的记录，只更新不新增 */
+    int fillFirstLearnedAt(@Param("startId") Integer startId, @Param("endId") Integer endId);
+
+    Integer maxId();
+
+    /** 按 (first_learned_at, id) 游标取 end 之前开始学习的记录 */
+    List<UserCourseRecord> startedChunk(
+            @Param("lastAt") Date lastAt,
+            @Param("lastId") Integer lastId,
+            @Param("end") Date end,
+            @Param("size") Integer size);
+
+    /** 按 (finished_at, id) 游标取 end 之前学完的记录 */
+    List<UserCourseRecord> finishedChunk(
+            @Param("lastAt") Date lastAt,
+            @Param("lastId") Integer lastId,
+            @Param("end") Date end,
+            @Param("size") Integer size);
 }
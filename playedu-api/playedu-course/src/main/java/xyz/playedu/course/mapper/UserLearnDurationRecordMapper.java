@@ -16,7 +16,11 @@
 package xyz.playedu.course.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import java.util.Date;
+import java.util.List;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import xyz.playedu.course.domain.UserLearnDurationDaily;
 import xyz.playedu.course.domain.UserLearnDurationRecord;
 
 /**
@@ -25,4 +29,42 @@ import xyz.playedu.course.domain.UserLearnDurationRecord;
  * @createDate 2023-03-22 13:55:17
  */
 @Mapper
-public interface UserLearnDurationRecordMapper extends BaseMapper<UserLearnDurationRecord> {}
+public interface UserLearnDurationRecordMapper extends BaseMapper<UserLearnDurationRecord> {
+
+    /** 把紧接在当天最近一个区间之后的心跳并入该区间，返回受影响行数(0表示需要新开区间) */
+    int extendSession(
+            @Param("userId") Integer userId,
+            @Param("fromId") String fromId,
+            @Param("fromScene") String fromScene,
+            @Param("createdDate") Date createdDate,
+            @Param("joinFrom") Date joinFrom,
+            @Param("joinTo") Date joinTo,
+            @Param("endAt") Date endAt,
+            @Param("duration") Integer duration);
+
+    /** 按主键顺序取一批记录(只含 id 与 created_date) */
+    List<UserLearnDurationRecord> chunk(@Param("lastId") Long lastId, @Param("size") Integer size);
+
+    /** 将主键区间内早于 cutoff 的记录按 学员×日期×课程 累加到每日汇总表 */
+    int rollupDaily(
+            @Param("startId") Long startId,
+            @Param("endId") Long endId,
+            @Param("cutoff") String cutoff);
+
+    int deleteRolledUp(
+            @Param("startId") Long startId,
+            @Param("endId") Long endId,
+            @Param("cutoff") String cutoff);
+
+    /** 尚未归档的记录按 日期×课程 汇总 */
+    List<UserLearnDurationDaily> dailyByCourse(
+            @Param("userId") Integer userId,
+            @Param("startDate") String startDate,
+            @Param("endDate") String endDate);
+
+    /** 某天学员ID区间内尚未归档的记录按 学员×课程 汇总，走 d_u 索引 */
+    List<UserLearnDurationDaily> sumByUserRange(
+            @Param("createdDate") String createdDate,
+            @Param("fromUserId") Integer fromUserId,
+            @Param("toUserId") Integer toUserId);
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import xyz.playedu.course.domain.UserLearningSummary;
+
+@Mapper
+public interface UserLearningSummaryMapper extends BaseMapper<UserLearningSummary> {
+
+    int addLearnDuration(
+            @Param("userId") Integer userId,
+            @Param("duration") Long duration,
+            @Param("today") String today);
+
+    int addCourseProgress(
+            @Param("userId") Integer userId,
+            @Param("courseId") Integer courseId,
+            @Param("learned") Integer learned,
+            @Param("finished") Integer finished,
+            @Param("hourCount") Integer hourCount);
+
+    int recountCourse(@Param("userId") Integer userId, @Param("courseId") Integer courseId);
+
+    int deleteUserRange(@Param("startId") Integer startId, @Param("endId") Integer endId);
+
+    int insertCourseSummaries(@Param("startId") Integer startId, @Param("endId") Integer endId);
+
+    int insertUserSummaries(
+            @Param("startId") Integer startId,
+            @Param("endId") Integer endId,
+            @Param("today") String today);
+
+    Integer maxLearnedUserId();
+}
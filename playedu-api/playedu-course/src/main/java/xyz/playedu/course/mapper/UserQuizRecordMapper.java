@@ -21,4 +21,20 @@ public interface UserQuizRecordMapper extends BaseMapper<UserQuizRecord> {
                     + "ORDER BY score DESC, created_at ASC "
                     + "LIMIT #{limit}")
     List<UserQuizRecord> getTopScoreRecords(@Param("limit") int limit);
+
+    // 锁住学员在该练习的最近一次作答，并发提交同一练习时按顺序更新题目统计
+    @Select(
+            "SELECT id, user_id, quiz_id, course_hour_id, score, user_answers, answer_bits FROM"
+                + " user_quiz_records WHERE user_id = #{userId} AND quiz_id = #{quizId} ORDER BY id"
+                + " DESC LIMIT 1 FOR UPDATE")
+    UserQuizRecord lockLatest(@Param("userId") Integer userId, @Param("quizId") Integer quizId);
+
+    @Select(
+            "SELECT id, user_id, course_hour_id, score, user_answers, answer_bits FROM"
+                    + " user_quiz_records WHERE quiz_id = #{quizId} AND id > #{lastId} ORDER BY"
+                    + " id LIMIT #{size}")
+    List<UserQuizRecord> chunkByQuiz(
+            @Param("quizId") Integer quizId,
+            @Param("lastId") Integer lastId,
+            @Param("size") Integer size);
 }
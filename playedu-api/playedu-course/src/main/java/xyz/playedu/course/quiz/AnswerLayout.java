@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.quiz;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import org.springframework.util.StringUtils;
+import xyz.playedu.course.domain.Question;
+
+/**
+ * 练习作答的紧凑编码。
+ *
+ * <p>按练习的题目顺序，每题一个选项位图(第 i 位表示选了第 i 个选项)，以无符号变长整数依次写入。格式为 [版本 1 字节][布局指纹 4 字节][各题位图]，7 个选项以内每题只占 1
+ * 字节。
+ *
+ * <p>布局指纹由题目ID与选项值计算，题目顺序或选项变化后旧编码不再按新布局解读。
+ */
+public final class AnswerLayout {
+
+    private static final byte VERSION = 1;
+
+    private static final int HEADER_SIZE = 5;
+
+    /** 位图最多容纳的选项数，超出的选项不参与编码 */
+    private static final int MAX_OPTIONS = 63;
+
+    private final int[] questionIds;
+
+    private final List<Question> questions;
+
+    private final List<List<String>> values;
+
+    private final List<List<String>> labels;
+
+    private final long[] correctMasks;
+
+    private final int fingerprint;
+
+    private AnswerLayout(List<Question> questions, ObjectMapper objectMapper) {
+        this.questions = questions;
+        this.questionIds = new int[questions.size()];
+        this.values = new ArrayList<>(questions.size());
+        this.labels = new ArrayList<>(questions.size());
+        this.correctMasks = new long[questions.size()];
+
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < questions.size(); i++) {
+            Question question = questions.get(i);
+            questionIds[i] = question.getId();
+
+            List<String> optionValues = new ArrayList<>();
+            List<String> optionLabels = new ArrayList<>();
+            for (Map<String, Object> option : readList(objectMapper, question.getOptions())) {
+                optionValues.add(String.valueOf(option.get("value")).trim());
+                optionLabels.add(String.valueOf(option.getOrDefault("label", "")));
+            }
+            values.add(optionValues);
+            labels.add(optionLabels);
+
+            List<String> answer = new ArrayList<>();
+            if (StringUtils.hasText(question.getAnswer())) {
+                try {
+                    answer = objectMapper.readValue(question.getAnswer(), new TypeReference<>() {});
+                } catch (JsonProcessingException e) {
+                    throw new RuntimeException("题目答案解析失败", e);
+                }
+            }
+            correctMasks[i] = mask(i, answer);
+
+            crc.update(
+                    (question.getId() + ":" + String.join(",", optionValues) + ";")
+                            .getBytes(StandardCharsets.UTF_8));
+        }
+        this.fingerprint = (int) crc.getValue();
+    }
+
+    public static AnswerLayout of(List<Question> questions, ObjectMapper objectMapper) {
+        return new AnswerLayout(questions, objectMapper);
+    }
+
+    public int size() {
+        return questionIds.length;
+    }
+
+    public int fingerprint() {
+        return fingerprint;
+    }
+
+    public Question question(int index) {
+        return questions.get(index);
+    }
+
+    public List<String> values(int index) {
+        return values.get(index);
+    }
+
+    public List<String> labels(int index) {
+        return labels.get(index);
+    }
+
+    public long correctMask(int index) {
+        return correctMasks[index];
+    }
+
+    public boolean isCorrect(int index, long mask) {
+        return correctMasks[index] != 0 && correctMasks[index] == mask;
+    }
+
+    // 作答值转为位图，不在选项中的值忽略
+    public long mask(int index, List<String> answer) {
+        long mask = 0;
+        if (answer == null) {
+            return mask;
+        }
+        List<String> optionValues = values.get(index);
+        for (String value : answer) {
+            int pos = value == null ? -1 : optionValues.indexOf(value.trim());
+            if (pos >= 0 && pos < MAX_OPTIONS) {
+                mask |= 1L << pos;
+            }
+        }
+        return mask;
+    }
+
+    // 按 题目ID->作答值 计算每题位图
+    public long[] masks(Map<Integer, List<String>> answers) {
+        long[] masks = new long[questionIds.length];
+        for (int i = 0; i < questionIds.length; i++) {
+            masks[i] = mask(i, answers == null ? null : answers.get(questionIds[i]));
+        }
+        return masks;
+    }
+
+    public byte[] encode(Map<Integer, List<String>> answers) {
+        long[] masks = masks(answers);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_SIZE + masks.length);
+        out.write(VERSION);
+        out.write(fingerprint >>> 24);
+        out.write(fingerprint >>> 16);
+        out.write(fingerprint >>> 8);
+        out.write(fingerprint);
+        for (long mask : masks) {
+            while ((mask & ~0x7FL) != 0) {
+                out.write((int) ((mask & 0x7F) | 0x80));
+                mask >>>= 7;
+            }
+            out.write((int) mask);
+        }
+        return out.toByteArray();
+    }
+
+    /** 解码为每题位图；编码为空、版本或布局指纹不一致时返回null */
+    public long[] decode(byte[] bits) {
+        if (bits == null || bits.length < HEADER_SIZE || bits[0] != VERSION) {
+            return null;
+        }
+        int fp =
+                ((bits[1] & 0xFF) << 24)
+                        | ((bits[2] & 0xFF) << 16)
+                        | ((bits[3] & 0xFF) << 8)
+                        | (bits[4] & 0xFF);
+        if (fp != fingerprint) {
+            return null;
+        }
+
+        long[] masks = new long[questionIds.length];
+        int pos = HEADER_SIZE;
+        for (int i = 0; i < masks.length; i++) {
+            long mask = 0;
+            int shift = 0;
+            while (true) {
+                if (pos >= bits.length || shift > 63) {
+                    return null;
+                }
+                byte b = bits[pos++];
+                mask |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+                shift += 7;
+            }
+            masks[i] = mask;
+        }
+        return masks;
+    }
+
+    private static List<Map<String, Object>> readList(ObjectMapper objectMapper, String json) {
+        if (!StringUtils.hasText(json)) {
+            return List.of();
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {});
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("题目选项解析失败", e);
+        }
+    }
+}
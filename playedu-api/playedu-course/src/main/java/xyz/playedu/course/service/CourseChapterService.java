@@ -31,11 +31,19 @@ public interface CourseChapterService extends IService<CourseChapter> {
 
     void create(Integer courseId, String name, Integer sort);
 
-    void update(CourseChapter chapter, String name, Integer sort);
+    // 排序值只通过 updateSort/move 调整
+    void update(CourseChapter chapter, String name);
 
     CourseChapter findOrFail(Integer id) throws NotFoundException;
 
     CourseChapter findOrFail(Integer id, Integer courseId) throws NotFoundException;
 
     void updateSort(List<Integer> ids, Integer cid);
+
+    /**
+     * 移动章节，只更新位置变化的章节排序值
+     *
+     * @param afterId 移动到该章节之后，为空或0时移动到最前面
+     */
+    void move(Integer courseId, Integer id, Integer afterId) throws NotFoundException;
 }
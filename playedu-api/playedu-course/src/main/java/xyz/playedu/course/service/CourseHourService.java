@@ -29,10 +29,10 @@ public interface CourseHourService extends IService<CourseHour> {
 
     CourseHour findOrFail(Integer id, Integer courseId) throws NotFoundException;
 
+    // 排序值只通过 updateSort/move 调整；换章节时追加到新章节末尾
     void update(
             CourseHour courseHour,
             Integer chapterId,
-            Integer sort,
             String title,
             String type,
             Integer rid,
@@ -41,6 +41,7 @@ public interface CourseHourService extends IService<CourseHour> {
 
     List<CourseHour> getHoursByCourseId(Integer courseId);
 
+    // sort 为在章节中的插入位置，为空或0时追加到末尾(管理端新建课时传0)
     CourseHour create(
             Integer courseId,
             Integer chapterId,
@@ -53,13 +54,25 @@ public interface CourseHourService extends IService<CourseHour> {
 
     Integer getCountByCourseId(Integer courseId);
 
+    /** 批量写入课时，按批次使用多行INSERT */
+    void insertBatch(Integer courseId, List<CourseHour> hours);
+
     Integer getCountByChapterId(Integer chapterId);
 
     void remove(Integer courseId, Integer chapterId);
 
     void updateSort(List<Integer> ids, Integer cid);
 
-        List<Integer> getRidsByCourseId(Integer courseId, String type);
+    /**
+     * 移动课时，只更新位置变化的课时排序值
+     *
+     * @param chapterId 目标章节，afterId有效时取afterId所在章节，都为空时不改变章节
+     * @param afterId 移动到该课时之后，为空或0时移动到章节最前面
+     */
+    void move(Integer courseId, Integer id, Integer chapterId, Integer afterId)
+            throws NotFoundException;
+
+    List<Integer> getRidsByCourseId(Integer courseId, String type);
 
     List<CourseHour> chunk(List<Integer> hourIds);
 }
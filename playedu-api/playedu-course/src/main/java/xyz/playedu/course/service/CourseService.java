@@ -69,6 +69,9 @@ public interface CourseService extends IService<Course> {
 
     void updateClassHour(Integer courseId, Integer classHour);
 
+    /** 按已知增量更新课时数，不重新统计 */
+    void incrementClassHour(Integer courseId, Integer delta);
+
     void removeCategoryIdRelate(Integer categoryId);
 
     List<Course> chunks(List<Integer> ids, List<String> fields);
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import java.time.LocalDate;
+import java.util.List;
+import xyz.playedu.course.domain.DepartmentCourseDaily;
+
+public interface DepartmentCourseDailyService extends IService<DepartmentCourseDaily> {
+    // 重新计算某天的 部门×课程 汇总并整体替换当天数据，返回写入行数
+    int rollup(LocalDate date);
+
+    // 从 days 天前到今天逐天重算
+    void backfill(int days);
+
+    // 课程在日期区间内按部门汇总
+    List<DepartmentCourseDaily> sumByDepartment(Integer courseId, String startDate, String endDate);
+
+    // 部门在日期区间内某课程的逐日数据
+    List<DepartmentCourseDaily> daily(
+            Integer depId, Integer courseId, String startDate, String endDate);
+
+    boolean isEmpty();
+}
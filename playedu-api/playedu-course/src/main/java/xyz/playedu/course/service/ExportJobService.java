@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import java.io.File;
+import java.util.Map;
+import xyz.playedu.common.exception.NotFoundException;
+import xyz.playedu.course.domain.ExportJob;
+
+public interface ExportJobService extends IService<ExportJob> {
+    // 创建学习进度导出任务，事务提交后由后台线程执行
+    ExportJob create(String type, Integer targetId, String format, Integer adminId)
+            throws NotFoundException;
+
+    ExportJob findOrFail(Integer id) throws NotFoundException;
+
+    // 导出完成的文件，不存在时返回null
+    File file(ExportJob job);
+
+    // 执行排队中的任务，并把中断的任务置为失败
+    void runPending();
+
+    // 删除过期的导出文件与任务记录
+    void cleanExpired();
+
+    // 运行指标
+    Map<String, Object> stats();
+}
@@ -25,4 +25,7 @@ public interface QuestionService extends IService<Question> {
             Integer score);
 
     List<Question> listByIdsKeepOrder(List<Integer> ids);
+
+    /** 通过搜索索引查找题干包含关键词的题目ID，返回null时需回退到数据库模糊查询 */
+    List<Integer> searchIds(String keyword);
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import xyz.playedu.common.exception.NotFoundException;
+import xyz.playedu.course.domain.QuizItemStat;
+import xyz.playedu.course.domain.UserQuizRecord;
+import xyz.playedu.course.quiz.AnswerLayout;
+import xyz.playedu.course.types.QuizItemAnalysis;
+
+public interface QuizItemStatService extends IService<QuizItemStat> {
+    // 学员新作答替换其上一次作答的贡献，需在保存作答的事务内调用；当前布局尚未构建时不做处理
+    void replace(AnswerLayout layout, UserQuizRecord previous, UserQuizRecord current);
+
+    // 同上，按练习当前题目构建布局
+    void replace(Integer quizId, UserQuizRecord previous, UserQuizRecord current);
+
+    // 读取累计量计算题目分析；refresh 或当前布局尚未构建时从作答记录重建
+    QuizItemAnalysis analyze(Integer quizId, boolean refresh) throws NotFoundException;
+}
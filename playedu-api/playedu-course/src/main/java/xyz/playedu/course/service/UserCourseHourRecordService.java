@@ -19,7 +19,6 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import java.util.List;
 import xyz.playedu.common.types.mapper.UserCourseHourRecordCourseCountMapper;
 import xyz.playedu.common.types.mapper.UserCourseHourRecordUserCountMapper;
-import xyz.playedu.common.types.mapper.UserCourseHourRecordUserFirstCreatedAtMapper;
 import xyz.playedu.common.types.paginate.PaginationResult;
 import xyz.playedu.common.types.paginate.UserCourseHourRecordPaginateFilter;
 import xyz.playedu.course.domain.UserCourseHourRecord;
@@ -39,7 +38,8 @@ public interface UserCourseHourRecordService extends IService<UserCourseHourReco
             Integer duration,
             Integer totalDuration);
 
-        void markFinished(Integer userId, Integer courseId, Integer hourId);
+    // 将课时标记为看完，返回本次调用是否把课时从未看完变为看完
+    boolean markFinished(Integer userId, Integer courseId, Integer hourId);
 
     Integer getFinishedHourCount(Integer userId, Integer courseId);
 
@@ -61,13 +61,8 @@ public interface UserCourseHourRecordService extends IService<UserCourseHourReco
     List<UserCourseHourRecordUserCountMapper> getUserCourseHourUserCount(
             Integer courseId, List<Integer> userIds, Integer isFinished);
 
-    List<UserCourseHourRecordUserFirstCreatedAtMapper> getUserCourseHourUserFirstCreatedAt(
-            Integer courseId, List<Integer> userIds);
-
     PaginationResult<UserCourseHourRecord> paginate(
             int page, int size, UserCourseHourRecordPaginateFilter filter);
 
     List<UserCourseHourRecord> getUserPerCourseEarliestRecord(Integer userId);
-
-    List<UserCourseHourRecord> getCoursePerUserEarliestRecord(Integer courseId);
 }
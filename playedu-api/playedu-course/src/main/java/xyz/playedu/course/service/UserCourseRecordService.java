@@ -16,6 +16,7 @@
 package xyz.playedu.course.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import java.util.Date;
 import java.util.List;
 import xyz.playedu.common.types.paginate.PaginationResult;
 import xyz.playedu.common.types.paginate.UserCourseRecordPaginateFilter;
@@ -30,7 +31,11 @@ public interface UserCourseRecordService extends IService<UserCourseRecord> {
 
     UserCourseRecord find(Integer userId, Integer courseId);
 
-    void storeOrUpdate(Integer userId, Integer courseId, Integer hourCount, Integer finishedCount);
+    // 学员第一次学习课程的课时：创建课程记录并记下首次学习时间，已记录过则不变
+    void markStarted(Integer userId, Integer courseId, Date at);
+
+    // 学员看完一个课时：单条语句按课时学习记录重新统计已完成课时数并计算进度，可重复执行，课程已学完时不再变化
+    void finishHour(Integer userId, Integer courseId, Integer hourCount);
 
     List<UserCourseRecord> chunk(Integer userId, List<Integer> courseIds);
 
@@ -49,5 +54,9 @@ public interface UserCourseRecordService extends IService<UserCourseRecord> {
 
     List<UserCourseRecord> chunks(List<Integer> ids, List<String> fields);
 
-    void updateUserCourseLearnProgress(Integer userId, Integer courseId, int count);
+    // 课时学习记录被删除后按剩余记录重新统计已完成课时数与首次学习时间，课时记录全部删除后删除课程记录
+    void recountProgress(Integer userId, Integer courseId);
+
+    // 按主键分批从课时学习记录回填历史课程记录的首次学习时间，只更新已有记录
+    void fillFirstLearnedAt();
 }
@@ -16,6 +16,8 @@
 package xyz.playedu.course.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import java.util.List;
+import xyz.playedu.course.domain.UserLearnDurationDaily;
 import xyz.playedu.course.domain.UserLearnDurationRecord;
 
 /**
@@ -27,4 +29,14 @@ public interface UserLearnDurationRecordService extends IService<UserLearnDurati
     void store(Integer userId, String fromId, String fromScene, Long startTime, Long endTime);
 
     void remove(Integer userId);
+
+    /**
+     * 将早于 retainDays 天的记录归档到每日课程汇总表并删除
+     *
+     * @return 归档的记录数
+     */
+    long compact(int retainDays);
+
+    /** 学员在日期区间内每天各课程的学习时长，合并已归档与未归档的数据 */
+    List<UserLearnDurationDaily> dailyByCourse(Integer userId, String startDate, String endDate);
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import java.util.Map;
+import java.util.function.Supplier;
+import xyz.playedu.course.domain.UserLearningSummary;
+
+public interface UserLearningSummaryService extends IService<UserLearningSummary> {
+    // 持有学员所在分段的汇总读锁执行task，写入之间互不阻塞，只与该分段的重建互斥。原始记录的写入和对应的汇总增量需放在同一个task中，避免重建统计了原始记录后又累加一次
+    <T> T locked(Integer userId, Supplier<T> task);
+
+    // 累加学员学习时长，需在locked中调用
+    void addLearnDuration(Integer userId, Long duration);
+
+    // 累加学员在某课程下的已学习/已完成课时数，需在locked中调用
+    void addCourseProgress(Integer userId, Integer courseId, int learned, int finished);
+
+    // 根据课时学习记录重新计算学员在某课程下的汇总，用于删除记录等无法给出增量的场景
+    void refreshCourse(Integer userId, Integer courseId);
+
+    void removeCourse(Integer userId, Integer courseId);
+
+    // 学员的全部汇总记录，key为课程ID(0为学员维度汇总)
+    Map<Integer, UserLearningSummary> summaries(Integer userId);
+
+    // 学员维度汇总中今日的学习时长
+    Long todayDuration(UserLearningSummary summary);
+
+    // 从原始学习记录按学员ID分段重建，已有重建在执行时返回false
+    boolean rebuild();
+}
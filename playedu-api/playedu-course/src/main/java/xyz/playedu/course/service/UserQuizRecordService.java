@@ -3,7 +3,9 @@ package xyz.playedu.course.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import xyz.playedu.course.domain.UserQuizRecord;
+import xyz.playedu.course.quiz.AnswerLayout;
 
 public interface UserQuizRecordService extends IService<UserQuizRecord> {
     UserQuizRecord getLatest(Integer userId, Integer courseHourId);
@@ -14,11 +16,12 @@ public interface UserQuizRecordService extends IService<UserQuizRecord> {
             Integer courseHourId,
             Integer score,
             boolean passed,
-            String userAnswers);
+            AnswerLayout layout,
+            Map<Integer, List<String>> answers);
 
-        UserQuizRecord findLatestByUserAndQuiz(Integer userId, Integer quizId);
+    UserQuizRecord findLatestByUserAndQuiz(Integer userId, Integer quizId);
 
-        UserQuizRecord saveManualScore(
+    UserQuizRecord saveManualScore(
             Integer userId,
             Integer quizId,
             Integer score,
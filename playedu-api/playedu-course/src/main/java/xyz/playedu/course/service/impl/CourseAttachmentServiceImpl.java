@@ -16,11 +16,14 @@
 package xyz.playedu.course.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import org.springframework.stereotype.Service;
 import xyz.playedu.common.exception.NotFoundException;
+import xyz.playedu.common.util.DataVersion;
 import xyz.playedu.course.domain.CourseAttachment;
 import xyz.playedu.course.mapper.CourseAttachmentMapper;
 import xyz.playedu.course.service.CourseAttachmentService;
@@ -48,6 +51,7 @@ public class CourseAttachmentServiceImpl
         attachment.setTitle(title);
 
         updateById(attachment);
+        DataVersion.bump(DataVersion.COURSE_STRUCTURE, courseAttachment.getCourseId());
     }
 
     @Override
@@ -79,6 +83,7 @@ public class CourseAttachmentServiceImpl
     @Override
     public void remove(Integer courseId) {
         remove(query().getWrapper().eq("course_id", courseId));
+        DataVersion.bump(DataVersion.COURSE_STRUCTURE, courseId);
     }
 
     @Override
@@ -99,6 +104,7 @@ public class CourseAttachmentServiceImpl
                     });
         }
         updateBatchById(attachments);
+        DataVersion.bump(DataVersion.COURSE_STRUCTURE, cid);
     }
 
     @Override
@@ -115,4 +121,31 @@ public class CourseAttachmentServiceImpl
         }
         return list(query().getWrapper().in("id", attachmentIds));
     }
+
+    @Override
+    public boolean save(CourseAttachment entity) {
+        boolean result = super.save(entity);
+        DataVersion.bump(DataVersion.COURSE_STRUCTURE, entity.getCourseId());
+        return result;
+    }
+
+    @Override
+    public boolean saveBatch(Collection<CourseAttachment> entityList, int batchSize) {
+        boolean result = super.saveBatch(entityList, batchSize);
+        entityList.stream()
+                .map(CourseAttachment::getCourseId)
+                .distinct()
+                .forEach(courseId -> DataVersion.bump(DataVersion.COURSE_STRUCTURE, courseId));
+        return result;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        CourseAttachment item = getById(id);
+        boolean result = super.removeById(id);
+        if (item != null) {
+            DataVersion.bump(DataVersion.COURSE_STRUCTURE, item.getCourseId());
+        }
+        return result;
+    }
 }
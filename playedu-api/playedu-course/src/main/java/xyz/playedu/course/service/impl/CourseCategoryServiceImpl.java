@@ -15,9 +15,12 @@
  */
 package xyz.playedu.course.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.stereotype.Service;
+import xyz.playedu.common.util.DataVersion;
 import xyz.playedu.course.domain.CourseCategory;
 import xyz.playedu.course.mapper.CourseCategoryMapper;
 import xyz.playedu.course.service.CourseCategoryService;
@@ -61,4 +64,18 @@ public class CourseCategoryServiceImpl extends ServiceImpl<CourseCategoryMapper,
                 .map(CourseCategory::getCourseId)
                 .toList();
     }
+
+    @Override
+    public boolean saveBatch(Collection<CourseCategory> entityList, int batchSize) {
+        boolean result = super.saveBatch(entityList, batchSize);
+        DataVersion.bump(DataVersion.COURSE_CATEGORIES);
+        return result;
+    }
+
+    @Override
+    public boolean remove(Wrapper<CourseCategory> queryWrapper) {
+        boolean result = super.remove(queryWrapper);
+        DataVersion.bump(DataVersion.COURSE_CATEGORIES);
+        return result;
+    }
 }
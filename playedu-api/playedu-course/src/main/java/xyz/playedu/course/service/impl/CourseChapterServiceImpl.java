@@ -15,12 +15,21 @@
  */
 package xyz.playedu.course.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import xyz.playedu.common.exception.NotFoundException;
+import xyz.playedu.common.util.DataVersion;
+import xyz.playedu.common.util.SortKeys;
 import xyz.playedu.course.domain.CourseChapter;
 import xyz.playedu.course.mapper.CourseChapterMapper;
 import xyz.playedu.course.service.CourseChapterService;
@@ -34,24 +43,38 @@ import xyz.playedu.course.service.CourseChapterService;
 public class CourseChapterServiceImpl extends ServiceImpl<CourseChapterMapper, CourseChapter>
         implements CourseChapterService {
 
+    // 新章节计算排序值时的占位ID
+    private static final Integer NEW_ID = 0;
+
     @Override
+    @Transactional
     public void create(Integer courseId, String name, Integer sort) {
+        // sort 表示插入位置，为空、0或超出已有章节数时追加到末尾
+        Map<Integer, Integer> current = siblings(courseId);
+        Map<Integer, Integer> sorts =
+                SortKeys.insertAt(
+                        new ArrayList<>(current.keySet()),
+                        current,
+                        sort == null || sort <= 0 ? current.size() : sort,
+                        NEW_ID);
+
         CourseChapter chapter = new CourseChapter();
         chapter.setCourseId(courseId);
         chapter.setName(name);
-        chapter.setSort(sort);
+        chapter.setSort(sorts.remove(NEW_ID));
         chapter.setCreatedAt(new Date());
         chapter.setUpdatedAt(new Date());
         save(chapter);
+        updateSorts(sorts);
     }
 
     @Override
-    public void update(CourseChapter chapter, String name, Integer sort) {
+    public void update(CourseChapter chapter, String name) {
         CourseChapter newChapter = new CourseChapter();
         newChapter.setId(chapter.getId());
         newChapter.setName(name);
-        newChapter.setSort(sort);
         updateById(newChapter);
+        DataVersion.bump(DataVersion.COURSE_STRUCTURE, chapter.getCourseId());
     }
 
     @Override
@@ -65,7 +88,8 @@ public class CourseChapterServiceImpl extends ServiceImpl<CourseChapterMapper, C
 
     @Override
     public List<CourseChapter> getChaptersByCourseId(Integer courseId) {
-        return list(query().getWrapper().eq("course_id", courseId).orderByAsc("sort"));
+        return list(
+                query().getWrapper().eq("course_id", courseId).orderByAsc("sort").orderByAsc("id"));
     }
 
     @Override
@@ -78,22 +102,87 @@ public class CourseChapterServiceImpl extends ServiceImpl<CourseChapterMapper, C
     }
 
     @Override
+    @Transactional
     public void updateSort(List<Integer> ids, Integer cid) {
         if (ids == null || ids.size() == 0) {
             return;
         }
-        List<CourseChapter> chapters = new ArrayList<>();
-        final Integer[] sortVal = {0};
-        for (Integer idItem : ids) {
-            chapters.add(
-                    new CourseChapter() {
-                        {
-                            setId(idItem);
-                            setId(cid);
-                            setSort(sortVal[0]++);
-                        }
-                    });
+        Map<Integer, Integer> current =
+                sorts(query().getWrapper().eq("course_id", cid).in("id", ids));
+        List<Integer> order = ids.stream().filter(current::containsKey).distinct().toList();
+        updateSorts(SortKeys.plan(order, current));
+        DataVersion.bump(DataVersion.COURSE_STRUCTURE, cid);
+    }
+
+    @Override
+    @Transactional
+    public void move(Integer courseId, Integer id, Integer afterId) throws NotFoundException {
+        findOrFail(id, courseId);
+        if (Objects.equals(id, afterId)) {
+            return;
         }
+        if (afterId != null && afterId > 0) {
+            findOrFail(afterId, courseId);
+        }
+        Map<Integer, Integer> current = siblings(courseId);
+        updateSorts(
+                SortKeys.plan(
+                        SortKeys.moveAfter(new ArrayList<>(current.keySet()), id, afterId),
+                        current));
+        DataVersion.bump(DataVersion.COURSE_STRUCTURE, courseId);
+    }
+
+    // 课程下章节的 ID => 排序值，按当前顺序
+    private Map<Integer, Integer> siblings(Integer courseId) {
+        return sorts(query().getWrapper().eq("course_id", courseId));
+    }
+
+    private Map<Integer, Integer> sorts(QueryWrapper<CourseChapter> wrapper) {
+        Map<Integer, Integer> sorts = new LinkedHashMap<>();
+        list(wrapper.select("id", "sort").orderByAsc("sort").orderByAsc("id"))
+                .forEach(chapter -> sorts.put(chapter.getId(), chapter.getSort()));
+        return sorts;
+    }
+
+    private void updateSorts(Map<Integer, Integer> sorts) {
+        if (sorts.isEmpty()) {
+            return;
+        }
+        List<CourseChapter> chapters = new ArrayList<>();
+        sorts.forEach(
+                (id, sort) -> {
+                    CourseChapter chapter = new CourseChapter();
+                    chapter.setId(id);
+                    chapter.setSort(sort);
+                    chapters.add(chapter);
+                });
         updateBatchById(chapters);
     }
+
+    @Override
+    public boolean save(CourseChapter entity) {
+        boolean result = super.save(entity);
+        DataVersion.bump(DataVersion.COURSE_STRUCTURE, entity.getCourseId());
+        return result;
+    }
+
+    @Override
+    public boolean saveBatch(Collection<CourseChapter> entityList, int batchSize) {
+        boolean result = super.saveBatch(entityList, batchSize);
+        entityList.stream()
+                .map(CourseChapter::getCourseId)
+                .distinct()
+                .forEach(courseId -> DataVersion.bump(DataVersion.COURSE_STRUCTURE, courseId));
+        return result;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        CourseChapter item = getById(id);
+        boolean result = super.removeById(id);
+        if (item != null) {
+            DataVersion.bump(DataVersion.COURSE_STRUCTURE, item.getCourseId());
+        }
+        return result;
+    }
 }
@@ -15,9 +15,12 @@
  */
 package xyz.playedu.course.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.stereotype.Service;
+import xyz.playedu.common.util.DataVersion;
 import xyz.playedu.course.domain.CourseDepartmentUser;
 import xyz.playedu.course.mapper.CourseDepartmentUserMapper;
 import xyz.playedu.course.service.CourseDepartmentUserService;
@@ -56,4 +59,18 @@ public class CourseDepartmentUserServiceImpl
                 .map(CourseDepartmentUser::getCourseId)
                 .toList();
     }
+
+    @Override
+    public boolean saveBatch(Collection<CourseDepartmentUser> entityList, int batchSize) {
+        boolean result = super.saveBatch(entityList, batchSize);
+        DataVersion.bump(DataVersion.COURSE_DEPARTMENTS);
+        return result;
+    }
+
+    @Override
+    public boolean remove(Wrapper<CourseDepartmentUser> queryWrapper) {
+        boolean result = super.remove(queryWrapper);
+        DataVersion.bump(DataVersion.COURSE_DEPARTMENTS);
+        return result;
+    }
 }
@@ -15,14 +15,22 @@
  */
 package xyz.playedu.course.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import xyz.playedu.common.constant.BackendConstant;
 import xyz.playedu.common.exception.NotFoundException;
+import xyz.playedu.common.util.DataVersion;
+import xyz.playedu.common.util.SortKeys;
 import xyz.playedu.course.domain.CourseHour;
 import xyz.playedu.course.mapper.CourseHourMapper;
 import xyz.playedu.course.service.CourseHourService;
@@ -36,6 +44,11 @@ import xyz.playedu.course.service.CourseHourService;
 public class CourseHourServiceImpl extends ServiceImpl<CourseHourMapper, CourseHour>
         implements CourseHourService {
 
+    private static final int INSERT_BATCH = 500;
+
+    // 新课时计算排序值时的占位ID
+    private static final Integer NEW_ID = 0;
+
     @Override
     public CourseHour findOrFail(Integer id, Integer courseId) throws NotFoundException {
         CourseHour hour = getOne(query().getWrapper().eq("id", id).eq("course_id", courseId));
@@ -49,7 +62,6 @@ public class CourseHourServiceImpl extends ServiceImpl<CourseHourMapper, CourseH
     public void update(
             CourseHour courseHour,
             Integer chapterId,
-            Integer sort,
             String title,
             String type,
             Integer rid,
@@ -58,7 +70,16 @@ public class CourseHourServiceImpl extends ServiceImpl<CourseHourMapper, CourseH
         CourseHour hour = new CourseHour();
         hour.setId(courseHour.getId());
         hour.setChapterId(chapterId);
-        hour.setSort(sort);
+        if (!Objects.equals(chapterId, courseHour.getChapterId())) {
+            Map<Integer, Integer> current = siblings(courseHour.getCourseId(), chapterId);
+            hour.setSort(
+                    SortKeys.insertAt(
+                                    new ArrayList<>(current.keySet()),
+                                    current,
+                                    current.size(),
+                                    NEW_ID)
+                            .get(NEW_ID));
+        }
         hour.setTitle(title);
         hour.setType(type);
         hour.setRid(rid == null ? 0 : rid);
@@ -66,14 +87,17 @@ public class CourseHourServiceImpl extends ServiceImpl<CourseHourMapper, CourseH
         hour.setDuration(duration);
 
         updateById(hour);
+        DataVersion.bump(DataVersion.COURSE_STRUCTURE, courseHour.getCourseId());
     }
 
     @Override
     public List<CourseHour> getHoursByCourseId(Integer courseId) {
-        return list(query().getWrapper().eq("course_id", courseId).orderByAsc("sort"));
+        return list(
+                query().getWrapper().eq("course_id", courseId).orderByAsc("sort").orderByAsc("id"));
     }
 
     @Override
+    @Transactional
     public CourseHour create(
             Integer courseId,
             Integer chapterId,
@@ -94,7 +118,18 @@ public class CourseHourServiceImpl extends ServiceImpl<CourseHourMapper, CourseH
         hour.setDuration(duration);
         hour.setCreatedAt(new Date());
 
+        // sort 表示在章节中的插入位置，为空、0或超出已有课时数时追加到末尾
+        Map<Integer, Integer> current = siblings(courseId, chapterId);
+        Map<Integer, Integer> sorts =
+                SortKeys.insertAt(
+                        new ArrayList<>(current.keySet()),
+                        current,
+                        sort == null || sort <= 0 ? current.size() : sort,
+                        NEW_ID);
+        hour.setSort(sorts.remove(NEW_ID));
+
         save(hour);
+        updateSorts(sorts, null, null);
 
         return hour;
     }
@@ -104,6 +139,14 @@ public class CourseHourServiceImpl extends ServiceImpl<CourseHourMapper, CourseH
         return Math.toIntExact(count(query().getWrapper().eq("course_id", courseId)));
     }
 
+    @Override
+    public void insertBatch(Integer courseId, List<CourseHour> hours) {
+        for (int i = 0; i < hours.size(); i += INSERT_BATCH) {
+            getBaseMapper().insertBatch(hours.subList(i, Math.min(i + INSERT_BATCH, hours.size())));
+        }
+        DataVersion.bump(DataVersion.COURSE_STRUCTURE, courseId);
+    }
+
     @Override
     public Integer getCountByChapterId(Integer chapterId) {
         return Math.toIntExact(count(query().getWrapper().eq("chapter_id", chapterId)));
@@ -112,25 +155,74 @@ public class CourseHourServiceImpl extends ServiceImpl<CourseHourMapper, CourseH
     @Override
     public void remove(Integer courseId, Integer chapterId) {
         remove(query().getWrapper().eq("course_id", courseId).eq("chapter_id", chapterId));
+        DataVersion.bump(DataVersion.COURSE_STRUCTURE, courseId);
     }
 
     @Override
+    @Transactional
     public void updateSort(List<Integer> ids, Integer cid) {
         if (ids == null || ids.size() == 0) {
             return;
         }
-        List<CourseHour> hours = new ArrayList<>();
-        final Integer[] sortVal = {0};
-        for (Integer idVal : ids) {
-            hours.add(
-                    new CourseHour() {
-                        {
-                            setId(idVal);
-                            setCourseId(cid);
-                            setSort(sortVal[0]++);
-                        }
-                    });
+        Map<Integer, Integer> current =
+                sorts(query().getWrapper().eq("course_id", cid).in("id", ids));
+        List<Integer> order = ids.stream().filter(current::containsKey).distinct().toList();
+        updateSorts(SortKeys.plan(order, current), null, null);
+        DataVersion.bump(DataVersion.COURSE_STRUCTURE, cid);
+    }
+
+    @Override
+    @Transactional
+    public void move(Integer courseId, Integer id, Integer chapterId, Integer afterId)
+            throws NotFoundException {
+        CourseHour hour = findOrFail(id, courseId);
+        if (Objects.equals(id, afterId)) {
+            return;
+        }
+        if (afterId != null && afterId > 0) {
+            chapterId = findOrFail(afterId, courseId).getChapterId();
+        } else if (chapterId == null) {
+            chapterId = hour.getChapterId();
+        }
+
+        // 跨章节移动时目标章节中没有该课时，总会分配新的排序值
+        Map<Integer, Integer> current = siblings(courseId, chapterId);
+        Map<Integer, Integer> sorts =
+                SortKeys.plan(
+                        SortKeys.moveAfter(new ArrayList<>(current.keySet()), id, afterId),
+                        current);
+        updateSorts(sorts, Objects.equals(chapterId, hour.getChapterId()) ? null : id, chapterId);
+        DataVersion.bump(DataVersion.COURSE_STRUCTURE, courseId);
+    }
+
+    // 章节下课时的 ID => 排序值，按当前顺序
+    private Map<Integer, Integer> siblings(Integer courseId, Integer chapterId) {
+        return sorts(query().getWrapper().eq("course_id", courseId).eq("chapter_id", chapterId));
+    }
+
+    private Map<Integer, Integer> sorts(QueryWrapper<CourseHour> wrapper) {
+        Map<Integer, Integer> sorts = new LinkedHashMap<>();
+        list(wrapper.select("id", "sort").orderByAsc("sort").orderByAsc("id"))
+                .forEach(hour -> sorts.put(hour.getId(), hour.getSort()));
+        return sorts;
+    }
+
+    // movedId 不为空时同时更新该课时所属章节
+    private void updateSorts(Map<Integer, Integer> sorts, Integer movedId, Integer chapterId) {
+        if (sorts.isEmpty()) {
+            return;
         }
+        List<CourseHour> hours = new ArrayList<>();
+        sorts.forEach(
+                (id, sort) -> {
+                    CourseHour hour = new CourseHour();
+                    hour.setId(id);
+                    hour.setSort(sort);
+                    if (Objects.equals(id, movedId)) {
+                        hour.setChapterId(chapterId);
+                    }
+                    hours.add(hour);
+                });
         updateBatchById(hours);
     }
 
@@ -158,4 +250,31 @@ public class CourseHourServiceImpl extends ServiceImpl<CourseHourMapper, CourseH
         }
         return list(query().getWrapper().in("id", hourIds));
     }
+
+    @Override
+    public boolean save(CourseHour entity) {
+        boolean result = super.save(entity);
+        DataVersion.bump(DataVersion.COURSE_STRUCTURE, entity.getCourseId());
+        return result;
+    }
+
+    @Override
+    public boolean saveBatch(Collection<CourseHour> entityList, int batchSize) {
+        boolean result = super.saveBatch(entityList, batchSize);
+        entityList.stream()
+                .map(CourseHour::getCourseId)
+                .distinct()
+                .forEach(courseId -> DataVersion.bump(DataVersion.COURSE_STRUCTURE, courseId));
+        return result;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        CourseHour item = getById(id);
+        boolean result = super.removeById(id);
+        if (item != null) {
+            DataVersion.bump(DataVersion.COURSE_STRUCTURE, item.getCourseId());
+        }
+        return result;
+    }
 }
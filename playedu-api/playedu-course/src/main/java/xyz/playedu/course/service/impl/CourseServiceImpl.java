@@ -16,7 +16,9 @@
 package xyz.playedu.course.service.impl;
 
 import cn.hutool.core.date.DateUtil;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import java.io.Serializable;
 import java.util.*;
 import java.util.stream.Collectors;
 import lombok.SneakyThrows;
@@ -24,9 +26,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import xyz.playedu.common.exception.NotFoundException;
+import xyz.playedu.common.search.NgramIndex;
+import xyz.playedu.common.search.SearchIndexProvider;
 import xyz.playedu.common.types.paginate.CoursePaginateFiler;
 import xyz.playedu.common.types.paginate.PaginationResult;
+import xyz.playedu.common.util.DataVersion;
 import xyz.playedu.common.util.StringUtil;
+import xyz.playedu.common.util.TransactionUtil;
+import xyz.playedu.course.caches.CourseHourCountCache;
 import xyz.playedu.course.domain.Course;
 import xyz.playedu.course.domain.CourseCategory;
 import xyz.playedu.course.domain.CourseDepartmentUser;
@@ -41,17 +48,29 @@ import xyz.playedu.course.service.CourseService;
  * @createDate 2023-02-24 14:14:01
  */
 @Service
-public class CourseServiceImpl extends ServiceImpl<CourseMapper, Course> implements CourseService {
+public class CourseServiceImpl extends ServiceImpl<CourseMapper, Course>
+        implements CourseService, SearchIndexProvider {
 
     @Autowired private CourseDepartmentUserService courseDepartmentUserService;
 
     @Autowired private CourseCategoryService courseCategoryService;
 
+    @Autowired private CourseHourCountCache courseHourCountCache;
+
+    // 课程标题搜索索引
+    private final NgramIndex titleIndex = new NgramIndex();
+
     @Override
     public PaginationResult<Course> paginate(int page, int size, CoursePaginateFiler filter) {
         filter.setPageStart((page - 1) * size);
         filter.setPageSize(size);
 
+        List<Integer> ids = NgramIndex.toIdFilter(titleIndex.search(filter.getTitle()));
+        if (ids != null) {
+            filter.setIds(ids);
+            filter.setTitle(null);
+        }
+
         PaginationResult<Course> pageResult = new PaginationResult<>();
         pageResult.setData(getBaseMapper().paginate(filter));
         pageResult.setTotal(getBaseMapper().paginateCount(filter));
@@ -197,6 +216,12 @@ public class CourseServiceImpl extends ServiceImpl<CourseMapper, Course> impleme
         updateById(course);
     }
 
+    @Override
+    public void incrementClassHour(Integer courseId, Integer delta) {
+        getBaseMapper().incrementClassHour(courseId, delta);
+        DataVersion.bump(DataVersion.COURSES);
+    }
+
     @Override
     public void removeCategoryIdRelate(Integer categoryId) {
         courseCategoryService.removeByCategoryId(categoryId);
@@ -313,4 +338,57 @@ public class CourseServiceImpl extends ServiceImpl<CourseMapper, Course> impleme
     public Long total() {
         return count();
     }
+
+    @Override
+    public void rebuildSearchIndex() {
+        titleIndex.rebuild(
+                () -> {
+                    Map<Integer, String> data = new HashMap<>();
+                    query().select("id", "title")
+                            .list()
+                            .forEach(course -> data.put(course.getId(), course.getTitle()));
+                    return data;
+                });
+    }
+
+    @Override
+    public boolean save(Course entity) {
+        boolean result = super.save(entity);
+        TransactionUtil.afterCommit(() -> titleIndex.put(entity.getId(), entity.getTitle()));
+        DataVersion.bump(DataVersion.COURSES);
+        return result;
+    }
+
+    @Override
+    public boolean updateById(Course entity) {
+        boolean result = super.updateById(entity);
+        if (entity.getTitle() != null) {
+            TransactionUtil.afterCommit(() -> titleIndex.put(entity.getId(), entity.getTitle()));
+        }
+        DataVersion.bump(DataVersion.COURSES);
+        return result;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        TransactionUtil.afterCommit(() -> titleIndex.remove((Integer) id));
+        DataVersion.bump(DataVersion.COURSES);
+        courseHourCountCache.evict((Integer) id);
+        return result;
+    }
+
+    @Override
+    public boolean update(Course entity, Wrapper<Course> updateWrapper) {
+        boolean result = super.update(entity, updateWrapper);
+        rebuildSearchIndexAfterCommit();
+        return result;
+    }
+
+    @Override
+    public boolean remove(Wrapper<Course> queryWrapper) {
+        boolean result = super.remove(queryWrapper);
+        rebuildSearchIndexAfterCommit();
+        return result;
+    }
 }
@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import xyz.playedu.common.domain.Department;
+import xyz.playedu.common.domain.UserDepartment;
+import xyz.playedu.common.service.DepartmentService;
+import xyz.playedu.common.service.UserDepartmentService;
+import xyz.playedu.course.domain.DepartmentCourseDaily;
+import xyz.playedu.course.domain.UserCourseHourRecord;
+import xyz.playedu.course.domain.UserCourseRecord;
+import xyz.playedu.course.domain.UserLearnDurationDaily;
+import xyz.playedu.course.domain.UserLearnDurationRecord;
+import xyz.playedu.course.mapper.DepartmentCourseDailyMapper;
+import xyz.playedu.course.mapper.UserCourseHourRecordMapper;
+import xyz.playedu.course.mapper.UserCourseRecordMapper;
+import xyz.playedu.course.mapper.UserLearnDurationDailyMapper;
+import xyz.playedu.course.mapper.UserLearnDurationRecordMapper;
+import xyz.playedu.course.service.DepartmentCourseDailyService;
+
+/**
+ * 部门×课程×日期学习汇总。
+ *
+ * <p>按天重算：分批读取当天开始学习、学完课程、学完课时的记录与学习时长，按学员当前所属部门及其全部上级部门累加，同一学员在多个部门下时上级部门只计一次；dep_id=0 为全部学员。
+ */
+@Service
+@Slf4j
+public class DepartmentCourseDailyServiceImpl
+        extends ServiceImpl<DepartmentCourseDailyMapper, DepartmentCourseDaily>
+        implements DepartmentCourseDailyService {
+
+    private static final int CHUNK_SIZE = 5000;
+
+    /** 学习时长按学员ID区间分批汇总，每批覆盖的ID跨度 */
+    private static final int USER_RANGE = 2000;
+
+    private static final int INSERT_BATCH = 500;
+
+    private static final int STARTED = 0;
+    private static final int FINISHED = 1;
+    private static final int FINISHED_HOUR = 2;
+    private static final int DURATION = 3;
+
+    @Autowired private UserCourseRecordMapper userCourseRecordMapper;
+
+    @Autowired private UserCourseHourRecordMapper userCourseHourRecordMapper;
+
+    @Autowired private UserLearnDurationRecordMapper userLearnDurationRecordMapper;
+
+    @Autowired private UserLearnDurationDailyMapper userLearnDurationDailyMapper;
+
+    @Autowired private UserDepartmentService userDepartmentService;
+
+    @Autowired private DepartmentService departmentService;
+
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Value("${playedu.analytics.backfill-days:90}")
+    private int backfillDays;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /** 一次重算过程中的累加状态 */
+    private final class Cube {
+        // 部门ID -> 该部门及其全部上级部门
+        private final Map<Integer, int[]> chains = new HashMap<>();
+
+        // 学员ID -> 需要累加的部门(去重，含0)
+        private final Map<Integer, int[]> scopes = new HashMap<>();
+
+        // (部门ID<<32 | 课程ID) -> 各项指标
+        private final Map<Long, long[]> cells = new HashMap<>();
+
+        Cube() {
+            for (Department department : departmentService.all()) {
+                String chain = department.getParentChain();
+                String[] parents =
+                        chain == null || chain.isEmpty() ? new String[0] : chain.split(",");
+                int[] ids = new int[parents.length + 1];
+                for (int i = 0; i < parents.length; i++) {
+                    ids[i] = Integer.parseInt(parents[i]);
+                }
+                ids[parents.length] = department.getId();
+                chains.put(department.getId(), ids);
+            }
+        }
+
+        // 加载本批次中尚未缓存的学员部门
+        void loadScopes(Set<Integer> userIds) {
+            List<Integer> missing = new ArrayList<>();
+            for (Integer userId : userIds) {
+                if (!scopes.containsKey(userId)) {
+                    missing.add(userId);
+                }
+            }
+            if (missing.isEmpty()) {
+                return;
+            }
+
+            Map<Integer, Set<Integer>> depIds = new HashMap<>();
+            List<UserDepartment> relations =
+                    userDepartmentService.list(
+                            userDepartmentService.query().getWrapper().in("user_id", missing));
+            for (UserDepartment relation : relations) {
+                int[] chain = chains.get(relation.getDepId());
+                if (chain == null) {
+                    continue;
+                }
+                Set<Integer> set =
+                        depIds.computeIfAbsent(relation.getUserId(), k -> new HashSet<>());
+                for (int id : chain) {
+                    set.add(id);
+                }
+            }
+
+            for (Integer userId : missing) {
+                Set<Integer> set = depIds.getOrDefault(userId, Set.of());
+                int[] scope = new int[set.size() + 1];
+                int i = 1;
+                for (Integer id : set) {
+                    scope[i++] = id;
+                }
+                scopes.put(userId, scope);
+            }
+        }
+
+        void add(Integer userId, Integer courseId, int metric, long value) {
+            for (int depId : scopes.get(userId)) {
+                long key = ((long) depId << 32) | (courseId & 0xffffffffL);
+                cells.computeIfAbsent(key, k -> new long[4])[metric] += value;
+            }
+        }
+    }
+
+    @Override
+    public synchronized int rollup(LocalDate date) {
+        long begin = System.currentTimeMillis();
+        Date start = Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Date end = Date.from(date.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Cube cube = new Cube();
+
+        // 开始学习
+        Date lastAt = start;
+        int lastId = 0;
+        while (true) {
+            List<UserCourseRecord> rows =
+                    userCourseRecordMapper.startedChunk(lastAt, lastId, end, CHUNK_SIZE);
+            if (rows.isEmpty()) {
+                break;
+            }
+            cube.loadScopes(
+                    rows.stream().map(UserCourseRecord::getUserId).collect(Collectors.toSet()));
+            for (UserCourseRecord row : rows) {
+                cube.add(row.getUserId(), row.getCourseId(), STARTED, 1);
+            }
+            UserCourseRecord last = rows.get(rows.size() - 1);
+            lastAt = last.getFirstLearnedAt();
+            lastId = last.getId();
+        }
+
+        // 学完课程
+        lastAt = start;
+        lastId = 0;
+        while (true) {
+            List<UserCourseRecord> rows =
+                    userCourseRecordMapper.finishedChunk(lastAt, lastId, end, CHUNK_SIZE);
+            if (rows.isEmpty()) {
+                break;
+            }
+            cube.loadScopes(
+                    rows.stream().map(UserCourseRecord::getUserId).collect(Collectors.toSet()));
+            for (UserCourseRecord row : rows) {
+                cube.add(row.getUserId(), row.getCourseId(), FINISHED, 1);
+            }
+            UserCourseRecord last = rows.get(rows.size() - 1);
+            lastAt = last.getFinishedAt();
+            lastId = last.getId();
+        }
+
+        // 学完课时
+        lastAt = start;
+        lastId = 0;
+        while (true) {
+            List<UserCourseHourRecord> rows =
+                    userCourseHourRecordMapper.finishedChunk(lastAt, lastId, end, CHUNK_SIZE);
+            if (rows.isEmpty()) {
+                break;
+            }
+            cube.loadScopes(
+                    rows.stream().map(UserCourseHourRecord::getUserId).collect(Collectors.toSet()));
+            for (UserCourseHourRecord row : rows) {
+                cube.add(row.getUserId(), row.getCourseId(), FINISHED_HOUR, 1);
+            }
+            UserCourseHourRecord last = rows.get(rows.size() - 1);
+            lastAt = last.getFinishedAt();
+            lastId = last.getId();
+        }
+
+        // 学习时长：保留期内在明细表，更早的已归档到每日汇总表，两边都读
+        String day = date.toString();
+        int[] range = durationUserRange(day);
+        for (int from = range[0]; from <= range[1]; from += USER_RANGE) {
+            int to = from + USER_RANGE - 1;
+            List<UserLearnDurationDaily> rows = new ArrayList<>();
+            rows.addAll(userLearnDurationRecordMapper.sumByUserRange(day, from, to));
+            rows.addAll(
+                    userLearnDurationDailyMapper.selectList(
+                            new QueryWrapper<UserLearnDurationDaily>()
+                                    .select("user_id", "course_id", "duration")
+                                    .eq("created_date", day)
+                                    .between("user_id", from, to)));
+            if (rows.isEmpty()) {
+                continue;
+            }
+            cube.loadScopes(
+                    rows.stream()
+                            .map(UserLearnDurationDaily::getUserId)
+                            .collect(Collectors.toSet()));
+            for (UserLearnDurationDaily row : rows) {
+                cube.add(row.getUserId(), row.getCourseId(), DURATION, row.getDuration());
+            }
+        }
+
+        Date now = new Date();
+        Date createdDate = start;
+        List<DepartmentCourseDaily> records = new ArrayList<>(cube.cells.size());
+        cube.cells.forEach(
+                (key, values) -> {
+                    DepartmentCourseDaily record = new DepartmentCourseDaily();
+                    record.setDepId((int) (key >>> 32));
+                    record.setCourseId((int) (long) key);
+                    record.setCreatedDate(createdDate);
+                    record.setStartedCount((int) values[STARTED]);
+                    record.setFinishedCount((int) values[FINISHED]);
+                    record.setFinishedHourCount((int) values[FINISHED_HOUR]);
+                    record.setDuration(values[DURATION]);
+                    record.setUpdatedAt(now);
+                    records.add(record);
+                });
+
+        // 当天数据整体替换，查询方不会读到只写了一半的结果
+        transactionTemplate.executeWithoutResult(
+                status -> {
+                    remove(new QueryWrapper<DepartmentCourseDaily>().eq("created_date", day));
+                    for (int i = 0; i < records.size(); i += INSERT_BATCH) {
+                        getBaseMapper()
+                                .insertBatch(
+                                        records.subList(
+                                                i, Math.min(i + INSERT_BATCH, records.size())));
+                    }
+                });
+
+        log.info(
+                "部门课程学习汇总完成,date={},学员数={},行数={},耗时={}ms",
+                day,
+                cube.scopes.size(),
+                records.size(),
+                System.currentTimeMillis() - begin);
+        return records.size();
+    }
+
+    // 当天有学习时长的学员ID范围，两张表都走 d_u 索引
+    private int[] durationUserRange(String day) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        results.addAll(
+                userLearnDurationRecordMapper.selectMaps(
+                        new QueryWrapper<UserLearnDurationRecord>()
+                                .select("MIN(user_id) AS min_id", "MAX(user_id) AS max_id")
+                                .eq("created_date", day)));
+        results.addAll(
+                userLearnDurationDailyMapper.selectMaps(
+                        new QueryWrapper<UserLearnDurationDaily>()
+                                .select("MIN(user_id) AS min_id", "MAX(user_id) AS max_id")
+                                .eq("created_date", day)));
+
+        int min = Integer.MAX_VALUE;
+        int max = -1;
+        for (Map<String, Object> row : results) {
+            if (row == null || row.get("max_id") == null) {
+                continue;
+            }
+            min = Math.min(min, ((Number) row.get("min_id")).intValue());
+            max = Math.max(max, ((Number) row.get("max_id")).intValue());
+        }
+        return new int[] {min, max};
+    }
+
+    @Override
+    public List<DepartmentCourseDaily> sumByDepartment(
+            Integer courseId, String startDate, String endDate) {
+        return getBaseMapper().sumByDepartment(courseId, startDate, endDate);
+    }
+
+    @Override
+    public List<DepartmentCourseDaily> daily(
+            Integer depId, Integer courseId, String startDate, String endDate) {
+        return list(
+                query().getWrapper()
+                        .eq("dep_id", depId)
+                        .eq("course_id", courseId)
+                        .between("created_date", startDate, endDate)
+                        .orderByAsc("created_date"));
+    }
+
+    @Override
+    public void backfill(int days) {
+        LocalDate today = LocalDate.now();
+        for (int i = days; i >= 0; i--) {
+            try {
+                rollup(today.minusDays(i));
+            } catch (Exception e) {
+                log.error("部门课程学习汇总回填失败,date={}", today.minusDays(i), e);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        // 首次部署时汇总表为空，后台回填最近 backfill-days 天
+        if (backfillDays > 0 && isEmpty()) {
+            CompletableFuture.runAsync(() -> backfill(backfillDays));
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getBaseMapper()
+                .selectObjs(
+                        new QueryWrapper<DepartmentCourseDaily>().select("dep_id").last("LIMIT 1"))
+                .isEmpty();
+    }
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.service.impl;
+
+import cn.hutool.core.date.DateUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import xyz.playedu.common.constant.BackendConstant;
+import xyz.playedu.common.domain.Department;
+import xyz.playedu.common.exception.NotFoundException;
+import xyz.playedu.common.service.DepartmentService;
+import xyz.playedu.common.util.StringUtil;
+import xyz.playedu.common.util.TransactionUtil;
+import xyz.playedu.course.domain.Course;
+import xyz.playedu.course.domain.ExportJob;
+import xyz.playedu.course.export.SheetWriter;
+import xyz.playedu.course.mapper.ExportJobMapper;
+import xyz.playedu.course.mapper.UserCourseRecordMapper;
+import xyz.playedu.course.service.CourseService;
+import xyz.playedu.course.service.ExportJobService;
+import xyz.playedu.course.types.LearnProgressExportRow;
+
+@Service
+@Slf4j
+public class ExportJobServiceImpl extends ServiceImpl<ExportJobMapper, ExportJob>
+        implements ExportJobService {
+
+    private static final List<String> HEAD =
+            List.of(
+                    "学员ID", "姓名", "邮箱", "部门", "课程ID", "课程", "课时数", "已完成课时", "进度(%)", "是否学完",
+                    "首次学习时间", "最近学习时间", "学完时间", "练习最高分", "练习及格次数");
+
+    /** 每导出多少行记录一次进度 */
+    private static final int PROGRESS_EVERY = 5000;
+
+    /** 导出中的任务超过该时长(毫秒)没有进度视为已中断 */
+    private static final long STALE_MS = 10 * 60 * 1000L;
+
+    @Autowired private UserCourseRecordMapper userCourseRecordMapper;
+
+    @Autowired private CourseService courseService;
+
+    @Autowired private DepartmentService departmentService;
+
+    @Value("${playedu.export.dir:}")
+    private String dir;
+
+    @Value("${playedu.export.retain-hours:24}")
+    private int retainHours;
+
+    private File baseDir;
+
+    // 导出任务串行执行，避免多个全量导出同时占用数据库连接
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(
+                    r -> {
+                        Thread thread = new Thread(r, "export-job");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    private final AtomicLong finishedJobs = new AtomicLong(0);
+
+    private final AtomicLong failedJobs = new AtomicLong(0);
+
+    private final AtomicLong exportedRows = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        baseDir =
+                StringUtil.isEmpty(dir)
+                        ? new File(System.getProperty("java.io.tmpdir"), "playedu-export")
+                        : new File(dir);
+        if (!baseDir.exists() && !baseDir.mkdirs()) {
+            log.error("导出目录创建失败,dir={}", baseDir.getAbsolutePath());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public ExportJob create(String type, Integer targetId, String format, Integer adminId)
+            throws NotFoundException {
+        if (BackendConstant.EXPORT_JOB_TYPE_COURSE.equals(type)) {
+            courseService.findOrFail(targetId);
+        } else if (BackendConstant.EXPORT_JOB_TYPE_DEPARTMENT.equals(type)) {
+            departmentService.findOrFail(targetId);
+        } else if (BackendConstant.EXPORT_JOB_TYPE_ALL.equals(type)) {
+            targetId = 0;
+        } else {
+            throw new IllegalArgumentException("未知的导出类型:" + type);
+        }
+        if (!BackendConstant.EXPORT_FORMAT_XLSX.equals(format)) {
+            format = BackendConstant.EXPORT_FORMAT_CSV;
+        }
+
+        Date now = new Date();
+        ExportJob job = new ExportJob();
+        job.setType(type);
+        job.setTargetId(targetId);
+        job.setFormat(format);
+        job.setStatus(BackendConstant.EXPORT_JOB_STATUS_PENDING);
+        job.setTotalRows(0L);
+        job.setProcessedRows(0L);
+        job.setFileName("");
+        job.setFileSize(0L);
+        job.setAdminId(adminId);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        save(job);
+
+        TransactionUtil.afterCommit(this::dispatch);
+        return job;
+    }
+
+    @Override
+    public ExportJob findOrFail(Integer id) throws NotFoundException {
+        ExportJob job = getById(id);
+        if (job == null) {
+            throw new NotFoundException("导出任务不存在");
+        }
+        return job;
+    }
+
+    @Override
+    public File file(ExportJob job) {
+        if (job.getStatus() != BackendConstant.EXPORT_JOB_STATUS_FINISHED) {
+            return null;
+        }
+        File file = localFile(job);
+        return file.exists() ? file : null;
+    }
+
+    @Override
+    public void runPending() {
+        // 进程退出等原因中断的任务不会再有进度，置为失败由管理员重新发起
+        ExportJob stale = new ExportJob();
+        stale.setStatus(BackendConstant.EXPORT_JOB_STATUS_FAILED);
+        stale.setErrorMessage("导出中断,请重新导出");
+        stale.setUpdatedAt(new Date());
+        update(
+                stale,
+                query().getWrapper()
+                        .eq("status", BackendConstant.EXPORT_JOB_STATUS_RUNNING)
+                        .lt("updated_at", new Date(System.currentTimeMillis() - STALE_MS)));
+
+        dispatch();
+    }
+
+    @Override
+    public void cleanExpired() {
+        Date expiredAt = new Date(System.currentTimeMillis() - retainHours * 3600_000L);
+        List<ExportJob> jobs =
+                list(
+                        query().getWrapper()
+                                .lt("created_at", expiredAt)
+                                .ne("status", BackendConstant.EXPORT_JOB_STATUS_RUNNING));
+        for (ExportJob job : jobs) {
+            File file = localFile(job);
+            if (file.exists() && !file.delete()) {
+                log.error("导出文件删除失败,path={}", file.getAbsolutePath());
+                continue;
+            }
+            removeById(job.getId());
+        }
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> data = new HashMap<>();
+        data.put(
+                "pending_jobs",
+                count(
+                        query().getWrapper()
+                                .eq("status", BackendConstant.EXPORT_JOB_STATUS_PENDING)));
+        data.put("finished_jobs", finishedJobs.get());
+        data.put("failed_jobs", failedJobs.get());
+        data.put("exported_rows", exportedRows.get());
+        return data;
+    }
+
+    private void dispatch() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(
+                () -> {
+                    try {
+                        drain();
+                    } finally {
+                        draining.set(false);
+                    }
+                });
+    }
+
+    private void drain() {
+        while (!Thread.currentThread().isInterrupted()) {
+            ExportJob job =
+                    getOne(
+                            query().getWrapper()
+                                    .eq("status", BackendConstant.EXPORT_JOB_STATUS_PENDING)
+                                    .orderByAsc("id")
+                                    .last("LIMIT 1"));
+            if (job == null) {
+                return;
+            }
+
+            // 多实例部署时只有抢到任务的实例执行
+            ExportJob running = new ExportJob();
+            running.setStatus(BackendConstant.EXPORT_JOB_STATUS_RUNNING);
+            running.setUpdatedAt(new Date());
+            boolean claimed =
+                    update(
+                            running,
+                            query().getWrapper()
+                                    .eq("id", job.getId())
+                                    .eq("status", BackendConstant.EXPORT_JOB_STATUS_PENDING));
+            if (!claimed) {
+                continue;
+            }
+
+            try {
+                run(job);
+                finishedJobs.incrementAndGet();
+            } catch (Exception e) {
+                failedJobs.incrementAndGet();
+                log.error("导出任务执行失败,id={},错误信息:{}", job.getId(), e.getMessage(), e);
+                File file = localFile(job);
+                if (file.exists() && !file.delete()) {
+                    log.error("导出文件删除失败,path={}", file.getAbsolutePath());
+                }
+                ExportJob failed = new ExportJob();
+                failed.setId(job.getId());
+                failed.setStatus(BackendConstant.EXPORT_JOB_STATUS_FAILED);
+                failed.setErrorMessage(e.getMessage());
+                failed.setUpdatedAt(new Date());
+                updateById(failed);
+            }
+        }
+    }
+
+    private void run(ExportJob job) throws IOException {
+        long start = System.currentTimeMillis();
+
+        // 导出范围
+        Integer courseId = null;
+        List<Integer> depIds = null;
+        boolean withNotStarted = false;
+        String scopeName = "全部";
+        if (BackendConstant.EXPORT_JOB_TYPE_COURSE.equals(job.getType())) {
+            courseId = job.getTargetId();
+            depIds = courseService.getDepIdsByCourseId(courseId);
+            withNotStarted = true;
+            scopeName = "课程" + courseId;
+        } else if (BackendConstant.EXPORT_JOB_TYPE_DEPARTMENT.equals(job.getType())) {
+            depIds = departmentWithChildren(job.getTargetId());
+            scopeName = "部门" + job.getTargetId();
+        }
+
+        long total = userCourseRecordMapper.countProgressExport(courseId, depIds, withNotStarted);
+        String fileName =
+                "学习进度-"
+                        + scopeName
+                        + "-"
+                        + DateUtil.format(job.getCreatedAt(), "yyyyMMddHHmmss")
+                        + "."
+                        + job.getFormat();
+        ExportJob begin = new ExportJob();
+        begin.setId(job.getId());
+        begin.setTotalRows(total);
+        begin.setFileName(fileName);
+        begin.setUpdatedAt(new Date());
+        updateById(begin);
+
+        // 部门路径与课程名称一次性读入内存，逐行查找
+        Map<Integer, String> depPaths = departmentPaths();
+        Map<Integer, String> courseTitles =
+                courseService.list(new QueryWrapper<Course>().select("id", "title")).stream()
+                        .collect(Collectors.toMap(Course::getId, Course::getTitle));
+
+        File file = localFile(job);
+        long[] processed = {0};
+        try (SheetWriter writer = SheetWriter.open(job.getFormat(), file, HEAD)) {
+            userCourseRecordMapper.streamProgressExport(
+                    courseId,
+                    depIds,
+                    withNotStarted,
+                    context -> {
+                        try {
+                            writer.write(
+                                    toCells(context.getResultObject(), depPaths, courseTitles));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        processed[0]++;
+                        if (processed[0] % PROGRESS_EVERY == 0) {
+                            // 流式结果集占用着当前连接，进度更新走连接池中的另一条连接
+                            ExportJob progress = new ExportJob();
+                            progress.setId(job.getId());
+                            progress.setProcessedRows(processed[0]);
+                            progress.setUpdatedAt(new Date());
+                            updateById(progress);
+                        }
+                    });
+        }
+        exportedRows.addAndGet(processed[0]);
+
+        Date now = new Date();
+        ExportJob finished = new ExportJob();
+        finished.setId(job.getId());
+        finished.setStatus(BackendConstant.EXPORT_JOB_STATUS_FINISHED);
+        finished.setProcessedRows(processed[0]);
+        finished.setFileSize(file.length());
+        finished.setUpdatedAt(now);
+        finished.setFinishedAt(now);
+        updateById(finished);
+
+        log.info(
+                "导出任务完成,id={},type={},targetId={},行数={},耗时={}ms",
+                job.getId(),
+                job.getType(),
+                job.getTargetId(),
+                processed[0],
+                System.currentTimeMillis() - start);
+    }
+
+    private List<String> toCells(
+            LearnProgressExportRow row,
+            Map<Integer, String> depPaths,
+            Map<Integer, String> courseTitles) {
+        String deps = "";
+        if (StringUtil.isNotEmpty(row.getDepIds())) {
+            List<String> paths = new ArrayList<>();
+            for (String depId : row.getDepIds().split(",")) {
+                String path = depPaths.get(Integer.valueOf(depId));
+                if (path != null) {
+                    paths.add(path);
+                }
+            }
+            deps = String.join(";", paths);
+        }
+
+        boolean started = row.getHourCount() != null;
+        List<String> cells = new ArrayList<>(HEAD.size());
+        cells.add(String.valueOf(row.getUserId()));
+        cells.add(SheetWriter.text(row.getName()));
+        cells.add(SheetWriter.text(row.getEmail()));
+        cells.add(SheetWriter.text(deps));
+        cells.add(String.valueOf(row.getCourseId()));
+        cells.add(SheetWriter.text(courseTitles.getOrDefault(row.getCourseId(), "")));
+        cells.add(started ? String.valueOf(row.getHourCount()) : "");
+        cells.add(started ? String.valueOf(row.getFinishedCount()) : "0");
+        cells.add(started ? String.format("%.2f", row.getProgress() / 100.0) : "0.00");
+        cells.add(started && row.getIsFinished() == 1 ? "是" : "否");
+        cells.add(datetime(row.getFirstLearnedAt()));
+        cells.add(datetime(row.getLastLearnedAt()));
+        cells.add(datetime(row.getFinishedAt()));
+        cells.add(row.getQuizBestScore() == null ? "" : String.valueOf(row.getQuizBestScore()));
+        cells.add(
+                row.getQuizPassedCount() == null ? "0" : String.valueOf(row.getQuizPassedCount()));
+        return cells;
+    }
+
+    private static String datetime(Date date) {
+        return date == null ? "" : DateUtil.formatDateTime(date);
+    }
+
+    private File localFile(ExportJob job) {
+        return new File(baseDir, job.getId() + "." + job.getFormat());
+    }
+
+    /** 部门ID => 完整路径，如 总部/研发部/后端组 */
+    private Map<Integer, String> departmentPaths() {
+        Map<Integer, String> names = departmentService.id2name();
+        Map<Integer, String> paths = new HashMap<>();
+        for (Department department : departmentService.all()) {
+            StringBuilder path = new StringBuilder();
+            if (StringUtil.isNotEmpty(department.getParentChain())) {
+                for (String parentId : department.getParentChain().split(",")) {
+                    String name = names.get(Integer.valueOf(parentId));
+                    if (name != null) {
+                        path.append(name).append("/");
+                    }
+                }
+            }
+            paths.put(department.getId(), path.append(department.getName()).toString());
+        }
+        return paths;
+    }
+
+    /** 部门及其全部子部门 */
+    private List<Integer> departmentWithChildren(Integer depId) {
+        List<Integer> ids = new ArrayList<>();
+        ids.add(depId);
+        for (Department department : departmentService.all()) {
+            String chain = department.getParentChain();
+            if (StringUtil.isEmpty(chain)) {
+                continue;
+            }
+            for (String parentId : chain.split(",")) {
+                if (parentId.equals(String.valueOf(depId))) {
+                    ids.add(department.getId());
+                    break;
+                }
+            }
+        }
+        return ids;
+    }
+}
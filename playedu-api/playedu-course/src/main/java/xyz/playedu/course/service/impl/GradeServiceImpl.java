@@ -122,6 +122,12 @@ public class GradeServiceImpl implements GradeService {
         List<UserQuizRecord> records =
             userQuizRecordService
                 .lambdaQuery()
+                .select(
+                        UserQuizRecord::getId,
+                        UserQuizRecord::getUserId,
+                        UserQuizRecord::getScore,
+                        UserQuizRecord::getIsPassed,
+                        UserQuizRecord::getCreatedAt)
                 .eq(UserQuizRecord::getQuizId, quizId)
                 .list();
 
@@ -162,6 +168,11 @@ public class GradeServiceImpl implements GradeService {
         var query =
                 userQuizRecordService
                         .lambdaQuery()
+                        .select(
+                                UserQuizRecord::getQuizId,
+                                UserQuizRecord::getScore,
+                                UserQuizRecord::getIsPassed,
+                                UserQuizRecord::getCreatedAt)
                         .eq(UserQuizRecord::getUserId, userId)
                         .orderByAsc(UserQuizRecord::getCreatedAt);
         if (startDate != null) {
@@ -1,6 +1,8 @@
 package xyz.playedu.course.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -8,13 +10,19 @@ import java.util.List;
 import java.util.Map;
 import org.springframework.stereotype.Service;
 import xyz.playedu.common.exception.NotFoundException;
+import xyz.playedu.common.search.NgramIndex;
+import xyz.playedu.common.search.SearchIndexProvider;
+import xyz.playedu.common.util.TransactionUtil;
 import xyz.playedu.course.domain.Question;
 import xyz.playedu.course.mapper.QuestionMapper;
 import xyz.playedu.course.service.QuestionService;
 
 @Service
 public class QuestionServiceImpl extends ServiceImpl<QuestionMapper, Question>
-        implements QuestionService {
+        implements QuestionService, SearchIndexProvider {
+
+    // 题干搜索索引
+    private final NgramIndex contentIndex = new NgramIndex();
 
     @Override
     public Question findOrFail(Integer id) throws NotFoundException {
@@ -84,4 +92,59 @@ public class QuestionServiceImpl extends ServiceImpl<QuestionMapper, Question>
         }
         return ordered;
     }
+
+    @Override
+    public List<Integer> searchIds(String keyword) {
+        return NgramIndex.toIdFilter(contentIndex.search(keyword));
+    }
+
+    @Override
+    public void rebuildSearchIndex() {
+        contentIndex.rebuild(
+                () -> {
+                    Map<Integer, String> data = new HashMap<>();
+                    query().select("id", "content")
+                            .list()
+                            .forEach(question -> data.put(question.getId(), question.getContent()));
+                    return data;
+                });
+    }
+
+    @Override
+    public boolean save(Question entity) {
+        boolean result = super.save(entity);
+        TransactionUtil.afterCommit(() -> contentIndex.put(entity.getId(), entity.getContent()));
+        return result;
+    }
+
+    @Override
+    public boolean updateById(Question entity) {
+        boolean result = super.updateById(entity);
+        if (entity.getContent() != null) {
+            TransactionUtil.afterCommit(
+                    () -> contentIndex.put(entity.getId(), entity.getContent()));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        TransactionUtil.afterCommit(() -> contentIndex.remove((Integer) id));
+        return result;
+    }
+
+    @Override
+    public boolean update(Question entity, Wrapper<Question> updateWrapper) {
+        boolean result = super.update(entity, updateWrapper);
+        rebuildSearchIndexAfterCommit();
+        return result;
+    }
+
+    @Override
+    public boolean remove(Wrapper<Question> queryWrapper) {
+        boolean result = super.remove(queryWrapper);
+        rebuildSearchIndexAfterCommit();
+        return result;
+    }
 }
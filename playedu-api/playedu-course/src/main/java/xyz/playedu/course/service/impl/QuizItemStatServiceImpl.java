@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import xyz.playedu.common.exception.NotFoundException;
+import xyz.playedu.course.domain.Question;
+import xyz.playedu.course.domain.Quiz;
+import xyz.playedu.course.domain.QuizItemStat;
+import xyz.playedu.course.domain.UserQuizRecord;
+import xyz.playedu.course.mapper.QuizItemStatMapper;
+import xyz.playedu.course.mapper.UserQuizRecordMapper;
+import xyz.playedu.course.quiz.AnswerLayout;
+import xyz.playedu.course.service.QuizItemStatService;
+import xyz.playedu.course.service.QuizService;
+import xyz.playedu.course.types.QuizItemAnalysis;
+
+@Service
+@Slf4j
+public class QuizItemStatServiceImpl extends ServiceImpl<QuizItemStatMapper, QuizItemStat>
+        implements QuizItemStatService {
+
+    /** 整卷行的 question_index */
+    private static final int WHOLE = -1;
+
+    /** 题目行中表示答对的 option_index */
+    private static final int CORRECT = -1;
+
+    /** 题目行中表示未作答的 option_index */
+    private static final int BLANK = -2;
+
+    /** 整卷行中的构建标记，见 QuizItemStatMapper.ensureMarker */
+    private static final int BUILT = -3;
+
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+
+    private static final int WRITE_BATCH = 500;
+
+    @Autowired private UserQuizRecordMapper userQuizRecordMapper;
+
+    @Autowired private QuizService quizService;
+
+    @Autowired private ObjectMapper objectMapper;
+
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    private record Key(int question, int option) {}
+
+    @Override
+    public void replace(AnswerLayout layout, UserQuizRecord previous, UserQuizRecord current) {
+        Integer quizId = current.getQuizId();
+        // 当前布局尚未构建时不做增量，首次分析时从全部作答(含本次)重建；共享锁保证不与重建交错
+        Long built = getBaseMapper().shareMarker(quizId, layout.fingerprint());
+        if (built == null || built == 0) {
+            return;
+        }
+
+        // 上一次作答与重建时一样解读(编码或旧版JSON)，扣减的正是重建时计入的贡献
+        Map<Key, long[]> deltas = new LinkedHashMap<>();
+        if (previous != null) {
+            long[] masks = masksOf(layout, previous);
+            if (masks != null) {
+                contribute(deltas, layout, masks, score(previous), -1);
+            }
+        }
+        long[] masks = masksOf(layout, current);
+        if (masks != null) {
+            contribute(deltas, layout, masks, score(current), 1);
+        }
+        write(quizId, layout.fingerprint(), deltas);
+    }
+
+    @Override
+    public void replace(Integer quizId, UserQuizRecord previous, UserQuizRecord current) {
+        Quiz quiz = quizService.getById(quizId);
+        if (quiz == null) {
+            return;
+        }
+        List<Question> questions;
+        try {
+            questions = quizService.getQuestions(quiz);
+        } catch (NotFoundException e) {
+            // 题目已删除时无法构建布局，分析时也无法读取，不做处理
+            return;
+        }
+        replace(AnswerLayout.of(questions, objectMapper), previous, current);
+    }
+
+    @Override
+    public QuizItemAnalysis analyze(Integer quizId, boolean refresh) throws NotFoundException {
+        Quiz quiz = quizService.findOrFail(quizId);
+        List<Question> questions = quizService.getQuestions(quiz);
+        AnswerLayout layout = AnswerLayout.of(questions, objectMapper);
+
+        Long built = getBaseMapper().marker(quizId, layout.fingerprint());
+        if (refresh || built == null || built == 0) {
+            rebuild(quizId, layout);
+        }
+        List<QuizItemStat> rows = load(quizId, layout.fingerprint());
+
+        Map<Key, QuizItemStat> stats = new HashMap<>();
+        for (QuizItemStat row : rows) {
+            stats.put(new Key(row.getQuestionIndex(), row.getOptionIndex()), row);
+        }
+
+        QuizItemStat whole = stats.get(new Key(WHOLE, CORRECT));
+        long n = whole == null ? 0 : whole.getCnt();
+        double sum = whole == null ? 0 : whole.getScoreSum();
+        double mean = n == 0 ? 0 : sum / n;
+        double std =
+                n == 0
+                        ? 0
+                        : Math.sqrt(Math.max(0, (double) whole.getScoreSqSum() / n - mean * mean));
+
+        List<QuizItemAnalysis.Item> items = new ArrayList<>(layout.size());
+        for (int i = 0; i < layout.size(); i++) {
+            QuizItemStat correct = stats.get(new Key(i, CORRECT));
+            long n1 = correct == null ? 0 : correct.getCnt();
+            double s1 = correct == null ? 0 : correct.getScoreSum();
+
+            // 点二列相关：(答对者平均总分 - 答错者平均总分) / 总分标准差 * sqrt(p*q)，总分含本题得分
+            Double discrimination = null;
+            if (n1 > 0 && n1 < n && std > 0) {
+                double p = (double) n1 / n;
+                double m1 = s1 / n1;
+                double m0 = (sum - s1) / (n - n1);
+                discrimination = round((m1 - m0) / std * Math.sqrt(p * (1 - p)));
+            }
+
+            List<QuizItemAnalysis.Option> options = new ArrayList<>();
+            List<String> values = layout.values(i);
+            List<String> labels = layout.labels(i);
+            for (int j = 0; j < values.size(); j++) {
+                QuizItemStat option = stats.get(new Key(i, j));
+                long count = option == null ? 0 : option.getCnt();
+                options.add(
+                        QuizItemAnalysis.Option.builder()
+                                .value(values.get(j))
+                                .label(labels.get(j))
+                                .correct(j < 63 && (layout.correctMask(i) & (1L << j)) != 0)
+                                .count(count)
+                                .rate(n == 0 ? 0 : round((double) count / n))
+                                .build());
+            }
+
+            QuizItemStat blank = stats.get(new Key(i, BLANK));
+            Question question = layout.question(i);
+            items.add(
+                    QuizItemAnalysis.Item.builder()
+                            .questionId(question.getId())
+                            .type(question.getType())
+                            .content(question.getContent())
+                            .score(question.getScore())
+                            .correctCount(n1)
+                            .correctRate(n == 0 ? 0 : round((double) n1 / n))
+                            .discrimination(discrimination)
+                            .unansweredCount(blank == null ? 0 : blank.getCnt())
+                            .options(options)
+                            .build());
+        }
+
+        return QuizItemAnalysis.builder()
+                .quizId(quizId)
+                .participantCount(n)
+                .averageScore(round(mean))
+                .scoreStd(round(std))
+                .items(items)
+                .build();
+    }
+
+    private List<QuizItemStat> load(Integer quizId, int fingerprint) {
+        return list(
+                new QueryWrapper<QuizItemStat>().eq("quiz_id", quizId).eq("layout", fingerprint));
+    }
+
+    /**
+     * 取每个学员最近一次作答重新累计；旧版JSON作答按题目ID与选项值映射到当前布局
+     *
+     * <p>在一个事务内先排他锁住构建标记再读取作答：进行中的提交先完成并被本次读取到，之后的提交等待重建完成再做增量。
+     */
+    private void rebuild(Integer quizId, AnswerLayout layout) {
+        int fingerprint = layout.fingerprint();
+        getBaseMapper().ensureMarker(quizId, fingerprint);
+        Integer users =
+                transactionTemplate.execute(
+                        status -> {
+                            getBaseMapper().lockMarker(quizId, fingerprint);
+                            Map<Key, long[]> totals = new LinkedHashMap<>();
+                            int count = collect(quizId, layout, totals);
+
+                            // 其他布局的累计量不再使用，一并清除
+                            remove(
+                                    new QueryWrapper<QuizItemStat>()
+                                            .eq("quiz_id", quizId)
+                                            .and(
+                                                    w ->
+                                                            w.ne("layout", fingerprint)
+                                                                    .or()
+                                                                    .ne("option_index", BUILT)));
+                            write(quizId, fingerprint, totals);
+                            getBaseMapper().markBuilt(quizId, fingerprint);
+                            return count;
+                        });
+        log.info("练习题目统计重建完成,quizId={},学员数={}", quizId, users);
+    }
+
+    // 累计每个学员最近一次作答，返回学员数
+    private int collect(Integer quizId, AnswerLayout layout, Map<Key, long[]> totals) {
+        Map<Integer, long[]> latestMasks = new HashMap<>();
+        Map<Integer, Long> latestScores = new HashMap<>();
+        int lastId = 0;
+        while (true) {
+            List<UserQuizRecord> records =
+                    userQuizRecordMapper.chunkByQuiz(quizId, lastId, REBUILD_CHUNK_SIZE);
+            if (records.isEmpty()) {
+                break;
+            }
+            for (UserQuizRecord record : records) {
+                long[] masks = masksOf(layout, record);
+                if (masks == null) {
+                    latestMasks.remove(record.getUserId());
+                    continue;
+                }
+                latestMasks.put(record.getUserId(), masks);
+                latestScores.put(record.getUserId(), score(record));
+            }
+            lastId = records.get(records.size() - 1).getId();
+        }
+
+        latestMasks.forEach(
+                (userId, masks) -> contribute(totals, layout, masks, latestScores.get(userId), 1));
+        return latestMasks.size();
+    }
+
+    // 编码与当前布局一致时直接解码，否则按JSON作答映射到当前布局
+    private long[] masksOf(AnswerLayout layout, UserQuizRecord record) {
+        long[] decoded = layout.decode(record.getAnswerBits());
+        if (decoded != null) {
+            return decoded;
+        }
+        // 线下成绩没有作答内容
+        if (record.getCourseHourId() == null
+                || record.getCourseHourId() == 0
+                || !StringUtils.hasText(record.getUserAnswers())) {
+            return null;
+        }
+        try {
+            Map<Integer, List<String>> answers =
+                    objectMapper.readValue(record.getUserAnswers(), new TypeReference<>() {});
+            return layout.masks(answers);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private void contribute(
+            Map<Key, long[]> deltas, AnswerLayout layout, long[] masks, long score, int sign) {
+        add(deltas, WHOLE, CORRECT, sign, sign * score, sign * score * score);
+        for (int i = 0; i < masks.length; i++) {
+            long mask = masks[i];
+            if (mask == 0) {
+                add(deltas, i, BLANK, sign, 0, 0);
+                continue;
+            }
+            for (long bits = mask; bits != 0; bits &= bits - 1) {
+                add(deltas, i, Long.numberOfTrailingZeros(bits), sign, 0, 0);
+            }
+            if (layout.isCorrect(i, mask)) {
+                add(deltas, i, CORRECT, sign, sign * score, 0);
+            }
+        }
+    }
+
+    private void add(
+            Map<Key, long[]> deltas, int question, int option, long cnt, long sum, long sqSum) {
+        long[] values = deltas.computeIfAbsent(new Key(question, option), k -> new long[3]);
+        values[0] += cnt;
+        values[1] += sum;
+        values[2] += sqSum;
+    }
+
+    private void write(Integer quizId, int fingerprint, Map<Key, long[]> deltas) {
+        List<QuizItemStat> rows = new ArrayList<>();
+        deltas.forEach(
+                (key, values) -> {
+                    if (values[0] == 0 && values[1] == 0 && values[2] == 0) {
+                        return;
+                    }
+                    QuizItemStat row = new QuizItemStat();
+                    row.setQuizId(quizId);
+                    row.setLayout(fingerprint);
+                    row.setQuestionIndex(key.question());
+                    row.setOptionIndex(key.option());
+                    row.setCnt(values[0]);
+                    row.setScoreSum(values[1]);
+                    row.setScoreSqSum(values[2]);
+                    rows.add(row);
+                });
+        for (int i = 0; i < rows.size(); i += WRITE_BATCH) {
+            getBaseMapper().accumulate(rows.subList(i, Math.min(i + WRITE_BATCH, rows.size())));
+        }
+    }
+
+    private static long score(UserQuizRecord record) {
+        return record.getScore() == null ? 0 : record.getScore();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10000) / 10000.0;
+    }
+}
@@ -19,15 +19,17 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import xyz.playedu.common.types.mapper.UserCourseHourRecordCourseCountMapper;
 import xyz.playedu.common.types.mapper.UserCourseHourRecordUserCountMapper;
-import xyz.playedu.common.types.mapper.UserCourseHourRecordUserFirstCreatedAtMapper;
 import xyz.playedu.common.types.paginate.PaginationResult;
 import xyz.playedu.common.types.paginate.UserCourseHourRecordPaginateFilter;
 import xyz.playedu.course.domain.UserCourseHourRecord;
 import xyz.playedu.course.mapper.UserCourseHourRecordMapper;
 import xyz.playedu.course.service.UserCourseHourRecordService;
+import xyz.playedu.course.service.UserCourseRecordService;
+import xyz.playedu.course.service.UserLearningSummaryService;
 
 /**
  * @author tengteng
@@ -39,6 +41,10 @@ public class UserCourseHourRecordServiceImpl
         extends ServiceImpl<UserCourseHourRecordMapper, UserCourseHourRecord>
         implements UserCourseHourRecordService {
 
+    @Autowired private UserLearningSummaryService userLearningSummaryService;
+
+    @Autowired private UserCourseRecordService userCourseRecordService;
+
     @Override
     public UserCourseHourRecord find(Integer userId, Integer courseId, Integer hourId) {
         return getOne(
@@ -55,6 +61,17 @@ public class UserCourseHourRecordServiceImpl
             Integer hourId,
             Integer duration,
             Integer totalDuration) {
+        // 课时记录与学习汇总在同一把汇总锁内更新
+        return userLearningSummaryService.locked(
+                userId, () -> store(userId, courseId, hourId, duration, totalDuration));
+    }
+
+    private boolean store(
+            Integer userId,
+            Integer courseId,
+            Integer hourId,
+            Integer duration,
+            Integer totalDuration) {
         UserCourseHourRecord record = find(userId, courseId, hourId);
 
         // 记录存在 && 已看完 => 跳过处理
@@ -79,21 +96,40 @@ public class UserCourseHourRecordServiceImpl
             insertRecord.setUpdatedAt(new Date());
 
             save(insertRecord);
-        } else if (record.getFinishedDuration() < duration) {
-            UserCourseHourRecord updateRecord = new UserCourseHourRecord();
-            updateRecord.setId(record.getId());
-            updateRecord.setTotalDuration(totalDuration);
-            updateRecord.setFinishedDuration(duration);
-            updateRecord.setIsFinished(isFinished ? 1 : 0);
-            updateRecord.setFinishedAt(finishedAt);
-
-            updateById(updateRecord);
+            userCourseRecordService.markStarted(userId, courseId, insertRecord.getCreatedAt());
+            userLearningSummaryService.addCourseProgress(userId, courseId, 1, isFinished ? 1 : 0);
+            return isFinished;
+        }
+
+        if (record.getFinishedDuration() >= duration) {
+            return false;
+        }
+
+        UserCourseHourRecord updateRecord = new UserCourseHourRecord();
+        updateRecord.setTotalDuration(totalDuration);
+        updateRecord.setFinishedDuration(duration);
+        updateRecord.setIsFinished(isFinished ? 1 : 0);
+        updateRecord.setFinishedAt(finishedAt);
+        updateRecord.setUpdatedAt(new Date());
+
+        // 仅未看完状态的记录可被更新，并发请求中只有一个会把课时置为看完
+        boolean updated =
+                update(
+                        updateRecord,
+                        query().getWrapper().eq("id", record.getId()).eq("is_finished", 0));
+        if (isFinished && updated) {
+            userLearningSummaryService.addCourseProgress(userId, courseId, 0, 1);
+            return true;
         }
-        return isFinished;
+        return false;
     }
 
     @Override
-    public void markFinished(Integer userId, Integer courseId, Integer hourId) {
+    public boolean markFinished(Integer userId, Integer courseId, Integer hourId) {
+        return userLearningSummaryService.locked(userId, () -> finish(userId, courseId, hourId));
+    }
+
+    private boolean finish(Integer userId, Integer courseId, Integer hourId) {
         UserCourseHourRecord record = find(userId, courseId, hourId);
         Date now = new Date();
         if (record == null) {
@@ -108,20 +144,28 @@ public class UserCourseHourRecordServiceImpl
             insertRecord.setCreatedAt(now);
             insertRecord.setUpdatedAt(now);
             save(insertRecord);
-            return;
+            userCourseRecordService.markStarted(userId, courseId, now);
+            userLearningSummaryService.addCourseProgress(userId, courseId, 1, 1);
+            return true;
         }
 
         if (record.getIsFinished() == 1) {
-            return;
+            return false;
         }
 
         UserCourseHourRecord updateRecord = new UserCourseHourRecord();
-        updateRecord.setId(record.getId());
         updateRecord.setIsFinished(1);
         updateRecord.setFinishedAt(now);
         updateRecord.setFinishedDuration(record.getTotalDuration());
         updateRecord.setUpdatedAt(now);
-        updateById(updateRecord);
+        boolean updated =
+                update(
+                        updateRecord,
+                        query().getWrapper().eq("id", record.getId()).eq("is_finished", 0));
+        if (updated) {
+            userLearningSummaryService.addCourseProgress(userId, courseId, 0, 1);
+        }
+        return updated;
     }
 
     @Override
@@ -200,22 +244,8 @@ public class UserCourseHourRecordServiceImpl
                         .eq("hour_id", hourId));
     }
 
-    @Override
-    public List<UserCourseHourRecordUserFirstCreatedAtMapper> getUserCourseHourUserFirstCreatedAt(
-            Integer courseId, List<Integer> userIds) {
-        if (userIds == null || userIds.isEmpty()) {
-            return new ArrayList<>();
-        }
-        return getBaseMapper().getUserCourseHourUserFirstCreatedAt(courseId, userIds);
-    }
-
     @Override
     public List<UserCourseHourRecord> getUserPerCourseEarliestRecord(Integer userId) {
         return getBaseMapper().getUserPerCourseEarliestRecord(userId);
     }
-
-    @Override
-    public List<UserCourseHourRecord> getCoursePerUserEarliestRecord(Integer courseId) {
-        return getBaseMapper().getCoursePerUserEarliestRecord(courseId);
-    }
 }
@@ -19,6 +19,10 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import xyz.playedu.common.types.paginate.PaginationResult;
@@ -33,57 +37,33 @@ import xyz.playedu.course.service.UserCourseRecordService;
  * @createDate 2023-03-20 16:41:04
  */
 @Service
+@Slf4j
 public class UserCourseRecordServiceImpl
         extends ServiceImpl<UserCourseRecordMapper, UserCourseRecord>
         implements UserCourseRecordService {
 
+    // 回填首次学习时间时每批处理的主键区间大小
+    private static final int FILL_CHUNK = 1000;
+
+    // 每批之间的停顿(毫秒)，避免回填长时间占用数据库
+    private static final long FILL_PAUSE_MS = 50;
+
     @Override
     public UserCourseRecord find(Integer userId, Integer courseId) {
         return getOne(query().getWrapper().eq("user_id", userId).eq("course_id", courseId));
     }
 
     @Override
-    public void storeOrUpdate(
-            Integer userId, Integer courseId, Integer hourCount, Integer finishedCount) {
-        if (hourCount == 0) {
-            return;
-        }
-
-        UserCourseRecord record = find(userId, courseId);
+    public void markStarted(Integer userId, Integer courseId, Date at) {
+        getBaseMapper().markStarted(userId, courseId, at);
+    }
 
-        // 已看完
-        if (record != null && record.getIsFinished() == 1) {
+    @Override
+    public void finishHour(Integer userId, Integer courseId, Integer hourCount) {
+        if (hourCount == null || hourCount == 0) {
             return;
         }
-
-        boolean isFinished = finishedCount >= hourCount;
-        Date finishedAt = isFinished ? new Date() : null;
-        Integer progress = finishedCount * 10000 / hourCount;
-
-        if (record == null) {
-            UserCourseRecord insertRecord = new UserCourseRecord();
-            insertRecord.setUserId(userId);
-            insertRecord.setCourseId(courseId);
-            insertRecord.setHourCount(hourCount);
-            insertRecord.setFinishedCount(finishedCount);
-            insertRecord.setFinishedAt(finishedAt);
-            insertRecord.setIsFinished(isFinished ? 1 : 0);
-            insertRecord.setProgress(progress);
-            insertRecord.setCreatedAt(new Date());
-            insertRecord.setUpdatedAt(new Date());
-
-            save(insertRecord);
-        } else {
-            UserCourseRecord updateRecord = new UserCourseRecord();
-            updateRecord.setId(record.getId());
-            updateRecord.setHourCount(hourCount);
-            updateRecord.setFinishedCount(finishedCount);
-            updateRecord.setFinishedAt(finishedAt);
-            updateRecord.setIsFinished(isFinished ? 1 : 0);
-            updateRecord.setProgress(progress);
-
-            updateById(updateRecord);
-        }
+        getBaseMapper().finishHour(userId, courseId, hourCount, new Date());
     }
 
     @Override
@@ -143,31 +123,39 @@ public class UserCourseRecordServiceImpl
 
     @Override
     @Transactional
-    public void updateUserCourseLearnProgress(Integer userId, Integer courseId, int count) {
-        UserCourseRecord record = find(userId, courseId);
-        if (record == null) {
-            return;
-        }
-
-        int finishedCount = record.getFinishedCount() - count;
-
-        UserCourseRecord newRecord = new UserCourseRecord();
-        newRecord.setUserId(record.getUserId());
-        newRecord.setCourseId(record.getCourseId());
-        newRecord.setHourCount(record.getHourCount());
-        newRecord.setFinishedCount(finishedCount);
-        newRecord.setProgress(finishedCount * 10000 / record.getHourCount());
-        newRecord.setIsFinished(0);
-        newRecord.setCreatedAt(record.getCreatedAt());
-        newRecord.setUpdatedAt(new Date());
-
-        // 删除老记录
-        remove(query().getWrapper().eq("id", record.getId()));
+    public void recountProgress(Integer userId, Integer courseId) {
+        getBaseMapper().recountProgress(userId, courseId, new Date());
+        remove(
+                query().getWrapper()
+                        .eq("user_id", userId)
+                        .eq("course_id", courseId)
+                        .eq("finished_count", 0)
+                        .isNull("first_learned_at"));
+    }
 
-        if (0 == finishedCount) {
+    @Override
+    public void fillFirstLearnedAt() {
+        long start = System.currentTimeMillis();
+        int maxId = getBaseMapper().maxId();
+        long filled = 0;
+        try {
+            for (int startId = 1; startId <= maxId; startId += FILL_CHUNK) {
+                filled += getBaseMapper().fillFirstLearnedAt(startId, startId + FILL_CHUNK - 1);
+                Thread.sleep(FILL_PAUSE_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("首次学习时间回填被中断,已回填{}条", filled);
             return;
         }
+        log.info("首次学习时间回填完成|回填数={}|耗时={}ms", filled, System.currentTimeMillis() - start);
+    }
 
-        save(newRecord);
+    @EventListener(ApplicationReadyEvent.class)
+    public void fillFirstLearnedAtIfMissing() {
+        // 新增首次学习时间字段前的历史记录为空，后台按批回填
+        if (count(query().getWrapper().isNull("first_learned_at")) > 0) {
+            CompletableFuture.runAsync(this::fillFirstLearnedAt);
+        }
     }
 }
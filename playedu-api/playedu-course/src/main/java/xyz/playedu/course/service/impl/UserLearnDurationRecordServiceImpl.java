@@ -15,12 +15,26 @@
  */
 package xyz.playedu.course.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import jakarta.annotation.PostConstruct;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import xyz.playedu.course.domain.UserLearnDurationDaily;
 import xyz.playedu.course.domain.UserLearnDurationRecord;
+import xyz.playedu.course.mapper.UserLearnDurationDailyMapper;
 import xyz.playedu.course.mapper.UserLearnDurationRecordMapper;
 import xyz.playedu.course.service.UserLearnDurationRecordService;
 
@@ -30,10 +44,31 @@ import xyz.playedu.course.service.UserLearnDurationRecordService;
  * @createDate 2023-03-20 16:41:12
  */
 @Service
+@Slf4j
 public class UserLearnDurationRecordServiceImpl
         extends ServiceImpl<UserLearnDurationRecordMapper, UserLearnDurationRecord>
         implements UserLearnDurationRecordService {
 
+    /** 心跳开始时间与上一区间结束时间的允许误差(毫秒)，时间戳字段精确到秒 */
+    private static final long SESSION_JOIN_TOLERANCE_MS = 2000L;
+
+    /** 归档时每批处理的行数 */
+    private static final int COMPACT_CHUNK_SIZE = 5000;
+
+    /** 归档每批之间的停顿(毫秒) */
+    private static final long COMPACT_PAUSE_MS = 50;
+
+    @Autowired private UserLearnDurationDailyMapper dailyMapper;
+
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     @Override
     @SneakyThrows
     public void store(
@@ -41,6 +76,24 @@ public class UserLearnDurationRecordServiceImpl
         // 处理日期
         SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
         String date = simpleDateFormat.format(new Date(endTime));
+        Date createdDate = simpleDateFormat.parse(date);
+        int duration = (int) (endTime - startTime);
+
+        // 连续的心跳合并为一个学习区间：与当天同一来源最近区间首尾相接时只延长该区间
+        int extended =
+                getBaseMapper()
+                        .extendSession(
+                                userId,
+                                fromId,
+                                fromScene,
+                                createdDate,
+                                new Date(startTime - SESSION_JOIN_TOLERANCE_MS),
+                                new Date(startTime + SESSION_JOIN_TOLERANCE_MS),
+                                new Date(endTime),
+                                duration);
+        if (extended > 0) {
+            return;
+        }
 
         UserLearnDurationRecord record = new UserLearnDurationRecord();
         record.setUserId(userId);
@@ -48,8 +101,8 @@ public class UserLearnDurationRecordServiceImpl
         record.setFromScene(fromScene);
         record.setStartAt(new Date(startTime));
         record.setEndAt(new Date(endTime));
-        record.setDuration((int) (endTime - startTime));
-        record.setCreatedDate(simpleDateFormat.parse(date));
+        record.setDuration(duration);
+        record.setCreatedDate(createdDate);
 
         save(record);
     }
@@ -57,5 +110,79 @@ public class UserLearnDurationRecordServiceImpl
     @Override
     public void remove(Integer userId) {
         remove(query().getWrapper().eq("user_id", userId));
+        dailyMapper.delete(new QueryWrapper<UserLearnDurationDaily>().eq("user_id", userId));
+    }
+
+    @Override
+    @SneakyThrows
+    public long compact(int retainDays) {
+        String cutoff = LocalDate.now().minusDays(Math.max(1, retainDays)).toString();
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+
+        long lastId = 0;
+        long archived = 0;
+        while (true) {
+            List<UserLearnDurationRecord> rows = getBaseMapper().chunk(lastId, COMPACT_CHUNK_SIZE);
+            if (rows.isEmpty()) {
+                break;
+            }
+            long startId = rows.get(0).getId();
+            long endId = rows.get(rows.size() - 1).getId();
+
+            // 汇总与删除在同一事务内，中途失败不会重复累加
+            Integer count =
+                    transactionTemplate.execute(
+                            status -> {
+                                getBaseMapper().rollupDaily(startId, endId, cutoff);
+                                return getBaseMapper().deleteRolledUp(startId, endId, cutoff);
+                            });
+            archived += count == null ? 0 : count;
+            lastId = endId;
+
+            // 主键与日期同向增长，本批出现保留期内的记录说明之后都无需归档
+            String newest = simpleDateFormat.format(rows.get(rows.size() - 1).getCreatedDate());
+            if (newest.compareTo(cutoff) >= 0) {
+                break;
+            }
+            Thread.sleep(COMPACT_PAUSE_MS);
+        }
+
+        if (archived > 0) {
+            log.info("学习时长记录归档完成,cutoff={},归档行数={}", cutoff, archived);
+        }
+        return archived;
+    }
+
+    @Override
+    public List<UserLearnDurationDaily> dailyByCourse(
+            Integer userId, String startDate, String endDate) {
+        List<UserLearnDurationDaily> rows = new ArrayList<>();
+        rows.addAll(
+                dailyMapper.selectList(
+                        new QueryWrapper<UserLearnDurationDaily>()
+                                .eq("user_id", userId)
+                                .between("created_date", startDate, endDate)));
+        rows.addAll(getBaseMapper().dailyByCourse(userId, startDate, endDate));
+
+        // 归档边界当天可能两边都有数据，按 日期×课程 合并
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        Map<String, UserLearnDurationDaily> merged = new LinkedHashMap<>();
+        for (UserLearnDurationDaily row : rows) {
+            String key = simpleDateFormat.format(row.getCreatedDate()) + "_" + row.getCourseId();
+            UserLearnDurationDaily exists = merged.get(key);
+            if (exists == null) {
+                row.setId(null);
+                merged.put(key, row);
+                continue;
+            }
+            exists.setDuration(exists.getDuration() + row.getDuration());
+            exists.setSessions(exists.getSessions() + row.getSessions());
+        }
+
+        List<UserLearnDurationDaily> result = new ArrayList<>(merged.values());
+        result.sort(
+                Comparator.comparing(UserLearnDurationDaily::getCreatedDate)
+                        .thenComparing(UserLearnDurationDaily::getCourseId));
+        return result;
     }
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.service.impl;
+
+import cn.hutool.core.date.DateTime;
+import cn.hutool.core.date.DateUtil;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import xyz.playedu.course.caches.CourseHourCountCache;
+import xyz.playedu.course.domain.UserLearningSummary;
+import xyz.playedu.course.mapper.UserLearningSummaryMapper;
+import xyz.playedu.course.service.UserLearningSummaryService;
+
+/**
+ * 学员学习汇总
+ *
+ * <p>学习过程中按增量单条 upsert 更新；重建按学员ID分段从原始记录重新生成。两者通过分段读写锁协调：原始记录写入和汇总增量持有读锁，互不阻塞；
+ * 重建某一分段时持有写锁，该分段内的写入短暂等待，保证每条原始记录要么在重建前已累加(随后被重建覆盖)，要么在重建后才写入并累加，不会重复统计。
+ */
+@Service
+@Slf4j
+public class UserLearningSummaryServiceImpl
+        extends ServiceImpl<UserLearningSummaryMapper, UserLearningSummary>
+        implements UserLearningSummaryService {
+
+    // 重建时每批处理的学员ID区间大小，也是汇总锁的分段大小
+    private static final int REBUILD_CHUNK = 1000;
+
+    // 分段读写锁的条带数，分段按取模落到条带上
+    private static final int LOCK_STRIPES = 64;
+
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    @Autowired private CourseHourCountCache courseHourCountCache;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    private final ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[LOCK_STRIPES];
+
+    public UserLearningSummaryServiceImpl() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    @Override
+    public <T> T locked(Integer userId, Supplier<T> task) {
+        Lock lock = stripe(userId / REBUILD_CHUNK).readLock();
+        lock.lock();
+        try {
+            return task.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void addLearnDuration(Integer userId, Long duration) {
+        if (duration == null || duration <= 0) {
+            return;
+        }
+        getBaseMapper().addLearnDuration(userId, duration, new DateTime().toDateStr());
+    }
+
+    @Override
+    public void addCourseProgress(Integer userId, Integer courseId, int learned, int finished) {
+        if (learned == 0 && finished == 0) {
+            return;
+        }
+        getBaseMapper()
+                .addCourseProgress(
+                        userId, courseId, learned, finished, courseHourCountCache.get(courseId));
+    }
+
+    @Override
+    public void refreshCourse(Integer userId, Integer courseId) {
+        locked(userId, () -> getBaseMapper().recountCourse(userId, courseId));
+    }
+
+    @Override
+    public void removeCourse(Integer userId, Integer courseId) {
+        remove(query().getWrapper().eq("user_id", userId).eq("course_id", courseId));
+    }
+
+    @Override
+    public Map<Integer, UserLearningSummary> summaries(Integer userId) {
+        return list(query().getWrapper().eq("user_id", userId)).stream()
+                .collect(Collectors.toMap(UserLearningSummary::getCourseId, e -> e));
+    }
+
+    @Override
+    public Long todayDuration(UserLearningSummary summary) {
+        if (summary == null || summary.getTodayDate() == null) {
+            return 0L;
+        }
+        if (!new DateTime().toDateStr().equals(DateUtil.formatDate(summary.getTodayDate()))) {
+            return 0L;
+        }
+        return summary.getTodayDuration();
+    }
+
+    @Override
+    public boolean rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Integer maxUserId = getBaseMapper().maxLearnedUserId();
+            String today = new DateTime().toDateStr();
+
+            int chunks = 0;
+            for (int startId = 0; startId <= maxUserId; startId += REBUILD_CHUNK) {
+                if (Thread.currentThread().isInterrupted()) {
+                    log.error("学员学习汇总重建被中断");
+                    return true;
+                }
+                rebuildChunk(startId, startId + REBUILD_CHUNK - 1, today);
+                chunks++;
+            }
+            // 已没有原始记录的学员
+            getBaseMapper().deleteUserRange(maxUserId + 1, Integer.MAX_VALUE);
+
+            log.info("学员学习汇总重建完成|分段数={}|耗时={}ms", chunks, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("学员学习汇总重建失败", e);
+        } finally {
+            rebuilding.set(false);
+        }
+        return true;
+    }
+
+    // 持有分段写锁在一个事务中删除并重新生成，提交后才释放锁
+    private void rebuildChunk(int startId, int endId, String today) {
+        Lock lock = stripe(startId / REBUILD_CHUNK).writeLock();
+        lock.lock();
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> {
+                        getBaseMapper().deleteUserRange(startId, endId);
+                        getBaseMapper().insertCourseSummaries(startId, endId);
+                        getBaseMapper().insertUserSummaries(startId, endId, today);
+                    });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantReadWriteLock stripe(int segment) {
+        return locks[Math.floorMod(segment, LOCK_STRIPES)];
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        // 首次部署时汇总表为空，后台从原始记录生成
+        if (count() == 0 && getBaseMapper().maxLearnedUserId() > 0) {
+            CompletableFuture.runAsync(this::rebuild);
+        }
+    }
+}
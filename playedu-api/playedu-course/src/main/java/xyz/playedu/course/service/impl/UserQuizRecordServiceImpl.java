@@ -1,6 +1,8 @@
 package xyz.playedu.course.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ArrayList;
@@ -9,9 +11,13 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import xyz.playedu.course.domain.UserQuizRecord;
 import xyz.playedu.course.mapper.UserQuizRecordMapper;
+import xyz.playedu.course.quiz.AnswerLayout;
+import xyz.playedu.course.service.QuizItemStatService;
 import xyz.playedu.course.service.UserQuizRecordService;
 
 @Service
@@ -19,6 +25,10 @@ public class UserQuizRecordServiceImpl
         extends ServiceImpl<UserQuizRecordMapper, UserQuizRecord>
         implements UserQuizRecordService {
 
+    @Autowired private QuizItemStatService quizItemStatService;
+
+    @Autowired private ObjectMapper objectMapper;
+
     @Override
     public UserQuizRecord getLatest(Integer userId, Integer courseHourId) {
         return getOne(
@@ -30,23 +40,32 @@ public class UserQuizRecordServiceImpl
     }
 
     @Override
+    @Transactional
     public UserQuizRecord store(
             Integer userId,
             Integer quizId,
             Integer courseHourId,
             Integer score,
             boolean passed,
-            String userAnswers) {
+            AnswerLayout layout,
+            Map<Integer, List<String>> answers) {
+        // 先锁住上一次作答，题目统计用新作答替换它的贡献
+        UserQuizRecord previous = getBaseMapper().lockLatest(userId, quizId);
+
         UserQuizRecord record = new UserQuizRecord();
         record.setUserId(userId);
         record.setQuizId(quizId);
         record.setCourseHourId(courseHourId);
         record.setScore(score);
         record.setIsPassed(passed ? 1 : 0);
-        record.setUserAnswers(userAnswers);
+        // JSON 为作答原文，题目或选项调整后仍可还原；编码只用于按当前布局累计题目统计
+        record.setUserAnswers(writeUserAnswers(answers));
+        record.setAnswerBits(layout.encode(answers));
         record.setComment("");
         record.setCreatedAt(new Date());
         save(record);
+
+        quizItemStatService.replace(layout, previous, record);
         return record;
     }
 
@@ -61,6 +80,7 @@ public class UserQuizRecordServiceImpl
     }
 
     @Override
+    @Transactional
     public UserQuizRecord saveManualScore(
             Integer userId,
             Integer quizId,
@@ -68,8 +88,18 @@ public class UserQuizRecordServiceImpl
             boolean passed,
             String comment,
             Date takenAt) {
-        UserQuizRecord record = findLatestByUserAndQuiz(userId, quizId);
-        if (record == null) {
+        UserQuizRecord record = getBaseMapper().lockLatest(userId, quizId);
+        UserQuizRecord previous = null;
+        if (record != null) {
+            // 修改的是最近一次作答的成绩，题目统计中该学员的总分随之替换
+            previous = new UserQuizRecord();
+            previous.setUserId(record.getUserId());
+            previous.setQuizId(record.getQuizId());
+            previous.setCourseHourId(record.getCourseHourId());
+            previous.setScore(record.getScore());
+            previous.setUserAnswers(record.getUserAnswers());
+            previous.setAnswerBits(record.getAnswerBits());
+        } else {
             record = new UserQuizRecord();
             record.setUserId(userId);
             record.setQuizId(quizId);
@@ -84,6 +114,7 @@ public class UserQuizRecordServiceImpl
             save(record);
         } else {
             updateById(record);
+            quizItemStatService.replace(quizId, previous, record);
         }
         return record;
     }
@@ -155,4 +186,12 @@ public class UserQuizRecordServiceImpl
     public List<UserQuizRecord> getTopUserScores(int limit) {
         return baseMapper.getTopScoreRecords(limit);
     }
+
+    private String writeUserAnswers(Map<Integer, List<String>> answers) {
+        try {
+            return objectMapper.writeValueAsString(answers);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("作答内容写入失败", e);
+        }
+    }
 }
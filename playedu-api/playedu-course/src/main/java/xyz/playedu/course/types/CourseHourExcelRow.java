@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.types;
+
+import com.alibaba.excel.annotation.ExcelProperty;
+import lombok.Data;
+
+@Data
+public class CourseHourExcelRow {
+    @ExcelProperty(
+            value = {"章节"},
+            index = 0)
+    private String chapter;
+
+    @ExcelProperty(
+            value = {"课时名"},
+            index = 1)
+    private String title;
+
+    @ExcelProperty(
+            value = {"类型"},
+            index = 2)
+    private String type;
+
+    @ExcelProperty(
+            value = {"资源ID"},
+            index = 3)
+    private Integer rid;
+
+    @ExcelProperty(
+            value = {"练习ID"},
+            index = 4)
+    private Integer quizId;
+
+    @ExcelProperty(
+            value = {"时长"},
+            index = 5)
+    private Integer duration;
+
+    @ExcelProperty(
+            value = {"排序"},
+            index = 6)
+    private Integer sort;
+}
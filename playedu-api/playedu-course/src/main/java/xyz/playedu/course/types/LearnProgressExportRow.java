@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.types;
+
+import java.util.Date;
+import lombok.Data;
+
+/** 学习进度导出的一行：学员 × 课程，部门与课程名称由内存映射补齐 */
+@Data
+public class LearnProgressExportRow {
+    private Integer userId;
+
+    private String name;
+
+    private String email;
+
+    /** 学员所属部门ID，逗号分隔 */
+    private String depIds;
+
+    private Integer courseId;
+
+    private Integer hourCount;
+
+    private Integer finishedCount;
+
+    /** 进度，万分比 */
+    private Integer progress;
+
+    private Integer isFinished;
+
+    private Date firstLearnedAt;
+
+    private Date lastLearnedAt;
+
+    private Date finishedAt;
+
+    /** 课程下练习的最高得分 */
+    private Integer quizBestScore;
+
+    /** 课程下及格的练习作答次数 */
+    private Integer quizPassedCount;
+}
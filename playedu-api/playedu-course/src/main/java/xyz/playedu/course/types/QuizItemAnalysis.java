@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.types;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class QuizItemAnalysis {
+    @JsonProperty("quiz_id")
+    private Integer quizId;
+
+    @JsonProperty("participant_count")
+    private long participantCount;
+
+    @JsonProperty("average_score")
+    private double averageScore;
+
+    @JsonProperty("score_std")
+    private double scoreStd;
+
+    private List<Item> items;
+
+    @Data
+    @Builder
+    public static class Item {
+        @JsonProperty("question_id")
+        private Integer questionId;
+
+        private String type;
+
+        private String content;
+
+        private Integer score;
+
+        @JsonProperty("correct_count")
+        private long correctCount;
+
+        @JsonProperty("correct_rate")
+        private double correctRate;
+
+        /** 点二列相关系数，全对、全错或总分无差异时为null */
+        private Double discrimination;
+
+        @JsonProperty("unanswered_count")
+        private long unansweredCount;
+
+        private List<Option> options;
+    }
+
+    @Data
+    @Builder
+    public static class Option {
+        private String value;
+
+        private String label;
+
+        @JsonProperty("is_correct")
+        private boolean correct;
+
+        private long count;
+
+        private double rate;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.course.quiz;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import xyz.playedu.course.domain.Question;
+
+public class AnswerLayoutTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static Question question(int id, int optionCount, String answer) {
+        StringBuilder options = new StringBuilder("[");
+        for (int i = 0; i < optionCount; i++) {
+            if (i > 0) {
+                options.append(',');
+            }
+            String value = String.valueOf((char) ('A' + i % 26)) + (i / 26 == 0 ? "" : i / 26);
+            options.append("{\"value\":\"")
+                    .append(value)
+                    .append("\",\"label\":\"选项")
+                    .append(value)
+                    .append("\"}");
+        }
+        options.append(']');
+
+        Question question = new Question();
+        question.setId(id);
+        question.setType("choice");
+        question.setOptions(options.toString());
+        question.setAnswer(answer);
+        question.setScore(10);
+        return question;
+    }
+
+    private AnswerLayout layout(Question... questions) {
+        return AnswerLayout.of(List.of(questions), objectMapper);
+    }
+
+    @Test
+    public void encodeDecodeRoundTrip() {
+        AnswerLayout layout =
+                layout(
+                        question(11, 4, "[\"B\"]"),
+                        question(12, 4, "[\"A\",\"C\"]"),
+                        question(13, 2, "[\"A\"]"));
+        Map<Integer, List<String>> answers = new HashMap<>();
+        answers.put(11, List.of("B"));
+        answers.put(12, List.of("C", " A "));
+        // 13 未作答，不存在的选项值被忽略
+
+        byte[] bits = layout.encode(answers);
+        // 版本 + 指纹 + 每题1字节
+        assertEquals(5 + 3, bits.length);
+
+        long[] masks = layout.decode(bits);
+        assertArrayEquals(new long[] {0b10, 0b101, 0}, masks);
+        assertTrue(layout.isCorrect(0, masks[0]));
+        assertTrue(layout.isCorrect(1, masks[1]));
+        assertFalse(layout.isCorrect(2, masks[2]));
+        assertArrayEquals(masks, layout.masks(answers));
+    }
+
+    @Test
+    public void wideQuestionsUseVarint() {
+        AnswerLayout layout = layout(question(1, 40, "[\"A\"]"));
+        List<String> values = layout.values(0);
+        byte[] bits = layout.encode(Map.of(1, List.of(values.get(0), values.get(39))));
+
+        assertTrue(bits.length > 5 + 1);
+        assertArrayEquals(new long[] {1L | (1L << 39)}, layout.decode(bits));
+    }
+
+    @Test
+    public void optionsBeyondBitmapAreNotEncoded() {
+        AnswerLayout layout = layout(question(1, 70, "[]"));
+        List<String> values = layout.values(0);
+        long[] masks =
+                layout.decode(layout.encode(Map.of(1, List.of(values.get(62), values.get(65)))));
+        assertArrayEquals(new long[] {1L << 62}, masks);
+    }
+
+    @Test
+    public void fingerprintMismatchIsNotDecoded() {
+        Question q1 = question(1, 4, "[\"A\"]");
+        Question q2 = question(2, 4, "[\"B\"]");
+        byte[] bits = layout(q1, q2).encode(Map.of(1, List.of("A"), 2, List.of("B")));
+
+        // 题目顺序变化
+        assertNull(layout(q2, q1).decode(bits));
+        // 选项变化
+        assertNull(layout(q1, question(2, 5, "[\"B\"]")).decode(bits));
+        // 题目替换
+        assertNull(layout(q1, question(3, 4, "[\"B\"]")).decode(bits));
+        // 同样的布局可以解码
+        assertNotNull(layout(question(1, 4, "[\"A\"]"), question(2, 4, "[\"B\"]")).decode(bits));
+        // 正确答案变化不影响布局
+        assertNotNull(layout(q1, question(2, 4, "[\"C\"]")).decode(bits));
+    }
+
+    @Test
+    public void malformedInputIsRejected() {
+        AnswerLayout layout = layout(question(1, 4, "[\"A\"]"), question(2, 4, "[\"A\"]"));
+        byte[] bits = layout.encode(Map.of(1, List.of("A"), 2, List.of("B")));
+
+        assertNull(layout.decode(null));
+        assertNull(layout.decode(new byte[] {1, 2}));
+
+        byte[] wrongVersion = bits.clone();
+        wrongVersion[0] = 9;
+        assertNull(layout.decode(wrongVersion));
+
+        byte[] truncated = new byte[bits.length - 1];
+        System.arraycopy(bits, 0, truncated, 0, truncated.length);
+        assertNull(layout.decode(truncated));
+    }
+
+    @Test
+    public void emptyAnswerNeverCorrect() {
+        AnswerLayout layout = layout(question(1, 3, null));
+        assertEquals(0, layout.correctMask(0));
+        assertFalse(layout.isCorrect(0, 0));
+
+        List<List<String>> none = new ArrayList<>();
+        none.add(null);
+        assertEquals(0, layout.mask(0, none.get(0)));
+    }
+}
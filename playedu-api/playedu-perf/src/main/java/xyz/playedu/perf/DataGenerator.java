@@ -0,0 +1,665 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.perf;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压测数据生成器。
+ *
+ * <p>直接通过 JDBC 批量写库，不经过服务层：
+ *
+ * <ul>
+ *   <li>连接串强制开启 rewriteBatchedStatements，驱动把每个 executeBatch 改写为多行 INSERT；
+ *   <li>主表 ID 在开始前按 MAX(id) 预先分配，各表之间无需回读即可独立并行写入；
+ *   <li>学员学习记录按学员区间拆分为多个任务，与其它表一起在线程池中并发执行。
+ * </ul>
+ *
+ * 同一份配置多次执行会在已有数据之后追加一批新数据。
+ */
+public class DataGenerator {
+
+    private static final String[] ID_TABLES = {
+        "departments",
+        "resource_categories",
+        "resource",
+        "questions",
+        "quizzes",
+        "courses",
+        "course_chapters",
+        "course_hour",
+        "users"
+    };
+
+    private final PerfConfig config;
+
+    private final String url;
+
+    private final int batchSize;
+
+    private final int threads;
+
+    private final int departments;
+
+    private final int categories;
+
+    private final int courses;
+
+    private final int openEvery;
+
+    private final int chaptersPerCourse;
+
+    private final int hoursPerChapter;
+
+    private final int hoursPerCourse;
+
+    private final int quizEvery;
+
+    private final int videos;
+
+    private final int questions;
+
+    private final int quizzes;
+
+    private final int questionsPerQuiz;
+
+    private final int users;
+
+    private final int coursesPerUser;
+
+    private final String emailPattern;
+
+    private final String salt = "perf01";
+
+    private final String passwordHashed;
+
+    private final Timestamp now = new Timestamp(System.currentTimeMillis());
+
+    private final Map<String, Long> bases = new LinkedHashMap<>();
+
+    private final Map<String, AtomicLong> written = new ConcurrentHashMap<>();
+
+    public DataGenerator(PerfConfig config) {
+        this.config = config;
+        this.url = withBatchRewrite(config.get("jdbc.url"));
+        this.batchSize = config.getInt("gen.batch-size");
+        this.threads = Math.max(1, config.getInt("gen.threads"));
+        this.departments = Math.max(1, config.getInt("gen.departments"));
+        this.categories = Math.max(1, config.getInt("gen.categories"));
+        this.courses = config.getInt("gen.courses");
+        double openRatio = config.getDouble("gen.open-course-ratio");
+        this.openEvery = openRatio <= 0 ? 0 : (int) Math.max(1, Math.round(1 / openRatio));
+        this.chaptersPerCourse = Math.max(1, config.getInt("gen.chapters-per-course"));
+        this.hoursPerChapter = Math.max(1, config.getInt("gen.hours-per-chapter"));
+        this.hoursPerCourse = chaptersPerCourse * hoursPerChapter;
+        this.videos = Math.max(1, config.getInt("gen.videos"));
+        this.questions = config.getInt("gen.questions");
+        this.questionsPerQuiz = Math.min(questions, config.getInt("gen.questions-per-quiz"));
+        this.quizzes = questionsPerQuiz > 0 ? config.getInt("gen.quizzes") : 0;
+        this.quizEvery = quizzes > 0 ? config.getInt("gen.quiz-every") : 0;
+        this.users = config.getInt("gen.users");
+        this.coursesPerUser = config.getInt("gen.courses-per-user");
+        this.emailPattern = config.get("gen.email-pattern");
+        this.passwordHashed = md5(config.get("gen.password") + salt);
+    }
+
+    public void run() throws Exception {
+        try (Connection conn = connect();
+                Statement stmt = conn.createStatement()) {
+            for (String table : ID_TABLES) {
+                try (ResultSet rs = stmt.executeQuery("SELECT IFNULL(MAX(id),0) FROM " + table)) {
+                    rs.next();
+                    bases.put(table, rs.getLong(1));
+                }
+            }
+        }
+
+        long started = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(this::printProgress, 10, 10, TimeUnit.SECONDS);
+
+        List<Future<?>> futures = new ArrayList<>();
+        // 学习记录量最大,最先提交
+        int chunk = Math.max(1, (users + threads - 1) / threads);
+        for (int from = 0; from < users; from += chunk) {
+            int start = from;
+            int end = Math.min(users, from + chunk);
+            futures.add(executor.submit(() -> writeLearnRecords(start, end)));
+        }
+        futures.add(executor.submit(this::writeUsers));
+        futures.add(executor.submit(this::writeUserDepartments));
+        futures.add(executor.submit(this::writeHours));
+        futures.add(executor.submit(this::writeChapters));
+        futures.add(executor.submit(this::writeCourses));
+        futures.add(executor.submit(this::writeCourseRelations));
+        futures.add(executor.submit(this::writeDepartments));
+        futures.add(executor.submit(this::writeCategories));
+        futures.add(executor.submit(this::writeResources));
+        futures.add(executor.submit(this::writeQuestions));
+        futures.add(executor.submit(this::writeQuizzes));
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+            reporter.shutdownNow();
+        }
+
+        printProgress();
+        long cost = System.currentTimeMillis() - started;
+        long total = written.values().stream().mapToLong(AtomicLong::get).sum();
+        System.out.printf(
+                "生成完成: %d 行, 耗时 %.1fs, %.0f 行/s%n",
+                total, cost / 1000.0, total * 1000.0 / Math.max(1, cost));
+        System.out.printf(
+                "压测学员ID区间: %d - %d, 邮箱格式: %s%n",
+                bases.get("users") + 1, bases.get("users") + users, emailPattern);
+        System.out.println("提示: 启动 API 后请在后台执行 [学习汇总重建] 以刷新 user_learning_summary");
+    }
+
+    // ---------------- 各表写入任务 ----------------
+
+    private Void writeDepartments() throws SQLException {
+        try (BatchWriter w =
+                writer(
+                        "departments",
+                        "id,name,parent_id,parent_chain,sort,from_scene,created_at,updated_at")) {
+            for (int i = 0; i < departments; i++) {
+                w.add(depId(i), "压测部门" + depId(i), 0, "", i, 0, now, now);
+            }
+        }
+        return null;
+    }
+
+    private Void writeCategories() throws SQLException {
+        try (BatchWriter w =
+                writer(
+                        "resource_categories",
+                        "id,parent_id,parent_chain,name,sort,created_at,updated_at")) {
+            for (int i = 0; i < categories; i++) {
+                w.add(categoryId(i), 0, "", "压测分类" + categoryId(i), i, now, now);
+            }
+        }
+        return null;
+    }
+
+    private Void writeResources() throws SQLException {
+        try (BatchWriter w =
+                        writer(
+                                "resource",
+                                "id,admin_id,type,name,extension,size,disk,path,parent_id,is_hidden,created_at");
+                BatchWriter extra = writer("resource_extra", "rid,poster,duration,created_at")) {
+            for (int i = 0; i < videos; i++) {
+                long id = videoId(i);
+                w.add(
+                        id,
+                        1,
+                        "VIDEO",
+                        "压测视频" + id,
+                        "mp4",
+                        10485760L,
+                        "",
+                        "perf/video-" + id + ".mp4",
+                        0,
+                        0,
+                        now);
+                extra.add(id, 0, videoDuration(i), now);
+            }
+        }
+        return null;
+    }
+
+    private Void writeQuestions() throws SQLException {
+        String options =
+                "[{\"value\":\"A\",\"label\":\"选项A\"},{\"value\":\"B\",\"label\":\"选项B\"},"
+                    + "{\"value\":\"C\",\"label\":\"选项C\"},{\"value\":\"D\",\"label\":\"选项D\"}]";
+        try (BatchWriter w =
+                writer("questions", "id,type,content,options,answer,score,admin_id,created_at")) {
+            for (int i = 0; i < questions; i++) {
+                long id = questionId(i);
+                w.add(id, "SINGLE", "压测题目" + id + "，正确答案为A", options, "[\"A\"]", 10, 1, now);
+            }
+        }
+        return null;
+    }
+
+    private Void writeQuizzes() throws SQLException {
+        try (BatchWriter w =
+                writer(
+                        "quizzes",
+                        "id,title,category,total_score,pass_score,question_ids,admin_id,created_at")) {
+            for (int i = 0; i < quizzes; i++) {
+                StringBuilder ids = new StringBuilder("[");
+                for (int k = 0; k < questionsPerQuiz; k++) {
+                    if (k > 0) {
+                        ids.append(',');
+                    }
+                    ids.append(questionId((i * questionsPerQuiz + k) % questions));
+                }
+                ids.append(']');
+                int total = questionsPerQuiz * 10;
+                w.add(
+                        quizId(i),
+                        "压测练习" + quizId(i),
+                        "ONLINE_AUTO",
+                        total,
+                        total * 6 / 10,
+                        ids.toString(),
+                        1,
+                        now);
+            }
+        }
+        return null;
+    }
+
+    private Void writeCourses() throws SQLException {
+        try (BatchWriter w =
+                writer(
+                        "courses",
+                        "id,title,thumb,charge,short_desc,class_hour,is_show,is_required,sort_at,admin_id,created_at,updated_at")) {
+            for (int i = 0; i < courses; i++) {
+                long id = courseId(i);
+                Timestamp sortAt = new Timestamp(now.getTime() - i * 60_000L);
+                w.add(
+                        id,
+                        "压测课程" + id,
+                        -1 - i % 3,
+                        0,
+                        "",
+                        hoursPerCourse,
+                        1,
+                        i % 2,
+                        sortAt,
+                        1,
+                        now,
+                        now);
+            }
+        }
+        return null;
+    }
+
+    private Void writeCourseRelations() throws SQLException {
+        try (BatchWriter dep = writer("course_department_user", "course_id,range_id,type");
+                BatchWriter category =
+                        writer("resource_course_category", "course_id,category_id")) {
+            for (int i = 0; i < courses; i++) {
+                if (!isOpenCourse(i)) {
+                    dep.add(courseId(i), depId(i % departments), 0);
+                }
+                category.add(courseId(i), categoryId(i % categories));
+            }
+        }
+        return null;
+    }
+
+    private Void writeChapters() throws SQLException {
+        try (BatchWriter w =
+                writer("course_chapters", "id,course_id,name,sort,created_at,updated_at")) {
+            for (int i = 0; i < courses; i++) {
+                for (int c = 0; c < chaptersPerCourse; c++) {
+                    w.add(chapterId(i, c), courseId(i), "第" + (c + 1) + "章", c, now, now);
+                }
+            }
+        }
+        return null;
+    }
+
+    private Void writeHours() throws SQLException {
+        try (BatchWriter w =
+                writer(
+                        "course_hour",
+                        "id,course_id,chapter_id,sort,title,type,rid,quiz_id,duration,created_at,deleted")) {
+            for (int i = 0; i < courses; i++) {
+                for (int h = 0; h < hoursPerCourse; h++) {
+                    long chapterId = chapterId(i, h / hoursPerChapter);
+                    if (isQuizHour(h)) {
+                        long quizId = quizId((i + h) % quizzes);
+                        w.add(
+                                hourId(i, h),
+                                courseId(i),
+                                chapterId,
+                                h,
+                                "课时" + (h + 1),
+                                "QUIZ",
+                                0,
+                                quizId,
+                                0,
+                                now,
+                                0);
+                    } else {
+                        int video = h % videos;
+                        w.add(
+                                hourId(i, h),
+                                courseId(i),
+                                chapterId,
+                                h,
+                                "课时" + (h + 1),
+                                "VIDEO",
+                                videoId(video),
+                                0,
+                                videoDuration(video),
+                                now,
+                                0);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private Void writeUsers() throws SQLException {
+        try (BatchWriter w =
+                writer(
+                        "users",
+                        "id,email,name,avatar,password,salt,id_card,credit1,create_ip,create_city,"
+                            + "is_active,is_lock,is_verify,is_set_password,created_at,updated_at,from_scene")) {
+            for (int i = 0; i < users; i++) {
+                long id = userId(i);
+                w.add(
+                        id,
+                        String.format(emailPattern, id),
+                        "压测学员" + id,
+                        -1,
+                        passwordHashed,
+                        salt,
+                        "",
+                        0,
+                        "127.0.0.1",
+                        "",
+                        1,
+                        0,
+                        0,
+                        0,
+                        now,
+                        now,
+                        0);
+            }
+        }
+        return null;
+    }
+
+    private Void writeUserDepartments() throws SQLException {
+        try (BatchWriter w = writer("user_department", "user_id,dep_id")) {
+            for (int i = 0; i < users; i++) {
+                w.add(userId(i), depId(i % departments));
+            }
+        }
+        return null;
+    }
+
+    /** 学员在本部门可见的课程中学习若干门,每门课随机完成前 N 个课时,最后一个课时只看了一部分。 */
+    private Void writeLearnRecords(int from, int to) throws SQLException {
+        SplittableRandom random = new SplittableRandom(31L * from + bases.get("users"));
+        int perDep = (courses + departments - 1) / departments;
+        int learnCount = Math.min(coursesPerUser, perDep);
+        try (BatchWriter hourRecords =
+                        writer(
+                                "user_course_hour_records",
+                                "user_id,course_id,hour_id,total_duration,finished_duration,real_duration,"
+                                    + "is_finished,finished_at,created_at,updated_at");
+                BatchWriter courseRecords =
+                        writer(
+                                "user_course_records",
+                                "user_id,course_id,hour_count,finished_count,progress,is_finished,"
+                                        + "finished_at,created_at,updated_at")) {
+            for (int u = from; u < to; u++) {
+                long userId = userId(u);
+                int dep = u % departments;
+                for (int j = 0; j < learnCount; j++) {
+                    int course = dep + departments * ((u / departments + j) % perDep);
+                    if (course >= courses) {
+                        continue;
+                    }
+                    long courseId = courseId(course);
+                    int finished = random.nextInt(hoursPerCourse + 1);
+                    for (int h = 0; h < Math.min(finished + 1, hoursPerCourse); h++) {
+                        int total = isQuizHour(h) ? 0 : videoDuration(h % videos);
+                        if (h < finished) {
+                            hourRecords.add(
+                                    userId,
+                                    courseId,
+                                    hourId(course, h),
+                                    total,
+                                    total,
+                                    total,
+                                    1,
+                                    now,
+                                    now,
+                                    now);
+                        } else {
+                            int watched = total == 0 ? 0 : random.nextInt(total);
+                            hourRecords.add(
+                                    userId,
+                                    courseId,
+                                    hourId(course, h),
+                                    total,
+                                    watched,
+                                    watched,
+                                    0,
+                                    null,
+                                    now,
+                                    now);
+                        }
+                    }
+                    boolean done = finished == hoursPerCourse;
+                    courseRecords.add(
+                            userId,
+                            courseId,
+                            hoursPerCourse,
+                            finished,
+                            finished * 10000 / hoursPerCourse,
+                            done ? 1 : 0,
+                            done ? now : null,
+                            now,
+                            now);
+                }
+            }
+        }
+        return null;
+    }
+
+    // ---------------- ID 规划 ----------------
+
+    private long depId(int i) {
+        return bases.get("departments") + i + 1;
+    }
+
+    private long categoryId(int i) {
+        return bases.get("resource_categories") + i + 1;
+    }
+
+    private long videoId(int i) {
+        return bases.get("resource") + i + 1;
+    }
+
+    private long questionId(int i) {
+        return bases.get("questions") + i + 1;
+    }
+
+    private long quizId(int i) {
+        return bases.get("quizzes") + i + 1;
+    }
+
+    private long courseId(int i) {
+        return bases.get("courses") + i + 1;
+    }
+
+    private long chapterId(int course, int chapter) {
+        return bases.get("course_chapters") + (long) course * chaptersPerCourse + chapter + 1;
+    }
+
+    private long hourId(int course, int hour) {
+        return bases.get("course_hour") + (long) course * hoursPerCourse + hour + 1;
+    }
+
+    private long userId(int i) {
+        return bases.get("users") + i + 1;
+    }
+
+    private boolean isOpenCourse(int i) {
+        return openEvery > 0 && i % openEvery == 0;
+    }
+
+    private boolean isQuizHour(int h) {
+        return quizEvery > 0 && (h + 1) % quizEvery == 0;
+    }
+
+    private int videoDuration(int i) {
+        return 300 + (i % 10) * 60;
+    }
+
+    // ---------------- JDBC ----------------
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(
+                url, config.get("jdbc.username"), config.get("jdbc.password", ""));
+    }
+
+    private BatchWriter writer(String table, String columns) throws SQLException {
+        Connection conn = connect();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET SESSION unique_checks=0, foreign_key_checks=0");
+            conn.setAutoCommit(false);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return new BatchWriter(
+                conn,
+                table,
+                columns.split(","),
+                batchSize,
+                written.computeIfAbsent(table, k -> new AtomicLong()));
+    }
+
+    private void printProgress() {
+        StringBuilder sb = new StringBuilder("已写入");
+        written.forEach(
+                (table, count) -> sb.append(' ').append(table).append('=').append(count.get()));
+        System.out.println(sb);
+    }
+
+    private static String withBatchRewrite(String url) {
+        if (url.contains("rewriteBatchedStatements=")) {
+            return url;
+        }
+        return url + (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+    }
+
+    private static String md5(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** 单表批量写入器,每攒满 batchSize 行执行一次 executeBatch 并提交。 */
+    private static class BatchWriter implements AutoCloseable {
+
+        private final Connection conn;
+
+        private final PreparedStatement ps;
+
+        private final int columnCount;
+
+        private final int batchSize;
+
+        private final AtomicLong counter;
+
+        private int pending = 0;
+
+        BatchWriter(
+                Connection conn, String table, String[] columns, int batchSize, AtomicLong counter)
+                throws SQLException {
+            this.conn = conn;
+            this.columnCount = columns.length;
+            this.batchSize = batchSize;
+            this.counter = counter;
+            String placeholders = String.join(",", Collections.nCopies(columnCount, "?"));
+            this.ps =
+                    conn.prepareStatement(
+                            "INSERT INTO "
+                                    + table
+                                    + " ("
+                                    + String.join(",", columns)
+                                    + ") VALUES ("
+                                    + placeholders
+                                    + ")");
+        }
+
+        void add(Object... values) throws SQLException {
+            if (values.length != columnCount) {
+                throw new IllegalArgumentException(
+                        "列数不匹配: " + values.length + " != " + columnCount);
+            }
+            for (int i = 0; i < values.length; i++) {
+                ps.setObject(i + 1, values[i]);
+            }
+            ps.addBatch();
+            if (++pending >= batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            if (pending == 0) {
+                return;
+            }
+            ps.executeBatch();
+            conn.commit();
+            counter.addAndGet(pending);
+            pending = 0;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                flush();
+            } finally {
+                ps.close();
+                conn.close();
+            }
+        }
+    }
+}
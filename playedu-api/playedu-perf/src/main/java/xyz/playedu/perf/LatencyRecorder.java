@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.perf;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按接口统计请求延迟。
+ *
+ * <p>延迟(微秒)落入对数-线性分桶:每个 2 的幂区间再均分 64 段,相对误差约 1.5%,内存与请求量无关,可长时间压测。
+ */
+public class LatencyRecorder {
+
+    private static final int SUB_BITS = 6;
+
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final Map<String, Stats> endpoints = new ConcurrentSkipListMap<>();
+
+    private final Map<String, Long> lastCounts = new ConcurrentHashMap<>();
+
+    private final long startedAt = System.nanoTime();
+
+    private long lastReportAt = startedAt;
+
+    public void record(String endpoint, long nanos, boolean ok) {
+        Stats stats = endpoints.computeIfAbsent(endpoint, k -> new Stats());
+        long micros = Math.max(0, nanos / 1000);
+        stats.buckets.incrementAndGet(index(micros));
+        stats.count.increment();
+        stats.max.accumulateAndGet(micros, Math::max);
+        if (!ok) {
+            stats.errors.increment();
+        }
+    }
+
+    /** 打印累计分位与本周期吞吐;last 为 true 时吞吐按整个压测时长计算。 */
+    public synchronized void report(boolean last) {
+        long nowNanos = System.nanoTime();
+        double seconds = (nowNanos - (last ? startedAt : lastReportAt)) / 1e9;
+        lastReportAt = nowNanos;
+
+        System.out.printf(
+                "%n%-14s %10s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "req/s", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)");
+        endpoints.forEach(
+                (name, stats) -> {
+                    long count = stats.count.sum();
+                    long previous = last ? 0 : lastCounts.getOrDefault(name, 0L);
+                    lastCounts.put(name, count);
+                    long[] snapshot = new long[BUCKETS];
+                    for (int i = 0; i < BUCKETS; i++) {
+                        snapshot[i] = stats.buckets.get(i);
+                    }
+                    System.out.printf(
+                            "%-14s %10d %8d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                            name,
+                            count,
+                            stats.errors.sum(),
+                            (count - previous) / Math.max(seconds, 0.001),
+                            percentile(snapshot, 0.50) / 1000.0,
+                            percentile(snapshot, 0.90) / 1000.0,
+                            percentile(snapshot, 0.99) / 1000.0,
+                            stats.max.get() / 1000.0);
+                });
+    }
+
+    private static long percentile(long[] buckets, double quantile) {
+        long total = 0;
+        for (long c : buckets) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= target) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(buckets.length - 1);
+    }
+
+    private static int index(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) ((value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1));
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_COUNT + SUB_BITS - 1;
+        long sub = index % SUB_COUNT;
+        return ((SUB_COUNT + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    private static class Stats {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder errors = new LongAdder();
+
+        private final AtomicLong max = new AtomicLong();
+    }
+}
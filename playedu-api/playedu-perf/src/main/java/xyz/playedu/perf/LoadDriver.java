@@ -0,0 +1,420 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 负载驱动。
+ *
+ * <p>每个模拟学员占用一个线程,按 登录 → 学员信息 → 课程列表 → 课程详情 → 播放 → 每隔 ping-interval 心跳+学习记录 → 练习提交
+ * 的顺序循环访问正在运行的实例,直到压测时长结束;期间周期性输出各接口的延迟分位与吞吐。
+ *
+ * <p>{@code load.scenario=heartbeat} 时每个学员选定一个视频课时后只循环发送心跳与学习记录,用于对比线程模型下 ping/record 的吞吐与 p99。
+ * {@code load.scenario=ws-heartbeat} 时改为建立一条 WebSocket 播放通道,通过短帧发送心跳与学习记录。
+ *
+ * <p>配置 {@code load.metrics-url} 后同时输出被测实例的连接数与 CPU 占用。
+ */
+public class LoadDriver {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final LatencyRecorder recorder = new LatencyRecorder();
+
+    private final HttpClient client;
+
+    private final String baseUrl;
+
+    private final int students;
+
+    private final int userFrom;
+
+    private final int userTo;
+
+    private final String emailPattern;
+
+    private final String password;
+
+    private final long deadline;
+
+    private final long rampUpMillis;
+
+    private final long pingIntervalMillis;
+
+    private final boolean heartbeatOnly;
+
+    private final boolean websocket;
+
+    private final ServerStats serverStats;
+
+    private final long watchMillis;
+
+    private final int reportSeconds;
+
+    private final Duration timeout;
+
+    public LoadDriver(PerfConfig config) {
+        this.baseUrl = config.get("load.base-url").replaceAll("/+$", "");
+        this.students = config.getInt("load.students");
+        this.userFrom = config.getInt("load.user-from");
+        this.userTo = Math.max(userFrom, config.getInt("load.user-to"));
+        this.emailPattern = config.get("load.email-pattern");
+        this.password = config.get("load.password");
+        this.rampUpMillis = config.getLong("load.ramp-up-seconds") * 1000;
+        String scenario = config.get("load.scenario", "full");
+        this.websocket = "ws-heartbeat".equals(scenario);
+        this.heartbeatOnly = websocket || "heartbeat".equals(scenario);
+        String metricsUrl = config.get("load.metrics-url", "");
+        this.serverStats = metricsUrl.isEmpty() ? null : new ServerStats(metricsUrl);
+        // heartbeat 场景允许间隔为 0,即不间断地发送心跳
+        this.pingIntervalMillis =
+                Math.max(heartbeatOnly ? 0 : 1, config.getLong("load.ping-interval-seconds"))
+                        * 1000;
+        this.watchMillis = config.getLong("load.watch-seconds") * 1000;
+        this.reportSeconds = Math.max(1, config.getInt("load.report-interval-seconds"));
+        this.timeout = Duration.ofSeconds(config.getLong("load.timeout-seconds"));
+        this.deadline = System.currentTimeMillis() + config.getLong("load.duration-seconds") * 1000;
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    public void run() throws InterruptedException {
+        System.out.printf("开始压测: %s, 学员=%d, 账号区间=%d-%d%n", baseUrl, students, userFrom, userTo);
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        if (serverStats != null) {
+            serverStats.report(false);
+        }
+        reporter.scheduleAtFixedRate(
+                () -> {
+                    recorder.report(false);
+                    if (serverStats != null) {
+                        serverStats.report(false);
+                    }
+                },
+                reportSeconds,
+                reportSeconds,
+                TimeUnit.SECONDS);
+
+        CountDownLatch done = new CountDownLatch(students);
+        int accounts = userTo - userFrom + 1;
+        for (int i = 0; i < students; i++) {
+            int userId = userFrom + i % accounts;
+            long delay = students <= 1 ? 0 : rampUpMillis * i / students;
+            Thread thread =
+                    new Thread(
+                            () -> {
+                                try {
+                                    sleep(delay);
+                                    new Student(String.format(emailPattern, userId)).run();
+                                } catch (InterruptedException ignored) {
+                                    Thread.currentThread().interrupt();
+                                } finally {
+                                    done.countDown();
+                                }
+                            },
+                            "student-" + userId);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        done.await();
+        reporter.shutdownNow();
+        System.out.println("\n======== 汇总 ========");
+        recorder.report(true);
+        if (serverStats != null) {
+            serverStats.report(true);
+        }
+    }
+
+    private void sleep(long millis) throws InterruptedException {
+        long remain = Math.min(millis, deadline - System.currentTimeMillis());
+        if (remain > 0) {
+            Thread.sleep(remain);
+        }
+    }
+
+    private boolean expired() {
+        return System.currentTimeMillis() >= deadline;
+    }
+
+    /** 单个模拟学员的会话。 */
+    private class Student {
+
+        private final String email;
+
+        private String token;
+
+        Student(String email) {
+            this.email = email;
+        }
+
+        void run() throws InterruptedException {
+            while (!expired() && !login()) {
+                sleep(1000);
+            }
+            JsonNode detail = call("user.detail", get("/api/v1/user/detail"));
+            if (detail == null || detail.path("departments").isEmpty()) {
+                return;
+            }
+            int depId = detail.path("departments").get(0).path("id").asInt();
+
+            while (!expired()) {
+                JsonNode list = call("user.courses", get("/api/v1/user/courses?dep_id=" + depId));
+                JsonNode courses = list == null ? null : list.path("courses");
+                if (courses == null || courses.isEmpty()) {
+                    sleep(pingIntervalMillis);
+                    continue;
+                }
+                int courseId = pick(courses).path("id").asInt();
+
+                JsonNode course = call("course.detail", get("/api/v1/course/" + courseId));
+                List<JsonNode> hours = new ArrayList<>();
+                if (course != null) {
+                    course.path("hours").forEach(chapter -> chapter.forEach(hours::add));
+                }
+                if (hours.isEmpty()) {
+                    continue;
+                }
+                JsonNode hour = hours.get(ThreadLocalRandom.current().nextInt(hours.size()));
+                String hourPath = "/api/v1/course/" + courseId + "/hour/" + hour.path("id").asInt();
+                if (heartbeatOnly) {
+                    if ("QUIZ".equals(hour.path("type").asText())) {
+                        continue;
+                    }
+                    if (websocket) {
+                        wsHeartbeat(
+                                courseId, hour.path("id").asInt(), hour.path("duration").asInt());
+                    } else {
+                        heartbeat(hourPath, hour.path("duration").asInt());
+                    }
+                } else if ("QUIZ".equals(hour.path("type").asText())) {
+                    quiz(hourPath);
+                } else {
+                    watch(hourPath, hour.path("duration").asInt());
+                }
+            }
+        }
+
+        private boolean login() {
+            Map<String, Object> body = new HashMap<>();
+            body.put("email", email);
+            body.put("password", password);
+            JsonNode data = call("auth.login", post("/api/v1/auth/login/password", body));
+            if (data == null) {
+                return false;
+            }
+            token = data.path("token").asText();
+            return true;
+        }
+
+        private void watch(String hourPath, int duration) throws InterruptedException {
+            if (call("hour.play", get(hourPath + "/play")) == null) {
+                return;
+            }
+            long watched = 0;
+            while (watched < watchMillis && !expired()) {
+                sleep(pingIntervalMillis);
+                watched += pingIntervalMillis;
+                call("hour.ping", post(hourPath + "/ping", Map.of()));
+                int position = (int) Math.min(watched / 1000, duration);
+                call("hour.record", post(hourPath + "/record", Map.of("duration", position)));
+            }
+        }
+
+        /** 不切换课时,持续发送心跳与学习记录直到压测结束 */
+        private void heartbeat(String hourPath, int duration) throws InterruptedException {
+            int position = 0;
+            while (!expired()) {
+                sleep(pingIntervalMillis);
+                call("hour.ping", post(hourPath + "/ping", Map.of()));
+                position = duration <= 0 ? position + 1 : (position + 1) % duration;
+                call("hour.record", post(hourPath + "/record", Map.of("duration", position + 1)));
+            }
+        }
+
+        /** 通过 WebSocket 播放通道发送心跳与学习记录;学习记录以收到服务端确认为准计算延迟 */
+        private void wsHeartbeat(int courseId, int hourId, int duration)
+                throws InterruptedException {
+            AtomicReference<CompletableFuture<String>> pending = new AtomicReference<>();
+            WebSocket.Listener listener =
+                    new WebSocket.Listener() {
+                        private final StringBuilder buffer = new StringBuilder();
+
+                        @Override
+                        public CompletionStage<?> onText(
+                                WebSocket webSocket, CharSequence data, boolean last) {
+                            buffer.append(data);
+                            if (last) {
+                                CompletableFuture<String> waiting = pending.getAndSet(null);
+                                if (waiting != null) {
+                                    waiting.complete(buffer.toString());
+                                }
+                                buffer.setLength(0);
+                            }
+                            webSocket.request(1);
+                            return null;
+                        }
+                    };
+
+            long start = System.nanoTime();
+            WebSocket ws;
+            try {
+                String url =
+                        baseUrl.replaceFirst("^http", "ws")
+                                + "/api/v1/ws/playback?token="
+                                + URLEncoder.encode(token, StandardCharsets.UTF_8);
+                ws = client.newWebSocketBuilder().buildAsync(URI.create(url), listener).join();
+                recorder.record("ws.connect", System.nanoTime() - start, true);
+            } catch (Exception e) {
+                recorder.record("ws.connect", System.nanoTime() - start, false);
+                sleep(1000);
+                return;
+            }
+
+            try {
+                int position = 0;
+                while (!expired() && !ws.isOutputClosed()) {
+                    sleep(pingIntervalMillis);
+
+                    start = System.nanoTime();
+                    boolean ok = send(ws, "h " + courseId + " " + hourId);
+                    recorder.record("ws.ping", System.nanoTime() - start, ok);
+
+                    position = duration <= 0 ? position + 1 : (position + 1) % duration;
+                    CompletableFuture<String> reply = new CompletableFuture<>();
+                    pending.set(reply);
+                    start = System.nanoTime();
+                    ok = send(ws, "r " + courseId + " " + hourId + " " + (position + 1));
+                    try {
+                        ok =
+                                ok
+                                        && reply.get(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                                                .startsWith("r ");
+                    } catch (Exception e) {
+                        ok = false;
+                    }
+                    recorder.record("ws.record", System.nanoTime() - start, ok);
+                }
+            } finally {
+                ws.sendClose(WebSocket.NORMAL_CLOSURE, "").exceptionally(e -> null);
+            }
+        }
+
+        private boolean send(WebSocket ws, String frame) {
+            try {
+                ws.sendText(frame, true).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        private void quiz(String hourPath) {
+            JsonNode data = call("quiz.detail", get(hourPath + "/quiz"));
+            if (data == null) {
+                return;
+            }
+            Map<String, List<String>> answers = new HashMap<>();
+            for (JsonNode question : data.path("quiz").path("questions")) {
+                JsonNode options = question.path("options");
+                if (!options.isEmpty()) {
+                    answers.put(
+                            question.path("id").asText(),
+                            List.of(pick(options).path("value").asText()));
+                }
+            }
+            call("quiz.submit", post(hourPath + "/quiz", Map.of("answers", answers)));
+        }
+
+        private JsonNode pick(JsonNode array) {
+            return array.get(ThreadLocalRandom.current().nextInt(array.size()));
+        }
+
+        private HttpRequest.Builder request(String path) {
+            HttpRequest.Builder builder =
+                    HttpRequest.newBuilder(URI.create(baseUrl + path))
+                            .timeout(timeout)
+                            .header("Accept", "application/json");
+            if (token != null) {
+                builder.header("Authorization", "Bearer " + token);
+            }
+            return builder;
+        }
+
+        private HttpRequest get(String path) {
+            return request(path).GET().build();
+        }
+
+        private HttpRequest post(String path, Object body) {
+            try {
+                return request(path)
+                        .header("Content-Type", "application/json")
+                        .POST(
+                                HttpRequest.BodyPublishers.ofByteArray(
+                                        objectMapper.writeValueAsBytes(body)))
+                        .build();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /** 发起请求并记录延迟;HTTP 200 且 code=0 视为成功,返回 data 节点,否则返回 null。 */
+        private JsonNode call(String endpoint, HttpRequest request) {
+            long start = System.nanoTime();
+            JsonNode data = null;
+            try {
+                HttpResponse<byte[]> response =
+                        client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                if (response.statusCode() == 200) {
+                    JsonNode root = objectMapper.readTree(response.body());
+                    if (root.path("code").asInt(-1) == 0) {
+                        data = root.path("data");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception ignored) {
+                // 超时、连接失败等统一计入错误数
+            }
+            recorder.record(endpoint, System.nanoTime() - start, data != null);
+            return data;
+        }
+    }
+}
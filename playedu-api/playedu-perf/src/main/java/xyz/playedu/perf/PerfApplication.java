@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.perf;
+
+/**
+ * 压测工具入口。
+ *
+ * <pre>
+ * java -jar playedu-perf.jar generate --jdbc.url=... --gen.users=200000
+ * java -jar playedu-perf.jar load --load.base-url=http://127.0.0.1:9898 --load.students=500
+ * </pre>
+ */
+public class PerfApplication {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        PerfConfig config = PerfConfig.load(args);
+        switch (args[0]) {
+            case "generate" -> new DataGenerator(config).run();
+            case "load" -> new LoadDriver(config).run();
+            default -> usage();
+        }
+    }
+
+    private static void usage() {
+        System.out.println(
+                "用法: java -jar playedu-perf.jar <generate|load> [--config=文件] [--key=value ...]");
+        System.out.println("  generate  按配置规模批量写入部门/分类/课程/课时/学员/学习记录");
+        System.out.println("  load      模拟学员 登录→课程列表→播放→心跳→记录→练习提交 并输出各接口延迟分位");
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.perf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * 压测配置。
+ *
+ * <p>先读取 classpath 下的 perf.properties 默认值，再依次叠加 --config 指定的文件与 --key=value 命令行参数。
+ */
+public class PerfConfig {
+
+    private final Properties props = new Properties();
+
+    public static PerfConfig load(String[] args) throws IOException {
+        PerfConfig config = new PerfConfig();
+        try (InputStream in = PerfConfig.class.getResourceAsStream("/perf.properties")) {
+            if (in != null) {
+                config.props.load(in);
+            }
+        }
+
+        Properties cli = new Properties();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                continue;
+            }
+            String item = arg.substring(2);
+            int pos = item.indexOf('=');
+            if (pos <= 0) {
+                cli.setProperty(item, "true");
+            } else {
+                cli.setProperty(item.substring(0, pos), item.substring(pos + 1));
+            }
+        }
+
+        String file = cli.getProperty("config");
+        if (file != null) {
+            try (InputStream in = Files.newInputStream(Path.of(file))) {
+                config.props.load(in);
+            }
+        }
+        config.props.putAll(cli);
+        return config;
+    }
+
+    public String get(String key) {
+        String value = props.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("缺少配置项: " + key);
+        }
+        return value.trim();
+    }
+
+    public String get(String key, String defaultValue) {
+        String value = props.getProperty(key);
+        return value == null ? defaultValue : value.trim();
+    }
+
+    public int getInt(String key) {
+        return Integer.parseInt(get(key));
+    }
+
+    public long getLong(String key) {
+        return Long.parseLong(get(key));
+    }
+
+    public double getDouble(String key) {
+        return Double.parseDouble(get(key));
+    }
+}
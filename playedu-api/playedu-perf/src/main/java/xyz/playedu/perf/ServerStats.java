@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.perf;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * 服务端资源占用。
+ *
+ * <p>周期性抓取被测实例管理端口的 /metrics,输出播放通道连接数、进程 CPU 占用(核)与每千连接的 CPU 占用。
+ */
+public class ServerStats {
+
+    private final HttpClient client =
+            HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    private final URI metricsUri;
+
+    private Sample first;
+
+    private Sample previous;
+
+    public ServerStats(String metricsUrl) {
+        this.metricsUri = URI.create(metricsUrl);
+    }
+
+    /** 打印本周期的占用;last 为 true 时 CPU 按整个压测时长平均。 */
+    public synchronized void report(boolean last) {
+        Sample current = scrape();
+        if (current == null) {
+            System.out.println("服务端指标抓取失败: " + metricsUri);
+            return;
+        }
+        if (first == null) {
+            first = current;
+        }
+        Sample base = last ? first : previous;
+        previous = current;
+        if (base == null || current.at <= base.at) {
+            System.out.printf("服务端: 播放通道连接=%d%n", current.sessions);
+            return;
+        }
+        double cores = (current.cpuSeconds - base.cpuSeconds) / ((current.at - base.at) / 1e9);
+        System.out.printf(
+                "服务端: 播放通道连接=%d, CPU=%.2f核, 每千连接CPU=%s核%n",
+                current.sessions,
+                cores,
+                current.sessions > 0
+                        ? String.format("%.3f", cores * 1000 / current.sessions)
+                        : "-");
+    }
+
+    private Sample scrape() {
+        try {
+            HttpResponse<String> response =
+                    client.send(
+                            HttpRequest.newBuilder(metricsUri)
+                                    .timeout(Duration.ofSeconds(5))
+                                    .GET()
+                                    .build(),
+                            HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            Sample sample = new Sample();
+            sample.at = System.nanoTime();
+            for (String line : response.body().split("\n")) {
+                if (line.startsWith("playedu_playback_sessions ")) {
+                    sample.sessions = (long) value(line);
+                } else if (line.startsWith("process_cpu_seconds_total ")) {
+                    sample.cpuSeconds = value(line);
+                }
+            }
+            return sample;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static double value(String line) {
+        return Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+    }
+
+    private static class Sample {
+        long at;
+        long sessions;
+        double cpuSeconds;
+    }
+}
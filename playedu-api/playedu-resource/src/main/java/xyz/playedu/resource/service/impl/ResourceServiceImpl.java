@@ -15,17 +15,22 @@
  */
 package xyz.playedu.resource.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import java.io.Serializable;
 import java.util.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import xyz.playedu.common.exception.NotFoundException;
+import xyz.playedu.common.search.NgramIndex;
+import xyz.playedu.common.search.SearchIndexProvider;
 import xyz.playedu.common.service.AppConfigService;
 import xyz.playedu.common.types.paginate.PaginationResult;
 import xyz.playedu.common.types.paginate.ResourcePaginateFilter;
 import xyz.playedu.common.util.S3Util;
 import xyz.playedu.common.util.StringUtil;
+import xyz.playedu.common.util.TransactionUtil;
 import xyz.playedu.resource.domain.Resource;
 import xyz.playedu.resource.domain.ResourceCategory;
 import xyz.playedu.resource.domain.ResourceExtra;
@@ -41,7 +46,7 @@ import xyz.playedu.resource.service.ResourceService;
  */
 @Service
 public class ResourceServiceImpl extends ServiceImpl<ResourceMapper, Resource>
-        implements ResourceService {
+        implements ResourceService, SearchIndexProvider {
 
     @Autowired private ResourceExtraService resourceExtraService;
 
@@ -49,6 +54,9 @@ public class ResourceServiceImpl extends ServiceImpl<ResourceMapper, Resource>
 
     @Autowired private AppConfigService appConfigService;
 
+    // 资源名称搜索索引
+    private final NgramIndex nameIndex = new NgramIndex();
+
     @Override
     public PaginationResult<Resource> paginate(int page, int size, ResourcePaginateFilter filter) {
         PaginationResult<Resource> pageResult = new PaginationResult<>();
@@ -56,6 +64,12 @@ public class ResourceServiceImpl extends ServiceImpl<ResourceMapper, Resource>
         filter.setPageStart((page - 1) * size);
         filter.setPageSize(size);
 
+        List<Integer> ids = NgramIndex.toIdFilter(nameIndex.search(filter.getName()));
+        if (ids != null) {
+            filter.setIds(ids);
+            filter.setName(null);
+        }
+
         pageResult.setData(getBaseMapper().paginate(filter));
         pageResult.setTotal(getBaseMapper().paginateCount(filter));
 
@@ -267,4 +281,53 @@ public class ResourceServiceImpl extends ServiceImpl<ResourceMapper, Resource>
         }
         return preSignUrlMap;
     }
+
+    @Override
+    public void rebuildSearchIndex() {
+        nameIndex.rebuild(
+                () -> {
+                    Map<Integer, String> data = new HashMap<>();
+                    query().select("id", "name")
+                            .list()
+                            .forEach(resource -> data.put(resource.getId(), resource.getName()));
+                    return data;
+                });
+    }
+
+    @Override
+    public boolean save(Resource entity) {
+        boolean result = super.save(entity);
+        TransactionUtil.afterCommit(() -> nameIndex.put(entity.getId(), entity.getName()));
+        return result;
+    }
+
+    @Override
+    public boolean updateById(Resource entity) {
+        boolean result = super.updateById(entity);
+        if (entity.getName() != null) {
+            TransactionUtil.afterCommit(() -> nameIndex.put(entity.getId(), entity.getName()));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        TransactionUtil.afterCommit(() -> nameIndex.remove((Integer) id));
+        return result;
+    }
+
+    @Override
+    public boolean update(Resource entity, Wrapper<Resource> updateWrapper) {
+        boolean result = super.update(entity, updateWrapper);
+        rebuildSearchIndexAfterCommit();
+        return result;
+    }
+
+    @Override
+    public boolean remove(Wrapper<Resource> queryWrapper) {
+        boolean result = super.remove(queryWrapper);
+        rebuildSearchIndexAfterCommit();
+        return result;
+    }
 }
@@ -15,6 +15,7 @@
  */
 package xyz.playedu.resource.service.impl;
 
+import java.io.InputStream;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -93,10 +94,16 @@ public class UploadServiceImpl implements UploadService {
     public Resource storeBase64Image(
             S3Config s3Config, Integer adminId, String content, String categoryIds) {
         // data:image/jpeg;base64,
-        String[] base64Rows = content.split(",");
+        int dataStart = content.indexOf(',');
+        if (dataStart < 0) {
+            throw new ServiceException("图片数据格式错误");
+        }
         // 解析出content-type
         String contentType =
-                base64Rows[0].replaceAll("data:", "").replaceAll(";base64", "").toLowerCase();
+                content.substring(0, dataStart)
+                        .replaceAll("data:", "")
+                        .replaceAll(";base64", "")
+                        .toLowerCase();
         // 解析出文件格式
         String ext = contentType.replaceAll("image/", "");
         // 通过文件格式解析资源类型
@@ -105,14 +112,21 @@ public class UploadServiceImpl implements UploadService {
         if (StringUtil.isEmpty(type)) {
             throw new ServiceException("当前格式不支持");
         }
-        byte[] binary = Base64Util.decode(base64Rows[1]);
+        // 流式解码，不生成完整的二进制数组
+        long size = Base64Util.decodedLength(content, dataStart + 1);
 
         String filename = HelperUtil.randomString(32) + "." + ext;
         String savePath = BackendConstant.RESOURCE_TYPE_2_DIR.get(type) + filename;
 
         // 保存文件
-        new S3Util(s3Config)
-                .saveBytes(binary, savePath, BackendConstant.RESOURCE_EXT_2_CONTENT_TYPE.get(ext));
+        try (InputStream inputStream = Base64Util.decodeStream(content, dataStart + 1)) {
+            new S3Util(s3Config)
+                    .saveStream(
+                            inputStream,
+                            size,
+                            savePath,
+                            BackendConstant.RESOURCE_EXT_2_CONTENT_TYPE.get(ext));
+        }
 
         // 上传记录
         return resourceService.create(
@@ -121,7 +135,7 @@ public class UploadServiceImpl implements UploadService {
                 type,
                 filename,
                 ext,
-                (long) binary.length,
+                size,
                 "",
                 savePath,
                 CommonConstant.ZERO,
@@ -25,16 +25,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import xyz.playedu.common.annotation.Lock;
 import xyz.playedu.common.exception.LimitException;
-import xyz.playedu.common.util.MemoryDistributedLock;
+import xyz.playedu.common.util.LockManager;
 
 @Aspect
 @Component
 public class LockAspect {
-    @Autowired private MemoryDistributedLock distributedLock;
-
-    public LockAspect(MemoryDistributedLock distributedLock) {
-        this.distributedLock = distributedLock;
-    }
+    @Autowired private LockManager lockManager;
 
     @Around("@annotation(xyz.playedu.common.annotation.Lock)")
     public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
@@ -44,14 +40,14 @@ public class LockAspect {
         String key = lock.key();
         long expire = lock.expire();
         TimeUnit timeUnit = lock.timeUnit();
-        boolean success = distributedLock.tryLock(key, expire, timeUnit);
-        if (!success) {
+        LockManager.Token token = lockManager.tryLock(key, expire, lock.waitTime(), timeUnit);
+        if (token == null) {
             throw new LimitException("请稍后再试");
         }
         try {
             return joinPoint.proceed();
         } finally {
-            distributedLock.releaseLock(key);
+            lockManager.release(token);
         }
     }
 }
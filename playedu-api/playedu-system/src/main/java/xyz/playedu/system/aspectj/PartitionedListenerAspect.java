@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.system.aspectj;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.SimpleEvaluationContext;
+import org.springframework.stereotype.Component;
+import xyz.playedu.common.annotation.PartitionedListener;
+import xyz.playedu.common.bus.EventDispatcher;
+
+@Aspect
+@Component
+public class PartitionedListenerAspect {
+
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser();
+
+    private static final SimpleEvaluationContext EVALUATION_CONTEXT =
+            SimpleEvaluationContext.forReadOnlyDataBinding().build();
+
+    private final Map<String, Expression> expressions = new ConcurrentHashMap<>();
+
+    @Autowired private EventDispatcher eventDispatcher;
+
+    @Around("@annotation(xyz.playedu.common.annotation.PartitionedListener)")
+    public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (EventDispatcher.isDirect()) {
+            return joinPoint.proceed();
+        }
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        Method method = signature.getMethod();
+        PartitionedListener options = method.getAnnotation(PartitionedListener.class);
+        Object event = joinPoint.getArgs()[0];
+
+        String listener =
+                AopUtils.getTargetClass(joinPoint.getTarget()).getName() + "#" + method.getName();
+        eventDispatcher.dispatch(
+                listener, partitionKey(options.key(), event), options, event, joinPoint::proceed);
+        return null;
+    }
+
+    private String partitionKey(String key, Object event) {
+        if (key.isEmpty()) {
+            return null;
+        }
+        Expression expression = expressions.computeIfAbsent(key, PARSER::parseExpression);
+        Object value = expression.getValue(EVALUATION_CONTEXT, event);
+        return value == null ? null : value.toString();
+    }
+}
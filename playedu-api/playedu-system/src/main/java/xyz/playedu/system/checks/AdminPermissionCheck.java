@@ -17,16 +17,13 @@ package xyz.playedu.system.checks;
 
 import java.util.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
-import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import xyz.playedu.common.constant.BPermissionConstant;
 import xyz.playedu.common.domain.AdminPermission;
 import xyz.playedu.common.service.AdminPermissionService;
 
-@Order(1020)
 @Component
-public class AdminPermissionCheck implements CommandLineRunner {
+public class AdminPermissionCheck implements BootstrapCheck {
 
     private final Map<String, Map<String, AdminPermission[]>> permissions =
             new HashMap<>() {
@@ -281,9 +278,37 @@ public class AdminPermissionCheck implements CommandLineRunner {
 
     @Autowired private AdminPermissionService permissionService;
 
+    @Autowired private BootstrapFingerprint bootstrapFingerprint;
+
     @Override
-    public void run(String... args) throws Exception {
-        HashMap<String, Integer> slugs = permissionService.allSlugs();
+    public void check() throws Exception {
+        List<String> definitions = new ArrayList<>();
+        permissions.forEach(
+                (typeValue, group) ->
+                        group.forEach(
+                                (groupNameValue, item) -> {
+                                    for (AdminPermission p : item) {
+                                        definitions.add(
+                                                String.join(
+                                                        "|",
+                                                        typeValue,
+                                                        groupNameValue,
+                                                        p.getSlug(),
+                                                        String.valueOf(p.getSort()),
+                                                        p.getName()));
+                                    }
+                                }));
+        String fingerprint = bootstrapFingerprint.withRowCounts(definitions, "admin_permissions");
+        if (bootstrapFingerprint.unchanged("admin_permissions", fingerprint)) {
+            return;
+        }
+
+        // 一次读出现有权限，只写回有变化的行
+        Map<String, AdminPermission> exists = new HashMap<>();
+        for (AdminPermission p : permissionService.list()) {
+            exists.put(p.getSlug(), p);
+        }
+        List<AdminPermission> updates = new ArrayList<>();
         List<AdminPermission> list = new ArrayList<>();
         Date now = new Date();
 
@@ -292,24 +317,36 @@ public class AdminPermissionCheck implements CommandLineRunner {
                     group.forEach(
                             (groupNameValue, item) -> {
                                 for (AdminPermission permissionItem : item) {
-                                    AdminPermission newPermissionItem =
-                                            new AdminPermission() {
-                                                {
-                                                    setType(typeValue);
-                                                    setGroupName(groupNameValue);
-                                                    setSort(permissionItem.getSort());
-                                                    setName(permissionItem.getName());
-                                                }
-                                            };
-
-                                    Integer existsId = slugs.get(permissionItem.getSlug());
-                                    if (existsId != null && existsId > 0) {
-                                        newPermissionItem.setId(existsId);
-                                        permissionService.updateById(newPermissionItem);
+                                    AdminPermission existsItem =
+                                            exists.get(permissionItem.getSlug());
+                                    if (existsItem != null) {
+                                        if (Objects.equals(existsItem.getType(), typeValue)
+                                                && Objects.equals(
+                                                        existsItem.getGroupName(), groupNameValue)
+                                                && Objects.equals(
+                                                        existsItem.getSort(),
+                                                        permissionItem.getSort())
+                                                && Objects.equals(
+                                                        existsItem.getName(),
+                                                        permissionItem.getName())) {
+                                            continue;
+                                        }
+                                        AdminPermission updateItem = new AdminPermission();
+                                        updateItem.setId(existsItem.getId());
+                                        updateItem.setType(typeValue);
+                                        updateItem.setGroupName(groupNameValue);
+                                        updateItem.setSort(permissionItem.getSort());
+                                        updateItem.setName(permissionItem.getName());
+                                        updates.add(updateItem);
                                         continue;
                                     }
 
                                     // 不存在
+                                    AdminPermission newPermissionItem = new AdminPermission();
+                                    newPermissionItem.setType(typeValue);
+                                    newPermissionItem.setGroupName(groupNameValue);
+                                    newPermissionItem.setSort(permissionItem.getSort());
+                                    newPermissionItem.setName(permissionItem.getName());
                                     newPermissionItem.setCreatedAt(now);
                                     newPermissionItem.setSlug(permissionItem.getSlug());
                                     list.add(newPermissionItem);
@@ -317,8 +354,16 @@ public class AdminPermissionCheck implements CommandLineRunner {
                             });
                 });
 
+        if (!updates.isEmpty()) {
+            permissionService.updateBatchById(updates);
+        }
         if (!list.isEmpty()) {
             permissionService.saveBatch(list);
         }
+
+        // 补齐后行数已变化，按写入后的行数保存
+        bootstrapFingerprint.save(
+                "admin_permissions",
+                bootstrapFingerprint.withRowCounts(definitions, "admin_permissions"));
     }
 }
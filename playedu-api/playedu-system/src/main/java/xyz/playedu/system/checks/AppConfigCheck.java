@@ -17,8 +17,6 @@ package xyz.playedu.system.checks;
 
 import java.util.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
-import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import xyz.playedu.common.constant.BackendConstant;
 import xyz.playedu.common.constant.ConfigConstant;
@@ -26,8 +24,7 @@ import xyz.playedu.common.domain.AppConfig;
 import xyz.playedu.common.service.AppConfigService;
 
 @Component
-@Order(100)
-public class AppConfigCheck implements CommandLineRunner {
+public class AppConfigCheck implements BootstrapCheck {
 
     private static final HashMap<String, AppConfig[]> configs =
             new HashMap<>() {
@@ -270,8 +267,23 @@ public class AppConfigCheck implements CommandLineRunner {
 
     @Autowired private AppConfigService configService;
 
+    @Autowired private BootstrapFingerprint bootstrapFingerprint;
+
     @Override
-    public void run(String... args) throws Exception {
+    public void check() throws Exception {
+        // 只补齐缺少的配置项，配置项列表不变时无需查询
+        List<String> definitions = new ArrayList<>();
+        configs.forEach(
+                (groupNameValue, items) -> {
+                    for (AppConfig item : items) {
+                        definitions.add(groupNameValue + "|" + item.getKeyName());
+                    }
+                });
+        String fingerprint = bootstrapFingerprint.withRowCounts(definitions, "app_config");
+        if (bootstrapFingerprint.unchanged("app_config", fingerprint)) {
+            return;
+        }
+
         Map<String, Long> keys = configService.allKeys();
         List<AppConfig> list = new ArrayList<>();
         Date now = new Date();
@@ -294,5 +306,9 @@ public class AppConfigCheck implements CommandLineRunner {
         if (!list.isEmpty()) {
             configService.saveBatch(list);
         }
+
+        // 补齐后行数已变化，按写入后的行数保存
+        bootstrapFingerprint.save(
+                "app_config", bootstrapFingerprint.withRowCounts(definitions, "app_config"));
     }
 }
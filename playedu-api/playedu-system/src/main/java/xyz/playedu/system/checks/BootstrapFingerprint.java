@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.system.checks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动检查的定义指纹
+ *
+ * <p>各检查把自身的定义(迁移、权限、配置项等)算成一个哈希存入 bootstrap_fingerprints，下次启动时定义未变化则整体跳过。
+ * 哈希中同时包含检查写入的表的行数，行被手工删除后指纹随之变化，下次启动会重新补齐。 其它手工改动可以通过 playedu.bootstrap.force-checks=true
+ * 强制执行一次全部检查。
+ */
+@Component
+@Slf4j
+public class BootstrapFingerprint {
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Value("${playedu.bootstrap.force-checks:false}")
+    private boolean forceChecks;
+
+    private Map<String, String> stored;
+
+    public synchronized boolean unchanged(String name, String fingerprint) {
+        if (forceChecks) {
+            return false;
+        }
+        if (stored == null) {
+            stored = load();
+        }
+        return fingerprint.equals(stored.get(name));
+    }
+
+    public synchronized void save(String name, String fingerprint) {
+        jdbcTemplate.update(
+                "INSERT INTO `bootstrap_fingerprints` (`name`, `fingerprint`, `updated_at`) VALUES"
+                        + " (?, ?, NOW()) ON DUPLICATE KEY UPDATE `fingerprint` ="
+                        + " VALUES(`fingerprint`), `updated_at` = VALUES(`updated_at`)",
+                name,
+                fingerprint);
+        if (stored != null) {
+            stored.put(name, fingerprint);
+        }
+    }
+
+    /** 定义项加上各表的当前行数，表不存在时行数记为-1 */
+    public String withRowCounts(Collection<String> items, String... tables) {
+        List<String> all = new ArrayList<>(items);
+        for (String table : tables) {
+            long rows;
+            try {
+                rows =
+                        jdbcTemplate.queryForObject(
+                                "SELECT COUNT(*) FROM `" + table + "`", Long.class);
+            } catch (DataAccessException e) {
+                rows = -1;
+            }
+            all.add("#rows|" + table + "|" + rows);
+        }
+        return of(all);
+    }
+
+    /** 定义项的顺序不影响结果 */
+    public static String of(Collection<String> items) {
+        List<String> sorted = items.stream().sorted().toList();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String item : sorted) {
+                digest.update(item.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<String, String> load() {
+        Map<String, String> data = new HashMap<>();
+        try {
+            jdbcTemplate.query(
+                    "SELECT `name`, `fingerprint` FROM `bootstrap_fingerprints`",
+                    rs -> {
+                        data.put(rs.getString("name"), rs.getString("fingerprint"));
+                    });
+        } catch (DataAccessException e) {
+            // 首次启动时表尚未创建
+            log.info("启动检查指纹不存在,将执行全部检查");
+        }
+        return data;
+    }
+}
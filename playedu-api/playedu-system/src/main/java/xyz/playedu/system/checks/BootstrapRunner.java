@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.system.checks;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/** 启动检查：先执行数据库迁移，之后互不依赖的检查并行执行，最后执行升级修正 */
+@Order(10)
+@Component
+@Slf4j
+public class BootstrapRunner implements CommandLineRunner {
+
+    @Autowired private MigrationCheck migrationCheck;
+
+    @Autowired private SystemDataCheck systemDataCheck;
+
+    @Autowired private AppConfigCheck appConfigCheck;
+
+    @Autowired private AdminPermissionCheck adminPermissionCheck;
+
+    @Autowired private UpgradeCheck upgradeCheck;
+
+    @Override
+    public void run(String... args) throws Exception {
+        long start = System.currentTimeMillis();
+
+        timed(migrationCheck);
+
+        List<BootstrapCheck> independent =
+                List.of(systemDataCheck, appConfigCheck, adminPermissionCheck);
+        ExecutorService executor =
+                Executors.newFixedThreadPool(
+                        independent.size(),
+                        r -> {
+                            Thread thread = new Thread(r, "bootstrap-check");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        try {
+            CompletableFuture.allOf(
+                            independent.stream()
+                                    .map(
+                                            check ->
+                                                    CompletableFuture.runAsync(
+                                                            () -> {
+                                                                try {
+                                                                    timed(check);
+                                                                } catch (Exception e) {
+                                                                    throw new CompletionException(
+                                                                            e);
+                                                                }
+                                                            },
+                                                            executor))
+                                    .toArray(CompletableFuture[]::new))
+                    .join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+
+        timed(upgradeCheck);
+
+        log.info("启动检查完成,耗时={}ms", System.currentTimeMillis() - start);
+    }
+
+    private void timed(BootstrapCheck check) throws Exception {
+        long start = System.currentTimeMillis();
+        check.check();
+        log.debug(
+                "启动检查{}完成,耗时={}ms",
+                check.getClass().getSimpleName(),
+                System.currentTimeMillis() - start);
+    }
+}
@@ -17,20 +17,19 @@ package xyz.playedu.system.checks;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
-import org.springframework.core.annotation.Order;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import xyz.playedu.system.service.MigrationService;
 
-@Order(10)
 @Component
 @Slf4j
-public class MigrationCheck implements CommandLineRunner {
+public class MigrationCheck implements BootstrapCheck {
 
     public static final List<Map<String, String>> TABLE_SQL =
             new ArrayList<>() {
@@ -977,6 +976,410 @@ public class MigrationCheck implements CommandLineRunner {
                                                     """);
                                 }
                             });
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "purge_jobs");
+                                    put("name", "20261019_10_00_00_purge_jobs");
+                                    put(
+                                            "sql",
+                                            """
+                                                    CREATE TABLE `purge_jobs` (
+                                                      `id` int NOT NULL AUTO_INCREMENT,
+                                                      `type` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '清理类型：user-学员，course-课程',
+                                                      `target_id` int NOT NULL DEFAULT '0' COMMENT '被删除的学员ID或课程ID',
+                                                      `step` int NOT NULL DEFAULT '0' COMMENT '当前清理到第几张表',
+                                                      `last_id` bigint NOT NULL DEFAULT '0' COMMENT '当前表已清理到的主键',
+                                                      `deleted_count` bigint NOT NULL DEFAULT '0' COMMENT '已删除的行数',
+                                                      `status` tinyint NOT NULL DEFAULT '0' COMMENT '状态：0-进行中，1-完成',
+                                                      `error_message` text CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci COMMENT '最近一次失败的错误信息',
+                                                      `created_at` datetime NOT NULL,
+                                                      `updated_at` datetime NOT NULL,
+                                                      PRIMARY KEY (`id`),
+                                                      KEY `status` (`status`)
+                                                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='关联数据清理任务表';
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "user_learning_summary");
+                                    put("name", "20261019_11_00_00_user_learning_summary");
+                                    put(
+                                            "sql",
+                                            """
+                                                    CREATE TABLE `user_learning_summary` (
+                                                      `id` int NOT NULL AUTO_INCREMENT,
+                                                      `user_id` int NOT NULL DEFAULT '0' COMMENT '学员ID',
+                                                      `course_id` int NOT NULL DEFAULT '0' COMMENT '课程ID,0为学员维度汇总',
+                                                      `learned_hour_count` int NOT NULL DEFAULT '0' COMMENT '已学习课时数',
+                                                      `finished_hour_count` int NOT NULL DEFAULT '0' COMMENT '已完成课时数',
+                                                      `is_finished` tinyint NOT NULL DEFAULT '0' COMMENT '课程是否学完[1:是,0:否]',
+                                                      `learn_duration` bigint NOT NULL DEFAULT '0' COMMENT '学习总时长[毫秒]',
+                                                      `today_duration` bigint NOT NULL DEFAULT '0' COMMENT 'today_date当天学习时长[毫秒]',
+                                                      `today_date` date DEFAULT NULL,
+                                                      `updated_at` datetime DEFAULT NULL,
+                                                      PRIMARY KEY (`id`),
+                                                      UNIQUE KEY `u_c` (`user_id`,`course_id`)
+                                                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='学员学习汇总表';
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "event_outbox");
+                                    put("name", "20261019_12_00_00_event_outbox");
+                                    put(
+                                            "sql",
+                                            """
+                                                    CREATE TABLE `event_outbox` (
+                                                      `id` bigint NOT NULL AUTO_INCREMENT,
+                                                      `listener` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '监听方法:类名#方法名',
+                                                      `event_type` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '事件类名',
+                                                      `partition_key` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL DEFAULT '' COMMENT '分区键',
+                                                      `payload` text CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '事件内容',
+                                                      `attempts` int NOT NULL DEFAULT '0' COMMENT '已失败次数',
+                                                      `last_error` varchar(500) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL DEFAULT '' COMMENT '最近一次失败的错误信息',
+                                                      `created_at` datetime NOT NULL,
+                                                      `updated_at` datetime NOT NULL,
+                                                      PRIMARY KEY (`id`),
+                                                      KEY `attempts_updated_at` (`attempts`,`updated_at`)
+                                                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='事件发件箱';
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "user_course_records_dedupe");
+                                    put("name", "20261019_13_00_00_user_course_records_dedupe");
+                                    put(
+                                            "sql",
+                                            """
+                                                    DELETE `r1` FROM `user_course_records` `r1`
+                                                    INNER JOIN `user_course_records` `r2`
+                                                      ON `r1`.`user_id` = `r2`.`user_id`
+                                                     AND `r1`.`course_id` = `r2`.`course_id`
+                                                     AND (`r1`.`is_finished`, `r1`.`finished_count`, `r1`.`progress`, `r1`.`id`)
+                                                       < (`r2`.`is_finished`, `r2`.`finished_count`, `r2`.`progress`, `r2`.`id`);
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "user_course_records_add_unique_u_c");
+                                    put("name", "20261019_13_00_01_user_course_records_add_unique_u_c");
+                                    put(
+                                            "sql",
+                                            """
+                                                    ALTER TABLE `user_course_records`
+                                                    ADD UNIQUE KEY `u_c` (`user_id`, `course_id`);
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "user_learn_duration_daily");
+                                    put("name", "20261019_14_00_00_user_learn_duration_daily");
+                                    put(
+                                            "sql",
+                                            """
+                                                    CREATE TABLE `user_learn_duration_daily` (
+                                                      `id` bigint unsigned NOT NULL AUTO_INCREMENT,
+                                                      `user_id` int NOT NULL DEFAULT '0' COMMENT '学员ID',
+                                                      `course_id` int NOT NULL DEFAULT '0' COMMENT '课程ID',
+                                                      `created_date` date NOT NULL COMMENT '日期',
+                                                      `duration` bigint NOT NULL DEFAULT '0' COMMENT '学习时长[毫秒]',
+                                                      `sessions` int NOT NULL DEFAULT '0' COMMENT '学习区间数',
+                                                      PRIMARY KEY (`id`),
+                                                      UNIQUE KEY `u_d_c` (`user_id`,`created_date`,`course_id`),
+                                                      KEY `c_d` (`course_id`,`created_date`)
+                                                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='学员每日课程学习时长(由学习时长记录归档)';
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "user_course_records_add_first_learned_at");
+                                    put(
+                                            "name",
+                                            "20261019_15_00_00_user_course_records_add_first_learned_at");
+                                    put(
+                                            "sql",
+                                            """
+                                                    ALTER TABLE `user_course_records`
+                                                    ADD `first_learned_at` timestamp NULL DEFAULT NULL COMMENT '首次学习时间' AFTER `finished_at`;
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "export_jobs");
+                                    put("name", "20261019_16_00_00_export_jobs");
+                                    put(
+                                            "sql",
+                                            """
+                                                    CREATE TABLE `export_jobs` (
+                                                      `id` int NOT NULL AUTO_INCREMENT,
+                                                      `type` varchar(20) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '导出类型：course-课程，department-部门，all-全部',
+                                                      `target_id` int NOT NULL DEFAULT '0' COMMENT '课程ID或部门ID',
+                                                      `format` varchar(10) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL DEFAULT 'csv' COMMENT '文件格式：csv,xlsx',
+                                                      `status` tinyint NOT NULL DEFAULT '0' COMMENT '状态：0-排队中，1-导出中，2-完成，3-失败',
+                                                      `total_rows` bigint NOT NULL DEFAULT '0' COMMENT '预计行数',
+                                                      `processed_rows` bigint NOT NULL DEFAULT '0' COMMENT '已导出行数',
+                                                      `file_name` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL DEFAULT '' COMMENT '导出文件名',
+                                                      `file_size` bigint NOT NULL DEFAULT '0' COMMENT '文件大小[字节]',
+                                                      `error_message` text CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci COMMENT '失败原因',
+                                                      `admin_id` int NOT NULL DEFAULT '0' COMMENT '创建任务的管理员ID',
+                                                      `created_at` datetime NOT NULL,
+                                                      `updated_at` datetime NOT NULL,
+                                                      `finished_at` datetime DEFAULT NULL,
+                                                      PRIMARY KEY (`id`),
+                                                      KEY `status` (`status`),
+                                                      KEY `admin_id` (`admin_id`)
+                                                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='学习进度导出任务表';
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "bootstrap_fingerprints");
+                                    put("name", "20261019_17_00_00_bootstrap_fingerprints");
+                                    put(
+                                            "sql",
+                                            """
+                                                    CREATE TABLE `bootstrap_fingerprints` (
+                                                      `name` varchar(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '检查名称',
+                                                      `fingerprint` char(64) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci NOT NULL COMMENT '定义的SHA-256',
+                                                      `updated_at` datetime NOT NULL,
+                                                      PRIMARY KEY (`name`)
+                                                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='启动检查指纹表';
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "department_course_daily");
+                                    put("name", "20261019_18_00_00_department_course_daily");
+                                    put(
+                                            "sql",
+                                            """
+                                                    CREATE TABLE `department_course_daily` (
+                                                      `dep_id` int NOT NULL DEFAULT '0' COMMENT '部门ID,0表示全部学员',
+                                                      `course_id` int NOT NULL DEFAULT '0' COMMENT '课程ID',
+                                                      `created_date` date NOT NULL COMMENT '日期',
+                                                      `started_count` int NOT NULL DEFAULT '0' COMMENT '当天开始学习的学员数',
+                                                      `finished_count` int NOT NULL DEFAULT '0' COMMENT '当天学完课程的学员数',
+                                                      `finished_hour_count` int NOT NULL DEFAULT '0' COMMENT '当天学完的课时数',
+                                                      `duration` bigint NOT NULL DEFAULT '0' COMMENT '学习时长[毫秒]',
+                                                      `updated_at` datetime NOT NULL,
+                                                      PRIMARY KEY (`dep_id`,`course_id`,`created_date`),
+                                                      KEY `c_d` (`course_id`,`created_date`),
+                                                      KEY `created_date` (`created_date`)
+                                                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='部门×课程×日期学习汇总(含下级部门)';
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "user_course_records_add_time_keys");
+                                    put(
+                                            "name",
+                                            "20261019_18_00_01_user_course_records_add_time_keys");
+                                    put(
+                                            "sql",
+                                            """
+                                                    ALTER TABLE `user_course_records`
+                                                    ADD KEY `first_learned_at` (`first_learned_at`),
+                                                    ADD KEY `finished_at` (`finished_at`);
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "user_course_hour_records_add_finished_at_key");
+                                    put(
+                                            "name",
+                                            "20261019_18_00_02_user_course_hour_records_add_finished_at_key");
+                                    put(
+                                            "sql",
+                                            """
+                                                    ALTER TABLE `user_course_hour_records`
+                                                    ADD KEY `finished_at` (`finished_at`);
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "user_learn_duration_records_add_d_u");
+                                    put(
+                                            "name",
+                                            "20261019_18_00_03_user_learn_duration_records_add_d_u");
+                                    put(
+                                            "sql",
+                                            """
+                                                    ALTER TABLE `user_learn_duration_records`
+                                                    ADD KEY `d_u` (`created_date`,`user_id`);
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "user_learn_duration_daily_add_d_u");
+                                    put(
+                                            "name",
+                                            "20261019_18_00_04_user_learn_duration_daily_add_d_u");
+                                    put(
+                                            "sql",
+                                            """
+                                                    ALTER TABLE `user_learn_duration_daily`
+                                                    ADD KEY `d_u` (`created_date`,`user_id`);
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "user_quiz_records_add_answer_bits");
+                                    put(
+                                            "name",
+                                            "20261019_19_00_00_user_quiz_records_add_answer_bits");
+                                    put(
+                                            "sql",
+                                            """
+                                                    ALTER TABLE `user_quiz_records`
+                                                    ADD `answer_bits` varbinary(1024) NULL DEFAULT NULL COMMENT '作答编码[版本+布局指纹+每题选项位图]' AFTER `user_answers`,
+                                                    ADD KEY `uqr_quiz` (`quiz_id`);
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "quiz_item_stats");
+                                    put("name", "20261019_19_00_01_quiz_item_stats");
+                                    put(
+                                            "sql",
+                                            """
+                                                    CREATE TABLE `quiz_item_stats` (
+                                                      `quiz_id` int NOT NULL DEFAULT '0' COMMENT '练习ID',
+                                                      `layout` int NOT NULL DEFAULT '0' COMMENT '题目布局指纹',
+                                                      `question_index` smallint NOT NULL DEFAULT '0' COMMENT '题目序号,-1为整卷',
+                                                      `option_index` smallint NOT NULL DEFAULT '0' COMMENT '选项序号,-1为答对,-2为未作答,整卷行-3为构建标记',
+                                                      `cnt` bigint NOT NULL DEFAULT '0' COMMENT '人数',
+                                                      `score_sum` bigint NOT NULL DEFAULT '0' COMMENT '这些学员的总分之和',
+                                                      `score_sq_sum` bigint NOT NULL DEFAULT '0' COMMENT '总分平方和,仅整卷行',
+                                                      PRIMARY KEY (`quiz_id`,`layout`,`question_index`,`option_index`)
+                                                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='练习题目分析累计量(每个学员只计最近一次作答)';
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "user_course_hour_records_add_course_id_key");
+                                    put(
+                                            "name",
+                                            "20261019_20_00_00_user_course_hour_records_add_course_id_key");
+                                    put(
+                                            "sql",
+                                            """
+                                                    ALTER TABLE `user_course_hour_records`
+                                                    ADD KEY `course_id` (`course_id`);
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "user_course_records_add_course_id_key");
+                                    put(
+                                            "name",
+                                            "20261019_20_00_01_user_course_records_add_course_id_key");
+                                    put(
+                                            "sql",
+                                            """
+                                                    ALTER TABLE `user_course_records`
+                                                    ADD KEY `course_id` (`course_id`);
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "user_learning_summary_add_course_id_key");
+                                    put(
+                                            "name",
+                                            "20261019_20_00_02_user_learning_summary_add_course_id_key");
+                                    put(
+                                            "sql",
+                                            """
+                                                    ALTER TABLE `user_learning_summary`
+                                                    ADD KEY `course_id` (`course_id`);
+                                                    """);
+                                }
+                            });
+
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "purge_jobs_add_attempts");
+                                    put(
+                                            "name",
+                                            "20261019_20_00_03_purge_jobs_add_attempts");
+                                    put(
+                                            "sql",
+                                            """
+                                                    ALTER TABLE `purge_jobs`
+                                                    ADD `attempts` int NOT NULL DEFAULT '0' COMMENT '连续失败次数' AFTER `status`,
+                                                    MODIFY `status` tinyint NOT NULL DEFAULT '0' COMMENT '状态：0-进行中，1-完成，2-失败';
+                                                    """);
+                                }
+                            });
+                    add(
+                            new HashMap<>() {
+                                {
+                                    put("table", "purge_jobs_drop_last_id");
+                                    put(
+                                            "name",
+                                            "20261019_21_00_00_purge_jobs_drop_last_id");
+                                    put(
+                                            "sql",
+                                            """
+                                                    ALTER TABLE `purge_jobs` DROP COLUMN `last_id`;
+                                                    """);
+                                }
+                            });
                 }
             };
 
@@ -984,15 +1387,25 @@ public class MigrationCheck implements CommandLineRunner {
 
     @Autowired private MigrationService migrationService;
 
+    @Autowired private BootstrapFingerprint bootstrapFingerprint;
+
     @Override
-    public void run(String... args) throws Exception {
+    public void check() throws Exception {
+        // 迁移定义与迁移记录数都没有变化时无需查询表结构
+        List<String> names = TABLE_SQL.stream().map(item -> item.get("name")).toList();
+        String fingerprint = bootstrapFingerprint.withRowCounts(names, "migrations");
+        if (bootstrapFingerprint.unchanged("migrations", fingerprint)) {
+            return;
+        }
+
         try {
             // 数据库已创建的表
-            List<String> tables = jdbcTemplate.queryForList("show tables", String.class);
+            Set<String> tables =
+                    new HashSet<>(jdbcTemplate.queryForList("show tables", String.class));
             // 已创建表的记录
-            List<String> migrations = new ArrayList<>();
+            Set<String> migrations = new HashSet<>();
             if (tables.contains("migrations")) {
-                migrations = migrationService.all();
+                migrations.addAll(migrationService.all());
             }
 
             for (Map<String, String> tableItem : TABLE_SQL) {
@@ -1015,6 +1428,8 @@ public class MigrationCheck implements CommandLineRunner {
                 migrationService.store(migrationName);
             }
 
+            bootstrapFingerprint.save(
+                    "migrations", bootstrapFingerprint.withRowCounts(names, "migrations"));
         } catch (Exception e) {
             log.error("数据库迁移执行失败,错误信息:" + e.getMessage());
         }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2023 杭州白书科技有限公司
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package xyz.playedu.system.checks;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import xyz.playedu.common.search.SearchIndexProvider;
+
+/** 启动后在后台并行构建各模块的搜索索引，构建完成前查询会回退到数据库模糊查询 */
+@Component
+@Slf4j
+@Order(20000)
+public class SearchIndexCheck implements CommandLineRunner {
+
+    @Autowired private List<SearchIndexProvider> providers;
+
+    @Override
+    public void run(String... args) throws Exception {
+        for (SearchIndexProvider provider : providers) {
+            CompletableFuture.runAsync(
+                    () -> {
+                        long start = System.currentTimeMillis();
+                        try {
+                            provider.rebuildSearchIndex();
+                            log.info(
+                                    "搜索索引构建完成,provider={},耗时={}ms",
+                                    provider.getClass().getSimpleName(),
+                                    System.currentTimeMillis() - start);
+                        } catch (Exception e) {
+                            log.error(
+                                    "搜索索引构建失败,provider={},错误信息:{}",
+                                    provider.getClass().getSimpleName(),
+                                    e.getMessage());
+                        }
+                    });
+        }
+    }
+}
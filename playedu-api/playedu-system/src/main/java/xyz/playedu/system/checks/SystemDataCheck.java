@@ -17,8 +17,6 @@ package xyz.playedu.system.checks;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
-import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import xyz.playedu.common.constant.BackendConstant;
 import xyz.playedu.common.domain.AdminRole;
@@ -27,15 +25,14 @@ import xyz.playedu.common.service.AdminUserService;
 
 @Component
 @Slf4j
-@Order(12)
-public class SystemDataCheck implements CommandLineRunner {
+public class SystemDataCheck implements BootstrapCheck {
 
     @Autowired private AdminRoleService adminRoleService;
 
     @Autowired private AdminUserService adminUserService;
 
     @Override
-    public void run(String... args) throws Exception {
+    public void check() throws Exception {
         adminInit();
     }
 
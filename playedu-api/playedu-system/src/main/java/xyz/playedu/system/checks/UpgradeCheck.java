@@ -16,27 +16,37 @@
 package xyz.playedu.system.checks;
 
 import java.util.ArrayList;
+import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
-import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import xyz.playedu.common.domain.AppConfig;
 import xyz.playedu.common.service.AdminPermissionService;
 import xyz.playedu.common.service.AppConfigService;
 
-@Order(10000)
 @Component
-public class UpgradeCheck implements CommandLineRunner {
+public class UpgradeCheck implements BootstrapCheck {
 
     @Autowired private AppConfigService appConfigService;
 
     @Autowired private AdminPermissionService permissionService;
 
+    @Autowired private BootstrapFingerprint bootstrapFingerprint;
+
+    // 新增升级步骤时同步追加到这里
+    private static final List<String> UPGRADES = List.of("1_beta7", "1_4", "1_6");
+
     @Override
-    public void run(String... args) throws Exception {
+    public void check() throws Exception {
+        String fingerprint = BootstrapFingerprint.of(UPGRADES);
+        if (bootstrapFingerprint.unchanged("upgrades", fingerprint)) {
+            return;
+        }
+
         upgrade_1_beta7();
         upgrade_1_4();
         upgrade_1_6();
+
+        bootstrapFingerprint.save("upgrades", fingerprint);
     }
 
     private void upgrade_1_4() {